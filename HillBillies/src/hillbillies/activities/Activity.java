@@ -1,6 +1,7 @@
 package hillbillies.activities;
 
 import hillbillies.model.Unit;
+import hillbillies.utils.TimingWheel;
 
 /**
  * Abstract base class for each Activity a Unit can perform
@@ -27,6 +28,20 @@ public abstract class Activity {
      * Final variable referencing this Activity's parentActivity
      */
     protected final Activity parentActivity;
+    /**
+     * Variable referencing the scheduled wake-up of this Activity, or null
+     * when no wake-up is scheduled.
+     */
+    private TimingWheel.Event wakeUpEvent;
+    /**
+     * Variable registering the progress of this Activity at which its scheduled wake-up is due,
+     * or NaN when no wake-up is scheduled.
+     */
+    private double wakeUpDueProgress = Double.NaN;
+    /**
+     * Variable registering the progress of this Activity at its last wake-up.
+     */
+    private double wakeUpProgress = 0d;
 
     /**
      * Initialize a new Activity which is bound to the given Unit.
@@ -91,6 +106,7 @@ public abstract class Activity {
             throw new IllegalStateException("This unit's current activity is not set to this activity!");
         this.isDefault = isDefault;
         this.activityProgress = 0d;
+        this.wakeUpProgress = 0d;
         this.isActive = true;
         this.startActivity();
     }
@@ -104,6 +120,7 @@ public abstract class Activity {
      * Stop this Activity
      */
     public final void stop(){
+        this.cancelWakeUp();
         this.interruptActivity();// First interrupt and then stop activity
         this.stopActivity();
         this.activityProgress = 0d;
@@ -127,6 +144,7 @@ public abstract class Activity {
     public final void interrupt(Activity nextActivity) throws IllegalStateException{
         if(!shouldInterruptFor(nextActivity))
             throw new IllegalStateException("This Activity cannot be interrupted by the next Activity");
+        this.cancelWakeUp();
         this.interruptActivity();
         this.isActive = false;
     }
@@ -138,12 +156,18 @@ public abstract class Activity {
     protected abstract void interruptActivity();
 
     /**
-     * Advance the game-time of this Activity
+     * Advance the game-time of this Activity. When a scheduled wake-up became due, but the
+     * world of the unit didn't wake this Activity up, because that world doesn't schedule
+     * events or because this unit is advanced on its own, this Activity is woken up here.
      * @param dt The amount of game-time to progress with
      */
     public final void advanceTime(double dt){
         this.advanceActivity(dt);
         this.activityProgress += dt;
+        if(this.activityProgress >= this.wakeUpDueProgress){// False when no wake-up is scheduled
+            this.cancelWakeUp();
+            this.fireWakeUp(this.activityProgress);
+        }
     }
 
     /**
@@ -151,6 +175,65 @@ public abstract class Activity {
      */
     protected abstract void advanceActivity(double dt);
 
+    /**
+     * Schedule a wake-up of this Activity after the given amount of game-time.
+     * A previously scheduled wake-up is cancelled. Activities which only wait for
+     * a certain amount of time should use wake-ups instead of checking their
+     * progress in advanceActivity.
+     * The delay is counted from the current progress of this Activity or, when called from
+     * wakeUp, from the progress at that wake-up.
+     * @param delay The amount of game-time after which wakeUp will be called.
+     * @effect | unit.getWorld().scheduleEvent(delay, ...)
+     * @note The wake-up is cancelled when this Activity is stopped or interrupted.
+     */
+    protected final void scheduleWakeUp(double delay){
+        this.cancelWakeUp();
+        double dueProgress = Math.max(this.activityProgress, this.wakeUpProgress) + delay;
+        this.wakeUpDueProgress = dueProgress;
+        this.wakeUpEvent = unit.getWorld().scheduleEvent(delay, () -> {
+            this.wakeUpEvent = null;
+            this.wakeUpDueProgress = Double.NaN;
+            this.fireWakeUp(dueProgress);
+        });
+    }
+
+    /**
+     * Cancel the scheduled wake-up of this Activity, if any.
+     */
+    private void cancelWakeUp(){
+        if(this.wakeUpEvent != null){
+            this.wakeUpEvent.cancel();
+            this.wakeUpEvent = null;
+        }
+        this.wakeUpDueProgress = Double.NaN;
+    }
+
+    /**
+     * Wake this Activity up at the given progress, when it's still being executed.
+     */
+    private void fireWakeUp(double progress){
+        this.wakeUpProgress = progress;
+        if(this.isActive() && unit.isCurrentActivity(this) && !unit.isTerminated())
+            this.wakeUp();
+    }
+
+    /**
+     * Activity specific code which is called when a scheduled wake-up of this Activity is due.
+     * This is called by the world of the unit, before the units of that world are advanced,
+     * or by advanceTime of this Activity when the world didn't wake it up.
+     */
+    protected void wakeUp(){
+
+    }
+
+    /**
+     * Return the progress of this Activity at its last wake-up, or zero when it wasn't woken up
+     * since it was started.
+     */
+    protected final double getWakeUpProgress(){
+        return this.wakeUpProgress;
+    }
+
     /**
      * Activity specific code to check whether this Activity can be started.
      * @return True if this Activity can be started as the nextActivity of the currently active Activity.
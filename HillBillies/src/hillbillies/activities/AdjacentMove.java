@@ -2,6 +2,7 @@ package hillbillies.activities;
 
 import be.kuleuven.cs.som.annotate.Raw;
 import hillbillies.model.Unit;
+import hillbillies.utils.Position;
 import hillbillies.utils.Vector;
 
 /**
@@ -14,7 +15,7 @@ public class AdjacentMove extends Move {
     /**
      * Variable registering the unit's next position, this is the position the unit is moving to.
      */
-    private final Vector nextPosition;
+    private final Position nextPosition;
     /**
      * Variable registering this AdjacentMove's parentActivity, if any.
      */
@@ -75,7 +76,7 @@ public class AdjacentMove extends Move {
         Vector nextPosition = unit.getPosition().getCubeCenterCoordinates().add(direction);
         if (!isValidNextPosition(unit.getPosition(), nextPosition))
             throw new IllegalArgumentException("Invalid position to move to.");
-        this.nextPosition = nextPosition;
+        this.nextPosition = new Position(nextPosition);
         this.targetMove = extendedMovement;
     }
 
@@ -116,29 +117,42 @@ public class AdjacentMove extends Move {
      */
     @Override
     protected void advanceMove(double dt) {
-        Vector cpos = unit.getPosition();
-        if (nextPosition.equals(cpos)) {
+        Position cpos = unit.position();
+        if (nextPosition.isCloseTo(cpos)) {
             this.requestFinish(true);
         } else {
-            Vector difference = nextPosition.difference(cpos);
-            double d = difference.length();
-            double v = this.isSprinting() ? getSprintSpeed(difference) : getWalkingSpeed(difference);
+            // Work on the separate coordinates, this is called for every moving unit on every tick
+            double dx = nextPosition.X() - cpos.X();
+            double dy = nextPosition.Y() - cpos.Y();
+            double dz = nextPosition.Z() - cpos.Z();
+            double d = Math.sqrt(dx*dx + dy*dy + dz*dz);
+            double v = this.isSprinting() ? getSprintSpeed(dz) : getWalkingSpeed(dz);
             this.setCurrentSpeed(v);
-            Vector dPos = difference.multiply(v / d * dt);
-            Vector velocity = difference.multiply(v / d);
-            Vector newPos = cpos.add(dPos);
-            for (int i = 0; i < 3; i++) {
-                if (nextPosition.isInBetween(i, cpos, newPos)) {
-                    double[] a = newPos.asArray();
-                    a[i] = nextPosition.get(i);
-                    newPos = new Vector(a);
-                }
-            }
-            unit.setPosition(newPos);
-            unit.setOrientation((float) Math.atan2(velocity.Y(), velocity.X()));
+            double factor = v / d * dt;
+            double x = clamp(nextPosition.X(), cpos.X(), cpos.X() + dx*factor);
+            double y = clamp(nextPosition.Y(), cpos.Y(), cpos.Y() + dy*factor);
+            double z = clamp(nextPosition.Z(), cpos.Z(), cpos.Z() + dz*factor);
+            unit.updatePosition(new Position(x, y, z));
+            unit.setOrientation((float) Math.atan2(dy, dx));// The velocity has the same direction as the difference
         }
     }
 
+    /**
+     * Clamp the new coordinate to the target coordinate when the target coordinate
+     * lies in between the current and the new coordinate.
+     * @param target The target coordinate
+     * @param current The current coordinate
+     * @param next The new coordinate
+     * @return | if((current <= target && target <= next) || (next <= target && target <= current))
+     *         |    then result == target
+     *         | else result == next
+     */
+    private static double clamp(double target, double current, double next){
+        if((target>=current && target<=next) || (target>=next && target<=current))
+            return target;
+        return next;
+    }
+
     /**
      * Return a boolean indicating whether or not this unit
      * is able to perform an adjacent movement. (When not in default mode!)
@@ -179,6 +193,6 @@ public class AdjacentMove extends Move {
         if(targetMove!=null) targetMove.stopSprint();// Let previous activity in stack (extended movement) know we stopped sprinting
     }
     public Vector getNextPosition(){
-    	return this.nextPosition.clone();
+    	return this.nextPosition.asVector();
     }
 }
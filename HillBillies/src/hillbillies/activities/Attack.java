@@ -62,6 +62,7 @@ public class Attack extends Activity{
 
         this.defend();
         defender.restartActivity(true);
+        this.scheduleWakeUp(ATTACK_DURATION);
     }
 
     @Override
@@ -76,8 +77,12 @@ public class Attack extends Activity{
 
     @Override
     public void advanceActivity(double dt) {
-        if (activityProgress >= ATTACK_DURATION)
-            this.requestFinish();
+        // Nothing to do until the attack is finished
+    }
+
+    @Override
+    protected void wakeUp() {
+        this.requestFinish();
     }
 
     @Override
@@ -112,9 +117,10 @@ public class Attack extends Activity{
                 !unit.isAttacking() &&
                 !unit.isInitialRestMode() &&
                 (defender.getHitpoints() > Unit.MIN_HITPOINTS) &&
-                unit.getWorld().getNeighbouringCubesPositions(
-                        defender.getPosition().getCubeCoordinates()
-                ).contains(unit.getPosition().getCubeCoordinates()) &&
+                unit.getWorld().areNeighbouringCubes(
+                        unit.getWorld().getCubeIndex(defender.getPosition()),
+                        unit.getWorld().getCubeIndex(unit.getPosition())
+                ) &&
                 unit.getFaction() != defender.getFaction() &&
                 !defender.isFalling() &&
                 !defender.isTerminated() &&
@@ -242,11 +248,14 @@ public class Attack extends Activity{
     protected static boolean isAccessible(Unit unit, Vector otherPosition) throws IllegalArgumentException{
         if(unit==null || otherPosition==null)
             throw new IllegalArgumentException("The other position must be an effective position in order to check his validity.");
-    	Vector unitPosition = unit.getPosition().getCubeCoordinates();
-    	otherPosition = otherPosition.getCubeCoordinates();
-        if(!unit.isValidPosition(otherPosition)) return false;// Check if it's a valid position itself
-        for(Vector d : otherPosition.difference(unitPosition).decompose()){
-            if(!unit.getWorld().isCubePassable(unitPosition.add(d)) || !unit.getWorld().isCubePassable((otherPosition.difference(d)))) 
+    	Vector unitPosition = unit.getPosition();
+        if(!unit.isValidPosition(otherPosition.getCubeCoordinates())) return false;// Check if it's a valid position itself
+        IWorld world = unit.getWorld();
+        int x = unitPosition.cubeX(), y = unitPosition.cubeY(), z = unitPosition.cubeZ();
+        int ox = otherPosition.cubeX(), oy = otherPosition.cubeY(), oz = otherPosition.cubeZ();
+        for(int axis = 0; axis < 3; axis++){// unitPosition.add(d) and otherPosition.difference(d) for each component d
+            if(!world.isCubePassable(world.getCubeIndex(axis == 0 ? ox : x, axis == 1 ? oy : y, axis == 2 ? oz : z)) ||
+                    !world.isCubePassable(world.getCubeIndex(axis == 0 ? x : ox, axis == 1 ? y : oy, axis == 2 ? z : oz)))
             	return false;// Check if surrounding positions are valid too (prevent corner glitch)
         }
         return true;
@@ -197,7 +197,15 @@ public abstract class Move extends Activity {
      * @param direction The direction the Unit is sprinting in
      */
     protected double getSprintSpeed(Vector direction){
-        return 2*this.getWalkingSpeed(direction);
+        return this.getSprintSpeed(direction.Z());
+    }
+
+    /**
+     * Retrieve the Unit's sprinting speed
+     * @param dz The z-coordinate of the direction the Unit is sprinting in
+     */
+    protected double getSprintSpeed(double dz){
+        return 2*this.getWalkingSpeed(dz);
     }
 
     /**
@@ -205,8 +213,16 @@ public abstract class Move extends Activity {
      * @param direction The direction the Unit is walking in
      */
     protected double getWalkingSpeed(Vector direction){
-        if(direction.Z()<-0.5) return 1.2*this.getBaseSpeed();
-        else if(direction.Z()>0.5) return 0.5*this.getBaseSpeed();
+        return this.getWalkingSpeed(direction.Z());
+    }
+
+    /**
+     * Retrieve the Unit's walking speed
+     * @param dz The z-coordinate of the direction the Unit is walking in
+     */
+    protected double getWalkingSpeed(double dz){
+        if(dz<-0.5) return 1.2*this.getBaseSpeed();
+        else if(dz>0.5) return 0.5*this.getBaseSpeed();
         else return this.getBaseSpeed();
     }
 
@@ -1,6 +1,5 @@
 package hillbillies.activities;
 
-import hillbillies.model.Cube;
 import hillbillies.model.Task;
 import hillbillies.model.Unit;
 import hillbillies.utils.Vector;
@@ -116,11 +115,9 @@ public class None extends Activity {
         if(!this.isDefault())
             throw new IllegalStateException("The default behaviour of unit is not activated");
 
-        List<Cube> AdjCubes = new ArrayList<Cube>(unit.getWorld().getDirectlyAdjacentCubes(unit.getPosition().getCubeCoordinates()));
         List<Unit> units = new ArrayList<>();
-        for (int i = 0; i < AdjCubes.size(); i++){
-            units.addAll(unit.getWorld().getUnitsInCube(AdjCubes.get(i)));
-        }
+        unit.getWorld().forEachDirectlyAdjacentCube(unit.getWorld().getCubeIndex(unit.getPosition()),
+                adjacentCube -> units.addAll(unit.getWorld().getUnitsInCube(adjacentCube)));
         units.removeIf(defender -> unit.getFaction() == defender.getFaction() || !Attack.isAccessible(this.unit, defender.getPosition().getCubeCoordinates()));
         int nb = 2;
         if (units.size() > 0)
@@ -30,6 +30,11 @@ public class Rest extends Activity {
      * Variable registering the stamina points a unit recovered during the current rest period.
      */
     private double restStamina = 0d;
+    /**
+     * Variable registering the progress of the current rest period at the last update
+     * of the recovered hitpoints and stamina.
+     */
+    private double updateProgress = 0d;
 
     public Rest(Unit unit){
         super(unit);
@@ -39,6 +44,8 @@ public class Rest extends Activity {
     public void startActivity() {
         this.restHitpoints = 0d;
         this.restStamina = 0d;
+        this.updateProgress = 0d;
+        this.scheduleNextUpdate();
     }
 
     @Override
@@ -54,13 +61,62 @@ public class Rest extends Activity {
 
     @Override
     public void advanceActivity(double dt) {
+        // Recovery is updated on wake-ups, see scheduleNextUpdate
+    }
+
+    /**
+     * Update the recovered hitpoints and stamina up to the progress of this wake-up and
+     * schedule the next update when this unit is still resting.
+     */
+    @Override
+    protected void wakeUp() {
+        double progress = this.getWakeUpProgress();
+        this.recover(this.updateProgress, progress - this.updateProgress);
+        this.updateProgress = progress;
+        if(this.isActive())
+            this.scheduleNextUpdate();
+    }
+
+    /**
+     * Schedule a wake-up at the moment the unit recovers its next whole hitpoint or,
+     * when its hitpoints are at their maximum, its next whole stamina point. Between
+     * these moments, resting has no visible effect, so the unit's recovery doesn't
+     * have to be updated.
+     */
+    private void scheduleNextUpdate() {
+        double delay = 0d;// Finish immediately when nothing has to be recovered
+        if(unit.getHitpoints() < Unit.getMaxHitpoints(unit.getWeight(), unit.getToughness()))
+            delay = getTimeToNextPoint(restHitpoints, this.getRestHitpointsGain(), REST_HITPOINTS_GAIN_INTERVAL);
+        else if(unit.getStamina() < Unit.getMaxStamina(unit.getWeight(), unit.getToughness()))
+            delay = getTimeToNextPoint(restStamina, this.getRestStaminaGain(), REST_STAMINA_GAIN_INTERVAL);
+        this.scheduleWakeUp(delay);
+    }
+
+    /**
+     * Return the time needed to recover the next whole point.
+     * @param recovered The amount of points recovered during this rest period.
+     * @param gain The amount of points recovered each interval.
+     * @param interval The gain interval.
+     */
+    private double getTimeToNextPoint(double recovered, double gain, double interval) {
+        double neededPoints = Math.floor(recovered) + 1d - recovered;
+        double neededIntervals = Math.ceil(neededPoints/gain);
+        return neededIntervals*interval - this.updateProgress % interval;
+    }
+
+    /**
+     * Recover the hitpoints and stamina gained during the given amount of time.
+     * @param prevProgress The progress of this rest period at the previous update.
+     * @param dt The time passed since the previous update.
+     */
+    private void recover(double prevProgress, double dt) {
         int maxHp = Unit.getMaxHitpoints(unit.getWeight(), unit.getToughness());
         int maxSt = Unit.getMaxStamina(unit.getWeight(), unit.getToughness());
         double extraTime = -1d;
         if(maxHp == unit.getHitpoints() && maxSt==unit.getStamina())
             this.requestFinish();
         if(unit.getHitpoints()<maxHp){
-            double extraRestHitpoints = getIntervalTicks(activityProgress, dt, REST_HITPOINTS_GAIN_INTERVAL)*this.getRestHitpointsGain();
+            double extraRestHitpoints = getIntervalTicks(prevProgress, dt, REST_HITPOINTS_GAIN_INTERVAL)*this.getRestHitpointsGain();
             int extraHitpoints = getIntervalTicks(restHitpoints, extraRestHitpoints, 1d);
             int newHitpoints = unit.getHitpoints() + extraHitpoints;
             double newRestHitpoints = restHitpoints + extraRestHitpoints;
@@ -71,7 +127,7 @@ public class Rest extends Activity {
                 newHitpoints = maxHp;
                 double neededExtraRestHitpoints = maxHp - unit.getHitpoints() - restHitpoints % 1;
                 int neededTicks = (int)Math.ceil(neededExtraRestHitpoints/this.getRestHitpointsGain());
-                double neededTime = REST_HITPOINTS_GAIN_INTERVAL*neededTicks - activityProgress % REST_HITPOINTS_GAIN_INTERVAL;
+                double neededTime = REST_HITPOINTS_GAIN_INTERVAL*neededTicks - prevProgress % REST_HITPOINTS_GAIN_INTERVAL;
                 extraTime = dt - neededTime;
                 assert extraTime >= 0;
             }
@@ -81,7 +137,7 @@ public class Rest extends Activity {
         if((unit.getHitpoints()==maxHp && extraTime != 0d) && unit.getStamina()<maxSt){
             if(extraTime > 0d)
                 dt = extraTime;
-            double extraRestStamina = getIntervalTicks(activityProgress, dt, REST_STAMINA_GAIN_INTERVAL)*this.getRestStaminaGain();
+            double extraRestStamina = getIntervalTicks(prevProgress, dt, REST_STAMINA_GAIN_INTERVAL)*this.getRestStaminaGain();
             int extraStamina = getIntervalTicks(restStamina, extraRestStamina, 1d);
             int newStamina = unit.getStamina() + extraStamina;
             double newRestStamina = restStamina + extraRestStamina;
@@ -1,9 +1,21 @@
 package hillbillies.activities;
 
 import hillbillies.model.*;
+import hillbillies.pathfinding.AStarPathFinder;
+import hillbillies.pathfinding.ComponentLabels;
+import hillbillies.pathfinding.DStarLitePathFinder;
+import hillbillies.pathfinding.DistanceField;
+import hillbillies.pathfinding.FlowFieldRegistry;
+import hillbillies.pathfinding.PathCache;
+import hillbillies.pathfinding.PathScheduler;
+import hillbillies.pathfinding.PathSearch;
+import hillbillies.pathfinding.PathService;
+import hillbillies.utils.IntIntMap;
 import hillbillies.utils.Vector;
 
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 import static hillbillies.utils.Utils.randDouble;
 import static hillbillies.utils.Utils.randInt;
@@ -13,9 +25,74 @@ import static hillbillies.utils.Utils.randInt;
  */
 public class TargetMove extends Move {
 
+    /**
+     * Constant reflecting the maximum number of cubes expanded to repair the path when the
+     * leader moved, before the path is searched again from scratch.
+     */
+    private static final int MAX_FOLLOW_REPAIR_SIZE = 64;
+    /**
+     * Constant reflecting the size of the chunks of cubes registered by a path.
+     */
+    private static final int CHUNK_SIZE = 8;
+    /**
+     * Array registering the neighbouring direction for every offset (dx+1)*9 + (dy+1)*3 + (dz+1).
+     */
+    private static final byte[] DIRECTIONS = new byte[27];
+    static {
+        for(int d = 0; d < World.NB_NEIGHBOURING_DIRECTIONS; d++){
+            Vector direction = World.getNeighbouringDirection(d);
+            DIRECTIONS[(direction.cubeX() + 1)*9 + (direction.cubeY() + 1)*3 + direction.cubeZ() + 1] = (byte)d;
+        }
+    }
+
     private Path path;
 	private IWorldObject leader;
     private Set<? extends IWorldObject> targets = new HashSet<>();
+    /**
+     * Variable referencing the incremental path finder which repairs the path of this
+     * TargetMove after terrain changes, or null if the path wasn't repaired yet.
+     */
+    private DStarLitePathFinder replanner;
+    /**
+     * Variable registering the terrain epoch up to which the replanner knows the terrain changes.
+     */
+    private long replannerEpoch;
+    /**
+     * Variable referencing the flow field held by this TargetMove, or null if it doesn't
+     * hold a flow field.
+     */
+    private DistanceField flowField;
+    /**
+     * Variable registering the index of the target cube of the held flow field.
+     */
+    private int flowFieldTarget;
+    /**
+     * Flag indicating whether the flow field towards the target of the path was requested already.
+     */
+    private boolean flowFieldRequested = false;
+    /**
+     * Variable referencing the search for the path of this TargetMove running on a worker
+     * thread of the path service, or null if this TargetMove isn't planning.
+     */
+    private Future<PathService.PathResult> plannedPath;
+    /**
+     * Variable registering the index of the target cube of the planned path.
+     */
+    private int plannedTarget;
+    /**
+     * Variable referencing the search for the path of this TargetMove which is spread over
+     * the ticks of the world by its path scheduler, or null if no such search is running.
+     */
+    private PathSearch scheduledSearch;
+    /**
+     * Variable referencing the objects towards which the scheduled search runs.
+     */
+    private Set<? extends IWorldObject> scheduledTargets;
+    /**
+     * Variable registering the number of ticks of the scheduled search when this TargetMove
+     * was advanced for the last time.
+     */
+    private int scheduledSearchTicks;
 
 //    public TargetMove(Unit unit, Set<Vector> targets)throws IllegalArgumentException, NullPointerException{
 //    	super(unit);
@@ -28,34 +105,98 @@ public class TargetMove extends Move {
 //            throw new IllegalArgumentException("The given target position is not reachable from the Unit's current position.");
 //    }
     
-    public TargetMove(Unit unit, Set<? extends IWorldObject> worldObjects) {
+    /**
+     * Initialize a new TargetMove of the given unit towards the nearest of the given objects.
+     * Only the walkable regions of the objects are checked right away, the path is searched by
+     * the path scheduler of the world while this TargetMove is planning.
+     * @throws IllegalArgumentException
+     *          When none of the given objects can be reached from the position of the unit.
+     */
+    public TargetMove(Unit unit, Set<? extends IWorldObject> worldObjects) throws IllegalArgumentException {
+        this(unit, worldObjects, true);
+    }
+
+    private TargetMove(Unit unit, Set<? extends IWorldObject> worldObjects, boolean plan) throws IllegalArgumentException {
     	super(unit);
     	if (worldObjects.isEmpty())
     		throw new IllegalArgumentException("The given set of worldObjects is empty");
-        if(!calculatePath(unit.getPosition().getCubeCoordinates(), worldObjects))
+        Vector cpos = unit.getPosition().getCubeCoordinates();
+        if(!plan || unit.isFalling()){// A falling unit isn't bound to the walkable regions
+            if(!calculatePath(cpos, worldObjects))
+                throw new IllegalArgumentException("The given target objects are not reachable from the Unit's current position.");
+            return;
+        }
+        IWorld world = unit.getWorld();
+        int source = world.getCubeIndex(cpos);
+        int[] targetCubes = new int[worldObjects.size()];
+        int nbTargets = 0;
+        for(IWorldObject worldObject : worldObjects)
+            if(world.isValidPosition(worldObject.getPosition()))
+                targetCubes[nbTargets++] = world.getCubeIndex(worldObject.getPosition());
+        nbTargets = filterReachable(source, targetCubes, nbTargets);
+        if(nbTargets == 0)
             throw new IllegalArgumentException("The given target objects are not reachable from the Unit's current position.");
+        this.targets = worldObjects;
+        this.submitSearch(cpos, Arrays.copyOf(targetCubes, nbTargets), worldObjects);
     }
-    
+
+    /**
+     * Initialize a new TargetMove of the given unit towards the given target position. Only the
+     * walkable region of the target is checked right away, the path is searched by the path
+     * scheduler of the world while this TargetMove is planning.
+     * @throws IllegalArgumentException
+     *          When the given target can't be reached from the position of the unit.
+     */
     public TargetMove(Unit unit, Vector target) throws IllegalArgumentException{
         super(unit);
-        if(!calculatePath(unit.getPosition().getCubeCoordinates(), target.getCubeCoordinates()))
+        IWorld world = unit.getWorld();
+        Vector cpos = unit.getPosition().getCubeCoordinates();
+        if(unit.isFalling() || !world.isValidPosition(target)){
+            if(!calculatePath(cpos, target.getCubeCoordinates()))
+                throw new IllegalArgumentException("The given target position is not reachable from the Unit's current position.");
+            return;
+        }
+        int source = world.getCubeIndex(cpos), targetCube = world.getCubeIndex(target);
+        if(!world.getComponentLabels().areConnected(source, targetCube))
             throw new IllegalArgumentException("The given target position is not reachable from the Unit's current position.");
+        int[] cubes = world.getPathCache().get(source, targetCube);
+        if(cubes != null)
+            this.path = toPath(cpos, cubes);
+        else
+            this.submitSearch(cpos, new int[]{targetCube}, Collections.emptySet());
     }
 
     public TargetMove(Unit unit){// Find random target
         super(unit);
-            Vector target = (new Vector(randDouble(unit.getWorld().getMinPosition().X(), unit.getWorld().getMaxPosition().X()),
-                    randDouble(unit.getWorld().getMinPosition().Y(), unit.getWorld().getMaxPosition().Y()),
-                    randDouble(unit.getWorld().getMinPosition().Z(), unit.getWorld().getMaxPosition().Z()))).getCubeCoordinates();
-            PathCalculator pathCalculator = new PathCalculator(target);
-            Path path = pathCalculator.computePath(unit.getPosition().getCubeCoordinates());
-
-            if(path!=null && path.hasNext())
-                this.path = path;
-            else if (pathCalculator.controlledPos.size() != 0)
-                calculatePath(unit.getPosition().getCubeCoordinates(), pathCalculator.controlledPos.get(randInt(0, pathCalculator.controlledPos.size() - 1)).getCubeCoordinates());
-            else
-            	throw new IllegalStateException("The given unit cannot reach any other position.");
+        IWorld world = unit.getWorld();
+        if(!unit.isFalling()){// Pick a random cube of the unit's walkable region, the path is searched on a worker thread
+            int source = world.getCubeIndex(unit.getPosition().getCubeCoordinates());
+            if(world.getWalkableDirections(source) == 0)
+                throw new IllegalStateException("The given unit cannot reach any other position.");
+            ComponentLabels labels = world.getComponentLabels();
+            int target;
+            do{
+                target = labels.getRandomCube(source);
+            }while(target == source);// The region has other cubes, as the unit can move
+            this.requestPath(source, target);
+            return;
+        }
+        Vector target = (new Vector(randDouble(unit.getWorld().getMinPosition().X(), unit.getWorld().getMaxPosition().X()),
+                randDouble(unit.getWorld().getMinPosition().Y(), unit.getWorld().getMaxPosition().Y()),
+                randDouble(unit.getWorld().getMinPosition().Z(), unit.getWorld().getMaxPosition().Z()))).getCubeCoordinates();
+        assert world.isValidPosition(target);// randDouble excludes the maximum position
+        AStarPathFinder pathFinder = world.getPathFinder();
+        Vector cpos = unit.getPosition().getCubeCoordinates();
+        // Search right here instead of through computePath, which may return without searching,
+        // so the reached cubes of the path finder are those of this search
+        int[] cubes = pathFinder.findPath(world.getCubeIndex(cpos), new int[]{world.getCubeIndex(target)}, this::getWalkableDirections);
+        if(cubes != null)
+            this.path = toPath(cpos, cubes);
+        else if (pathFinder.getNbReachedCubes() != 0){
+            int reachedCube = pathFinder.getReachedCube(randInt(0, pathFinder.getNbReachedCubes() - 1));
+            calculatePath(unit.getPosition().getCubeCoordinates(), toCubeCoordinates(reachedCube));
+        }else
+            throw new IllegalStateException("The given unit cannot reach any other position.");
     }
     
     /**
@@ -63,6 +204,32 @@ public class TargetMove extends Move {
      */
     @Override
     protected void startActivity() {
+        if(this.flowFieldRequested || unit.isFalling())
+            return;
+        IWorld world = unit.getWorld();
+        int target;
+        if(this.path != null && this.path.hasNext())
+            target = world.getCubeIndex(this.path.getTarget());
+        else if(this.plannedPath != null)
+            target = this.plannedTarget;
+        else if(this.scheduledSearch != null && this.scheduledSearch.getTargets().length == 1)
+            target = this.scheduledSearch.getTargets()[0];
+        else
+            return;
+        Vector cpos = unit.getPosition().getCubeCoordinates();
+        DistanceField flowField = this.requestFlowField(target);
+        if(flowField != null){// Other units walk to the same cube
+            int[] cubes = FlowFieldRegistry.getPath(flowField, world.getCubeIndex(cpos));
+            if(cubes != null){
+                if(this.plannedPath != null)// The planned search isn't needed anymore
+                    this.cancelPlannedPath();
+                this.path = toPath(cpos, cubes);
+                if(this.scheduledSearch != null){
+                    this.cancelScheduledSearch();
+                    this.updateLeader(this.scheduledTargets);
+                }
+            }
+        }
     }
 
     /**
@@ -70,7 +237,11 @@ public class TargetMove extends Move {
      */
     @Override
     protected void stopActivity() {
-
+        this.releaseFlowField();
+        if(this.plannedPath != null)
+            this.cancelPlannedPath();
+        if(this.scheduledSearch != null)
+            this.cancelScheduledSearch();
     }
 
     /**
@@ -90,31 +261,51 @@ public class TargetMove extends Move {
     @Override
     protected void advanceMove(double dt) {
         Vector cpos = unit.getPosition().getCubeCoordinates();
+        if(this.scheduledSearch != null){
+            this.continueScheduledSearch();
+            if(!this.scheduledSearch.isFinished())
+                return;// The unit waits until its path is found
+            this.receiveScheduledPath(cpos);
+            if(this.scheduledSearch != null)
+                return;// The unit moved during the search, so it's searched again
+        }
+        if(this.plannedPath != null){
+            if(!this.plannedPath.isDone())
+                return;// The unit waits until its path is found
+            if(!this.receivePath(cpos)){
+                requestFinish();
+                return;
+            }
+            if(this.isPlanning())
+                return;// The terrain changed during the search, so it's searched again
+        }
         if(this.leader!=null) {
             this.targets.removeIf(obj -> !isValidLeader(obj));// Remove invalid leaders
 
             if(!isValidLeader(this.leader)) {
-                if (this.hasNextLeader())
-                    calculatePath(cpos, this.targets);// Calculate path to new leader
-                else {
+                if (this.hasNextLeader()){
+                    this.schedulePath(cpos, this.targets);// Search path to new leader
+                    if(this.scheduledSearch != null)
+                        return;
+                }else {
                     requestFinish();// No valid targets over
                     return;
                 }
             }else{
             	if (/*this.path!=null && !this.path.hasNext() && */
-            			unit.getWorld().getNeighbouringCubesPositions(unit.getPosition().getCubeCoordinates()).contains(this.leader.getPosition().getCubeCoordinates())){
+            			unit.getWorld().areNeighbouringCubes(unit.getWorld().getCubeIndex(unit.getPosition()), unit.getWorld().getCubeIndex(this.leader.getPosition()))){
             		requestFinish();
             		return;
             	}
             	else if(this.path!=null && !this.path.hasNext())
-            		this.calculatePath(cpos, leader.getPosition().getCubeCoordinates());
-            	else if (!this.path.getTarget().equals(this.leader.getPosition().getCubeCoordinates())){// Leader's position has changed
-                    Vector newTarget = leader.getPosition().getCubeCoordinates();
-                    if(this.path.contains(newTarget)){
-                        this.path.removeFromPath(newTarget);
-                    }else
-                        this.calculatePath(cpos, newTarget);// If no path is available, this.path will be null and requestFinish will be called
+            		this.schedulePath(cpos, Collections.singleton(this.leader));
+            	else{
+                    int leaderCube = unit.getWorld().getCubeIndex(this.leader.getPosition());
+                    if(leaderCube != this.path.getTargetCube())// Leader's position has changed
+                        this.followLeader(cpos, leaderCube);
                 }
+                if(this.scheduledSearch != null)
+                    return;// The unit waits until its path is found
             }
         }
         if(this.path!=null && this.path.hasNext()){
@@ -123,7 +314,7 @@ public class TargetMove extends Move {
             	AdjacentMove nextMove = new AdjacentMove(unit, nextblub.difference(cpos), this.isSprinting(), this);
             	unit.requestNewActivity(nextMove);
             }catch(Exception e){
-            	if(!calculatePath(unit.getPosition().getCubeCoordinates(), this.path.getTarget()))
+            	if(!repairPath(unit.getPosition().getCubeCoordinates(), this.path.getTarget()))
                     this.requestFinish();
             }
             
@@ -160,21 +351,60 @@ public class TargetMove extends Move {
     }
 
     public void notifyTerrainChange(Terrain oldTerrain, Cube cube){
+        if(this.isPlanning())
+            return;// Results of searches on outdated terrain are discarded
+        if(this.replanner != null){
+            IWorld world = unit.getWorld();
+            this.replanner.notifyTerrainChange(world.getCubeX(cube.getIndex()), world.getCubeY(cube.getIndex()), world.getCubeZ(cube.getIndex()));
+            if(this.replannerEpoch == world.getTerrainEpoch() - 1)
+                this.replannerEpoch++;// Otherwise some changes were missed, e.g. while falling
+        }
         if(this.path.dependsOn(cube.getPosition())){
-            if(!calculatePath(unit.getPosition().getCubeCoordinates(), this.path.getTarget()))
+            if(!repairPath(unit.getPosition().getCubeCoordinates(), this.path.getTarget()))
                 this.requestFinish();
         }
 
     }
     
+	/**
+	 * Return the path of this TargetMove, or null while it's planning.
+	 */
+	public Path getPath(){
+		return this.path;
+	}
+
+	/**
+	 * Return the position at the end of the path of this TargetMove, or null while it's planning.
+	 */
 	public Vector getNearestPos(){
-		return this.path.getTarget();
+		return this.path == null ? null : this.path.getTarget();
 	}
 
 	public IWorldObject getNearestObject(){
 		return leader;
 	}
 
+    /**
+     * Return the position of the nearest of the given objects which the given unit can reach.
+     * Unlike a new TargetMove, which plans its path during the next ticks, the path is searched
+     * right away.
+     * @throws IllegalArgumentException
+     *          When none of the given objects can be reached from the position of the unit.
+     */
+    public static Vector findNearestPosition(Unit unit, Set<? extends IWorldObject> worldObjects) throws IllegalArgumentException {
+        return new TargetMove(unit, worldObjects, false).getNearestPos();
+    }
+
+    /**
+     * Return the nearest of the given objects which the given unit can reach. The path is
+     * searched right away.
+     * @throws IllegalArgumentException
+     *          When none of the given objects can be reached from the position of the unit.
+     */
+    public static IWorldObject findNearestObject(Unit unit, Set<? extends IWorldObject> worldObjects) throws IllegalArgumentException {
+        return new TargetMove(unit, worldObjects, false).getNearestObject();
+    }
+
     private boolean hasNextLeader(){
         return !this.targets.isEmpty();
     }
@@ -195,7 +425,232 @@ public class TargetMove extends Move {
      * @return
      */
     private boolean calculatePath(Vector fromPosition, Vector targetPosition){
-        this.path = new PathCalculator(targetPosition).computePath(fromPosition);
+        this.replanner = null;
+        this.path = computePath(fromPosition, Collections.singleton(targetPosition));
+        return this.path!=null;
+    }
+
+    /**
+     * Adapt the path after the leader moved to the cube with the given index. If the leader
+     * stepped back onto the path, the path is cut off there. If the leader stepped away from
+     * the end of the path, the step is added to the path, and if it moved further, a short
+     * detour from the end of the path is searched. Only when the leader diverged too far,
+     * the path is searched again from scratch.
+     * @param fromPosition The position of the unit, in cubeCoordinates!
+     * @param leaderCube The index of the cube of the leader.
+     */
+    private void followLeader(Vector fromPosition, int leaderCube){
+        IWorld world = unit.getWorld();
+        int end = this.path.getTargetCube();
+        if(this.path.containsCube(leaderCube)){
+            this.path.removeAfter(leaderCube);
+            return;
+        }
+        for(int directions = world.getWalkableDirections(end); directions != 0; directions &= directions - 1)
+            if(world.getNeighbouringCube(end, Integer.numberOfTrailingZeros(directions)) == leaderCube){
+                this.path.addLast(leaderCube);
+                return;
+            }
+        int[] detour = world.getPathFinder().findPath(end, new int[]{leaderCube}, world::getWalkableDirections, MAX_FOLLOW_REPAIR_SIZE);
+        if(detour != null){
+            for(int cube : detour)
+                this.path.addLast(cube);
+            return;
+        }
+        this.schedulePath(fromPosition, Collections.singleton(this.leader));// If no path is available, this.path will be null and requestFinish will be called
+    }
+
+    /**
+     * Let the path scheduler of the world search a path from the given position to the nearest
+     * of the given objects. If the search doesn't finish in the current tick, this TargetMove
+     * is planning until it's finished.
+     * @param fromPosition The position to start from, in cubeCoordinates!
+     * @param targets The objects to search a path to.
+     */
+    private void schedulePath(Vector fromPosition, Set<? extends IWorldObject> targets){
+        IWorld world = unit.getWorld();
+        int[] targetCubes = new int[targets.size()];
+        int nbTargets = 0;
+        for(IWorldObject target : targets)
+            if(world.isValidPosition(target.getPosition()))
+                targetCubes[nbTargets++] = world.getCubeIndex(target.getPosition());
+        nbTargets = filterReachable(world.getCubeIndex(fromPosition), targetCubes, nbTargets);
+        if(unit.isFalling() || nbTargets == 0){
+            Set<Vector> positions = new HashSet<>();
+            for(IWorldObject target : targets)
+                positions.add(target.getPosition().getCubeCoordinates());
+            this.replanner = null;
+            this.path = computePath(fromPosition, positions);
+            this.updateLeader(targets);
+            return;
+        }
+        this.submitSearch(fromPosition, Arrays.copyOf(targetCubes, nbTargets), targets);
+    }
+
+    /**
+     * Submit a search from the given position to the nearest of the given target cubes to the
+     * path scheduler of the world. If the search doesn't finish in the current tick, this
+     * TargetMove is planning until it's finished.
+     * @param fromPosition The position to start from, in cubeCoordinates!
+     * @param targetCubes The indices of the target cubes, which are reachable from fromPosition.
+     * @param targets The objects at the target cubes, of which the one at the end of the path becomes the leader.
+     */
+    private void submitSearch(Vector fromPosition, int[] targetCubes, Set<? extends IWorldObject> targets){
+        IWorld world = unit.getWorld();
+        this.scheduledTargets = targets;
+        this.scheduledSearch = new PathSearch(world, world.getCubeIndex(fromPosition), targetCubes);
+        world.getPathScheduler().submit(this.scheduledSearch);
+        this.scheduledSearchTicks = this.scheduledSearch.getNbTicks();
+        if(this.scheduledSearch.isFinished())
+            this.receiveScheduledPath(fromPosition);
+    }
+
+    /**
+     * Continue the scheduled search right away if the path scheduler didn't start a new tick
+     * since this TargetMove was advanced for the last time, i.e. when the unit is advanced
+     * on its own instead of by its world.
+     */
+    private void continueScheduledSearch(){
+        if(this.scheduledSearch.getNbTicks() == this.scheduledSearchTicks)
+            this.scheduledSearch.resume(PathScheduler.MIN_SLICE);
+        this.scheduledSearchTicks = this.scheduledSearch.getNbTicks();
+    }
+
+    /**
+     * Stop the scheduled search.
+     */
+    private void cancelScheduledSearch(){
+        unit.getWorld().getPathScheduler().cancel(this.scheduledSearch);
+        this.scheduledSearch = null;
+    }
+
+    /**
+     * Take over the path found by the scheduled search, and the object at its end as leader.
+     * If the unit moved away from the source of the search in the meantime, the path is
+     * searched again. The path is only cached when it was found on the current terrain, other
+     * paths may be blocked and are repaired by the unit walking them.
+     * @param fromPosition The position of the unit, in cubeCoordinates!
+     */
+    private void receiveScheduledPath(Vector fromPosition){
+        PathSearch search = this.scheduledSearch;
+        this.scheduledSearch = null;
+        IWorld world = unit.getWorld();
+        if(search.getSource() != world.getCubeIndex(fromPosition)){
+            this.submitSearch(fromPosition, search.getTargets(), this.scheduledTargets);
+            return;
+        }
+        this.replanner = null;
+        int[] cubes = search.getPath();
+        if(cubes != null && search.getTargets().length == 1 && search.isCurrent())
+            world.getPathCache().put(search.getSource(), search.getTargets()[0], cubes);
+        this.path = cubes == null ? null : toPath(fromPosition, cubes);
+        this.updateLeader(this.scheduledTargets);
+    }
+
+    /**
+     * Let the object of the given objects at the end of the path become the leader. The
+     * leader doesn't change if none of the objects is at the end of the path.
+     * @param targets The objects towards which the path was searched.
+     */
+    private void updateLeader(Set<? extends IWorldObject> targets){
+        if(this.path == null)
+            return;
+        IWorld world = unit.getWorld();
+        for(IWorldObject target : targets)
+            if(world.isValidPosition(target.getPosition()) && world.getCubeIndex(target.getPosition()) == this.path.getTargetCube())
+                this.leader = target;
+    }
+
+    /**
+     * Check whether this TargetMove is waiting for its path to be found by the path service
+     * or the path scheduler.
+     */
+    public boolean isPlanning(){
+        return this.plannedPath != null || this.scheduledSearch != null;
+    }
+
+    /**
+     * Let the path service search a path from the given cube to the given target cube, which
+     * lies in the same walkable region. Until the path is found, this TargetMove is planning.
+     * @param source The index of the cube to start from.
+     * @param target The index of the target cube.
+     */
+    private void requestPath(int source, int target){
+        this.plannedTarget = target;
+        this.plannedPath = unit.getWorld().getPathService().submit(source, new int[]{target});
+    }
+
+    /**
+     * Stop waiting for the path searched by the path service.
+     */
+    private void cancelPlannedPath(){
+        this.plannedPath.cancel(false);
+        this.plannedPath = null;
+    }
+
+    /**
+     * Take over the path found by the path service. If the terrain changed during the
+     * search, the result is discarded and the path is searched again.
+     * @param fromPosition The position of the unit, in cubeCoordinates!
+     * @return False if no path was found.
+     * @throws IllegalStateException
+     *          When the search failed, with the cause of the failure.
+     */
+    private boolean receivePath(Vector fromPosition) throws IllegalStateException {
+        PathService.PathResult result;
+        try{
+            result = this.plannedPath.get();
+        }catch(InterruptedException e){
+            Thread.currentThread().interrupt();
+            return true;// The result is taken over in the next tick
+        }catch(ExecutionException e){
+            this.plannedPath = null;
+            throw new IllegalStateException("The search for the path of the unit failed.", e.getCause());
+        }
+        this.plannedPath = null;
+        IWorld world = unit.getWorld();
+        if(result.isStale()){
+            this.requestPath(world.getCubeIndex(fromPosition), this.plannedTarget);
+            return true;
+        }
+        int[] cubes = result.getPath();
+        if(cubes == null || cubes.length == 0)
+            return false;
+        this.replanner = null;
+        this.path = toPath(fromPosition, cubes);
+        return true;
+    }
+
+    /**
+     * Search a new path towards the given target after the current path got blocked. The state
+     * of the search is kept, so when the terrain keeps changing, e.g. during a cave-in, only
+     * the part of the search affected by each change is redone.
+     * @param fromPosition The position to start from, in cubeCoordinates!
+     * @param targetPosition The target position, in cubeCoordinates!
+     * @return True if a new path was found.
+     */
+    private boolean repairPath(Vector fromPosition, Vector targetPosition){
+        IWorld world = unit.getWorld();
+        if(unit.isFalling() || !world.isValidPosition(targetPosition))
+            return calculatePath(fromPosition, targetPosition);
+        int target = world.getCubeIndex(targetPosition);
+        if(!world.getComponentLabels().areConnected(world.getCubeIndex(fromPosition), target)){// The target got cut off
+            this.path = null;
+            return false;
+        }
+        if(this.flowField != null && this.flowFieldTarget == target){// The world keeps the flow field up to date
+            int[] cubes = FlowFieldRegistry.getPath(this.flowField, world.getCubeIndex(fromPosition));
+            if(cubes != null){// Otherwise the unit is farther away than the flow field reaches
+                this.path = toPath(fromPosition, cubes);
+                return true;
+            }
+        }
+        if(this.replanner == null || !this.replanner.isGoal(target) || this.replannerEpoch != world.getTerrainEpoch()){
+            this.replanner = new DStarLitePathFinder(world, target);
+            this.replannerEpoch = world.getTerrainEpoch();
+        }
+        int[] cubes = this.replanner.findPath(world.getCubeIndex(fromPosition));
+        this.path = cubes == null ? null : toPath(fromPosition, cubes);
         return this.path!=null;
     }
 
@@ -206,216 +661,411 @@ public class TargetMove extends Move {
      * @return
      */
     private boolean calculatePath(Vector fromPosition, Set<? extends IWorldObject> targets){
+        this.replanner = null;
         this.targets = targets;
         Map<Vector, IWorldObject> positions = new HashMap<>();
         for (IWorldObject worldObject : targets){
             positions.put(worldObject.getPosition().getCubeCoordinates(),worldObject);
         }
-        this.path = new PathCalculator(positions.keySet()).computePath(fromPosition);
+        this.path = computePath(fromPosition, positions.keySet());
         if(this.path==null) return false;
         this.leader = positions.get(this.path.getTarget());
         return true;
     }
 
-    private final class PathCalculator {
+    /**
+     * Compute a shortest path from the given position to the nearest of the given target positions.
+     * @param fromPosition The position to start from, in cubeCoordinates!
+     * @param targetPositions The target positions, in cubeCoordinates!
+     * @return Null if none of the targets is reachable, otherwise the path to the nearest target.
+     *          When the unit already stands on a target, the path only contains fromPosition.
+     */
+    private Path computePath(Vector fromPosition, Set<Vector> targetPositions){
+        IWorld world = unit.getWorld();
+        int[] targets = new int[targetPositions.size()];
+        int nbTargets = 0;
+        for(Vector target : targetPositions){
+            if(world.isValidPosition(target))
+                targets[nbTargets++] = world.getCubeIndex(target);
+        }
+        nbTargets = filterReachable(world.getCubeIndex(fromPosition), targets, nbTargets);
+        if(nbTargets == 0)
+            return null;
+        int[] cubes;
+        if(nbTargets == 1 && !unit.isFalling()){// Long paths are searched on the abstract graph
+            int source = world.getCubeIndex(fromPosition);
+            DistanceField flowField;
+            if(unit.isCurrentActivity(this))
+                flowField = this.requestFlowField(targets[0]);
+            else// Only running TargetMoves hold flow fields, this one holds it once it's started
+                flowField = world.getFlowFieldRegistry().getFlowField(targets[0]);
+            cubes = flowField == null ? null : FlowFieldRegistry.getPath(flowField, source);// Other units walk to the same cube
+            if(cubes == null){// No flow field, or the unit is farther away than it reaches
+                PathCache pathCache = world.getPathCache();
+                cubes = pathCache.get(source, targets[0]);
+                if(cubes == null){
+                    cubes = world.getHierarchicalPathFinder().findPath(source, targets[0]);
+                    if(cubes != null)
+                        pathCache.put(source, targets[0], cubes);
+                }
+            }
+        }else{
+            this.releaseFlowField();
+            cubes = world.getPathFinder().findPath(world.getCubeIndex(fromPosition), Arrays.copyOf(targets, nbTargets), this::getWalkableDirections);
+        }
+        if(cubes == null)
+            return null;// No path found
+        return toPath(fromPosition, cubes);
+    }
+
+    /**
+     * Move the given target cubes which can be reached from the given source cube to the front
+     * of the given array. Targets in another walkable region than the source are dropped right
+     * away, instead of after a search through the whole region of the source.
+     * @param source The index of the cube to start from.
+     * @param targets The indices of the target cubes.
+     * @param nbTargets The number of target cubes in the given array.
+     * @return The number of reachable target cubes, which are in the first places of the given array.
+     */
+    private int filterReachable(int source, int[] targets, int nbTargets){
+        if(unit.isFalling())
+            return nbTargets;// A falling unit isn't bound to the walkable regions
+        ComponentLabels labels = unit.getWorld().getComponentLabels();
+        int nbReachable = 0;
+        for(int i = 0; i < nbTargets; i++)
+            if(labels.areConnected(source, targets[i]))
+                targets[nbReachable++] = targets[i];
+        return nbReachable;
+    }
+
+    /**
+     * Return the flow field towards the cube with the given index if it's shared with other
+     * units, or null otherwise. A flow field towards another cube is released.
+     * @param target The index of the target cube.
+     */
+    private DistanceField requestFlowField(int target){
+        if(this.flowFieldRequested && this.flowFieldTarget == target)
+            return this.flowField;
+        this.releaseFlowField();
+        this.flowField = unit.getWorld().getFlowFieldRegistry().request(target);
+        this.flowFieldTarget = target;
+        this.flowFieldRequested = true;
+        return this.flowField;
+    }
+
+    /**
+     * Release the flow field held by this TargetMove, if any.
+     */
+    private void releaseFlowField(){
+        if(this.flowField != null){
+            unit.getWorld().getFlowFieldRegistry().release(this.flowFieldTarget);
+            this.flowField = null;
+        }
+        this.flowFieldRequested = false;
+    }
+
+    /**
+     * Return the path along the cubes with the given indices, as found by a path finder.
+     * @param fromPosition The position to start from, in cubeCoordinates!
+     * @param cubes The indices of the cubes on the path, excluding fromPosition.
+     */
+    private Path toPath(Vector fromPosition, int[] cubes){
+        Path path = new Path();
+        if(cubes.length == 0)// Unit already stands on the target
+            path.addLast(unit.getWorld().getCubeIndex(fromPosition));
+        for(int cube : cubes)
+            path.addLast(cube);
+        return path;
+    }
+
+    /**
+     * Return the cube coordinates of the cube with the given index.
+     */
+    private Vector toCubeCoordinates(int index){
+        IWorld world = unit.getWorld();
+        return new Vector(world.getCubeX(index), world.getCubeY(index), world.getCubeZ(index));
+    }
+
+    /**
+     * Return the directions in which the unit can move from the cube with the given index to a neighbouring cube.
+     * Bit i of the result corresponds to World.getNeighbouringDirection(i).
+     * @param index The index of the cube to move from.
+     * @return | for each i in 0..World.NB_NEIGHBOURING_DIRECTIONS-1:
+     *         |    ((result >> i) & 1) == 1 ==
+     *         |        isValidNextPosition(fromPosition, fromPosition.add(World.getNeighbouringDirection(i)))
+     */
+    private int getWalkableDirections(int index){
+        IWorld world = unit.getWorld();
+        if(!unit.isFalling())
+            return world.getWalkableDirections(index);
+        // A falling unit can be in any passable cube, so the precomputed directions don't apply
+        Vector fromPosition = toCubeCoordinates(index);
+        int directions = 0;
+        for(int i = 0; i < World.NB_NEIGHBOURING_DIRECTIONS; i++){
+            Vector nextPosition = fromPosition.add(World.getNeighbouringDirection(i));
+            if(world.isValidPosition(nextPosition) && isValidNextPosition(fromPosition, nextPosition))
+                directions |= 1 << i;
+        }
+        return directions;
+    }
+
+    /**
+     * Return the neighbouring direction from the given cube to the other, neighbouring cube.
+     */
+    private int getDirection(int cube, int other){
+        IWorld world = unit.getWorld();
+        assert Math.abs(world.getCubeX(other) - world.getCubeX(cube)) <= 1 && Math.abs(world.getCubeY(other) - world.getCubeY(cube)) <= 1
+                && Math.abs(world.getCubeZ(other) - world.getCubeZ(cube)) <= 1 && cube != other;
+        return DIRECTIONS[(world.getCubeX(other) - world.getCubeX(cube) + 1)*9
+                + (world.getCubeY(other) - world.getCubeY(cube) + 1)*3 + world.getCubeZ(other) - world.getCubeZ(cube) + 1];
+    }
 
+    /**
+     * Return the identifier of the chunk with the given chunk coordinates.
+     */
+    private static int getChunk(int chunkX, int chunkY, int chunkZ){
+        return (chunkX << 20) | (chunkY << 10) | chunkZ;
+    }
+
+    /**
+     * Class representing the cubes a unit still has to walk through, ending with the target.
+     * Only the next cube and the target are stored by index, every other cube is stored by the
+     * direction from the cube before it, in one byte per cube of an array with free room in front
+     * and at the end. A path never contains the same cube twice.
+     *
+     * The position of every cube in the path is registered in an IntIntMap, so a cube is
+     * looked up without walking the path. The path also registers the chunks of CHUNK_SIZE^3
+     * cubes it passes through, in a sorted array with the number of cubes of the path in every
+     * chunk. Most terrain changes are far away from the path, which is then known from the
+     * chunks alone. Only for cubes in or next to one of those chunks, their neighbours are
+     * looked up.
+     */
+    public class Path{
+
+        /**
+         * Array containing at the positions first+1..last-1 the direction from the cube before
+         * to the cube at that position of the path.
+         */
+        private byte[] directions = new byte[16];
+        private int first = 4, last = 4;
+        /**
+         * Variables registering the indices of the next cube and the target of the path.
+         */
+        private int firstCube, lastCube;
+        /**
+         * Arrays containing the sorted chunks the path passes through, and the number of cubes
+         * of the path in each of them.
+         */
+        private int[] chunks = new int[4];
+        private int[] chunkSizes = new int[4];
+        private int nbChunks = 0;
+        /**
+         * Map registering for every cube of the path its position minus the shift of the positions.
+         */
+        private final IntIntMap positions = new IntIntMap();
         /**
-         * Set registering the controlled positions.
+         * Variable registering how far the positions of the path moved in the direction array
+         * since the first cube was registered.
          */
-        private List<Vector> controlledPos = new ArrayList<>();
+        private int shift = 0;
+
+        private Path(){
+        }
+
+        public boolean hasNext(){
+            return this.first < this.last;
+        }
+
+        public Vector getNext(){
+            int next = this.firstCube;
+            if(++this.first < this.last)
+                this.firstCube = unit.getWorld().getNeighbouringCube(next, this.directions[this.first]);
+            this.removeCube(next);
+            return toCubeCoordinates(next);
+        }
+
+        public boolean contains(Vector pathPosition){
+            IWorld world = unit.getWorld();
+            return world.isValidPosition(pathPosition) && this.containsCube(world.getCubeIndex(pathPosition));
+        }
+
+        public boolean containsCube(int cube){
+            return this.indexOf(cube) != -1;
+        }
 
-        private final ArrayDeque<Map.Entry<Vector, Integer>> remainingPositions = new ArrayDeque<>();
-        private final HashMap<Vector, Integer> positionDistances = new HashMap<>();
-        private final Set<Vector> targetPositions;
-        private Vector target;
-        
         /**
-         * targetPositions must be cubeCoordinates!
+         * Check whether this path can be affected by a terrain change of the given position, i.e.
+         * whether the position is on the path or next to it.
          */
-        private PathCalculator(Set<Vector> targets) {
-            this.targetPositions = targets;
-            this.target = null;
+        public boolean dependsOn(Vector position){
+            IWorld world = unit.getWorld();
+            int x = position.cubeX(), y = position.cubeY(), z = position.cubeZ();
+            boolean nearChunk = false;
+            for(int cx = Math.max(0, x - 1) / CHUNK_SIZE; cx <= (x + 1) / CHUNK_SIZE && !nearChunk; cx++)
+                for(int cy = Math.max(0, y - 1) / CHUNK_SIZE; cy <= (y + 1) / CHUNK_SIZE && !nearChunk; cy++)
+                    for(int cz = Math.max(0, z - 1) / CHUNK_SIZE; cz <= (z + 1) / CHUNK_SIZE && !nearChunk; cz++)
+                        nearChunk = Arrays.binarySearch(this.chunks, 0, this.nbChunks, getChunk(cx, cy, cz)) >= 0;
+            if(!nearChunk)
+                return false;
+            for(int nx = x - 1; nx <= x + 1; nx++)
+                for(int ny = y - 1; ny <= y + 1; ny++)
+                    for(int nz = z - 1; nz <= z + 1; nz++)
+                        if(world.isValidPosition(nx, ny, nz) && this.positions.containsKey(world.getCubeIndex(nx, ny, nz)))
+                            return true;
+            return false;
         }
 
         /**
-         * targetPosition must be in cubeCoordinates!
-         * @param target
+         * Return the number of chunks of CHUNK_SIZE^3 cubes this path passes through.
          */
-        private PathCalculator(Vector target){
-            this.targetPositions = new HashSet<>(1);
-            this.targetPositions.add(target);
-        }
-
-        private boolean targetFound(){
-            return this.target!=null;
-        }
-        
-        private void add(Vector position, int n) {
-            // n is hier n0+1 uit de opgave
-            // => enkel toevoegen indien er een n' bestaat waarvoor geldt dat n'+1>n=n0+1
-            // Dat is equivalent met NIET toevoegen als er een n' bestaat waarvoor geldt dat n'+1<=n=n0+1 of n'<=n0
-            if (positionDistances.getOrDefault(position, n) + 1 > n) {
-                positionDistances.put(position, n);
-                remainingPositions.add(new AbstractMap.SimpleEntry<>(position, n));
-            }
+        public int getNbChunks(){
+            return this.nbChunks;
         }
 
-        private boolean hasNext() {
-            return !remainingPositions.isEmpty();
+        public Vector getTarget(){
+            return toCubeCoordinates(this.getTargetCube());
         }
 
-        private Map.Entry<Vector, Integer> getNext() {
-            return remainingPositions.remove();
+        public int getTargetCube(){
+            return this.lastCube;
         }
 
-        private Vector getNextPositionWithLowestDistance(Vector fromPosition) {
-            List<Vector> nextPositions = TargetMove.this.unit.getWorld().getNeighbouringCubesPositions(fromPosition);
-            Vector next = null;
-            int lowestDistance = -1;
-            for (Vector nextPosition : nextPositions) {
-                if (positionDistances.containsKey(nextPosition) && (lowestDistance == -1 || positionDistances.get(nextPosition) < lowestDistance) &&
-                        TargetMove.this.isValidNextPosition(fromPosition, nextPosition)) {
-                    lowestDistance = positionDistances.get(nextPosition);
-                    next = nextPosition;
-                }
-            }
-            return next;
+        /**
+         * Remove all cubes after the given position, which becomes the new target.
+         */
+        public void removeFromPath(Vector position) {
+            this.removeAfter(unit.getWorld().getCubeIndex(position));
+        }
+
+        private void removeAfter(int cube){
+            int position = this.indexOf(cube);
+            assert position != -1;
+            for(int i = position + 1, removed = this.nextCube(cube, i); i < this.last; removed = this.nextCube(removed, ++i))
+                this.removeCube(removed);
+            this.last = position + 1;
+            this.lastCube = cube;
         }
-        
 
         /**
-         * 
-         * @param fromPosition = zoeken vanaf hier must be in cubeCoordinates!
-         * @return
+         * Add the given position in front of this path. If the position is already on the
+         * path, the cubes before it are skipped instead. The position must be next to the
+         * first cube of the path.
          */
-        private Path computePath(Vector fromPosition){
-        	this.add(fromPosition, 0);
-            controlledPos.clear();
-            if(this.targetPositions.contains(fromPosition)) {// Unit already stands on the target
-                ArrayDeque<Vector> path = new ArrayDeque<>();
-                HashSet<Vector> pathPositions = new HashSet<>();
-                path.add(fromPosition);
-                pathPositions.add(fromPosition);
-                return new Path(path, pathPositions);
-            }
-            while (!this.targetFound() && this.hasNext()) {
-                searchNextPositions(this.getNext());
+        public void add(Vector position){
+            int cube = unit.getWorld().getCubeIndex(position);
+            int existing = this.indexOf(cube);
+            if(existing != -1){
+                while(this.first < existing)
+                    this.getNext();
+                return;
             }
-            if(this.targetFound()){// Path found
-                Path path = new Path();
-                Vector pos = this.target;
-                while (!fromPosition.equals(pos)) {
-                    path.add(pos);
-                    pos = this.getNextPositionWithLowestDistance(pos);
-                }
-                return path;
-            } else
-                return null;// No path found
-        }
-
-        private void searchNextPositions(Map.Entry<Vector, Integer> start) {
-            List<Vector> nextPositions = TargetMove.this.unit.getWorld().getNeighbouringCubesPositions(start.getKey());
-            Iterator<Vector> it = nextPositions.iterator();
-            while(it.hasNext() && !this.targetFound()){
-                Vector position = it.next();
-                if (TargetMove.this.isValidNextPosition(start.getKey(), position) && !controlledPos.contains(position)) {
-                    this.add(position, start.getValue() + 1);
-                    controlledPos.add(position);
-
-                    if(this.targetPositions.contains(position))
-                        this.target = position;
-                }
+            if(!this.hasNext()){
+                this.addLast(cube);
+                return;
             }
+            if(this.first == 0)
+                this.grow();
+            this.directions[this.first--] = (byte)getDirection(cube, this.firstCube);
+            this.firstCube = cube;
+            this.addCube(cube, this.first);
         }
-    }
-
-    public class Path{
 
-        private final ArrayDeque<Vector> path;
-        private final HashSet<Vector> pathPositions;
-
-        private Path(ArrayDeque<Vector> path, HashSet<Vector> pathPositions){
-            this.path = path;
-            this.pathPositions = pathPositions;
+        /**
+         * Add the cube with the given index at the end of this path, as its new target. If the
+         * cube is already on the path, the cubes after it are removed instead. The cube must be
+         * next to the target of the path.
+         */
+        private void addLast(int cube){
+            if(this.containsCube(cube)){
+                this.removeAfter(cube);
+                return;
+            }
+            if(this.last == this.directions.length)
+                this.grow();
+            if(this.hasNext())
+                this.directions[this.last] = (byte)getDirection(this.lastCube, cube);
+            else
+                this.firstCube = cube;
+            this.addCube(cube, this.last++);
+            this.lastCube = cube;
         }
 
-        private Path(){
-            this.path = new ArrayDeque<>();
-            this.pathPositions = new HashSet<>();
+        /**
+         * Return the position of the cube with the given index in this path, or -1 if it's not on the path.
+         */
+        private int indexOf(int cube){
+            int position = this.positions.get(cube, Integer.MIN_VALUE);
+            return position == Integer.MIN_VALUE ? -1 : position + this.shift;
         }
 
-        public void removeFromPath(Vector position) {
-        	assert path.contains(position);
-			while(path.size()>0 && path.getLast() != position){
-				Vector oldTarget = path.removeLast();
-                Vector newTarget = null;
-                if(path.size()>0)
-                    newTarget = path.getLast();
-                this.removeRedundantPathPositions(oldTarget, newTarget);
-			}	
-		}
-
-		public boolean hasNext(){
-            return !path.isEmpty();
+        /**
+         * Return the cube at the given position of this path, after the given cube before it.
+         */
+        private int nextCube(int cube, int position){
+            return position < this.last ? unit.getWorld().getNeighbouringCube(cube, this.directions[position]) : -1;
         }
 
-        public Vector getNext(){
-            Vector next = path.removeFirst();
-            Vector newNext = null;
-            if(path.size()>0)
-                newNext = path.getFirst();
-            this.removeRedundantPathPositions(next, newNext);
-            return next;
+        private int getChunkOf(int cube){
+            IWorld world = unit.getWorld();
+            return getChunk(world.getCubeX(cube) / CHUNK_SIZE, world.getCubeY(cube) / CHUNK_SIZE, world.getCubeZ(cube) / CHUNK_SIZE);
         }
 
-        public boolean contains(Vector pathPosition){
-            return path.contains(pathPosition);
+        /**
+         * Register the given cube at the given position of this path.
+         */
+        private void addCube(int cube, int position){
+            this.positions.put(cube, position - this.shift);
+            this.addChunkCube(cube);
         }
 
-        public boolean dependsOn(Vector position){
-           return pathPositions.contains(position);
+        /**
+         * Unregister the given cube of this path.
+         */
+        private void removeCube(int cube){
+            this.positions.remove(cube);
+            this.removeChunkCube(cube);
         }
 
-        public Vector getTarget(){
-            return this.path.getLast();
+        private void addChunkCube(int cube){
+            int chunk = this.getChunkOf(cube);
+            int i = Arrays.binarySearch(this.chunks, 0, this.nbChunks, chunk);
+            if(i >= 0){
+                this.chunkSizes[i]++;
+                return;
+            }
+            i = -i - 1;
+            if(this.nbChunks == this.chunks.length){
+                this.chunks = Arrays.copyOf(this.chunks, 2*this.nbChunks);
+                this.chunkSizes = Arrays.copyOf(this.chunkSizes, 2*this.nbChunks);
+            }
+            System.arraycopy(this.chunks, i, this.chunks, i + 1, this.nbChunks - i);
+            System.arraycopy(this.chunkSizes, i, this.chunkSizes, i + 1, this.nbChunks - i);
+            this.chunks[i] = chunk;
+            this.chunkSizes[i] = 1;
+            this.nbChunks++;
         }
 
-        public void add(Vector position){
-        	path.addFirst(position);
-        	pathPositions.add(position);
-            /*List<Vector> adjacentPositions = unit.getWorld().getDirectlyAdjacentCubesPositions(position);*/
-        	List<Vector> adjacentPositions = unit.getWorld().getNeighbouringCubesPositions(position);
-            adjacentPositions.removeIf(adjPos -> unit.getWorld().isCubePassable(adjPos));
-            pathPositions.addAll(adjacentPositions);
-        }
-  /*     public void addLast(Vector position){
-        	path.addLast(position);
-        	pathPositions.add(position);/
-        	List<Vector> adjacentPositions = unit.getWorld().getNeighbouringCubesPositions(position);
-            adjacentPositions.removeIf(adjPos -> unit.getWorld().isCubePassable(adjPos));
-            pathPositions.addAll(adjacentPositions);
-        }*/
+        private void removeChunkCube(int cube){
+            int i = Arrays.binarySearch(this.chunks, 0, this.nbChunks, this.getChunkOf(cube));
+            if(--this.chunkSizes[i] == 0){
+                this.nbChunks--;
+                System.arraycopy(this.chunks, i + 1, this.chunks, i, this.nbChunks - i);
+                System.arraycopy(this.chunkSizes, i + 1, this.chunkSizes, i, this.nbChunks - i);
+            }
+        }
 
         /**
-         * Remove the pathPositions that became redundant by removing oldEndPosition.
-         * @param oldEndPosition The position that is removed from the path. This
-         *                       position must be an 'end' position -> be the first
-         *                       or the last in the path.
-         * @param newEndPosition The position that became the new 'end' position by
-         *                       removing oldEndPosition. This position is now the
-         *                       first or the last in the path.
+         * Double the room for directions, keeping the path in the middle of the array.
          */
-        private void removeRedundantPathPositions(Vector oldEndPosition, Vector newEndPosition){
-            Collection<Vector> redundantPathPositions = new HashSet<>();
-            Collection<Vector> newNextAdjacentPositions = (newEndPosition==null) ? new HashSet<>() : unit.getWorld().getNeighbouringCubesPositions(newEndPosition);
-            unit.getWorld().getNeighbouringCubesSatisfying(
-                    redundantPathPositions,
-                    oldEndPosition,
-                    cube -> !newNextAdjacentPositions.contains(cube.getPosition()),
-                    WorldObject::getPosition
-            );
-            pathPositions.remove(oldEndPosition);
-            pathPositions.removeAll(redundantPathPositions);
+        private void grow(){
+            int size = this.last - this.first;
+            byte[] directions = new byte[2*this.directions.length];
+            int first = (directions.length - size) / 2;
+            System.arraycopy(this.directions, this.first, directions, first, size);
+            this.directions = directions;
+            this.shift += first - this.first;
+            this.first = first;
+            this.last = first + size;
         }
     }
 }
@@ -59,6 +59,7 @@ public class Work extends Activity {
         Vector workDirection = workCube.getPosition().getCubeCoordinates().difference(unit.getPosition().getCubeCoordinates());
         if(workDirection.X()!=0 || workDirection.Y()!=0)
             unit.setOrientation((float) Math.atan2(workDirection.Y(),workDirection.X()));
+        this.scheduleWakeUp(this.getWorkDuration());
     }
 
     @Override
@@ -73,29 +74,35 @@ public class Work extends Activity {
 
     @Override
     public void advanceActivity(double dt) {
-        if (activityProgress >= this.getWorkDuration()) {
-            if(unit.isCarryingMaterial()){
-                if(workCube.isPassable()){
-                    unit.dropCarriedMaterial(this.workCube);
-                }
-            }else if(workCube.getTerrain()== Terrain.WORKSHOP && workCube.containsLogs() && workCube.containsBoulders()){
-                workCube.getBoulder().terminate();
-                workCube.getLog().terminate();
-                if(unit.getWeight()!=Unit.MAX_WEIGHT)
-                    unit.setWeight(unit.getWeight() + 1);
-                if(unit.getToughness()!=Unit.MAX_TOUGHNESS)
-                    unit.setToughness(unit.getToughness() + 1);
-            }else if(workCube.containsBoulders()){
-                unit.setCarriedMaterial(workCube.getBoulder());
-            }else if(workCube.containsLogs()){
-                unit.setCarriedMaterial(workCube.getLog());
-            }else if(workCube.getTerrain() == Terrain.WOOD){
-                workCube.setTerrain(Terrain.AIR);
-            }else if(workCube.getTerrain() == Terrain.ROCK){
-                workCube.setTerrain(Terrain.AIR);
+        // Nothing to do until the work is finished
+    }
+
+    /**
+     * Finish the work on the workCube.
+     */
+    @Override
+    protected void wakeUp() {
+        if(unit.isCarryingMaterial()){
+            if(workCube.isPassable()){
+                unit.dropCarriedMaterial(this.workCube);
             }
-            this.requestFinish(true);
+        }else if(workCube.getTerrain()== Terrain.WORKSHOP && workCube.containsLogs() && workCube.containsBoulders()){
+            workCube.getBoulder().terminate();
+            workCube.getLog().terminate();
+            if(unit.getWeight()!=Unit.MAX_WEIGHT)
+                unit.setWeight(unit.getWeight() + 1);
+            if(unit.getToughness()!=Unit.MAX_TOUGHNESS)
+                unit.setToughness(unit.getToughness() + 1);
+        }else if(workCube.containsBoulders()){
+            unit.setCarriedMaterial(workCube.getBoulder());
+        }else if(workCube.containsLogs()){
+            unit.setCarriedMaterial(workCube.getLog());
+        }else if(workCube.getTerrain() == Terrain.WOOD){
+            workCube.setTerrain(Terrain.AIR);
+        }else if(workCube.getTerrain() == Terrain.ROCK){
+            workCube.setTerrain(Terrain.AIR);
         }
+        this.requestFinish(true);
     }
 
     /**
@@ -149,9 +156,10 @@ public class Work extends Activity {
      *				this.getWorld().getNeighbouringCubesPositions(this.getPosition().getCubeCoordinates()).contains(workCube.getPosition())
      */
     public boolean isValidWorkCube(Cube workCube) {
-        return workCube.getWorld()==unit.getWorld() &&
-                (unit.getPosition().getCubeCoordinates().equals(workCube.getPosition()) ||
-                        unit.getWorld().getNeighbouringCubesPositions(unit.getPosition().getCubeCoordinates()).contains(workCube.getPosition()));
+        if(workCube.getWorld()!=unit.getWorld())
+            return false;
+        int unitCube = unit.getWorld().getCubeIndex(unit.getPosition());
+        return unitCube == workCube.getIndex() || unit.getWorld().areNeighbouringCubes(unitCube, workCube.getIndex());
     }
 
 }
@@ -0,0 +1,424 @@
+package hillbillies.model;
+
+import be.kuleuven.cs.som.annotate.*;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Class representing a terrain storage for very large, mostly uniform worlds.
+ * The world is divided in chunks of 16x16x16 cubes, using the CHUNKED layout,
+ * so the cubes of each chunk have one contiguous range of indices.
+ *
+ * A chunk in which every cube has the same terrain only registers that terrain.
+ * Other chunks store the id of each cube's terrain in 2 bits, packed in an array
+ * of longs. Each chunk also counts its cubes per terrain, which summarizes whether
+ * the chunk consists of air only, of solid cubes only or contains a workshop.
+ * Iterations over the cubes with a certain terrain skip the chunks without such cubes.
+ * @author Kenneth & Bram
+ * @version 1.0
+ *
+ * @invar The terrain of each cube in this storage is a valid terrain.
+ * | for each index in 0..getCapacity()-1:
+ * |    if(isValidIndex(index)) then Cube.isValidTerrain(getTerrain(index))
+ * @invar A chunk is uniform if and only if all its cubes have the same terrain.
+ * | for each chunk in 0..getNbChunks()-1:
+ * |    isUniformChunk(chunk) == (for some terrain: getNbCubes(chunk, terrain) == getNbCubes(chunk))
+ */
+public class ChunkedTerrainStorage implements ITerrainStorage {
+
+    /**
+     * Constant reflecting the number of bits of each coordinate inside a chunk.
+     */
+    private static final int CHUNK_BITS = CubeIndexing.Bricked.CHUNK_BITS;
+    /**
+     * Constant reflecting the side length of a chunk.
+     */
+    public static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    /**
+     * Constant reflecting the number of bits of a cube index inside a chunk.
+     */
+    private static final int CHUNK_INDEX_BITS = 3*CHUNK_BITS;
+    /**
+     * Constant reflecting the number of cubes inside a chunk.
+     */
+    private static final int CUBES_PER_CHUNK = 1 << CHUNK_INDEX_BITS;
+    /**
+     * Constant reflecting the number of bits used to store the terrain id of one cube.
+     */
+    private static final int BITS_PER_CUBE = 2;
+    /**
+     * Constant reflecting the number of bits used to index the cubes inside one word.
+     */
+    private static final int CUBES_PER_WORD_BITS = 5;
+    /**
+     * Constant with the lowest bit of every cube inside a word set.
+     */
+    private static final long LOW_BITS = 0x5555555555555555L;
+    /**
+     * Array containing all terrain types, ordered by their id.
+     */
+    private static final Terrain[] TERRAIN_TYPES = Terrain.values();
+    /**
+     * Constant reflecting the number of terrain types.
+     */
+    private static final int NB_TERRAIN_TYPES = TERRAIN_TYPES.length;
+
+    /**
+     * Constants reflecting the number of cubes in the x-, y- and z-direction.
+     */
+    private final int nbX, nbY, nbZ;
+    /**
+     * Variable referencing the indexing of the CHUNKED layout of this storage.
+     */
+    private final CubeIndexing indexing;
+    /**
+     * Array registering the terrain id of every uniform chunk.
+     */
+    private final byte[] uniformTerrain;
+    /**
+     * Array referencing the packed terrain ids of every chunk which is not uniform.
+     * The entries of uniform chunks are null.
+     */
+    private final long[][] packedTerrain;
+    /**
+     * Array registering the number of cubes of each terrain inside each chunk.
+     * The count of terrain t inside chunk c is stored at c*NB_TERRAIN_TYPES+t.
+     */
+    private final int[] nbCubesOfTerrain;
+    /**
+     * Array registering the number of cubes inside each chunk. Chunks at the
+     * border of the world contain less than CUBES_PER_CHUNK cubes.
+     */
+    private final int[] nbCubesOfChunk;
+
+    /**
+     * Initialize a new ChunkedTerrainStorage with the given dimensions, in which
+     * all cubes have Terrain.AIR as their terrain.
+     * @param nbX The number of cubes in the x-direction.
+     * @param nbY The number of cubes in the y-direction.
+     * @param nbZ The number of cubes in the z-direction.
+     * @effect | this(nbX, nbY, nbZ, Terrain.AIR)
+     */
+    public ChunkedTerrainStorage(int nbX, int nbY, int nbZ) throws IllegalArgumentException {
+        this(nbX, nbY, nbZ, Terrain.AIR);
+    }
+
+    /**
+     * Initialize a new ChunkedTerrainStorage with the given dimensions, in which
+     * all cubes have the given terrain.
+     * @param nbX The number of cubes in the x-direction.
+     * @param nbY The number of cubes in the y-direction.
+     * @param nbZ The number of cubes in the z-direction.
+     * @param terrain The terrain of every cube.
+     * @post The dimensions of this storage are set to the given dimensions.
+     *          | new.getNbCubesX() == nbX && new.getNbCubesY() == nbY && new.getNbCubesZ() == nbZ
+     * @post The layout of this storage is the CHUNKED layout.
+     *          | new.getLayout() == CubeLayout.CHUNKED
+     * @post Each cube of this new storage has the given terrain.
+     *          | for each index in 0..new.getCapacity()-1:
+     *          |   if(new.isValidIndex(index)) then new.getTerrain(index) == terrain
+     * @throws IllegalArgumentException
+     *          When one of the dimensions is not strictly positive, or when the dimensions
+     *          are too large.
+     *          | nbX <= 0 || nbY <= 0 || nbZ <= 0
+     * @throws NullPointerException
+     *          When the given terrain is not effective.
+     *          | terrain == null
+     */
+    public ChunkedTerrainStorage(int nbX, int nbY, int nbZ, Terrain terrain) throws IllegalArgumentException, NullPointerException {
+        if(nbX <= 0 || nbY <= 0 || nbZ <= 0)
+            throw new IllegalArgumentException("A TerrainStorage must have at least 1 cube.");
+        this.nbX = nbX;
+        this.nbY = nbY;
+        this.nbZ = nbZ;
+        this.indexing = CubeLayout.CHUNKED.createIndexing(nbX, nbY, nbZ);
+        int nbChunks = indexing.getCapacity() >>> CHUNK_INDEX_BITS;
+        this.uniformTerrain = new byte[nbChunks];
+        this.packedTerrain = new long[nbChunks][];
+        this.nbCubesOfTerrain = new int[nbChunks*NB_TERRAIN_TYPES];
+        this.nbCubesOfChunk = new int[nbChunks];
+        for(int chunk = 0; chunk < nbChunks; chunk++){
+            int base = chunk << CHUNK_INDEX_BITS;
+            nbCubesOfChunk[chunk] = Math.min(CHUNK_SIZE, nbX - indexing.getX(base)) *
+                    Math.min(CHUNK_SIZE, nbY - indexing.getY(base)) * Math.min(CHUNK_SIZE, nbZ - indexing.getZ(base));
+            uniformTerrain[chunk] = (byte)terrain.getId();
+            nbCubesOfTerrain[chunk*NB_TERRAIN_TYPES + terrain.getId()] = nbCubesOfChunk[chunk];
+        }
+    }
+
+    @Override
+    @Basic @Immutable
+    public CubeLayout getLayout(){
+        return CubeLayout.CHUNKED;
+    }
+
+    @Override
+    @Basic @Immutable
+    public int getNbCubesX(){
+        return this.nbX;
+    }
+
+    @Override
+    @Basic @Immutable
+    public int getNbCubesY(){
+        return this.nbY;
+    }
+
+    @Override
+    @Basic @Immutable
+    public int getNbCubesZ(){
+        return this.nbZ;
+    }
+
+    @Override
+    @Immutable
+    public int getNbCubes(){
+        return this.nbX * this.nbY * this.nbZ;
+    }
+
+    /**
+     * Return the number of cubes in this storage with the given terrain.
+     * @param terrain The terrain to count.
+     * @return | result == sum of getNbCubes(chunk, terrain) for each chunk in 0..getNbChunks()-1
+     */
+    @Override
+    public int getNbCubes(Terrain terrain){
+        int count = 0;
+        for(int chunk = 0; chunk < getNbChunks(); chunk++)
+            count += nbCubesOfTerrain[chunk*NB_TERRAIN_TYPES + terrain.getId()];
+        return count;
+    }
+
+    @Override
+    @Immutable
+    public int getCapacity(){
+        return indexing.getCapacity();
+    }
+
+    @Override
+    public boolean isValidIndex(int index){
+        return indexing.isValidIndex(index);
+    }
+
+    @Override
+    public boolean isValidCube(int x, int y, int z){
+        return x >= 0 && x < nbX && y >= 0 && y < nbY && z >= 0 && z < nbZ;
+    }
+
+    @Override
+    public int getIndex(int x, int y, int z){
+        return indexing.getIndex(x, y, z);
+    }
+
+    @Override
+    public int getX(int index){
+        return indexing.getX(index);
+    }
+
+    @Override
+    public int getY(int index){
+        return indexing.getY(index);
+    }
+
+    @Override
+    public int getZ(int index){
+        return indexing.getZ(index);
+    }
+
+    @Override
+    public int[] getIndexOffsets(int[] dx, int[] dy, int[] dz){
+        return indexing.getIndexOffsets(dx, dy, dz);
+    }
+
+    /**
+     * Return the number of chunks of this storage.
+     */
+    @Immutable
+    public int getNbChunks(){
+        return this.nbCubesOfChunk.length;
+    }
+
+    /**
+     * Return the chunk containing the cube with the given index.
+     * @param index The index of the cube.
+     * @return | result == index / (CHUNK_SIZE*CHUNK_SIZE*CHUNK_SIZE)
+     */
+    public int getChunk(int index){
+        return index >>> CHUNK_INDEX_BITS;
+    }
+
+    /**
+     * Return the number of cubes inside the given chunk.
+     * @param chunk The chunk.
+     * @throws IndexOutOfBoundsException
+     *          | chunk < 0 || chunk >= getNbChunks()
+     */
+    public int getNbCubes(int chunk) throws IndexOutOfBoundsException {
+        return this.nbCubesOfChunk[chunk];
+    }
+
+    /**
+     * Return the number of cubes inside the given chunk with the given terrain.
+     * @param chunk The chunk.
+     * @param terrain The terrain to count.
+     * @throws IndexOutOfBoundsException
+     *          | chunk < 0 || chunk >= getNbChunks()
+     */
+    public int getNbCubes(int chunk, Terrain terrain) throws IndexOutOfBoundsException {
+        return this.nbCubesOfTerrain[chunk*NB_TERRAIN_TYPES + terrain.getId()];
+    }
+
+    /**
+     * Check whether all cubes of the given chunk have the same terrain.
+     * @param chunk The chunk.
+     * @throws IndexOutOfBoundsException
+     *          | chunk < 0 || chunk >= getNbChunks()
+     */
+    public boolean isUniformChunk(int chunk) throws IndexOutOfBoundsException {
+        return this.packedTerrain[chunk] == null;
+    }
+
+    /**
+     * Check whether all cubes of the given chunk are air.
+     * @param chunk The chunk.
+     * @return | result == getNbCubes(chunk, Terrain.AIR) == getNbCubes(chunk)
+     */
+    public boolean isAirChunk(int chunk) throws IndexOutOfBoundsException {
+        return getNbCubes(chunk, Terrain.AIR) == getNbCubes(chunk);
+    }
+
+    /**
+     * Check whether all cubes of the given chunk are solid.
+     * @param chunk The chunk.
+     * @return | result == getNbCubes(chunk, Terrain.ROCK) + getNbCubes(chunk, Terrain.WOOD) == getNbCubes(chunk)
+     */
+    public boolean isSolidChunk(int chunk) throws IndexOutOfBoundsException {
+        return getNbCubes(chunk, Terrain.ROCK) + getNbCubes(chunk, Terrain.WOOD) == getNbCubes(chunk);
+    }
+
+    /**
+     * Check whether the given chunk contains a workshop.
+     * @param chunk The chunk.
+     * @return | result == getNbCubes(chunk, Terrain.WORKSHOP) > 0
+     */
+    public boolean containsWorkshop(int chunk) throws IndexOutOfBoundsException {
+        return getNbCubes(chunk, Terrain.WORKSHOP) > 0;
+    }
+
+    /**
+     * Return the number of chunks which are not uniform.
+     */
+    public int getNbPackedChunks(){
+        int count = 0;
+        for(long[] words : this.packedTerrain)
+            if(words != null)
+                count++;
+        return count;
+    }
+
+    @Override
+    public Terrain getTerrain(int index) throws IndexOutOfBoundsException {
+        return TERRAIN_TYPES[getTerrainId(index)];
+    }
+
+    @Override
+    public boolean isPassable(int index) throws IndexOutOfBoundsException {
+        return TERRAIN_TYPES[getTerrainId(index)].isPassable();
+    }
+
+    /**
+     * Check whether this storage is read-only, which is never the case.
+     * @return | result == false
+     */
+    @Override @Immutable
+    public boolean isReadOnly(){
+        return false;
+    }
+
+    /**
+     * Set the terrain of the cube with the given index to the given terrain.
+     * A uniform chunk is packed when one of its cubes changes, a packed chunk
+     * becomes uniform again once all its cubes have the same terrain.
+     * @param index The index of the cube.
+     * @param terrain The new terrain of the cube.
+     * @pre The given index references a cube.
+     *      | isValidIndex(index)
+     * @pre The given terrain is a valid terrain.
+     *      | Cube.isValidTerrain(terrain)
+     * @post | new.getTerrain(index) == terrain
+     */
+    @Override
+    public void setTerrain(int index, Terrain terrain) throws IndexOutOfBoundsException {
+        int chunk = getChunk(index);
+        int oldId = getTerrainId(index), newId = terrain.getId();
+        if(oldId == newId)
+            return;
+        nbCubesOfTerrain[chunk*NB_TERRAIN_TYPES + oldId]--;
+        nbCubesOfTerrain[chunk*NB_TERRAIN_TYPES + newId]++;
+        if(nbCubesOfTerrain[chunk*NB_TERRAIN_TYPES + newId] == nbCubesOfChunk[chunk]){
+            packedTerrain[chunk] = null;// All cubes have the new terrain now
+            uniformTerrain[chunk] = (byte)newId;
+            return;
+        }
+        long[] words = packedTerrain[chunk];
+        if(words == null){
+            words = new long[(CUBES_PER_CHUNK*BITS_PER_CUBE) >>> 6];
+            Arrays.fill(words, LOW_BITS*uniformTerrain[chunk]);
+            packedTerrain[chunk] = words;
+        }
+        int local = index & (CUBES_PER_CHUNK - 1);
+        int shift = (local & ((1 << CUBES_PER_WORD_BITS) - 1)) * BITS_PER_CUBE;
+        int w = local >>> CUBES_PER_WORD_BITS;
+        words[w] = (words[w] & ~(3L << shift)) | ((long)newId << shift);
+    }
+
+    /**
+     * Call the given visitor for the index of every cube with the given terrain,
+     * in increasing order of their index. Chunks without such cubes are skipped,
+     * the packed chunks are matched 32 cubes at a time.
+     * @param terrain The terrain of the cubes to visit.
+     * @param visitor The visitor to call.
+     * @effect | for each index in 0..getCapacity()-1:
+     *         |    if(isValidIndex(index) && getTerrain(index) == terrain) then visitor.accept(index)
+     */
+    @Override
+    public void forEachCube(Terrain terrain, IntConsumer visitor){
+        int id = terrain.getId();
+        long pattern = LOW_BITS*id;
+        for(int chunk = 0; chunk < getNbChunks(); chunk++){
+            if(nbCubesOfTerrain[chunk*NB_TERRAIN_TYPES + id] == 0)
+                continue;
+            int base = chunk << CHUNK_INDEX_BITS;
+            boolean isFull = nbCubesOfChunk[chunk] == CUBES_PER_CHUNK;// No padding cubes to skip
+            long[] words = packedTerrain[chunk];
+            if(words == null){
+                for(int index = base; index < base + CUBES_PER_CHUNK; index++)
+                    if(isFull || indexing.isValidIndex(index))
+                        visitor.accept(index);
+            }else{
+                for(int w = 0; w < words.length; w++){
+                    long difference = words[w] ^ pattern;
+                    long matches = ~(difference | (difference >>> 1)) & LOW_BITS;// Lowest bit of each matching cube
+                    while(matches != 0){
+                        int index = base + (w << CUBES_PER_WORD_BITS) + (Long.numberOfTrailingZeros(matches) >>> 1);
+                        if(isFull || indexing.isValidIndex(index))
+                            visitor.accept(index);
+                        matches &= matches - 1;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Return the terrain id of the cube with the given index.
+     */
+    private int getTerrainId(int index){
+        long[] words = packedTerrain[index >>> CHUNK_INDEX_BITS];
+        if(words == null)
+            return uniformTerrain[index >>> CHUNK_INDEX_BITS];
+        int local = index & (CUBES_PER_CHUNK - 1);
+        return (int)(words[local >>> CUBES_PER_WORD_BITS] >>> ((local & ((1 << CUBES_PER_WORD_BITS) - 1)) * BITS_PER_CUBE)) & 3;
+    }
+}
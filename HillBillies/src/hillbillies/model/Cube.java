@@ -1,16 +1,20 @@
 package hillbillies.model;
 
 import be.kuleuven.cs.som.annotate.*;
-import hillbillies.part2.listener.TerrainChangeListener;
+import hillbillies.utils.TimingWheel;
 import hillbillies.utils.Vector;
 
 import java.util.*;
-import java.util.function.BiConsumer;
 
 import static hillbillies.utils.Utils.randInt;
 
 /**
  * Created by Bram on 1-4-2016.
+ *
+ * The terrain of a Cube is stored inside its world's TerrainStorage. Cubes are
+ * therefore lightweight views on that storage: two Cubes of the same world with
+ * the same index are equal. Only cubes which own materials or which are collapsing
+ * are materialized by their world, all other cubes are created on request.
  */
 public class Cube extends WorldObject {
 
@@ -19,84 +23,120 @@ public class Cube extends WorldObject {
      */
     public static final double CUBE_SIDE_LENGTH = 1;
     /**
-     * Listener reflecting the terrain change.
+     * Constant reflecting the time it takes for a cube to collapse.
      */
-    private BiConsumer<Terrain, Cube> terrainChangeListener;
+    public static final double COLLAPSE_DURATION = 4d;
     /**
-     * Constant reflecting the collapsing time a cube side.
+     * Variable referencing the scheduled end of the collapse of this cube,
+     * or null when this cube isn't collapsing.
      */
-    private double collapseTime = -1;
+    private TimingWheel.Event collapseEvent = null;
     /**
-     * 
-     * @param world
-     * @param position
-     * @param terrainChangeListener
+     * Variable registering the index of this Cube inside its world's TerrainStorage.
      */
-    public Cube(World world, Vector position, BiConsumer<Terrain, Cube> terrainChangeListener){
-        this(world, position, null, terrainChangeListener);// Null will result in the default Terrain type -> Terrain.AIR
+    private final int index;
+
+    /**
+     * Initialize this new Cube with the given index in the given world.
+     *
+     * @param world The world this new Cube belongs to.
+     * @param index The index of this new Cube inside the world's TerrainStorage.
+     * @effect This new Cube is initialized as a new WorldObject with
+     *         the position of the cube with the given index in the given world.
+     *       | super(world, new Vector(storage.getX(index), storage.getY(index), storage.getZ(index)))
+     * @post The index of this new Cube is equal to the given index.
+     *       | new.getIndex() == index
+     * @throws NullPointerException if the given world is not effective.
+     *       | world == null
+     * @note Only worlds should create new cubes, use World.getCube to retrieve a cube.
+     */
+    Cube(World world, int index) throws NullPointerException {
+        super(world, new Vector(world.getTerrainStorage().getX(index), world.getTerrainStorage().getY(index), world.getTerrainStorage().getZ(index)));
+        this.index = index;
     }
 
+    /**
+     * Return the index of this Cube inside its world's TerrainStorage.
+     */
+    @Basic @Immutable
+    public int getIndex(){
+        return this.index;
+    }
+
+    /**
+     * Return the world of this Cube.
+     */
+    @Override
+    @Basic @Raw
+    public World getWorld(){
+        return (World)super.getWorld();
+    }
+
+    /**
+     * Return the materialized instance of this cube, or this cube when it isn't materialized.
+     * @return | if(getWorld().isMaterialized(getWorld().getCube(getIndex())))
+     *         |    then result == getWorld().getCube(getIndex())
+     *         | else result == this
+     */
+    private Cube getMaterialized(){
+        Cube materialized = this.getWorld().getCube(this.getIndex());
+        return this.getWorld().isMaterialized(materialized) ? materialized : this;
+    }
+
+    /**
+     * Collapse this cube. After COLLAPSE_DURATION seconds, the terrain of this cube is set to AIR.
+     * When this cube was already collapsing, its collapse is restarted.
+     * @post The materialized instance of this cube is collapsing.
+     *       | new.isCollapsing()
+     * @effect The end of the collapse is scheduled in the world of this cube.
+     *       | getWorld().scheduleEvent(COLLAPSE_DURATION, ...)
+     * @effect The materialized instance of this cube is registered as a collapsing cube of its world.
+     *       | getWorld().addCollapsingCube(getWorld().getCube(getIndex()))
+     * @throws IllegalStateException
+     *         When this cube is passable.
+     *       | this.isPassable()
+     */
     public void collapse() throws IllegalStateException{
         if(this.getTerrain().isPassable())
             throw new IllegalStateException("A passable cube cannot be collapsed.");
-        this.collapseTime = 4d;
+        Cube materialized = this.getWorld().materializeCube(this);
+        if(materialized.collapseEvent != null)
+            materialized.collapseEvent.cancel();
+        materialized.collapseEvent = this.getWorld().scheduleEvent(COLLAPSE_DURATION, materialized::finishCollapse);
+        this.getWorld().addCollapsingCube(materialized);
     }
+
+    /**
+     * Finish the collapse of this cube.
+     * @effect | setTerrain(Terrain.AIR)
+     * @effect | getWorld().releaseCube(this)
+     * @post | !new.isCollapsing()
+     */
+    private void finishCollapse(){
+        this.collapseEvent = null;
+        this.getWorld().removeCollapsingCube(this);
+
+        this.setTerrain(Terrain.AIR);
+        this.getWorld().releaseCube(this);
+    }
+
     /**
      * Check whether this cube is collapsing.
-     * @return True if and only if the collapsing tie is positive.
-     * |result == (this.collapseTime>=0d)
+     * @return True if and only if the end of the collapse of this cube is scheduled.
+     * |result == (this.collapseEvent != null)
      */
     public boolean isCollapsing(){
-        return this.collapseTime>=0d;
+        return this.getMaterialized().collapseEvent != null;
     }
 
     @Override
     public void advanceTime(double dt) {
-        if(this.collapseTime>0d){
-            this.collapseTime-=dt;
-            if(this.collapseTime<=0d){
-                this.collapseTime = -1;
-
-                this.setTerrain(Terrain.AIR);
-            }
-        }
-    }
-
-    /**
-     * Initialize this new Cube at the given position in the given world with given terrain.
-     *
-     * @param world The world this new Cube belongs to.
-     * @param position  The position of this new Cube.
-     * @param terrain The terrain for this new Cube.
-     * @effect This new Cube is initialized as a new WorldObject with
-     *         given position in the given world.
-     *       | super(world, position)
-     * @post If the given terrain is a valid terrain for any Cube,
-     * the terrain of this new Cube is equal to the given
-     * terrain. Otherwise, the terrain of this new Cube is equal
-     * to Terrain.AIR.
-     * | if (isValidTerrain(terrain))
-     * | then new.getTerrain() == terrain
-     * | else new.getTerrain() == Terrain.AIR
-     * @post This new cube has no materials yet.
-     * | new.getNbMaterials() == 0
-     * @throws NullPointerException if the given world or position are not effective.
-     * |world == null || position==null
-     * @throws IllegalArgumentException * The given position is not a valid position for any
-     * WorldObject.
-     * | ! isValidPosition(getPosition())
-     */
-    public Cube(World world, Vector position, Terrain terrain, BiConsumer<Terrain, Cube> terrainChangeListener){
-        super(world, position);
-        if (! isValidTerrain(terrain))
-            terrain = Terrain.AIR;
-        this.terrainChangeListener = terrainChangeListener;
-        setTerrain(terrain);
+        // The collapse of a cube is scheduled in the timing wheel of its world
     }
 
     @Override
     protected boolean validatePosition(Vector position){
-        return this.getWorld().getCube(position)==null || this.getWorld().getCube(position)==this;
+        return true;
     }
 
     /**
@@ -111,7 +151,7 @@ public class Cube extends WorldObject {
     @Basic
     @Raw
     public Terrain getTerrain() {
-    	return this.terrain;
+    	return this.getWorld().getTerrainStorage().getTerrain(this.getIndex());
     }
     /**
      * Check whether the given terrain is a valid terrain for
@@ -140,27 +180,22 @@ public class Cube extends WorldObject {
     public void setTerrain(Terrain terrain) {
     	if (!isValidTerrain(terrain))
             terrain = Terrain.AIR;
-        Terrain oldTerrain = this.terrain;
-        this.terrain = terrain;
+        Terrain oldTerrain = this.getTerrain();
+        this.getWorld().getTerrainStorage().setTerrain(this.getIndex(), terrain);
         if(!this.isPassable() && this.getNbOwnedMaterials()>0){
-            for(Material material : this.ownedMaterials)
+            for(Material material : this.getMaterials())
                 material.terminate();
-            this.ownedMaterials.clear();
         }
-        if(oldTerrain!=null && !oldTerrain.isPassable() && terrain.isPassable()){// Cube collapsed
+        if(!oldTerrain.isPassable() && terrain.isPassable()){// Cube collapsed
             if(randInt(0, 99) < 25){
                 if(oldTerrain == Terrain.ROCK)
-                    new Boulder((World)this.getWorld(), this);
+                    new Boulder(this.getWorld(), this);
                 if(oldTerrain == Terrain.WOOD)
-                    new Log((World)this.getWorld(), this);
+                    new Log(this.getWorld(), this);
             }
         }
-        this.terrainChangeListener.accept(oldTerrain, this);
+        this.getWorld().onTerrainChange(oldTerrain, this);
     }
-    /**
-     * Variable registering the terrain of this Cube.
-     */
-    private Terrain terrain;
 	/**
 	 * Check whether this cube is passable.
 	 * @return True if and only if the terrain of this cube is passable.
@@ -184,7 +219,7 @@ public class Cube extends WorldObject {
 	 *       | result == containsMaterialType(Log.class)
 	 */
     public boolean containsLogs(){
-        return containsMaterialType(Log.class);
+        return this.isPassable() && this.getNbLogs() > 0;
     }
 	/**
 	 * Check whether this cube contains a boulder.
@@ -192,7 +227,23 @@ public class Cube extends WorldObject {
 	 *       | result == containsMaterialType(Boulder.class)
 	 */
     public boolean containsBoulders(){
-        return containsMaterialType(Boulder.class);
+        return this.isPassable() && this.getNbBoulders() > 0;
+    }
+	/**
+	 * Return the number of logs owned by this cube.
+	 */
+    @Basic
+    public int getNbLogs(){
+        CubeMaterials materials = this.getWorld().getCubeMaterials(this.getIndex());
+        return materials == null ? 0 : materials.getNbLogs();
+    }
+	/**
+	 * Return the number of boulders owned by this cube.
+	 */
+    @Basic
+    public int getNbBoulders(){
+        CubeMaterials materials = this.getWorld().getCubeMaterials(this.getIndex());
+        return materials == null ? 0 : materials.getNbBoulders();
     }
 	/**
 	 * Check whether this cube contains a the given type of material.
@@ -201,12 +252,12 @@ public class Cube extends WorldObject {
 	 *       |	result == false
 	 */
     public boolean containsMaterialType(Class<? extends Material> material){
-        if(this.containsMaterials()){
-            for(Material m : this.ownedMaterials)
-                if(material.isInstance(m))
-                    return true;
-        }
-        return false;
+        if(material == Log.class)
+            return this.containsLogs();
+        if(material == Boulder.class)
+            return this.containsBoulders();
+        return this.containsMaterials() &&
+                this.getWorld().getCubeMaterials(this.getIndex()).getFirstOfType(material) != null;
     }
     /**
      * Method to get a log from this cube
@@ -235,11 +286,7 @@ public class Cube extends WorldObject {
     public <T extends Material> T getMaterialOfType(Class<T> material){
         if(!this.containsMaterialType(material))
             throw new IllegalArgumentException("This cube doesn't contain a material of given type.");
-        for(Material m : this.ownedMaterials)
-            if(material.isInstance(m))
-                return (T)m;
-        assert false;
-        return null;// Will never happen
+        return this.getWorld().getCubeMaterials(this.getIndex()).getFirstOfType(material);
     }
 
     @Override
@@ -247,6 +294,86 @@ public class Cube extends WorldObject {
         return -1;
     }
 
+    /*
+     * The materials of a cube aren't stored in the cube itself, but in the
+     * sparse material index of its world.
+     */
+
+    @Override
+    @Basic @Raw
+    public Material getOwnedMaterialAt(int index) throws IndexOutOfBoundsException {
+        CubeMaterials materials = this.getWorld().getCubeMaterials(this.getIndex());
+        if(materials == null)
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: 0");
+        return materials.get(index - 1);
+    }
+
+    @Override
+    @Basic @Raw
+    public int getNbOwnedMaterials() {
+        CubeMaterials materials = this.getWorld().getCubeMaterials(this.getIndex());
+        return materials == null ? 0 : materials.size();
+    }
+
+    @Override
+    public boolean hasAsOwnedMaterial(@Raw Material ownedMaterial) {
+        CubeMaterials materials = this.getWorld().getCubeMaterials(this.getIndex());
+        return materials != null && materials.contains(ownedMaterial);
+    }
+
+    @Override
+    public List<Material> getMaterials() {
+        CubeMaterials materials = this.getWorld().getCubeMaterials(this.getIndex());
+        return materials == null ? new LinkedList<>() : materials.toList();
+    }
+
+    /**
+     * Add the given material to the materials of this cube.
+     * @param material The material to add.
+     * @effect The material is registered in the material index of this cube's world.
+     *       | this.getWorld().addCubeMaterial(this.getIndex(), material)
+     */
+    @Override
+    public void addOwnedMaterial(Material material) {
+        assert(material != null) && (material.getOwner() == this) && (!this.hasAsOwnedMaterial(material));
+        this.getWorld().addCubeMaterial(this.getIndex(), material);
+    }
+
+    /**
+     * Remove the given ownedMaterial from the list of ownedMaterials of this cube.
+     * @effect The material is unregistered in the material index of this cube's world.
+     *       | this.getWorld().removeCubeMaterial(this.getIndex(), ownedMaterial)
+     * @effect The cube is released by its world when it doesn't own any materials anymore.
+     *       | this.getWorld().releaseCube(this)
+     */
+    @Override
+    @Raw
+    public void removeOwnedMaterial(Material ownedMaterial) {
+        assert(ownedMaterial != null) && this.hasAsOwnedMaterial(ownedMaterial) && (ownedMaterial.getOwner() != this);
+        this.getWorld().removeCubeMaterial(this.getIndex(), ownedMaterial);
+        this.getWorld().releaseCube(this);
+    }
+
+    /**
+     * Check whether this cube equals the given object.
+     * @param other The object to compare with.
+     * @return True if and only if the other object is a cube of the same world with the same index.
+     *       | result == (other instanceof Cube) && ((Cube)other).getWorld() == this.getWorld() &&
+     *       |              ((Cube)other).getIndex() == this.getIndex()
+     */
+    @Override
+    public boolean equals(Object other){
+        if(this == other) return true;
+        if(!(other instanceof Cube)) return false;
+        Cube cube = (Cube)other;
+        return cube.getIndex() == this.getIndex() && cube.getWorld() == this.getWorld();
+    }
+
+    @Override
+    public int hashCode(){
+        return this.getIndex();
+    }
+
     /**
      * Terminate this Cube.
      *
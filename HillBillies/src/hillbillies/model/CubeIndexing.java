@@ -0,0 +1,301 @@
+package hillbillies.model;
+
+import be.kuleuven.cs.som.annotate.*;
+
+/**
+ * Class mapping cube coordinates to indices inside a TerrainStorage, according
+ * to one of the CubeLayouts. The indices of all cubes lie in the range
+ * [0;getCapacity()[, but some layouts pad the world's dimensions, so not every
+ * index in that range references a cube.
+ * @author Kenneth & Bram
+ * @version 1.0
+ *
+ * @invar Each cube has a unique index, which can be converted back to its coordinates.
+ * | for each x,y,z with isValidCube(x,y,z):
+ * |    getX(getIndex(x,y,z)) == x && getY(getIndex(x,y,z)) == y && getZ(getIndex(x,y,z)) == z
+ */
+abstract class CubeIndexing {
+
+    /**
+     * Constants reflecting the number of cubes in the x-, y- and z-direction.
+     */
+    protected final int nbX, nbY, nbZ;
+
+    /**
+     * Initialize this new CubeIndexing for the given dimensions.
+     * @param nbX The number of cubes in the x-direction.
+     * @param nbY The number of cubes in the y-direction.
+     * @param nbZ The number of cubes in the z-direction.
+     */
+    protected CubeIndexing(int nbX, int nbY, int nbZ){
+        this.nbX = nbX;
+        this.nbY = nbY;
+        this.nbZ = nbZ;
+    }
+
+    /**
+     * Return the layout of this indexing.
+     */
+    @Basic @Immutable
+    abstract CubeLayout getLayout();
+
+    /**
+     * Return the size of the range of indices used by this indexing.
+     * @return | result >= nbX*nbY*nbZ
+     */
+    @Immutable
+    abstract int getCapacity();
+
+    /**
+     * Check whether the given cube coordinates lie inside the dimensions of this indexing.
+     */
+    boolean isValidCube(int x, int y, int z){
+        return x >= 0 && x < nbX && y >= 0 && y < nbY && z >= 0 && z < nbZ;
+    }
+
+    /**
+     * Check whether the given index references a cube.
+     * @return | result == 0 <= index < getCapacity() && isValidCube(getX(index), getY(index), getZ(index))
+     */
+    boolean isValidIndex(int index){
+        return index >= 0 && index < getCapacity() && isValidCube(getX(index), getY(index), getZ(index));
+    }
+
+    /**
+     * Get the index of the cube with the given coordinates.
+     * @pre | isValidCube(x, y, z)
+     */
+    abstract int getIndex(int x, int y, int z);
+
+    /**
+     * Get the x-coordinate of the cube with the given index.
+     */
+    abstract int getX(int index);
+
+    /**
+     * Get the y-coordinate of the cube with the given index.
+     */
+    abstract int getY(int index);
+
+    /**
+     * Get the z-coordinate of the cube with the given index.
+     */
+    abstract int getZ(int index);
+
+    /**
+     * Get the constant index offsets corresponding to the given coordinate offsets.
+     * @return Null if the index offsets depend on the position of the cube in this layout,
+     *          otherwise the index offsets for the given coordinate offsets.
+     *          | if(result != null) then
+     *          |   for each i, for each x,y,z with isValidCube(x,y,z) && isValidCube(x+dx[i],y+dy[i],z+dz[i]):
+     *          |       getIndex(x,y,z) + result[i] == getIndex(x+dx[i],y+dy[i],z+dz[i])
+     */
+    int[] getIndexOffsets(int[] dx, int[] dy, int[] dz){
+        return null;
+    }
+
+    /**
+     * Row-major indexing, see CubeLayout.LINEAR.
+     */
+    static class Linear extends CubeIndexing {
+
+        private final int layerSize;
+
+        Linear(int nbX, int nbY, int nbZ){
+            super(nbX, nbY, nbZ);
+            this.layerSize = nbX*nbY;
+        }
+
+        @Override
+        CubeLayout getLayout(){
+            return CubeLayout.LINEAR;
+        }
+
+        @Override
+        int getCapacity(){
+            return layerSize*nbZ;
+        }
+
+        @Override
+        boolean isValidIndex(int index){
+            return index >= 0 && index < getCapacity();
+        }
+
+        @Override
+        int getIndex(int x, int y, int z){
+            return x + y*nbX + z*layerSize;
+        }
+
+        @Override
+        int getX(int index){
+            return index % nbX;
+        }
+
+        @Override
+        int getY(int index){
+            return (index % layerSize) / nbX;
+        }
+
+        @Override
+        int getZ(int index){
+            return index / layerSize;
+        }
+
+        @Override
+        int[] getIndexOffsets(int[] dx, int[] dy, int[] dz){
+            int[] offsets = new int[dx.length];
+            for(int i = 0; i < offsets.length; i++)
+                offsets[i] = dx[i] + dy[i]*nbX + dz[i]*layerSize;
+            return offsets;
+        }
+    }
+
+    /**
+     * Bricked indexing, see CubeLayout.BRICKED and CubeLayout.CHUNKED.
+     */
+    static class Bricked extends CubeIndexing {
+
+        /**
+         * Constant reflecting the number of bits of each coordinate inside a brick of the BRICKED layout.
+         */
+        static final int BRICK_BITS = 3;
+        /**
+         * Constant reflecting the number of bits of each coordinate inside a brick of the CHUNKED layout.
+         */
+        static final int CHUNK_BITS = 4;
+
+        private final CubeLayout layout;
+        /**
+         * Final variables registering the number of bits of each coordinate inside a brick
+         * and the corresponding mask.
+         */
+        private final int brickBits, brickMask;
+        private final int nbBricksX, brickLayerSize, capacity;
+
+        Bricked(int nbX, int nbY, int nbZ, CubeLayout layout, int brickBits) throws IllegalArgumentException {
+            super(nbX, nbY, nbZ);
+            this.layout = layout;
+            this.brickBits = brickBits;
+            this.brickMask = (1 << brickBits) - 1;
+            this.nbBricksX = (nbX + brickMask) >> brickBits;
+            int nbBricksY = (nbY + brickMask) >> brickBits;
+            int nbBricksZ = (nbZ + brickMask) >> brickBits;
+            this.brickLayerSize = nbBricksX*nbBricksY;
+            long capacity = (long)brickLayerSize*nbBricksZ << (3*brickBits);
+            if(capacity > Integer.MAX_VALUE)
+                throw new IllegalArgumentException("The dimensions are too large for a bricked layout.");
+            this.capacity = (int)capacity;
+        }
+
+        @Override
+        CubeLayout getLayout(){
+            return this.layout;
+        }
+
+        @Override
+        int getCapacity(){
+            return capacity;
+        }
+
+        @Override
+        int getIndex(int x, int y, int z){
+            int brick = (x >> brickBits) + (y >> brickBits)*nbBricksX + (z >> brickBits)*brickLayerSize;
+            return (brick << (3*brickBits)) | ((z & brickMask) << (2*brickBits)) | ((y & brickMask) << brickBits) | (x & brickMask);
+        }
+
+        @Override
+        int getX(int index){
+            int brick = index >> (3*brickBits);
+            return ((brick % nbBricksX) << brickBits) | (index & brickMask);
+        }
+
+        @Override
+        int getY(int index){
+            int brick = index >> (3*brickBits);
+            return (((brick % brickLayerSize) / nbBricksX) << brickBits) | ((index >> brickBits) & brickMask);
+        }
+
+        @Override
+        int getZ(int index){
+            int brick = index >> (3*brickBits);
+            return ((brick / brickLayerSize) << brickBits) | ((index >> (2*brickBits)) & brickMask);
+        }
+    }
+
+    /**
+     * Z-order indexing, see CubeLayout.MORTON. The dimensions are padded to the
+     * next power of two of the largest dimension.
+     */
+    static class Morton extends CubeIndexing {
+
+        /**
+         * Constant reflecting the bits of the x-coordinate inside a Morton code.
+         */
+        private static final int X_MASK = 0x09249249;
+
+        private final int capacity;
+
+        Morton(int nbX, int nbY, int nbZ) throws IllegalArgumentException {
+            super(nbX, nbY, nbZ);
+            int bits = 32 - Integer.numberOfLeadingZeros(Math.max(nbX, Math.max(nbY, nbZ)) - 1);
+            if(3*bits > 30)
+                throw new IllegalArgumentException("The dimensions are too large for a Morton layout.");
+            this.capacity = 1 << (3*bits);
+        }
+
+        @Override
+        CubeLayout getLayout(){
+            return CubeLayout.MORTON;
+        }
+
+        @Override
+        int getCapacity(){
+            return capacity;
+        }
+
+        @Override
+        int getIndex(int x, int y, int z){
+            return spread(x) | (spread(y) << 1) | (spread(z) << 2);
+        }
+
+        @Override
+        int getX(int index){
+            return compact(index);
+        }
+
+        @Override
+        int getY(int index){
+            return compact(index >> 1);
+        }
+
+        @Override
+        int getZ(int index){
+            return compact(index >> 2);
+        }
+
+        /**
+         * Spread the 10 lowest bits of the given value such that there are two zero bits
+         * between each of them.
+         */
+        private static int spread(int value){
+            value &= 0x3ff;
+            value = (value | (value << 16)) & 0x030000ff;
+            value = (value | (value << 8)) & 0x0300f00f;
+            value = (value | (value << 4)) & 0x030c30c3;
+            value = (value | (value << 2)) & X_MASK;
+            return value;
+        }
+
+        /**
+         * Inverse of spread: collect every third bit of the given value, starting from the lowest one.
+         */
+        private static int compact(int value){
+            value &= X_MASK;
+            value = (value | (value >> 2)) & 0x030c30c3;
+            value = (value | (value >> 4)) & 0x0300f00f;
+            value = (value | (value >> 8)) & 0x030000ff;
+            value = (value | (value >> 16)) & 0x3ff;
+            return value;
+        }
+    }
+}
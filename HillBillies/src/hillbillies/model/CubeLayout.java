@@ -0,0 +1,63 @@
+package hillbillies.model;
+
+/**
+ * Enumeration of the memory layouts a World can use to store its cubes.
+ * The layout determines the index of each cube inside the world's TerrainStorage,
+ * and thus which cubes lie close to each other in memory.
+ * @author Kenneth & Bram
+ * @version 1.0
+ */
+public enum CubeLayout {
+    /**
+     * Row-major layout: the index of a cube is x + y*nbX + z*nbX*nbY.
+     * Neighbours along the x-axis are adjacent in memory, neighbours along the
+     * z-axis lie a complete layer apart.
+     */
+    LINEAR {
+        @Override
+        CubeIndexing createIndexing(int nbX, int nbY, int nbZ){
+            return new CubeIndexing.Linear(nbX, nbY, nbZ);
+        }
+    },
+    /**
+     * Bricked layout: the world is divided in bricks of 8x8x8 cubes, each brick
+     * is stored contiguously (row-major inside the brick) and the bricks themselves
+     * are stored row-major. Neighbourhoods inside a brick share a few cache lines.
+     */
+    BRICKED {
+        @Override
+        CubeIndexing createIndexing(int nbX, int nbY, int nbZ){
+            return new CubeIndexing.Bricked(nbX, nbY, nbZ, this, CubeIndexing.Bricked.BRICK_BITS);
+        }
+    },
+    /**
+     * Chunked layout: identical to the bricked layout, but with bricks of 16x16x16
+     * cubes. The indices of the cubes of each chunk form one contiguous range, which
+     * is used by the ChunkedTerrainStorage.
+     */
+    CHUNKED {
+        @Override
+        CubeIndexing createIndexing(int nbX, int nbY, int nbZ){
+            return new CubeIndexing.Bricked(nbX, nbY, nbZ, this, CubeIndexing.Bricked.CHUNK_BITS);
+        }
+    },
+    /**
+     * Z-order layout: the index of a cube is the Morton code of its coordinates,
+     * i.e. their bits interleaved. Cubes which are close to each other in the world
+     * are close to each other in memory at every scale.
+     */
+    MORTON {
+        @Override
+        CubeIndexing createIndexing(int nbX, int nbY, int nbZ){
+            return new CubeIndexing.Morton(nbX, nbY, nbZ);
+        }
+    };
+
+    /**
+     * Create the indexing of this layout for a world with the given dimensions.
+     * @param nbX The number of cubes in the x-direction.
+     * @param nbY The number of cubes in the y-direction.
+     * @param nbZ The number of cubes in the z-direction.
+     */
+    abstract CubeIndexing createIndexing(int nbX, int nbY, int nbZ);
+}
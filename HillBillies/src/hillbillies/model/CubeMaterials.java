@@ -0,0 +1,138 @@
+package hillbillies.model;
+
+import be.kuleuven.cs.som.annotate.*;
+
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Class registering the materials owned by one cube. Instances are kept by
+ * the World in a sparse index, only cubes which own at least one material
+ * have a CubeMaterials. The materials are stored in a small inline array
+ * and the number of logs and boulders are counted, so checking whether a
+ * cube contains a certain type of material doesn't require iterating.
+ * @author Kenneth & Bram
+ * @version 1.0
+ *
+ * @invar The counters reflect the number of materials of each type.
+ * | getNbLogs() == count of Log in materials &&
+ * | getNbBoulders() == count of Boulder in materials
+ */
+final class CubeMaterials {
+
+    /**
+     * Constant reflecting the initial capacity of the inline array.
+     */
+    private static final int INITIAL_CAPACITY = 2;
+
+    /**
+     * Array containing the materials at the indices 0..size()-1, in the order
+     * they were added.
+     */
+    private Material[] materials = new Material[INITIAL_CAPACITY];
+    /**
+     * Variables registering the total number of materials, the number of logs
+     * and the number of boulders.
+     */
+    private int size = 0, nbLogs = 0, nbBoulders = 0;
+
+    /**
+     * Return the number of materials.
+     */
+    @Basic
+    int size(){
+        return this.size;
+    }
+
+    /**
+     * Return the number of logs.
+     */
+    @Basic
+    int getNbLogs(){
+        return this.nbLogs;
+    }
+
+    /**
+     * Return the number of boulders.
+     */
+    @Basic
+    int getNbBoulders(){
+        return this.nbBoulders;
+    }
+
+    /**
+     * Return the material at the given index.
+     * @param index The index of the material, starting from 0.
+     * @throws IndexOutOfBoundsException
+     *          | index < 0 || index >= size()
+     */
+    Material get(int index) throws IndexOutOfBoundsException {
+        if(index < 0 || index >= size)
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        return this.materials[index];
+    }
+
+    /**
+     * Check whether the given material is registered.
+     */
+    boolean contains(Material material){
+        return this.indexOf(material) >= 0;
+    }
+
+    /**
+     * Return the first registered material of the given type, or null if there is none.
+     * @param type The type of the material.
+     */
+    <T extends Material> T getFirstOfType(Class<T> type){
+        if((type == Log.class && nbLogs == 0) || (type == Boulder.class && nbBoulders == 0))
+            return null;
+        for(int i = 0; i < size; i++)
+            if(type.isInstance(materials[i]))
+                return type.cast(materials[i]);
+        return null;
+    }
+
+    /**
+     * Register the given material as the last material.
+     * @param material The material to add.
+     * @post | new.size() == size() + 1 && new.get(size()) == material
+     */
+    void add(Material material){
+        if(size == materials.length)
+            materials = Arrays.copyOf(materials, 2*size);
+        materials[size++] = material;
+        if(material instanceof Log) nbLogs++;
+        else if(material instanceof Boulder) nbBoulders++;
+    }
+
+    /**
+     * Remove the given material. The order of the other materials is preserved.
+     * @param material The material to remove.
+     * @return True if the material was registered.
+     */
+    boolean remove(Material material){
+        int index = this.indexOf(material);
+        if(index < 0)
+            return false;
+        System.arraycopy(materials, index + 1, materials, index, size - index - 1);
+        materials[--size] = null;
+        if(material instanceof Log) nbLogs--;
+        else if(material instanceof Boulder) nbBoulders--;
+        return true;
+    }
+
+    /**
+     * Return a new list containing all registered materials.
+     */
+    List<Material> toList(){
+        return new LinkedList<>(Arrays.asList(materials).subList(0, size));
+    }
+
+    private int indexOf(Material material){
+        for(int i = 0; i < size; i++)
+            if(materials[i] == material)
+                return i;
+        return -1;
+    }
+}
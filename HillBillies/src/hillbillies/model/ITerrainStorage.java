@@ -0,0 +1,137 @@
+package hillbillies.model;
+
+import java.util.function.IntConsumer;
+
+/**
+ * Interface of the storages holding the terrain of every cube of a World.
+ * Each cube is identified by an index in the range [0;getCapacity()[, which
+ * is determined by the layout of the storage.
+ * @author Kenneth & Bram
+ * @version 1.0
+ */
+public interface ITerrainStorage {
+
+    /**
+     * Return the layout of this storage.
+     */
+    public CubeLayout getLayout();
+
+    /**
+     * Return the number of cubes in the x-direction.
+     */
+    public int getNbCubesX();
+
+    /**
+     * Return the number of cubes in the y-direction.
+     */
+    public int getNbCubesY();
+
+    /**
+     * Return the number of cubes in the z-direction.
+     */
+    public int getNbCubesZ();
+
+    /**
+     * Return the total number of cubes in this storage.
+     * @return | result == getNbCubesX()*getNbCubesY()*getNbCubesZ()
+     */
+    public int getNbCubes();
+
+    /**
+     * Return the number of cubes in this storage with the given terrain.
+     * @param terrain The terrain to count.
+     */
+    public int getNbCubes(Terrain terrain);
+
+    /**
+     * Return the size of the range of indices used by this storage. Depending
+     * on the layout, not every index in that range references a cube.
+     * @return | result >= getNbCubes()
+     */
+    public int getCapacity();
+
+    /**
+     * Check whether the given index references a cube of this storage.
+     * @param index The index to check.
+     */
+    public boolean isValidIndex(int index);
+
+    /**
+     * Check whether the given cube coordinates lie inside this storage.
+     * @param x The x-coordinate of the cube.
+     * @param y The y-coordinate of the cube.
+     * @param z The z-coordinate of the cube.
+     */
+    public boolean isValidCube(int x, int y, int z);
+
+    /**
+     * Get the index of the cube with the given cube coordinates.
+     * @param x The x-coordinate of the cube.
+     * @param y The y-coordinate of the cube.
+     * @param z The z-coordinate of the cube.
+     * @pre | isValidCube(x, y, z)
+     */
+    public int getIndex(int x, int y, int z);
+
+    /**
+     * Get the x-coordinate of the cube with the given index.
+     * @param index The index of the cube.
+     */
+    public int getX(int index);
+
+    /**
+     * Get the y-coordinate of the cube with the given index.
+     * @param index The index of the cube.
+     */
+    public int getY(int index);
+
+    /**
+     * Get the z-coordinate of the cube with the given index.
+     * @param index The index of the cube.
+     */
+    public int getZ(int index);
+
+    /**
+     * Get the constant index offsets corresponding to the given coordinate offsets,
+     * or null if the index offsets depend on the position of the cube.
+     * @param dx The offsets along the x-axis.
+     * @param dy The offsets along the y-axis.
+     * @param dz The offsets along the z-axis.
+     */
+    public int[] getIndexOffsets(int[] dx, int[] dy, int[] dz);
+
+    /**
+     * Get the terrain of the cube with the given index.
+     * @param index The index of the cube.
+     */
+    public Terrain getTerrain(int index);
+
+    /**
+     * Check whether the cube with the given index is passable.
+     * @param index The index of the cube.
+     * @return | result == getTerrain(index).isPassable()
+     */
+    public boolean isPassable(int index);
+
+    /**
+     * Check whether the terrain of this storage cannot be changed.
+     */
+    public boolean isReadOnly();
+
+    /**
+     * Set the terrain of the cube with the given index to the given terrain.
+     * @param index The index of the cube.
+     * @param terrain The new terrain of the cube.
+     * @pre | Cube.isValidTerrain(terrain)
+     * @pre | !isReadOnly()
+     */
+    public void setTerrain(int index, Terrain terrain);
+
+    /**
+     * Call the given visitor for the index of every cube with the given terrain,
+     * in increasing order of their index.
+     * @param terrain The terrain of the cubes to visit.
+     * @param visitor The visitor to call.
+     */
+    public void forEachCube(Terrain terrain, IntConsumer visitor);
+}
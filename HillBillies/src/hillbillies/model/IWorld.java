@@ -5,9 +5,22 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.function.Function;
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
 import java.util.function.Predicate;
 
 import be.kuleuven.cs.som.annotate.Raw;
+import hillbillies.pathfinding.AStarPathFinder;
+import hillbillies.pathfinding.ComponentLabels;
+import hillbillies.pathfinding.DistanceField;
+import hillbillies.pathfinding.FlowFieldRegistry;
+import hillbillies.pathfinding.HierarchicalPathFinder;
+import hillbillies.pathfinding.Landmarks;
+import hillbillies.pathfinding.PathCache;
+import hillbillies.pathfinding.PathScheduler;
+import hillbillies.pathfinding.PathService;
+import hillbillies.pathfinding.TerrainSnapshot;
+import hillbillies.utils.TimingWheel;
 import hillbillies.utils.Vector;
 
 /**
@@ -32,6 +45,17 @@ public interface IWorld {
      */
     public boolean isValidPosition(Vector position);
 
+    /**
+     * Check whether the given position is a valid position
+     * for any IWorldObject in this world.
+     *
+     * @param x The x-coordinate of the position to check
+     * @param y The y-coordinate of the position to check
+     * @param z The z-coordinate of the position to check
+     * @return True when the given position is a valid position
+     */
+    public boolean isValidPosition(double x, double y, double z);
+
     /**
      * Get the minimum position in this world.
      * This is the position of the most bottom left back cube.
@@ -94,4 +118,224 @@ public interface IWorld {
 
     public boolean isLowerSolid(Vector position);
 
+    /**
+     * Return the game-time of this world.
+     */
+    public double getGameTime();
+
+    /**
+     * Schedule the given action to be executed after the given delay of game-time.
+     * @param delay The delay in seconds after which the action will be executed.
+     * @param action The action to execute.
+     * @return The scheduled event, or null when this world doesn't schedule events.
+     */
+    public TimingWheel.Event scheduleEvent(double delay, Runnable action);
+
+    /*
+     * Cube indices
+     *
+     * The methods below work on packed cube indices instead of Vectors. They
+     * are meant for hot paths (pathfinding, activities) and do not allocate.
+     */
+
+    /**
+     * Check whether the given cube coordinates reference a cube of this world.
+     * @param x The x-coordinate of the cube.
+     * @param y The y-coordinate of the cube.
+     * @param z The z-coordinate of the cube.
+     */
+    public boolean isValidCube(int x, int y, int z);
+
+    /**
+     * Get the index of the cube with the given cube coordinates.
+     * @param x The x-coordinate of the cube.
+     * @param y The y-coordinate of the cube.
+     * @param z The z-coordinate of the cube.
+     * @pre The given coordinates reference a cube of this world.
+     *      | isValidCube(x, y, z)
+     */
+    public int getCubeIndex(int x, int y, int z);
+
+    /**
+     * Get the index of the cube in which the given position lies.
+     * @param position The position inside the cube.
+     * @throws IllegalArgumentException
+     *          When the given position is not a valid position in this world.
+     *          | !isValidPosition(position)
+     */
+    public int getCubeIndex(Vector position) throws IllegalArgumentException;
+
+    /**
+     * Get the x-coordinate of the cube with the given index.
+     */
+    public int getCubeX(int index);
+
+    /**
+     * Get the y-coordinate of the cube with the given index.
+     */
+    public int getCubeY(int index);
+
+    /**
+     * Get the z-coordinate of the cube with the given index.
+     */
+    public int getCubeZ(int index);
+
+    /**
+     * Check whether the cube with the given index is passable.
+     * @param index The index of the cube to check.
+     */
+    public boolean isCubePassable(int index);
+
+    /**
+     * Check whether the cubes with the given indices are neighbouring cubes.
+     * @param index The index of the first cube.
+     * @param other The index of the second cube.
+     * @return True if both cubes are different and differ at most 1 in each coordinate.
+     *          | result == index != other &&
+     *          |   abs(getCubeX(index)-getCubeX(other)) <= 1 &&
+     *          |   abs(getCubeY(index)-getCubeY(other)) <= 1 &&
+     *          |   abs(getCubeZ(index)-getCubeZ(other)) <= 1
+     */
+    public boolean areNeighbouringCubes(int index, int other);
+
+    /**
+     * Call the given visitor for the index of every directly adjacent cube of
+     * the cube with the given index.
+     * @param index The index of the cube.
+     * @param visitor The visitor to call.
+     */
+    public void forEachDirectlyAdjacentCube(int index, IntConsumer visitor);
+
+    /**
+     * Call the given visitor for the index of every neighbouring cube of
+     * the cube with the given index.
+     * @param index The index of the cube.
+     * @param visitor The visitor to call.
+     */
+    public void forEachNeighbouringCube(int index, IntConsumer visitor);
+
+    /**
+     * Check whether any directly adjacent cube of the cube with the given index
+     * satisfies the given condition.
+     * @param index The index of the cube.
+     * @param condition The condition to check.
+     */
+    public boolean anyDirectlyAdjacentCube(int index, IntPredicate condition);
+
+    /**
+     * Check whether any neighbouring cube of the cube with the given index
+     * satisfies the given condition.
+     * @param index The index of the cube.
+     * @param condition The condition to check.
+     */
+    public boolean anyNeighbouringCube(int index, IntPredicate condition);
+
+    /**
+     * Check whether the cube with the given index lies on the bottom of this world
+     * or has a solid directly adjacent cube.
+     * @param index The index of the cube.
+     */
+    public boolean isAdjacentSolid(int index);
+
+    /**
+     * Check whether a unit can stand in the cube with the given index, i.e. whether
+     * the cube is passable and lies on the bottom of the world or has a solid
+     * directly adjacent cube.
+     * @param index The index of the cube.
+     */
+    public boolean isCubeStandable(int index);
+
+    /**
+     * Return the directions in which a unit standing in the cube with the given index
+     * can walk to a neighbouring cube. Bit i of the result corresponds to
+     * World.getNeighbouringDirection(i).
+     * @param index The index of the cube.
+     */
+    public int getWalkableDirections(int index);
+
+    /**
+     * Return the size of the range of cube indices of this world.
+     */
+    public int getNbCubeIndices();
+
+    /**
+     * Get the index of the neighbouring cube in the given direction of the cube
+     * with the given index.
+     * @param index The index of the cube.
+     * @param direction The number of the neighbouring direction, see World.getNeighbouringDirection.
+     */
+    public int getNeighbouringCube(int index, int direction);
+
+    /**
+     * Return the path finder searching paths between the cubes of this world.
+     */
+    public AStarPathFinder getPathFinder();
+
+    /**
+     * Return the hierarchical path finder searching long paths between the cubes of this world.
+     */
+    public HierarchicalPathFinder getHierarchicalPathFinder();
+
+    /**
+     * Return the cache of recently searched paths between two cubes of this world.
+     */
+    public PathCache getPathCache();
+
+    /**
+     * Return the terrain epoch of this world, which increases whenever the walkable
+     * directions of some cubes change.
+     */
+    public long getTerrainEpoch();
+
+    /**
+     * Return a snapshot of the walkable directions of all cubes of this world at the current terrain epoch.
+     */
+    public TerrainSnapshot getTerrainSnapshot();
+
+    /**
+     * Return the registry of flow fields shared by units walking to the same cube of this world.
+     */
+    public FlowFieldRegistry getFlowFieldRegistry();
+
+    /**
+     * Return the service searching paths between the cubes of this world on other threads.
+     */
+    public PathService getPathService();
+
+    /**
+     * Return the scheduler spreading path searches over the ticks of this world.
+     */
+    public PathScheduler getPathScheduler();
+
+    /**
+     * Return the landmarks guiding long searches in this world.
+     */
+    public Landmarks getLandmarks();
+
+    /**
+     * Return the labels of the connected walkable regions of this world.
+     */
+    public ComponentLabels getComponentLabels();
+
+    /**
+     * Return the distance field towards the workshops of this world.
+     */
+    public DistanceField getWorkshopDistanceField();
+
+    /**
+     * Return the distance field towards the cubes of this world which contain a log.
+     */
+    public DistanceField getLogDistanceField();
+
+    /**
+     * Return the distance field towards the cubes of this world which contain a boulder.
+     */
+    public DistanceField getBoulderDistanceField();
+
+    /**
+     * Get a set of all units in the cube with the given index.
+     * @param index The index of the cube.
+     */
+    public Set<Unit> getUnitsInCube(int index);
+
 }
@@ -2,9 +2,22 @@ package hillbillies.model;
 
 import java.util.*;
 import java.util.function.Function;
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
 import java.util.function.Predicate;
 
 import be.kuleuven.cs.som.annotate.Raw;
+import hillbillies.pathfinding.AStarPathFinder;
+import hillbillies.pathfinding.DistanceField;
+import hillbillies.pathfinding.FlowFieldRegistry;
+import hillbillies.pathfinding.HierarchicalPathFinder;
+import hillbillies.pathfinding.ComponentLabels;
+import hillbillies.pathfinding.Landmarks;
+import hillbillies.pathfinding.PathCache;
+import hillbillies.pathfinding.PathScheduler;
+import hillbillies.pathfinding.PathService;
+import hillbillies.pathfinding.TerrainSnapshot;
+import hillbillies.utils.TimingWheel;
 import hillbillies.utils.Vector;
 
 public class LobbyWorld implements IWorld {
@@ -172,4 +185,191 @@ public class LobbyWorld implements IWorld {
 		throw new NoSuchMethodError("This method is not supported by the lobby.");
 	}
 
+	/**
+	 * Check whether the given position is a valid position
+	 * for any IWorldObject in this world.
+	 * @param x The x-coordinate of the position to check
+	 * @param y The y-coordinate of the position to check
+	 * @param z The z-coordinate of the position to check
+	 * @return True. Since this is the LobbyWorld, all possible positions are valid.
+	 */
+	@Override
+	public boolean isValidPosition(double x, double y, double z){
+		return true;
+	}
+
+	@Override
+	public boolean isAdjacentSolid(int index) {
+		throw new NoSuchMethodError("This method is not supported by the lobby.");
+	}
+
+	@Override
+	public boolean isCubeStandable(int index) {
+		throw new NoSuchMethodError("This method is not supported by the lobby.");
+	}
+
+	@Override
+	public int getWalkableDirections(int index) {
+		throw new NoSuchMethodError("This method is not supported by the lobby.");
+	}
+
+	@Override
+	public int getNbCubeIndices() {
+		throw new NoSuchMethodError("This method is not supported by the lobby.");
+	}
+
+	@Override
+	public int getNeighbouringCube(int index, int direction) {
+		throw new NoSuchMethodError("This method is not supported by the lobby.");
+	}
+
+	@Override
+	public AStarPathFinder getPathFinder() {
+		throw new NoSuchMethodError("This method is not supported by the lobby.");
+	}
+
+	@Override
+	public HierarchicalPathFinder getHierarchicalPathFinder() {
+		throw new NoSuchMethodError("This method is not supported by the lobby.");
+	}
+
+	@Override
+	public PathCache getPathCache() {
+		throw new NoSuchMethodError("This method is not supported by the lobby.");
+	}
+
+	@Override
+	public long getTerrainEpoch() {
+		throw new NoSuchMethodError("This method is not supported by the lobby.");
+	}
+
+	@Override
+	public TerrainSnapshot getTerrainSnapshot() {
+		throw new NoSuchMethodError("This method is not supported by the lobby.");
+	}
+
+	@Override
+	public FlowFieldRegistry getFlowFieldRegistry() {
+		throw new NoSuchMethodError("This method is not supported by the lobby.");
+	}
+
+	@Override
+	public PathService getPathService() {
+		throw new NoSuchMethodError("This method is not supported by the lobby.");
+	}
+
+	@Override
+	public PathScheduler getPathScheduler() {
+		throw new NoSuchMethodError("This method is not supported by the lobby.");
+	}
+
+	@Override
+	public Landmarks getLandmarks() {
+		throw new NoSuchMethodError("This method is not supported by the lobby.");
+	}
+
+	@Override
+	public ComponentLabels getComponentLabels() {
+		throw new NoSuchMethodError("This method is not supported by the lobby.");
+	}
+
+	@Override
+	public DistanceField getWorkshopDistanceField() {
+		throw new NoSuchMethodError("This method is not supported by the lobby.");
+	}
+
+	@Override
+	public DistanceField getLogDistanceField() {
+		throw new NoSuchMethodError("This method is not supported by the lobby.");
+	}
+
+	@Override
+	public DistanceField getBoulderDistanceField() {
+		throw new NoSuchMethodError("This method is not supported by the lobby.");
+	}
+
+	@Override
+	public boolean isValidCube(int x, int y, int z) {
+		throw new NoSuchMethodError("This method is not supported by the lobby.");
+	}
+
+	@Override
+	public int getCubeIndex(int x, int y, int z) {
+		throw new NoSuchMethodError("This method is not supported by the lobby.");
+	}
+
+	@Override
+	public int getCubeIndex(Vector position) {
+		throw new NoSuchMethodError("This method is not supported by the lobby.");
+	}
+
+	@Override
+	public int getCubeX(int index) {
+		throw new NoSuchMethodError("This method is not supported by the lobby.");
+	}
+
+	@Override
+	public int getCubeY(int index) {
+		throw new NoSuchMethodError("This method is not supported by the lobby.");
+	}
+
+	@Override
+	public int getCubeZ(int index) {
+		throw new NoSuchMethodError("This method is not supported by the lobby.");
+	}
+
+	@Override
+	public boolean isCubePassable(int index) {
+		throw new NoSuchMethodError("This method is not supported by the lobby.");
+	}
+
+	@Override
+	public boolean areNeighbouringCubes(int index, int other) {
+		throw new NoSuchMethodError("This method is not supported by the lobby.");
+	}
+
+	@Override
+	public void forEachDirectlyAdjacentCube(int index, IntConsumer visitor) {
+		throw new NoSuchMethodError("This method is not supported by the lobby.");
+	}
+
+	@Override
+	public void forEachNeighbouringCube(int index, IntConsumer visitor) {
+		throw new NoSuchMethodError("This method is not supported by the lobby.");
+	}
+
+	@Override
+	public boolean anyDirectlyAdjacentCube(int index, IntPredicate condition) {
+		throw new NoSuchMethodError("This method is not supported by the lobby.");
+	}
+
+	@Override
+	public boolean anyNeighbouringCube(int index, IntPredicate condition) {
+		throw new NoSuchMethodError("This method is not supported by the lobby.");
+	}
+
+	@Override
+	public Set<Unit> getUnitsInCube(int index) {
+		throw new NoSuchMethodError("This method is not supported by the lobby.");
+	}
+
+	/**
+	 * The lobby doesn't keep game-time.
+	 * @return | result == 0
+	 */
+	@Override
+	public double getGameTime() {
+		return 0d;
+	}
+
+	/**
+	 * The lobby doesn't schedule events, activities of units in the lobby are woken up when
+	 * they are advanced.
+	 * @return | result == null
+	 */
+	@Override
+	public TimingWheel.Event scheduleEvent(double delay, Runnable action) {
+		return null;
+	}
+
 }
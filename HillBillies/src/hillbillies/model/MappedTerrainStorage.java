@@ -0,0 +1,474 @@
+package hillbillies.model;
+
+import be.kuleuven.cs.som.annotate.*;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.IntConsumer;
+
+/**
+ * Class representing a terrain storage which lives off-heap, inside a memory-mapped
+ * file. The file starts with a header of HEADER_SIZE bytes, containing the dimensions,
+ * the layout and the number of cubes of each terrain, followed by one byte for the
+ * terrain id of every index in the range [0;getCapacity()[.
+ * An existing file can be mapped in three modes:
+ * - READ_ONLY: the terrain of the storage cannot be changed.
+ * - READ_WRITE: every change of the terrain is written back to the file.
+ * - PRIVATE: copy-on-write, changes are only visible in this storage and the file stays
+ *   unchanged. Only the pages that are changed get copied.
+ * The unchanged pages of a file are shared through the page cache of the operating system,
+ * by all storages mapping it, also in other processes. A world changes the terrain of its
+ * storage when cubes are dug out or collapse, so several worlds can only share a terrain
+ * file through PRIVATE mappings.
+ * @author Kenneth & Bram
+ * @version 1.0
+ *
+ * @invar The terrain of each cube in this storage is a valid terrain.
+ * | for each index in 0..getCapacity()-1:
+ * |    if(isValidIndex(index)) then Cube.isValidTerrain(getTerrain(index))
+ */
+public class MappedTerrainStorage implements ITerrainStorage {
+
+    /**
+     * Constant reflecting the first int of every terrain file.
+     */
+    private static final int MAGIC = 0x48425452;// "HBTR"
+    /**
+     * Constant reflecting the version of the file format.
+     */
+    private static final int VERSION = 1;
+    /**
+     * Constants reflecting the byte offsets of the fields of the header.
+     */
+    private static final int MAGIC_OFFSET = 0, VERSION_OFFSET = 4, NB_X_OFFSET = 8, NB_Y_OFFSET = 12,
+            NB_Z_OFFSET = 16, LAYOUT_OFFSET = 20, COUNTS_OFFSET = 24;
+    /**
+     * Constant reflecting the size of the header, the terrain starts at this offset.
+     */
+    public static final int HEADER_SIZE = 64;
+
+    /**
+     * Constant reflecting number of cubes in the x-direction.
+     */
+    private final int nbX;
+    /**
+     * Constant reflecting number of cubes in the y-direction.
+     */
+    private final int nbY;
+    /**
+     * Constant reflecting number of cubes in the z-direction.
+     */
+    private final int nbZ;
+    /**
+     * Variable referencing the indexing of the layout of this storage.
+     */
+    private final CubeIndexing indexing;
+    /**
+     * Variable referencing the mapped contents of the file of this storage.
+     */
+    private final MappedByteBuffer buffer;
+    /**
+     * Variable registering whether the file of this storage is mapped copy-on-write.
+     */
+    private final boolean copyOnWrite;
+
+    /**
+     * Initialize a new MappedTerrainStorage with the given mapped buffer, whose header is valid.
+     */
+    private MappedTerrainStorage(MappedByteBuffer buffer, boolean copyOnWrite, int nbX, int nbY, int nbZ, CubeIndexing indexing){
+        this.buffer = buffer;
+        this.copyOnWrite = copyOnWrite;
+        this.nbX = nbX;
+        this.nbY = nbY;
+        this.nbZ = nbZ;
+        this.indexing = indexing;
+    }
+
+    /**
+     * Create a new terrain file with the given dimensions and layout and map it into memory.
+     * Initially all cubes have Terrain.AIR as their terrain. An existing file is overwritten.
+     * @param file The path of the new file.
+     * @param nbX The number of cubes in the x-direction.
+     * @param nbY The number of cubes in the y-direction.
+     * @param nbZ The number of cubes in the z-direction.
+     * @param layout The layout of the new storage.
+     * @return A writable storage with the given dimensions and layout, whose cubes are all AIR cubes.
+     *          | !result.isReadOnly() && result.getLayout() == layout &&
+     *          | result.getNbCubesX() == nbX && result.getNbCubesY() == nbY && result.getNbCubesZ() == nbZ &&
+     *          | result.getNbCubes(Terrain.AIR) == result.getNbCubes()
+     * @throws IllegalArgumentException
+     *          When one of the dimensions is not strictly positive, or when the dimensions
+     *          are too large for the given layout.
+     *          | nbX <= 0 || nbY <= 0 || nbZ <= 0
+     * @throws NullPointerException
+     *          When the given file or layout is not effective.
+     *          | file == null || layout == null
+     * @throws IOException When the file could not be created or mapped.
+     */
+    public static MappedTerrainStorage create(Path file, int nbX, int nbY, int nbZ, CubeLayout layout)
+            throws IllegalArgumentException, NullPointerException, IOException {
+        if(file == null)
+            throw new NullPointerException("The given file must be effective.");
+        if(nbX <= 0 || nbY <= 0 || nbZ <= 0)
+            throw new IllegalArgumentException("A TerrainStorage must have at least 1 cube.");
+        CubeIndexing indexing = layout.createIndexing(nbX, nbY, nbZ);
+        if(indexing.getCapacity() > Integer.MAX_VALUE - HEADER_SIZE)
+            throw new IllegalArgumentException("The dimensions are too large to be mapped.");
+        MappedByteBuffer buffer;
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)){
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + indexing.getCapacity());
+        }
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC_OFFSET, MAGIC);
+        buffer.putInt(VERSION_OFFSET, VERSION);
+        buffer.putInt(NB_X_OFFSET, nbX);
+        buffer.putInt(NB_Y_OFFSET, nbY);
+        buffer.putInt(NB_Z_OFFSET, nbZ);
+        buffer.putInt(LAYOUT_OFFSET, layout.ordinal());
+        buffer.putInt(COUNTS_OFFSET + 4*Terrain.AIR.getId(), nbX*nbY*nbZ);// The file is filled with zeros, i.e. AIR
+        return new MappedTerrainStorage(buffer, false, nbX, nbY, nbZ, indexing);
+    }
+
+    /**
+     * Create a new terrain file containing the terrain of the given storage and map it into memory.
+     * @param file The path of the new file.
+     * @param source The storage whose terrain is copied.
+     * @return A writable storage with the same dimensions, layout and terrain as the given storage.
+     *          | !result.isReadOnly() && result.getLayout() == source.getLayout() &&
+     *          | for each index in 0..source.getCapacity()-1:
+     *          |   if(source.isValidIndex(index)) then result.getTerrain(index) == source.getTerrain(index)
+     * @throws NullPointerException
+     *          When the given file or source is not effective.
+     *          | file == null || source == null
+     * @throws IOException When the file could not be created or mapped.
+     */
+    public static MappedTerrainStorage create(Path file, ITerrainStorage source) throws NullPointerException, IOException {
+        MappedTerrainStorage storage = create(file, source.getNbCubesX(), source.getNbCubesY(), source.getNbCubesZ(), source.getLayout());
+        for(Terrain terrain : Terrain.values()){
+            if(terrain != Terrain.AIR)
+                source.forEachCube(terrain, index -> storage.setTerrain(index, terrain));
+        }
+        return storage;
+    }
+
+    /**
+     * Map an existing terrain file into memory in the given mode. Every terrain byte of the
+     * file is checked once.
+     * @param file The path of the file.
+     * @param mode The mode in which the file is mapped. The file must be writable for the
+     *          modes READ_WRITE and PRIVATE, even though a PRIVATE mapping never changes it.
+     * @return A storage containing the terrain of the given file.
+     *          | result.isReadOnly() == (mode == FileChannel.MapMode.READ_ONLY) &&
+     *          | result.isCopyOnWrite() == (mode == FileChannel.MapMode.PRIVATE)
+     * @throws NullPointerException
+     *          When the given file or mode is not effective.
+     *          | file == null || mode == null
+     * @throws IOException When the file could not be mapped or is not a valid terrain file.
+     */
+    public static MappedTerrainStorage open(Path file, FileChannel.MapMode mode) throws NullPointerException, IOException {
+        if(file == null || mode == null)
+            throw new NullPointerException("The given file and mode must be effective.");
+        MappedByteBuffer buffer;
+        try(FileChannel channel = mode == FileChannel.MapMode.READ_ONLY ? FileChannel.open(file, StandardOpenOption.READ) :
+                FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)){
+            if(channel.size() < HEADER_SIZE || channel.size() > Integer.MAX_VALUE)
+                throw new IOException("The given file is not a valid terrain file.");
+            buffer = channel.map(mode, 0, channel.size());
+        }
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        if(buffer.getInt(MAGIC_OFFSET) != MAGIC || buffer.getInt(VERSION_OFFSET) != VERSION)
+            throw new IOException("The given file is not a valid terrain file.");
+        int nbX = buffer.getInt(NB_X_OFFSET), nbY = buffer.getInt(NB_Y_OFFSET), nbZ = buffer.getInt(NB_Z_OFFSET);
+        int layout = buffer.getInt(LAYOUT_OFFSET);
+        if(nbX <= 0 || nbY <= 0 || nbZ <= 0 || layout < 0 || layout >= CubeLayout.values().length)
+            throw new IOException("The given file is not a valid terrain file.");
+        CubeIndexing indexing;
+        try{
+            indexing = CubeLayout.values()[layout].createIndexing(nbX, nbY, nbZ);
+        }catch(IllegalArgumentException e){
+            throw new IOException("The given file is not a valid terrain file.", e);
+        }
+        if(buffer.capacity() != HEADER_SIZE + indexing.getCapacity() || !hasValidTerrain(buffer, indexing))
+            throw new IOException("The given file is not a valid terrain file.");
+        return new MappedTerrainStorage(buffer, mode == FileChannel.MapMode.PRIVATE, nbX, nbY, nbZ, indexing);
+    }
+
+    /**
+     * Check whether every terrain byte of the given buffer is the id of a terrain, and whether
+     * the counts in its header match the terrain of the valid indices of the given indexing.
+     */
+    private static boolean hasValidTerrain(MappedByteBuffer buffer, CubeIndexing indexing){
+        int[] counts = new int[Terrain.values().length];
+        for(int index = 0; index < indexing.getCapacity(); index++){
+            int id = buffer.get(HEADER_SIZE + index);
+            if(!Terrain.isValidId(id))
+                return false;
+            if(indexing.isValidIndex(index))
+                counts[id]++;
+        }
+        for(int id = 0; id < counts.length; id++){
+            if(buffer.getInt(COUNTS_OFFSET + 4*id) != counts[id])
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Check whether this storage is read-only.
+     */
+    @Override @Basic @Immutable
+    public boolean isReadOnly(){
+        return this.buffer.isReadOnly();
+    }
+
+    /**
+     * Check whether the file of this storage is mapped copy-on-write, so changes to the
+     * terrain of this storage are never written to the file.
+     */
+    @Basic @Immutable
+    public boolean isCopyOnWrite(){
+        return this.copyOnWrite;
+    }
+
+    /**
+     * Write all changes to the terrain of this storage to its file. Nothing is written when
+     * this storage is read-only or copy-on-write.
+     */
+    public void force(){
+        if(!this.isReadOnly() && !this.isCopyOnWrite())
+            this.buffer.force();
+    }
+
+    /**
+     * Return the layout of this storage.
+     */
+    @Override
+    @Basic @Immutable
+    public CubeLayout getLayout(){
+        return this.indexing.getLayout();
+    }
+
+    /**
+     * Return the number of cubes in the x-direction.
+     */
+    @Override
+    @Basic @Immutable
+    public int getNbCubesX(){
+        return this.nbX;
+    }
+
+    /**
+     * Return the number of cubes in the y-direction.
+     */
+    @Override
+    @Basic @Immutable
+    public int getNbCubesY(){
+        return this.nbY;
+    }
+
+    /**
+     * Return the number of cubes in the z-direction.
+     */
+    @Override
+    @Basic @Immutable
+    public int getNbCubesZ(){
+        return this.nbZ;
+    }
+
+    /**
+     * Return the total number of cubes in this storage.
+     * @return | result == getNbCubesX()*getNbCubesY()*getNbCubesZ()
+     */
+    @Override
+    @Immutable
+    public int getNbCubes(){
+        return this.nbX * this.nbY * this.nbZ;
+    }
+
+    /**
+     * Return the number of cubes in this storage with the given terrain.
+     * @param terrain The terrain to count.
+     * @return | result == count of index in 0..getCapacity()-1 with isValidIndex(index) && getTerrain(index) == terrain
+     */
+    @Override
+    public int getNbCubes(Terrain terrain){
+        return this.buffer.getInt(COUNTS_OFFSET + 4*terrain.getId());
+    }
+
+    /**
+     * Return the size of the range of indices used by this storage. Depending
+     * on the layout, not every index in that range references a cube.
+     * @return | result >= getNbCubes()
+     */
+    @Override
+    @Immutable
+    public int getCapacity(){
+        return this.indexing.getCapacity();
+    }
+
+    /**
+     * Check whether the given index references a cube of this storage.
+     * @param index The index to check.
+     * @return | result == 0 <= index < getCapacity() && isValidCube(getX(index), getY(index), getZ(index))
+     */
+    @Override
+    public boolean isValidIndex(int index){
+        return indexing.isValidIndex(index);
+    }
+
+    /**
+     * Check whether the given cube coordinates lie inside this storage.
+     * @param x The x-coordinate of the cube.
+     * @param y The y-coordinate of the cube.
+     * @param z The z-coordinate of the cube.
+     * @return | result == 0 <= x < getNbCubesX() && 0 <= y < getNbCubesY() && 0 <= z < getNbCubesZ()
+     */
+    @Override
+    public boolean isValidCube(int x, int y, int z){
+        return x >= 0 && x < nbX && y >= 0 && y < nbY && z >= 0 && z < nbZ;
+    }
+
+    /**
+     * Get the index of the cube with the given cube coordinates.
+     * @param x The x-coordinate of the cube.
+     * @param y The y-coordinate of the cube.
+     * @param z The z-coordinate of the cube.
+     * @pre The given coordinates are valid cube coordinates.
+     *      | isValidCube(x, y, z)
+     * @return | isValidIndex(result) && getX(result) == x && getY(result) == y && getZ(result) == z
+     */
+    @Override
+    public int getIndex(int x, int y, int z){
+        return indexing.getIndex(x, y, z);
+    }
+
+    /**
+     * Get the x-coordinate of the cube with the given index.
+     * @param index The index of the cube.
+     * @return | getIndex(result, getY(index), getZ(index)) == index
+     */
+    @Override
+    public int getX(int index){
+        return indexing.getX(index);
+    }
+
+    /**
+     * Get the y-coordinate of the cube with the given index.
+     * @param index The index of the cube.
+     * @return | getIndex(getX(index), result, getZ(index)) == index
+     */
+    @Override
+    public int getY(int index){
+        return indexing.getY(index);
+    }
+
+    /**
+     * Get the z-coordinate of the cube with the given index.
+     * @param index The index of the cube.
+     * @return | getIndex(getX(index), getY(index), result) == index
+     */
+    @Override
+    public int getZ(int index){
+        return indexing.getZ(index);
+    }
+
+    /**
+     * Get the constant index offsets corresponding to the given coordinate offsets.
+     * @param dx The offsets along the x-axis.
+     * @param dy The offsets along the y-axis.
+     * @param dz The offsets along the z-axis.
+     * @return Null if the index offsets depend on the position of the cube in the
+     *          layout of this storage, otherwise the index offsets.
+     *          | if(result != null) then for each i:
+     *          |   getIndex(x,y,z) + result[i] == getIndex(x+dx[i],y+dy[i],z+dz[i])
+     */
+    @Override
+    public int[] getIndexOffsets(int[] dx, int[] dy, int[] dz){
+        return indexing.getIndexOffsets(dx, dy, dz);
+    }
+
+    /**
+     * Get the terrain of the cube with the given index.
+     * @param index The index of the cube.
+     * @throws IndexOutOfBoundsException
+     *          When the given index lies outside the range of indices of this storage.
+     *          | index < 0 || index >= getCapacity()
+     */
+    @Override
+    public Terrain getTerrain(int index) throws IndexOutOfBoundsException {
+        return Terrain.fromId(getTerrainId(index));
+    }
+
+    /**
+     * Check whether the cube with the given index is passable.
+     * @param index The index of the cube.
+     * @return | result == getTerrain(index).isPassable()
+     * @throws IndexOutOfBoundsException
+     *          When the given index lies outside the range of indices of this storage.
+     *          | index < 0 || index >= getCapacity()
+     */
+    @Override
+    public boolean isPassable(int index) throws IndexOutOfBoundsException {
+        return Terrain.fromId(getTerrainId(index)).isPassable();
+    }
+
+    /**
+     * Set the terrain of the cube with the given index to the given terrain.
+     * @param index The index of the cube.
+     * @param terrain The new terrain of the cube.
+     * @pre The given terrain is a valid terrain.
+     *      | Cube.isValidTerrain(terrain)
+     * @post | new.getTerrain(index) == terrain
+     * @throws IndexOutOfBoundsException
+     *          When the given index lies outside the range of indices of this storage.
+     *          | index < 0 || index >= getCapacity()
+     * @throws IllegalStateException
+     *          When this storage is read-only.
+     *          | isReadOnly()
+     */
+    @Override
+    public void setTerrain(int index, Terrain terrain) throws IndexOutOfBoundsException, IllegalStateException {
+        if(this.isReadOnly())
+            throw new IllegalStateException("The terrain of a read-only storage cannot be changed.");
+        int oldId = getTerrainId(index);
+        addToCount(oldId, -1);
+        addToCount(terrain.getId(), 1);
+        this.buffer.put(HEADER_SIZE + index, (byte)terrain.getId());
+    }
+
+    /**
+     * Call the given visitor for the index of every cube with the given terrain,
+     * in increasing order of their index.
+     * @param terrain The terrain of the cubes to visit.
+     * @param visitor The visitor to call.
+     * @effect | for each index in 0..getCapacity()-1:
+     *         |    if(isValidIndex(index) && getTerrain(index) == terrain) then visitor.accept(index)
+     */
+    @Override
+    public void forEachCube(Terrain terrain, IntConsumer visitor){
+        if(this.getNbCubes(terrain) == 0)
+            return;
+        byte id = (byte)terrain.getId();
+        int capacity = this.getCapacity();
+        for(int index = 0; index < capacity; index++){
+            if(this.buffer.get(HEADER_SIZE + index) == id && indexing.isValidIndex(index))
+                visitor.accept(index);
+        }
+    }
+
+    private int getTerrainId(int index){
+        if(index < 0 || index >= this.getCapacity())
+            throw new IndexOutOfBoundsException("Index: " + index + ", Capacity: " + this.getCapacity());
+        return this.buffer.get(HEADER_SIZE + index);
+    }
+
+    private void addToCount(int terrainId, int delta){
+        int offset = COUNTS_OFFSET + 4*terrainId;
+        this.buffer.putInt(offset, this.buffer.getInt(offset) + delta);
+    }
+}
@@ -130,6 +130,8 @@ public abstract class Material implements IWorldObject {
             throw new IllegalArgumentException("The given owner is not valid for this Material");
         if(owner!=null && owner.hasAsOwnedMaterial(this))
             throw new IllegalArgumentException("The given owner already has this material as an owned Material.");
+        if(owner instanceof Cube)// Materials are always owned by the materialized instance of a cube
+            owner = this.getWorld().materializeCube((Cube)owner);
         WorldObject oldOwner = this.getOwner();
         this.owner = owner;// Set new owner
         if(oldOwner != null)
@@ -243,7 +245,7 @@ public abstract class Material implements IWorldObject {
      *          |               !getWorld().getCube(position.getCubeCoordinates().add(new Vector(0,0,-1)).isPassable()
      */
     private boolean isValidPosition(Vector position){
-        return position.cubeZ()==0 || !getWorld().getCube(position.getCubeCoordinates().add(new Vector(0,0,-1))).isPassable();
+        return getWorld().isLowerSolid(position);
     }
     //endregion
 
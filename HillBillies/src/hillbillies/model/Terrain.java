@@ -15,6 +15,12 @@ public enum Terrain {
     WOOD(2,false),
     WORKSHOP(3,true);
 
+    /**
+     * Array containing all terrain types, ordered by their id.
+     * @note Terrain.values() returns a new array on each call.
+     */
+    private static final Terrain[] TERRAIN_TYPES = Terrain.values();
+
     /**
      * The id of the terrain type
      */
@@ -58,6 +64,15 @@ public enum Terrain {
      * @return The corresponding terrain type
      */
     public static Terrain fromId(int id){
-        return Terrain.values()[id];
+        return TERRAIN_TYPES[id];
+    }
+
+    /**
+     * Check whether the given id is the id of a terrain type.
+     * @param id The id to check.
+     * @return | result == (0 <= id && id < values().length)
+     */
+    public static boolean isValidId(int id){
+        return id >= 0 && id < TERRAIN_TYPES.length;
     }
 }
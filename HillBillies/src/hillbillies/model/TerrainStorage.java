@@ -0,0 +1,308 @@
+package hillbillies.model;
+
+import be.kuleuven.cs.som.annotate.*;
+
+import java.util.function.IntConsumer;
+
+/**
+ * Class representing the terrain storage of a World. The terrain of every cube
+ * is stored as a single byte inside one dense array. The index of each cube inside
+ * that array is determined by the CubeLayout of the storage, for the LINEAR layout
+ * it's equal to
+ * | x + y*nbX + z*nbX*nbY
+ * Cube objects are not needed to query or change the terrain of a world.
+ * @author Kenneth & Bram
+ * @version 1.0
+ *
+ * @invar The terrain of each cube in this storage is a valid terrain.
+ * | for each index in 0..getCapacity()-1:
+ * |    if(isValidIndex(index)) then Cube.isValidTerrain(getTerrain(index))
+ */
+public class TerrainStorage implements ITerrainStorage {
+
+    /**
+     * Constant reflecting number of cubes in the x-direction.
+     */
+    private final int nbX;
+    /**
+     * Constant reflecting number of cubes in the y-direction.
+     */
+    private final int nbY;
+    /**
+     * Constant reflecting number of cubes in the z-direction.
+     */
+    private final int nbZ;
+    /**
+     * Variable referencing the indexing of the layout of this storage.
+     */
+    private final CubeIndexing indexing;
+    /**
+     * Array registering the terrain id of every cube in this storage.
+     */
+    private final byte[] terrain;
+    /**
+     * Array registering the number of cubes of each terrain, indexed by the terrain's id.
+     */
+    private final int[] nbCubesOfTerrain = new int[Terrain.values().length];
+
+    /**
+     * Initialize a new TerrainStorage with the given dimensions and a LINEAR layout.
+     * @param nbX The number of cubes in the x-direction.
+     * @param nbY The number of cubes in the y-direction.
+     * @param nbZ The number of cubes in the z-direction.
+     * @effect | this(nbX, nbY, nbZ, CubeLayout.LINEAR)
+     */
+    public TerrainStorage(int nbX, int nbY, int nbZ) throws IllegalArgumentException {
+        this(nbX, nbY, nbZ, CubeLayout.LINEAR);
+    }
+
+    /**
+     * Initialize a new TerrainStorage with the given dimensions and layout. Initially
+     * all cubes have Terrain.AIR as their terrain.
+     * @param nbX The number of cubes in the x-direction.
+     * @param nbY The number of cubes in the y-direction.
+     * @param nbZ The number of cubes in the z-direction.
+     * @param layout The layout of this new storage.
+     * @post The dimensions of this storage are set to the given dimensions.
+     *          | new.getNbCubesX() == nbX && new.getNbCubesY() == nbY && new.getNbCubesZ() == nbZ
+     * @post The layout of this storage is set to the given layout.
+     *          | new.getLayout() == layout
+     * @post Each cube of this new storage is an AIR cube.
+     *          | for each index in 0..new.getCapacity()-1:
+     *          |   if(new.isValidIndex(index)) then new.getTerrain(index) == Terrain.AIR
+     * @throws IllegalArgumentException
+     *          When one of the dimensions is not strictly positive, or when the dimensions
+     *          are too large for the given layout.
+     *          | nbX <= 0 || nbY <= 0 || nbZ <= 0
+     * @throws NullPointerException
+     *          When the given layout is not effective.
+     *          | layout == null
+     */
+    public TerrainStorage(int nbX, int nbY, int nbZ, CubeLayout layout) throws IllegalArgumentException, NullPointerException {
+        if(nbX <= 0 || nbY <= 0 || nbZ <= 0)
+            throw new IllegalArgumentException("A TerrainStorage must have at least 1 cube.");
+        this.nbX = nbX;
+        this.nbY = nbY;
+        this.nbZ = nbZ;
+        this.indexing = layout.createIndexing(nbX, nbY, nbZ);
+        this.terrain = new byte[indexing.getCapacity()];
+        this.nbCubesOfTerrain[Terrain.AIR.getId()] = this.getNbCubes();
+    }
+
+    /**
+     * Return the layout of this storage.
+     */
+    @Override
+    @Basic @Immutable
+    public CubeLayout getLayout(){
+        return this.indexing.getLayout();
+    }
+
+    /**
+     * Return the number of cubes in the x-direction.
+     */
+    @Override
+    @Basic @Immutable
+    public int getNbCubesX(){
+        return this.nbX;
+    }
+
+    /**
+     * Return the number of cubes in the y-direction.
+     */
+    @Override
+    @Basic @Immutable
+    public int getNbCubesY(){
+        return this.nbY;
+    }
+
+    /**
+     * Return the number of cubes in the z-direction.
+     */
+    @Override
+    @Basic @Immutable
+    public int getNbCubesZ(){
+        return this.nbZ;
+    }
+
+    /**
+     * Return the total number of cubes in this storage.
+     * @return | result == getNbCubesX()*getNbCubesY()*getNbCubesZ()
+     */
+    @Override
+    @Immutable
+    public int getNbCubes(){
+        return this.nbX * this.nbY * this.nbZ;
+    }
+
+    /**
+     * Return the size of the range of indices used by this storage. Depending
+     * on the layout, not every index in that range references a cube.
+     * @return | result >= getNbCubes()
+     */
+    @Override
+    @Immutable
+    public int getCapacity(){
+        return this.terrain.length;
+    }
+
+    /**
+     * Check whether the given index references a cube of this storage.
+     * @param index The index to check.
+     * @return | result == 0 <= index < getCapacity() && isValidCube(getX(index), getY(index), getZ(index))
+     */
+    @Override
+    public boolean isValidIndex(int index){
+        return indexing.isValidIndex(index);
+    }
+
+    /**
+     * Check whether the given cube coordinates lie inside this storage.
+     * @param x The x-coordinate of the cube.
+     * @param y The y-coordinate of the cube.
+     * @param z The z-coordinate of the cube.
+     * @return | result == 0 <= x < getNbCubesX() && 0 <= y < getNbCubesY() && 0 <= z < getNbCubesZ()
+     */
+    @Override
+    public boolean isValidCube(int x, int y, int z){
+        return x >= 0 && x < nbX && y >= 0 && y < nbY && z >= 0 && z < nbZ;
+    }
+
+    /**
+     * Get the index of the cube with the given cube coordinates.
+     * @param x The x-coordinate of the cube.
+     * @param y The y-coordinate of the cube.
+     * @param z The z-coordinate of the cube.
+     * @pre The given coordinates are valid cube coordinates.
+     *      | isValidCube(x, y, z)
+     * @return | isValidIndex(result) && getX(result) == x && getY(result) == y && getZ(result) == z
+     */
+    @Override
+    public int getIndex(int x, int y, int z){
+        return indexing.getIndex(x, y, z);
+    }
+
+    /**
+     * Get the x-coordinate of the cube with the given index.
+     * @param index The index of the cube.
+     * @return | getIndex(result, getY(index), getZ(index)) == index
+     */
+    @Override
+    public int getX(int index){
+        return indexing.getX(index);
+    }
+
+    /**
+     * Get the y-coordinate of the cube with the given index.
+     * @param index The index of the cube.
+     * @return | getIndex(getX(index), result, getZ(index)) == index
+     */
+    @Override
+    public int getY(int index){
+        return indexing.getY(index);
+    }
+
+    /**
+     * Get the z-coordinate of the cube with the given index.
+     * @param index The index of the cube.
+     * @return | getIndex(getX(index), getY(index), result) == index
+     */
+    @Override
+    public int getZ(int index){
+        return indexing.getZ(index);
+    }
+
+    /**
+     * Get the constant index offsets corresponding to the given coordinate offsets.
+     * @param dx The offsets along the x-axis.
+     * @param dy The offsets along the y-axis.
+     * @param dz The offsets along the z-axis.
+     * @return Null if the index offsets depend on the position of the cube in the
+     *          layout of this storage, otherwise the index offsets.
+     *          | if(result != null) then for each i:
+     *          |   getIndex(x,y,z) + result[i] == getIndex(x+dx[i],y+dy[i],z+dz[i])
+     */
+    @Override
+    public int[] getIndexOffsets(int[] dx, int[] dy, int[] dz){
+        return indexing.getIndexOffsets(dx, dy, dz);
+    }
+
+    /**
+     * Get the terrain of the cube with the given index.
+     * @param index The index of the cube.
+     * @throws IndexOutOfBoundsException
+     *          When the given index lies outside the range of indices of this storage.
+     *          | index < 0 || index >= getCapacity()
+     */
+    @Override
+    public Terrain getTerrain(int index) throws IndexOutOfBoundsException {
+        return Terrain.fromId(terrain[index]);
+    }
+
+    /**
+     * Check whether the cube with the given index is passable.
+     * @param index The index of the cube.
+     * @return | result == getTerrain(index).isPassable()
+     * @throws IndexOutOfBoundsException
+     *          When the given index lies outside the range of indices of this storage.
+     *          | index < 0 || index >= getCapacity()
+     */
+    @Override
+    public boolean isPassable(int index) throws IndexOutOfBoundsException {
+        return Terrain.fromId(terrain[index]).isPassable();
+    }
+
+    /**
+     * Check whether this storage is read-only, which is never the case.
+     * @return | result == false
+     */
+    @Override @Immutable
+    public boolean isReadOnly(){
+        return false;
+    }
+
+    /**
+     * Set the terrain of the cube with the given index to the given terrain.
+     * @param index The index of the cube.
+     * @param terrain The new terrain of the cube.
+     * @pre The given terrain is a valid terrain.
+     *      | Cube.isValidTerrain(terrain)
+     * @post | new.getTerrain(index) == terrain
+     * @throws IndexOutOfBoundsException
+     *          When the given index lies outside the range of indices of this storage.
+     *          | index < 0 || index >= getCapacity()
+     */
+    @Override
+    public void setTerrain(int index, Terrain terrain) throws IndexOutOfBoundsException {
+        this.nbCubesOfTerrain[this.terrain[index]]--;
+        this.nbCubesOfTerrain[terrain.getId()]++;
+        this.terrain[index] = (byte)terrain.getId();
+    }
+
+    /**
+     * Return the number of cubes in this storage with the given terrain.
+     * @param terrain The terrain to count.
+     * @return | result == count of index in 0..getCapacity()-1 with isValidIndex(index) && getTerrain(index) == terrain
+     */
+    @Override
+    public int getNbCubes(Terrain terrain){
+        return this.nbCubesOfTerrain[terrain.getId()];
+    }
+
+    /**
+     * Call the given visitor for the index of every cube with the given terrain,
+     * in increasing order of their index.
+     * @param terrain The terrain of the cubes to visit.
+     * @param visitor The visitor to call.
+     * @effect | for each index in 0..getCapacity()-1:
+     *         |    if(isValidIndex(index) && getTerrain(index) == terrain) then visitor.accept(index)
+     */
+    @Override
+    public void forEachCube(Terrain terrain, IntConsumer visitor){
+        byte id = (byte)terrain.getId();
+        for(int index = 0; index < this.terrain.length; index++){
+            if(this.terrain[index] == id && indexing.isValidIndex(index))
+                visitor.accept(index);
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package hillbillies.model;
 
 import be.kuleuven.cs.som.annotate.*;
+import hillbillies.utils.Position;
 import hillbillies.utils.Vector;
 import hillbillies.activities.*;
 
@@ -1067,7 +1068,7 @@ public class Unit extends WorldObject {
 		if(dt<0 || dt>0.2)
 			throw new IllegalArgumentException("The parameter dt must be in the range [0;0.2]");
 		// Defensively without documentation
-		if (!isFalling() && !validatePosition(getPosition())){
+		if (!isFalling() && !validatePosition(position())){
 			this.requestNewActivity(new Fall(this));
 		}
 
@@ -1104,15 +1105,23 @@ public class Unit extends WorldObject {
      */
 	@Override
 	protected boolean validatePosition(Vector position) {
+		return validatePosition(new Position(position));
+	}
+
+	/**
+	 * Check whether the given position is a valid position for
+	 * any unit in the units world.
+	 * @param position The position to check.
+	 * @see #validatePosition(Vector)
+	 */
+	@Override
+	protected boolean validatePosition(Position position) {
 		IWorld world = this.getWorld();
 		if(world instanceof LobbyWorld) return true;
-		if(world.isCubePassable(position.getCubeCoordinates())){
-			if(world.isAdjacentSolid(position))
-				return true;
-			if(this.getCurrentActivity() != null && isFalling())
-				return true;
-		}
-		return false;
+		int cube = world.getCubeIndex(position.cubeX(), position.cubeY(), position.cubeZ());
+		if(world.isCubeStandable(cube))
+			return true;
+		return world.isCubePassable(cube) && this.getCurrentActivity() != null && isFalling();
 	}
 
 	//endregion
@@ -1390,12 +1399,20 @@ public class Unit extends WorldObject {
 	 * @effect The unit is removed from his faction and world.
 	 * | (new this).getFaction().hasAsUnit(this) == false
 	 * | (new this).getWorld().hasAsUnit(this) == false
+	 * @effect All activities of this unit are stopped, so they release what they hold
+	 * 			in the world, and the unit has no activity anymore.
+	 * | (new this).getCurrentActivity() == NONE
 	 */
 	@Override
 	public void terminate() {
 		if(!this.isTerminated()){
 			this.setHitpoints(MIN_HITPOINTS);
 			this.isTerminated = true;
+			if(this.activityStack != null){// Not yet initialized when the construction of this unit failed
+				while(!this.activityStack.isEmpty())
+					this.activityStack.pop().stop();
+				this.activityStack.push(NONE);
+			}
 			this.dropCarriedMaterial(this.getWorld().getCube(getPosition().getCubeCoordinates()));
 			Faction f = this.getFaction();
 			this.faction = null;
@@ -1686,6 +1703,7 @@ public class Unit extends WorldObject {
 	 * @param finishParent Boolean the indicates it is the parent activity to finish.
 	 * @post The unit will do e new activity.
 	 * 		| new this.getCurrentActivity()
+	 * @post Nothing happens when this unit is terminated.
 	 * @throws IllegalArgumentException When the activity is not effective, 
 	 * 			or when the activity is not ordered by this unit or when the activity activity is not currently active.
 	 * 		| activity == null || 
@@ -1693,6 +1711,8 @@ public class Unit extends WorldObject {
 	 * 		| activity!=this.getCurrentActivity() || !activity.isActive())
 	 */
 	public void requestActivityFinish(Activity activity, boolean finishParent) throws IllegalArgumentException{
+		if(this.isTerminated())
+			return;// All activities were stopped when this unit was terminated
 		if(activity == null)
 			throw new IllegalArgumentException("Invalid activity.");
 		if(activity.getUnitId()!=Unit.this.getId())
@@ -1724,6 +1744,8 @@ public class Unit extends WorldObject {
 	 * 				this.getCurrentActivity().start(this.getCurrentActivity().isDefault())
 	 */
 	public void restartActivity(boolean restartParent){
+		if(this.isTerminated())
+			return;// All activities were stopped when this unit was terminated
 		Activity activity = this.getCurrentActivity();
 		boolean isDefault = activity.isDefault();
 		if(restartParent && !activity.isParentActivity(null)){
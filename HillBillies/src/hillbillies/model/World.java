@@ -5,12 +5,26 @@ import static hillbillies.utils.Utils.*;
 
 import java.util.*;
 import java.util.function.Function;
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
 import java.util.function.Predicate;
 
 import be.kuleuven.cs.som.annotate.*;
 import hillbillies.activities.AdjacentMove;
 import hillbillies.part2.listener.TerrainChangeListener;
-import hillbillies.util.ConnectedToBorder;
+import hillbillies.pathfinding.AStarPathFinder;
+import hillbillies.pathfinding.DistanceField;
+import hillbillies.pathfinding.FlowFieldRegistry;
+import hillbillies.pathfinding.HierarchicalPathFinder;
+import hillbillies.pathfinding.ComponentLabels;
+import hillbillies.pathfinding.Landmarks;
+import hillbillies.pathfinding.PathCache;
+import hillbillies.pathfinding.PathScheduler;
+import hillbillies.pathfinding.PathService;
+import hillbillies.pathfinding.TerrainSnapshot;
+import hillbillies.utils.BitField;
+import hillbillies.utils.IndexedConnectedToBorder;
+import hillbillies.utils.TimingWheel;
 import hillbillies.utils.Vector;
 
 /**
@@ -43,12 +57,31 @@ public class World implements IWorld {
 	/**
 	 * Constant reflecting number of neighboring directions.    
 	 */
-	private static final int NB_NEIGHBOURING_DIRECTIONS = 26;
+	public static final int NB_NEIGHBOURING_DIRECTIONS = 26;
 	/**
-	 * A map of all passable positions.
-	 * Vector in CubeCoordinates.
+	 * Constant reflecting the maximum number of random cubes which are
+	 * probed by getSpawnPosition before it picks one of the passable cubes directly.
 	 */
-	private List<Vector> passableList = new ArrayList<>();
+	private static final int MAX_SPAWN_PROBES = 64;
+	/**
+	 * Constant reflecting the number of cube indices in one page of walkable directions.
+	 */
+	private static final int WALKABLE_PAGE_SIZE = 1 << 12;
+	/**
+	 * Variable registering the number of passable cubes in this world.
+	 */
+	private int nbPassableCubes = 0;
+
+	/**
+	 * Arrays containing the x, y and z offsets of the directly adjacent directions.
+	 * The order of the offsets equals the order of DIRECTLY_ADJACENT_DIRECTIONS.
+	 */
+	private static final int[] DIRECTLY_ADJACENT_DX, DIRECTLY_ADJACENT_DY, DIRECTLY_ADJACENT_DZ;
+	/**
+	 * Arrays containing the x, y and z offsets of the neighbouring directions.
+	 * The order of the offsets equals the order of NEIGHBOURING_DIRECTIONS.
+	 */
+	private static final int[] NEIGHBOURING_DX, NEIGHBOURING_DY, NEIGHBOURING_DZ;
 
 	/**
 	 * Static initializer to set-up DIRECTLY_ADJACANT_ and NEIGHBOURING_ DIRECTIONS
@@ -73,6 +106,23 @@ public class World implements IWorld {
 		}
 		DIRECTLY_ADJACENT_DIRECTIONS = Collections.unmodifiableList(adjacentDirections);
 		NEIGHBOURING_DIRECTIONS = Collections.unmodifiableList(neighbouringDirections);
+
+		DIRECTLY_ADJACENT_DX = new int[NB_DIRECTLY_ADJACENT_DIRECTIONS];
+		DIRECTLY_ADJACENT_DY = new int[NB_DIRECTLY_ADJACENT_DIRECTIONS];
+		DIRECTLY_ADJACENT_DZ = new int[NB_DIRECTLY_ADJACENT_DIRECTIONS];
+		for(int i=0;i<NB_DIRECTLY_ADJACENT_DIRECTIONS;i++){
+			DIRECTLY_ADJACENT_DX[i] = (int)DIRECTLY_ADJACENT_DIRECTIONS.get(i).X();
+			DIRECTLY_ADJACENT_DY[i] = (int)DIRECTLY_ADJACENT_DIRECTIONS.get(i).Y();
+			DIRECTLY_ADJACENT_DZ[i] = (int)DIRECTLY_ADJACENT_DIRECTIONS.get(i).Z();
+		}
+		NEIGHBOURING_DX = new int[NB_NEIGHBOURING_DIRECTIONS];
+		NEIGHBOURING_DY = new int[NB_NEIGHBOURING_DIRECTIONS];
+		NEIGHBOURING_DZ = new int[NB_NEIGHBOURING_DIRECTIONS];
+		for(int i=0;i<NB_NEIGHBOURING_DIRECTIONS;i++){
+			NEIGHBOURING_DX[i] = (int)NEIGHBOURING_DIRECTIONS.get(i).X();
+			NEIGHBOURING_DY[i] = (int)NEIGHBOURING_DIRECTIONS.get(i).Y();
+			NEIGHBOURING_DZ[i] = (int)NEIGHBOURING_DIRECTIONS.get(i).Z();
+		}
 	}
 
 	/**
@@ -120,19 +170,156 @@ public class World implements IWorld {
 	 */
 	private final Set<Unit> units = new HashSet<>(MAX_UNITS);
 	/**
-	 * Variable referencing a map collecting all the cubes
-	 * in this world. The key of each map entry is equal to
-	 * the cube's position in this world, the value references
-	 * the cube itself.
-	 * @invar Each cube registered in the referenced list is
+	 * Variable referencing the storage holding the terrain of
+	 * every cube in this world.
+	 */
+	private final ITerrainStorage terrainStorage;
+	/**
+	 * Variable referencing a bit field registering for each cube index
+	 * whether the cube with that index is passable.
+	 * @invar | for each index in 0..terrainStorage.getCapacity()-1:
+	 * 		  |		passableCubes.get(index) == (terrainStorage.isValidIndex(index) && isCubePassable(index))
+	 */
+	private final BitField passableCubes;
+	/**
+	 * Variable referencing a bit field registering for each cube index
+	 * whether a unit can stand in the cube with that index, i.e. whether
+	 * the cube is passable and lies on the bottom of this world or has a
+	 * solid directly adjacent cube.
+	 * @invar | for each index in 0..terrainStorage.getCapacity()-1:
+	 * 		  |		standableCubes.get(index) == (passableCubes.get(index) && isAdjacentSolid(index))
+	 */
+	private final BitField standableCubes;
+	/**
+	 * Array registering for each cube index the directions in which a unit
+	 * standing in the cube with that index can walk to a neighbouring cube.
+	 * Bit i of each mask corresponds to getNeighbouringDirection(i). The masks
+	 * are stored in pages of WALKABLE_PAGE_SIZE indices, pages in which no cube
+	 * is standable are not allocated.
+	 * @invar | for each index in 0..terrainStorage.getCapacity()-1:
+	 * 		  |		getWalkableDirections(index) == computeWalkableDirections(index)
+	 */
+	private final int[][] walkableDirections;
+	/**
+	 * Bit field registering the pages of walkable directions which are shared with
+	 * the last terrain snapshot. A shared page is copied before it's changed.
+	 */
+	private final BitField sharedWalkablePages;
+	/**
+	 * Variable registering the terrain epoch of this world, which is increased whenever
+	 * the walkable directions of some cubes change.
+	 */
+	private long terrainEpoch = 0;
+	/**
+	 * Variable referencing the last terrain snapshot of this world.
+	 */
+	private TerrainSnapshot terrainSnapshot = null;
+	/**
+	 * Variable referencing the service searching paths on other threads.
+	 */
+	private PathService pathService = null;
+	/**
+	 * Variable referencing the registry of flow fields shared by units walking to the same cube.
+	 */
+	private FlowFieldRegistry flowFieldRegistry = null;
+	/**
+	 * Variable referencing the scheduler spreading path searches over the ticks of this world.
+	 */
+	private PathScheduler pathScheduler = null;
+	/**
+	 * Variable referencing the landmarks guiding long searches in this world.
+	 */
+	private Landmarks landmarks = null;
+	/**
+	 * Variable referencing the labels of the connected walkable regions of this world.
+	 */
+	private ComponentLabels componentLabels = null;
+	/**
+	 * Variable referencing a map collecting all the materialized
+	 * cubes in this world. Only cubes which own materials or which
+	 * are collapsing are materialized, all other cubes are created
+	 * as flyweights on request. The key of each map entry is equal
+	 * to the cube's index in this world, the value references the
+	 * cube itself.
+	 * @invar Each cube registered in the referenced map is
 	 * effective and not yet terminated and references this
 	 * world as its World.
-	 * | for each cube in CubeMap:
+	 * | for each cube in materializedCubes:
 	 * | ( (cube != null) &&
 	 * | (! cube.isTerminated()) &&
-	 * | ( cube.getWorld() == this)
+	 * | ( cube.getWorld() == this) )
+	 */
+	private final Map<Integer, Cube> materializedCubes = new HashMap<>();
+	/**
+	 * Variable referencing a set collecting all the collapsing cubes
+	 * of this world. The end of each collapse is scheduled in the
+	 * timing wheel of this world.
+	 * @invar Each cube registered in the referenced set is collapsing
+	 * and is the materialized instance of its index.
+	 * | for each cube in collapsingCubes:
+	 * | ( cube.isCollapsing() && isMaterialized(cube) )
+	 */
+	private final Set<Cube> collapsingCubes = new LinkedHashSet<>();
+	/**
+	 * Variable referencing a map collecting the materials owned by the
+	 * cubes of this world. The key of each map entry is equal to the
+	 * index of the owning cube, the value registers its materials.
+	 * Cubes which don't own any materials have no entry.
+	 * @invar Each registered entry contains at least one material.
+	 * | for each materials in cubeMaterials.values():
+	 * | materials.size() > 0
+	 */
+	private final Map<Integer, CubeMaterials> cubeMaterials = new HashMap<>();
+	/**
+	 * Variables registering the total number of logs and boulders owned by
+	 * the cubes of this world.
+	 */
+	private int nbLogsInCubes = 0, nbBouldersInCubes = 0;
+	/**
+	 * Variable referencing the timing wheel of this world. Objects which
+	 * only wait for a certain amount of game-time, schedule their wake-up
+	 * in this wheel instead of being checked every tick.
+	 */
+	private final TimingWheel timingWheel = new TimingWheel();
+	/**
+	 * Variable referencing the path finder of this world, which is only
+	 * created once a path is searched.
+	 */
+	private AStarPathFinder pathFinder = null;
+	/**
+	 * Variable referencing the hierarchical path finder of this world, which is
+	 * only created once a long path is searched.
+	 */
+	private HierarchicalPathFinder hierarchicalPathFinder = null;
+	/**
+	 * Variable referencing the cache of recently searched paths of this world.
+	 */
+	private PathCache pathCache = null;
+	/**
+	 * Variables referencing the distance fields towards the workshops, the cubes containing
+	 * logs and the cubes containing boulders of this world. Each field is only created once
+	 * it's needed, after which it's kept up to date.
+	 */
+	private DistanceField workshopDistanceField = null, logDistanceField = null, boulderDistanceField = null;
+	/**
+	 * Arrays containing the index offsets of the directly adjacent and
+	 * neighbouring directions inside this world's TerrainStorage. These are
+	 * null when the index offsets depend on the position of a cube in the
+	 * layout of the storage.
 	 */
-	private final Map<Vector, Cube> CubeMap = new HashMap<>();
+	private final int[] directlyAdjacentIndexOffsets, neighbouringIndexOffsets;
+	/**
+	 * Predicate checking whether the cube with a given index is solid.
+	 */
+	private final IntPredicate isSolidCube = index -> !this.getTerrainStorage().isPassable(index);
+	/**
+	 * Variable referencing the minimum position of this world.
+	 */
+	private final Vector minPosition;
+	/**
+	 * Variable referencing the maximum position of this world.
+	 */
+	private final Vector maxPosition;
 	/**
 	 * Variable referencing a set collecting all the workshops
 	 * in this world.
@@ -149,7 +336,7 @@ public class World implements IWorld {
 	/**
 	 * Variable referencing a map collecting all the units
 	 * in this world. The key of each map entry is equal to
-	 * the unit's position in this world, the value references
+	 * the index of the unit's cube in this world, the value references
 	 * a set of Units who share the same position.
 	 * @invar Each unitSet registered in the referenced list is
 	 * effective and each unit in this unitSet is not yet
@@ -162,7 +349,7 @@ public class World implements IWorld {
 	 * | 	( unit.getWorld() == this)
 	 * | )
 	 */
-	private final Map<Vector, Set<Unit>> unitsByCubePosition = new HashMap<>();
+	private final Map<Integer, Set<Unit>> unitsByCubePosition = new HashMap<>();
 	/**
 	 * Variable referencing a set collecting all the materials
 	 * of this world.
@@ -179,7 +366,7 @@ public class World implements IWorld {
 	/**
 	 * Variable referencing a connectedToBorder instance.
 	 */
-	private final ConnectedToBorder connectedToBorder;
+	private final IndexedConnectedToBorder connectedToBorder;
 
 	/**
 	 * Initialize this new World with given Terrain Matrix and terrainChangeListener.
@@ -220,41 +407,163 @@ public class World implements IWorld {
 	 */
 	public World(int[][][] terrainTypes, TerrainChangeListener terrainChangeListener)
 			throws IllegalArgumentException, NullPointerException {
-		if(terrainTypes == null)
-			throw new NullPointerException("The given terrainTypes are not effective.");
+		this(terrainTypes, terrainChangeListener, CubeLayout.LINEAR);
+	}
+
+	/**
+	 * Initialize a new world with the given terrain, terrainChangeListener and cube layout.
+	 * @param  terrainTypes
+	 *         The Terrain Matrix for this new World.
+	 * @param  terrainChangeListener
+	 * 			The TerrainChangeListener which should be called when the Terrain of
+	 * 			a Cube in this World is changed.
+	 * @param  cubeLayout
+	 * 			The memory layout used to store the cubes of this new World.
+	 * @effect | this(terrainTypes, terrainChangeListener)
+	 * @post | new.getCubeLayout() == cubeLayout
+	 * @throws IllegalArgumentException
+	 * 			When the given terrain matrix is not valid, or when its dimensions are
+	 * 			too large for the given layout.
+	 * @throws NullPointerException When the given terrainTypes or cubeLayout are not effective.
+	 * 			| terrainTypes == null || cubeLayout == null
+	 * @note The layout does not change the behaviour of this World, only the order in which
+	 * 			cubes are stored and thus the indices of the cubes.
+	 */
+	public World(int[][][] terrainTypes, TerrainChangeListener terrainChangeListener, CubeLayout cubeLayout)
+			throws IllegalArgumentException, NullPointerException {
+		this(createTerrainStorage(terrainTypes, cubeLayout), terrainChangeListener);
+	}
+
+	/**
+	 * Initialize a new world with the terrain of the given storage and the given terrainChangeListener.
+	 * @param  terrainStorage
+	 * 			The storage holding the terrain of this new World.
+	 * @param  terrainChangeListener
+	 * 			The TerrainChangeListener which should be called when the Terrain of
+	 * 			a Cube in this World is changed.
+	 * @post The dimensions, terrain and layout of this world are those of the given storage.
+	 * 			| new.getNbCubesX() == terrainStorage.getNbCubesX() &&
+	 * 			| new.getNbCubesY() == terrainStorage.getNbCubesY() &&
+	 * 			| new.getNbCubesZ() == terrainStorage.getNbCubesZ() &&
+	 * 			| new.getCubeLayout() == terrainStorage.getLayout() &&
+	 * 			| for each index: new.getCube(index).getTerrain() == terrainStorage.getTerrain(index)
+	 * @post This new world has no materials, factions or units yet.
+	 * 			| new.getNbMaterials() == 0 && new.getNbFactions() == 0 && new.getNbUnits() == 0
+	 * @post The terrainChangeListener of this world is set to the given terrainChangeListener
+	 * 			| this.terrainChangeListener = terrainChangeListener
+	 * @throws NullPointerException When the given terrainStorage is not effective.
+	 * 			| terrainStorage == null
+	 * @pre The given terrainStorage is not read-only, as the terrain of a world changes
+	 * 			when cubes are dug out or collapse.
+	 * 			| !terrainStorage.isReadOnly()
+	 * @note The given storage is used by this world from now on, it should
+	 * 			only be changed through the cubes of this world. Several worlds can share
+	 * 			one terrain file through copy-on-write mappings of it.
+	 * 			| MappedTerrainStorage.open(file, FileChannel.MapMode.PRIVATE)
+	 */
+	public World(ITerrainStorage terrainStorage, TerrainChangeListener terrainChangeListener)
+			throws NullPointerException {
+		if(terrainStorage == null)
+			throw new NullPointerException("The given terrainStorage must be effective.");
 		this.terrainChangeListener = terrainChangeListener;
-		this.NbCubesX = terrainTypes.length;
-		if(this.NbCubesX==0)
+		this.NbCubesX = terrainStorage.getNbCubesX();
+		this.NbCubesY = terrainStorage.getNbCubesY();
+		this.NbCubesZ = terrainStorage.getNbCubesZ();
+		this.minPosition = new Vector(0, 0, 0);
+		this.maxPosition = new Vector(Cube.CUBE_SIDE_LENGTH * getNbCubesX(), Cube.CUBE_SIDE_LENGTH * getNbCubesY(), Cube.CUBE_SIDE_LENGTH * getNbCubesZ());
+		this.terrainStorage = terrainStorage;
+		this.directlyAdjacentIndexOffsets = terrainStorage.getIndexOffsets(DIRECTLY_ADJACENT_DX, DIRECTLY_ADJACENT_DY, DIRECTLY_ADJACENT_DZ);
+		this.neighbouringIndexOffsets = terrainStorage.getIndexOffsets(NEIGHBOURING_DX, NEIGHBOURING_DY, NEIGHBOURING_DZ);
+		connectedToBorder = new IndexedConnectedToBorder(this.getNbCubesX(), this.getNbCubesY(), this.getNbCubesZ());// Initialize connectedToBorder
+
+		terrainStorage.forEachCube(Terrain.WORKSHOP, index -> this.workshops.add(new Cube(this, index)));
+		this.passableCubes = new BitField(terrainStorage.getCapacity());
+		this.standableCubes = new BitField(terrainStorage.getCapacity());
+		terrainStorage.forEachCube(Terrain.AIR, passableCubes::set);
+		terrainStorage.forEachCube(Terrain.WORKSHOP, passableCubes::set);
+		this.initializeStandableCubes();
+		this.walkableDirections = new int[(terrainStorage.getCapacity() + WALKABLE_PAGE_SIZE - 1) / WALKABLE_PAGE_SIZE][];
+		this.sharedWalkablePages = new BitField(this.walkableDirections.length);
+		for (int index = standableCubes.nextSetBit(0); index >= 0; index = standableCubes.nextSetBit(index+1))
+			setWalkableDirections(index, computeWalkableDirections(index));
+		// Initialize connectedToBorder and collapse the floating cubes:
+		BitField borderPassableCubes = new BitField(getNbCubesX() * getNbCubesY() * getNbCubesZ());
+		for (int z = 0; z < getNbCubesZ(); z++) {
+			for (int y = 0; y < getNbCubesY(); y++) {
+				for (int x = 0; x < getNbCubesX(); x++) {
+					if(passableCubes.get(terrainStorage.getIndex(x, y, z))) {
+						nbPassableCubes++;
+						borderPassableCubes.set(connectedToBorder.getIndex(x, y, z));
+					}
+				}
+			}
+		}
+		collapseCubes(connectedToBorder.initialize(borderPassableCubes));
+	}
+
+	/**
+	 * Create a new dense terrain storage with the given layout, filled with the given terrain matrix.
+	 * @param terrainTypes The Terrain Matrix.
+	 * @param cubeLayout The layout of the storage.
+	 * @throws IllegalArgumentException
+	 * 			When the given terrain matrix is not valid, or when its dimensions are
+	 * 			too large for the given layout.
+	 * @throws NullPointerException When the given terrainTypes or cubeLayout are not effective.
+	 * 			| terrainTypes == null || cubeLayout == null
+	 */
+	private static TerrainStorage createTerrainStorage(int[][][] terrainTypes, CubeLayout cubeLayout)
+			throws IllegalArgumentException, NullPointerException {
+		if(terrainTypes == null || cubeLayout == null)
+			throw new NullPointerException("The given terrainTypes and cubeLayout must be effective.");
+		int nbX = terrainTypes.length;
+		if(nbX==0)
 			throw new IllegalArgumentException("Invalid terrain matrix, a World must have at least 1 cube.");
-		this.NbCubesY = terrainTypes[0].length;
-		if(this.NbCubesY==0)
+		int nbY = terrainTypes[0].length;
+		if(nbY==0)
 			throw new IllegalArgumentException("Invalid terrain matrix, a World must have at least 1 cube.");
-		this.NbCubesZ = terrainTypes[0][0].length;
-		if(this.NbCubesZ==0)
+		int nbZ = terrainTypes[0][0].length;
+		if(nbZ==0)
 			throw new IllegalArgumentException("Invalid terrain matrix, a World must have at least 1 cube.");
-		connectedToBorder = new ConnectedToBorder(this.getNbCubesX(), this.getNbCubesY(), this.getNbCubesZ());// Initialize connectedToBorder
-
-		// Construct this world:
-		for (int x = 0; x < getNbCubesX(); x++) {
-			for (int y = 0; y < getNbCubesY(); y++) {
-				if (terrainTypes[x].length != getNbCubesY())
+		TerrainStorage terrainStorage = new TerrainStorage(nbX, nbY, nbZ, cubeLayout);
+		for (int x = 0; x < nbX; x++) {
+			if (terrainTypes[x].length != nbY)
+				throw new IllegalArgumentException("The Terrain Matrix' dimensions do not match.");
+			for (int y = 0; y < nbY; y++) {
+				if (terrainTypes[x][y].length != nbZ)
 					throw new IllegalArgumentException("The Terrain Matrix' dimensions do not match.");
-
-				for (int z = 0; z < getNbCubesZ(); z++) {
-					if (terrainTypes[x][y].length != getNbCubesZ())
-						throw new IllegalArgumentException("The Terrain Matrix' dimensions do not match.");
-
-					Vector position = new Vector(x, y, z);
-					Terrain terrain = Terrain.fromId(terrainTypes[x][y][z]);
-					Cube cube = new Cube(this, position, terrain, this::onTerrainChange);
-					CubeMap.put(position, cube);
-					if (terrain == Terrain.WORKSHOP)
-						this.workshops.add(cube);
-				}
+				for (int z = 0; z < nbZ; z++)
+					terrainStorage.setTerrain(terrainStorage.getIndex(x, y, z), Terrain.fromId(terrainTypes[x][y][z]));
 			}
 		}
+		return terrainStorage;
 	}
-	
+
+	/**
+	 * Initialize the standable cubes of this world, after its passable cubes are initialized.
+	 * When there are less solid than passable cubes, only the neighbours of the solid
+	 * cubes and the bottom layer are checked.
+	 * @post | for each index in 0..terrainStorage.getCapacity()-1:
+	 * 		 |		new.isCubeStandable(index) == (passableCubes.get(index) && isAdjacentSolid(index))
+	 */
+	private void initializeStandableCubes(){
+		int nbSolidCubes = terrainStorage.getNbCubes(Terrain.ROCK) + terrainStorage.getNbCubes(Terrain.WOOD);
+		if(nbSolidCubes >= terrainStorage.getNbCubes() - nbSolidCubes) {
+			for (int index = passableCubes.nextSetBit(0); index >= 0; index = passableCubes.nextSetBit(index+1))
+				updateStandable(index);
+		} else {
+			IntConsumer markStandable = index -> {
+				if(passableCubes.get(index))
+					standableCubes.set(index);
+			};
+			IntConsumer markAdjacentStandable = index -> forEachDirectlyAdjacentCube(index, markStandable);
+			terrainStorage.forEachCube(Terrain.ROCK, markAdjacentStandable);
+			terrainStorage.forEachCube(Terrain.WOOD, markAdjacentStandable);
+			for (int y = 0; y < getNbCubesY(); y++)
+				for (int x = 0; x < getNbCubesX(); x++)
+					markStandable.accept(terrainStorage.getIndex(x, y, 0));
+		}
+	}
+
 	/**
 	 * Check whether the given position is a valid position for
 	 * any WorldObject.
@@ -269,6 +578,22 @@ public class World implements IWorld {
 		return position!=null && position.isInBetweenStrict(this.getMinPosition(), this.getMaxPosition());
 	}
 
+	/**
+	 * Check whether the given position is a valid position for
+	 * any WorldObject.
+	 *
+	 * @param x The x-coordinate of the position to check.
+	 * @param y The y-coordinate of the position to check.
+	 * @param z The z-coordinate of the position to check.
+	 * @return | result == isValidPosition(new Vector(x, y, z))
+	 */
+	@Override
+	public boolean isValidPosition(double x, double y, double z){
+		return x >= 0 && x < maxPosition.X() &&
+				y >= 0 && y < maxPosition.Y() &&
+				z >= 0 && z < maxPosition.Z();
+	}
+
 	/**
 	 * Return the number of x-cubes of this world.
 	 */
@@ -295,7 +620,7 @@ public class World implements IWorld {
 	 */
 	@Override
 	public Vector getMinPosition(){
-		return new Vector(Cube.CUBE_SIDE_LENGTH * 0, Cube.CUBE_SIDE_LENGTH * 0, Cube.CUBE_SIDE_LENGTH * 0);
+		return this.minPosition;
 	}
 
 	/**
@@ -303,7 +628,7 @@ public class World implements IWorld {
      */
 	@Override
 	public Vector getMaxPosition(){
-		return new Vector(Cube.CUBE_SIDE_LENGTH * getNbCubesX(), Cube.CUBE_SIDE_LENGTH * getNbCubesY(), Cube.CUBE_SIDE_LENGTH * getNbCubesZ());
+		return this.maxPosition;
 	}
 
 	/**
@@ -460,10 +785,7 @@ public class World implements IWorld {
 		// Bind unit to this world
 		unit.setWorld(this);
 		units.add(unit);
-		Vector position = unit.getPosition().getCubeCoordinates();
-		if(!unitsByCubePosition.containsKey(position))
-			unitsByCubePosition.put(position, new HashSet<>());
-		unitsByCubePosition.get(position).add(unit);
+		unitsByCubePosition.computeIfAbsent(getCubeIndex(unit.getPosition()), index -> new HashSet<>()).add(unit);
 		Faction f;
 		if(this.factions.size()<MAX_FACTIONS) {
 			f = new Faction();
@@ -572,7 +894,7 @@ public class World implements IWorld {
      */
 	@Override
 	public boolean isCubePassable(Vector cubeCoordinates) throws IllegalArgumentException{
-		return this.getCube(cubeCoordinates).isPassable();
+		return this.terrainStorage.isPassable(this.getCubeIndex(cubeCoordinates));
 	}
 
 	/**
@@ -587,29 +909,39 @@ public class World implements IWorld {
      */
 	@Override
 	public Vector getSpawnPosition() throws IllegalStateException{
-		if(passableList.isEmpty())
+		if(nbPassableCubes == 0)
 			throw new IllegalStateException("There are no passable cubes in this world");
-		Vector position = passableList.get(randInt(0, passableList.size()-1));
-		Vector lower = new Vector(0,0,-Cube.CUBE_SIDE_LENGTH);
-		while(!isCorrectSpawnPosition(position)){
-			position = position.add(lower);
+		int index = randInt(0, terrainStorage.getCapacity()-1);
+		for(int probe = 0; !passableCubes.get(index); probe++){
+			if(probe < MAX_SPAWN_PROBES)
+				index = randInt(0, terrainStorage.getCapacity()-1);
+			else// Only few passable cubes left, pick one of them with equal chances
+				index = getPassableCube(randInt(0, nbPassableCubes-1));
 		}
-		return position;
+		// Descend to the lowest passable cube, which lies on the bottom or on top of a solid cube:
+		int x = terrainStorage.getX(index), y = terrainStorage.getY(index), z = terrainStorage.getZ(index);
+		while(z > 0 && passableCubes.get(terrainStorage.getIndex(x, y, z-1)))
+			z--;
+		return new Vector(x, y, z);
 	}
 
 	/**
-	 * Check whether the given position is a correct position to spawn
-	 * for any unit.
-	 * @param position The position to check.
-	 * @return True if the position is valid in this world and the position
-	 * 			references a cube which is passable and the lower position
-	 * 			is solid.
-	 * 			| result == this.isValidPosition(position) &&
-	 * 			| 			this.isCubePassable(position) &&
-	 * 			|			this.isLowerSolid(position)
-     */
-	private boolean isCorrectSpawnPosition(Vector position) {
-		return this.isValidPosition(position) && this.isCubePassable(position) && this.isLowerSolid(position);
+	 * Return the index of the passable cube with the given rank, counting the passable
+	 * cubes in order of their index. Whole words of passable cubes are skipped by their
+	 * number of set bits.
+	 * @param rank The rank of the passable cube.
+	 * @pre | 0 <= rank && rank < nbPassableCubes
+	 */
+	private int getPassableCube(int rank){
+		int word = 0;
+		long bits = passableCubes.getWord(word);
+		while(Long.bitCount(bits) <= rank){
+			rank -= Long.bitCount(bits);
+			bits = passableCubes.getWord(++word);
+		}
+		for(; rank > 0; rank--)
+			bits &= bits - 1;// Clear the lowest set bit
+		return 64*word + Long.numberOfTrailingZeros(bits);
 	}
 
 	/**
@@ -624,9 +956,184 @@ public class World implements IWorld {
 	 * 			| !isValidPosition(cubeCoordinates)
      */
 	public Cube getCube(Vector cubeCoordinates) throws IllegalArgumentException{
+		return this.getCube(this.getCubeIndex(cubeCoordinates));
+	}
+
+	/**
+	 * Get the Cube with the given index. When the cube is materialized, the
+	 * materialized instance is returned. Otherwise a new flyweight is created.
+	 * @param index The index of the cube.
+	 * @return The Cube with the given index.
+	 * 			| result.getIndex() == index
+	 * @throws IndexOutOfBoundsException
+	 * 			When the given index does not reference a cube in this world.
+	 * 			| !getTerrainStorage().isValidIndex(index)
+	 */
+	Cube getCube(int index) throws IndexOutOfBoundsException{
+		Cube cube = this.materializedCubes.get(index);
+		if(cube == null){
+			if(!terrainStorage.isValidIndex(index))
+				throw new IndexOutOfBoundsException("The given index does not reference a cube in this world.");
+			cube = new Cube(this, index);
+		}
+		return cube;
+	}
+
+	/**
+	 * Get the index of the cube with the given cubeCoordinates.
+	 * @param cubeCoordinates The coordinates of the cube.
+	 * @return The index of the cube which contains the given cubeCoordinates.
+	 * 			| result == getCubeIndex(cubeCoordinates.cubeX(), cubeCoordinates.cubeY(), cubeCoordinates.cubeZ())
+	 * @throws IllegalArgumentException
+	 * 			When the given position is not a valid position in this World.
+	 * 			| !isValidPosition(cubeCoordinates)
+	 */
+	@Override
+	public int getCubeIndex(Vector cubeCoordinates) throws IllegalArgumentException{
 		if(!isValidPosition(cubeCoordinates))
 			throw new IllegalArgumentException("The given coordinates do not reference a valid position.");
-		return this.CubeMap.get(cubeCoordinates);
+		return terrainStorage.getIndex(cubeCoordinates.cubeX(), cubeCoordinates.cubeY(), cubeCoordinates.cubeZ());
+	}
+
+	/**
+	 * Return the memory layout of the cubes of this world.
+	 */
+	@Basic @Immutable
+	public CubeLayout getCubeLayout(){
+		return this.terrainStorage.getLayout();
+	}
+
+	/**
+	 * Return the terrain storage of this world.
+	 */
+	@Basic @Immutable
+	ITerrainStorage getTerrainStorage(){
+		return this.terrainStorage;
+	}
+
+	/**
+	 * Materialize the given cube. Once materialized, getCube will return the
+	 * materialized instance until it is released.
+	 * @param cube The cube to materialize.
+	 * @return The materialized instance of the given cube. If another instance
+	 * 			was already materialized, that instance is returned.
+	 * 			| result.equals(cube) && getCube(cube.getIndex()) == result
+	 */
+	Cube materializeCube(Cube cube){
+		Cube materialized = this.materializedCubes.putIfAbsent(cube.getIndex(), cube);
+		return materialized == null ? cube : materialized;
+	}
+
+	/**
+	 * Release the given materialized cube when it does not own any materials
+	 * and it is not collapsing anymore.
+	 * @param cube The cube to release.
+	 * @post | if(cube.getNbOwnedMaterials()==0 && !cube.isCollapsing())
+	 * 		 |		then !new.isMaterialized(cube)
+	 */
+	void releaseCube(Cube cube){
+		if(cube.getNbOwnedMaterials()==0 && !cube.isCollapsing())
+			this.materializedCubes.remove(cube.getIndex(), cube);
+	}
+
+	/**
+	 * Return the materials owned by the cube with the given index, or null
+	 * when that cube doesn't own any materials.
+	 * @param index The index of the cube.
+	 */
+	CubeMaterials getCubeMaterials(int index){
+		return this.cubeMaterials.get(index);
+	}
+
+	/**
+	 * Register the given material as a material owned by the cube with the given index.
+	 * @param index The index of the cube.
+	 * @param material The material to register.
+	 * @pre | material.getOwner() instanceof Cube && ((Cube)material.getOwner()).getIndex() == index
+	 */
+	void addCubeMaterial(int index, Material material){
+		CubeMaterials materials = this.cubeMaterials.computeIfAbsent(index, i -> new CubeMaterials());
+		materials.add(material);
+		if(material instanceof Log){
+			this.nbLogsInCubes++;
+			if(logDistanceField != null && materials.getNbLogs() == 1)
+				logDistanceField.addSource(index);
+		}else if(material instanceof Boulder){
+			this.nbBouldersInCubes++;
+			if(boulderDistanceField != null && materials.getNbBoulders() == 1)
+				boulderDistanceField.addSource(index);
+		}
+	}
+
+	/**
+	 * Unregister the given material as a material owned by the cube with the given index.
+	 * @param index The index of the cube.
+	 * @param material The material to unregister.
+	 */
+	void removeCubeMaterial(int index, Material material){
+		CubeMaterials materials = this.cubeMaterials.get(index);
+		if(materials == null || !materials.remove(material))
+			return;
+		if(material instanceof Log){
+			this.nbLogsInCubes--;
+			if(logDistanceField != null && materials.getNbLogs() == 0)
+				logDistanceField.removeSource(index);
+		}else if(material instanceof Boulder){
+			this.nbBouldersInCubes--;
+			if(boulderDistanceField != null && materials.getNbBoulders() == 0)
+				boulderDistanceField.removeSource(index);
+		}
+		if(materials.size() == 0)
+			this.cubeMaterials.remove(index);
+	}
+
+	/**
+	 * Return the number of logs owned by the cubes of this world.
+	 */
+	@Basic
+	public int getNbLogsInCubes(){
+		return this.nbLogsInCubes;
+	}
+
+	/**
+	 * Return the number of boulders owned by the cubes of this world.
+	 */
+	@Basic
+	public int getNbBouldersInCubes(){
+		return this.nbBouldersInCubes;
+	}
+
+	/**
+	 * Register the given cube as a collapsing cube of this world.
+	 * @param cube The materialized cube which started collapsing.
+	 * @pre | cube.isCollapsing() && isMaterialized(cube)
+	 */
+	void addCollapsingCube(Cube cube){
+		this.collapsingCubes.add(cube);
+	}
+
+	/**
+	 * Unregister the given cube as a collapsing cube of this world.
+	 * @param cube The cube which stopped collapsing.
+	 */
+	void removeCollapsingCube(Cube cube){
+		this.collapsingCubes.remove(cube);
+	}
+
+	/**
+	 * Return the number of collapsing cubes in this world.
+	 */
+	@Basic
+	public int getNbCollapsingCubes(){
+		return this.collapsingCubes.size();
+	}
+
+	/**
+	 * Check whether the given cube is the materialized instance of its index.
+	 * @param cube The cube to check.
+	 */
+	boolean isMaterialized(Cube cube){
+		return this.materializedCubes.get(cube.getIndex()) == cube;
 	}
 
 	/**
@@ -704,11 +1211,7 @@ public class World implements IWorld {
 	@Override
 	public <T> void getDirectlyAdjacentCubesSatisfying(Collection<T> collection, Vector cubeCoordinates, Predicate<Cube> condition, Function<Cube, T> mapper)
 			throws NullPointerException{
-		for(Vector adjacentDirection : DIRECTLY_ADJACENT_DIRECTIONS) {
-			Vector adjacentPos = cubeCoordinates.add(adjacentDirection);
-			if (isValidPosition(adjacentPos) && condition.test(this.getCube(adjacentPos)))
-				collection.add(mapper.apply(this.getCube(adjacentPos)));
-		}
+		this.getCubesSatisfying(collection, cubeCoordinates, condition, mapper, DIRECTLY_ADJACENT_DX, DIRECTLY_ADJACENT_DY, DIRECTLY_ADJACENT_DZ);
 	}
 
 	/**
@@ -738,13 +1241,495 @@ public class World implements IWorld {
 	@Override
 	public <T> void getNeighbouringCubesSatisfying(Collection<T> collection, Vector cubeCoordinates, Predicate<Cube> condition, Function<Cube, T> mapper)
 			throws NullPointerException{
-		for(Vector neighbouringDirection : NEIGHBOURING_DIRECTIONS) {
-			Vector neighbouringPos = cubeCoordinates.add(neighbouringDirection);
-			if (isValidPosition(neighbouringPos) && condition.test(this.getCube(neighbouringPos)))
-				collection.add(mapper.apply(this.getCube(neighbouringPos)));
+		this.getCubesSatisfying(collection, cubeCoordinates, condition, mapper, NEIGHBOURING_DX, NEIGHBOURING_DY, NEIGHBOURING_DZ);
+	}
+
+	/**
+	 * Fill the given collection with the cubes, at the given offsets from the Cube with position
+	 * cubeCoordinates, which satisfy the given condition. The resulting cubes are mapped to a custom
+	 * type using the given mapper.
+	 * @param dx The x-offsets of the cubes to check.
+	 * @param dy The y-offsets of the cubes to check.
+	 * @param dz The z-offsets of the cubes to check.
+	 * @see #getNeighbouringCubesSatisfying(Collection, Vector, Predicate, Function)
+	 * @throws NullPointerException
+	 * 			When one of the given parameters is not effective
+	 * 			| collection == null || cubeCoordinates == null || condition == null || mapper == null
+	 */
+	private <T> void getCubesSatisfying(Collection<T> collection, Vector cubeCoordinates, Predicate<Cube> condition, Function<Cube, T> mapper,
+										int[] dx, int[] dy, int[] dz) throws NullPointerException{
+		if(collection == null || condition == null || mapper == null)
+			throw new NullPointerException("The given parameters must be effective.");
+		int x = cubeCoordinates.cubeX(), y = cubeCoordinates.cubeY(), z = cubeCoordinates.cubeZ();
+		for(int i=0;i<dx.length;i++) {
+			if (isValidCube(x+dx[i], y+dy[i], z+dz[i])) {
+				Cube cube = this.getCube(getCubeIndex(x+dx[i], y+dy[i], z+dz[i]));
+				if(condition.test(cube))
+					collection.add(mapper.apply(cube));
+			}
 		}
 	}
 
+	/**
+	 * Check whether the given cube coordinates reference a cube of this world.
+	 * @param x The x-coordinate of the cube.
+	 * @param y The y-coordinate of the cube.
+	 * @param z The z-coordinate of the cube.
+	 * @return | result == 0 <= x < getNbCubesX() && 0 <= y < getNbCubesY() && 0 <= z < getNbCubesZ()
+	 */
+	@Override
+	public boolean isValidCube(int x, int y, int z){
+		return terrainStorage.isValidCube(x, y, z);
+	}
+
+	/**
+	 * Get the index of the cube with the given cube coordinates.
+	 * @param x The x-coordinate of the cube.
+	 * @param y The y-coordinate of the cube.
+	 * @param z The z-coordinate of the cube.
+	 * @pre The given coordinates reference a cube of this world.
+	 * 		| isValidCube(x, y, z)
+	 * @return The index of the cube inside the storage of this world, which
+	 * 			depends on the layout of this world.
+	 * 			| getCubeX(result) == x && getCubeY(result) == y && getCubeZ(result) == z
+	 * 			| if(getCubeLayout() == CubeLayout.LINEAR)
+	 * 			|	then result == x + y*getNbCubesX() + z*getNbCubesX()*getNbCubesY()
+	 */
+	@Override
+	public int getCubeIndex(int x, int y, int z){
+		return terrainStorage.getIndex(x, y, z);
+	}
+
+	/**
+	 * Get the x-coordinate of the cube with the given index.
+	 * @param index The index of the cube.
+	 * @return | getCubeIndex(result, getCubeY(index), getCubeZ(index)) == index
+	 */
+	@Override
+	public int getCubeX(int index){
+		return terrainStorage.getX(index);
+	}
+
+	/**
+	 * Get the y-coordinate of the cube with the given index.
+	 * @param index The index of the cube.
+	 * @return | getCubeIndex(getCubeX(index), result, getCubeZ(index)) == index
+	 */
+	@Override
+	public int getCubeY(int index){
+		return terrainStorage.getY(index);
+	}
+
+	/**
+	 * Get the z-coordinate of the cube with the given index.
+	 * @param index The index of the cube.
+	 * @return | getCubeIndex(getCubeX(index), getCubeY(index), result) == index
+	 */
+	@Override
+	public int getCubeZ(int index){
+		return terrainStorage.getZ(index);
+	}
+
+	/**
+	 * Return the size of the range of cube indices of this world. Depending
+	 * on the layout of this world, not every index in that range references a cube.
+	 * @return | result >= getNbCubesX()*getNbCubesY()*getNbCubesZ()
+	 */
+	@Override @Immutable
+	public int getNbCubeIndices(){
+		return terrainStorage.getCapacity();
+	}
+
+	/**
+	 * Get the index of the neighbouring cube in the given direction of the cube with the given index.
+	 * @param index The index of the cube.
+	 * @param direction The number of the neighbouring direction.
+	 * @pre The neighbouring cube lies inside this world.
+	 * 		| isValidCube(getCubeX(index) + getNeighbouringDirection(direction).cubeX(), ...)
+	 * @return | result == getCubeIndex(getCubeX(index) + getNeighbouringDirection(direction).cubeX(),
+	 * 		   |						getCubeY(index) + getNeighbouringDirection(direction).cubeY(),
+	 * 		   |						getCubeZ(index) + getNeighbouringDirection(direction).cubeZ())
+	 */
+	@Override
+	public int getNeighbouringCube(int index, int direction){
+		if(neighbouringIndexOffsets != null)
+			return index + neighbouringIndexOffsets[direction];
+		return terrainStorage.getIndex(getCubeX(index) + NEIGHBOURING_DX[direction],
+				getCubeY(index) + NEIGHBOURING_DY[direction], getCubeZ(index) + NEIGHBOURING_DZ[direction]);
+	}
+
+	/**
+	 * Check whether the cube with the given index is passable.
+	 * @param index The index of the cube to check.
+	 * @return | result == getCube(index).isPassable()
+	 * @throws IndexOutOfBoundsException
+	 * 			When the given index does not reference a cube in this world.
+	 */
+	@Override
+	public boolean isCubePassable(int index) throws IndexOutOfBoundsException{
+		return terrainStorage.isPassable(index);
+	}
+
+	/**
+	 * Check whether the cubes with the given indices are neighbouring cubes.
+	 * @param index The index of the first cube.
+	 * @param other The index of the second cube.
+	 * @return | result == index != other &&
+	 * 		   |	abs(getCubeX(index)-getCubeX(other)) <= 1 &&
+	 * 		   |	abs(getCubeY(index)-getCubeY(other)) <= 1 &&
+	 * 		   |	abs(getCubeZ(index)-getCubeZ(other)) <= 1
+	 */
+	@Override
+	public boolean areNeighbouringCubes(int index, int other){
+		return index != other &&
+				Math.abs(getCubeX(index)-getCubeX(other)) <= 1 &&
+				Math.abs(getCubeY(index)-getCubeY(other)) <= 1 &&
+				Math.abs(getCubeZ(index)-getCubeZ(other)) <= 1;
+	}
+
+	/**
+	 * Call the given visitor for the index of every directly adjacent cube
+	 * of the cube with the given index.
+	 * @param index The index of the cube.
+	 * @param visitor The visitor to call.
+	 * @effect | for each adjacent in getDirectlyAdjacentCubes(getCube(index).getPosition()):
+	 * 		   |	visitor.accept(adjacent.getIndex())
+	 */
+	@Override
+	public void forEachDirectlyAdjacentCube(int index, IntConsumer visitor){
+		forEachCube(index, visitor, directlyAdjacentIndexOffsets, DIRECTLY_ADJACENT_DX, DIRECTLY_ADJACENT_DY, DIRECTLY_ADJACENT_DZ);
+	}
+
+	/**
+	 * Call the given visitor for the index of every neighbouring cube
+	 * of the cube with the given index.
+	 * @param index The index of the cube.
+	 * @param visitor The visitor to call.
+	 * @effect | for each neighbour in getNeighbouringCubes(getCube(index).getPosition()):
+	 * 		   |	visitor.accept(neighbour.getIndex())
+	 */
+	@Override
+	public void forEachNeighbouringCube(int index, IntConsumer visitor){
+		forEachCube(index, visitor, neighbouringIndexOffsets, NEIGHBOURING_DX, NEIGHBOURING_DY, NEIGHBOURING_DZ);
+	}
+
+	/**
+	 * Check whether any directly adjacent cube of the cube with the given
+	 * index satisfies the given condition.
+	 * @param index The index of the cube.
+	 * @param condition The condition to check.
+	 * @return | result == (for some adjacent in getDirectlyAdjacentCubes(getCube(index).getPosition()):
+	 * 		   |				condition.test(adjacent.getIndex()))
+	 */
+	@Override
+	public boolean anyDirectlyAdjacentCube(int index, IntPredicate condition){
+		return anyCube(index, condition, directlyAdjacentIndexOffsets, DIRECTLY_ADJACENT_DX, DIRECTLY_ADJACENT_DY, DIRECTLY_ADJACENT_DZ);
+	}
+
+	/**
+	 * Check whether any neighbouring cube of the cube with the given
+	 * index satisfies the given condition.
+	 * @param index The index of the cube.
+	 * @param condition The condition to check.
+	 * @return | result == (for some neighbour in getNeighbouringCubes(getCube(index).getPosition()):
+	 * 		   |				condition.test(neighbour.getIndex()))
+	 */
+	@Override
+	public boolean anyNeighbouringCube(int index, IntPredicate condition){
+		return anyCube(index, condition, neighbouringIndexOffsets, NEIGHBOURING_DX, NEIGHBOURING_DY, NEIGHBOURING_DZ);
+	}
+
+	/**
+	 * Check whether the cube with the given index lies on the bottom of this
+	 * world or has a solid directly adjacent cube.
+	 * @param index The index of the cube.
+	 * @return | result == getCubeZ(index) == 0 ||
+	 * 		   |	anyDirectlyAdjacentCube(index, adjacent -> !isCubePassable(adjacent))
+	 */
+	@Override
+	public boolean isAdjacentSolid(int index){
+		return getCubeZ(index) == 0 || anyDirectlyAdjacentCube(index, isSolidCube);
+	}
+
+	/**
+	 * Check whether a unit can stand in the cube with the given index.
+	 * @param index The index of the cube.
+	 * @return | result == isCubePassable(index) && isAdjacentSolid(index)
+	 * @throws IndexOutOfBoundsException
+	 * 			When the given index does not reference a cube in this world.
+	 */
+	@Override
+	public boolean isCubeStandable(int index) throws IndexOutOfBoundsException{
+		return standableCubes.get(index);
+	}
+
+	/**
+	 * Return a bit field registering which cubes of this world are passable.
+	 * @return A new bit field whose bit with index i is set if and only if i
+	 * 			is the index of a passable cube.
+	 * 			| result.size() == getTerrainStorage().getCapacity() &&
+	 * 			| for each index in 0..result.size()-1:
+	 * 			|	result.get(index) == (getTerrainStorage().isValidIndex(index) && isCubePassable(index))
+	 */
+	public BitField getPassableCubes(){
+		return new BitField(this.passableCubes);
+	}
+
+	/**
+	 * Return a bit field registering in which cubes of this world a unit can stand.
+	 * @return A new bit field whose bit with index i is set if and only if i
+	 * 			is the index of a standable cube.
+	 * 			| result.size() == getTerrainStorage().getCapacity() &&
+	 * 			| for each index in 0..result.size()-1:
+	 * 			|	result.get(index) == (getTerrainStorage().isValidIndex(index) && isCubeStandable(index))
+	 */
+	public BitField getStandableCubes(){
+		return new BitField(this.standableCubes);
+	}
+
+	/**
+	 * Return the directions in which a unit standing in the cube with the
+	 * given index can walk to a neighbouring cube.
+	 * @param index The index of the cube.
+	 * @return A mask whose bit i is set if and only if a unit can walk from the
+	 * 			cube with the given index to its neighbour in the direction
+	 * 			getNeighbouringDirection(i). A unit can walk from one cube to a
+	 * 			neighbouring cube if it can stand in every cube of the box spanned
+	 * 			by both cubes, which prevents units from cutting corners.
+	 * 			| for each i in 0..NB_NEIGHBOURING_DIRECTIONS-1:
+	 * 			|	((result >> i) & 1) == 1 ==
+	 * 			|		for each corner in the box spanned by getCube(index) and getCube(index)+getNeighbouringDirection(i):
+	 * 			|			isValidCube(corner) && isCubeStandable(getCubeIndex(corner))
+	 * @throws IndexOutOfBoundsException
+	 * 			When the given index does not reference a cube in this world.
+	 */
+	@Override
+	public int getWalkableDirections(int index) throws IndexOutOfBoundsException{
+		int[] page = walkableDirections[index / WALKABLE_PAGE_SIZE];
+		return page == null ? 0 : page[index % WALKABLE_PAGE_SIZE];
+	}
+
+	/**
+	 * Set the walkable directions of the cube with the given index.
+	 */
+	private void setWalkableDirections(int index, int directions){
+		int[] page = walkableDirections[index / WALKABLE_PAGE_SIZE];
+		if(page == null){
+			if(directions == 0)
+				return;
+			page = walkableDirections[index / WALKABLE_PAGE_SIZE] = new int[WALKABLE_PAGE_SIZE];
+		}else if(sharedWalkablePages.get(index / WALKABLE_PAGE_SIZE)){
+			if(page[index % WALKABLE_PAGE_SIZE] == directions)
+				return;
+			page = walkableDirections[index / WALKABLE_PAGE_SIZE] = page.clone();// Copy on write
+			sharedWalkablePages.clear(index / WALKABLE_PAGE_SIZE);
+		}
+		page[index % WALKABLE_PAGE_SIZE] = directions;
+	}
+
+	/**
+	 * Return the terrain epoch of this world. The epoch increases whenever the walkable
+	 * directions of some cubes change.
+	 */
+	@Override @Basic
+	public long getTerrainEpoch(){
+		return this.terrainEpoch;
+	}
+
+	/**
+	 * Return a snapshot of the walkable directions of all cubes of this world at the current
+	 * terrain epoch. Taking a snapshot doesn't copy the walkable directions, the pages are
+	 * only copied once this world changes them.
+	 * @return | result.getEpoch() == getTerrainEpoch() &&
+	 * 		   | for each index in 0..getNbCubeIndices()-1:
+	 * 		   |	result.getWalkableDirections(index) == getWalkableDirections(index)
+	 */
+	@Override
+	public TerrainSnapshot getTerrainSnapshot(){
+		if(this.terrainSnapshot == null || this.terrainSnapshot.getEpoch() != this.terrainEpoch){
+			for(int page = 0; page < walkableDirections.length; page++)
+				sharedWalkablePages.set(page);
+			this.terrainSnapshot = new TerrainSnapshot(this.terrainEpoch, walkableDirections, WALKABLE_PAGE_SIZE);
+		}
+		return this.terrainSnapshot;
+	}
+
+	/**
+	 * Return the registry of flow fields shared by units walking to the same cube of this world.
+	 * The registry is created when it's needed for the first time.
+	 */
+	@Override
+	public FlowFieldRegistry getFlowFieldRegistry(){
+		if(this.flowFieldRegistry == null)
+			this.flowFieldRegistry = new FlowFieldRegistry(this);
+		return this.flowFieldRegistry;
+	}
+
+	/**
+	 * Return the service searching paths between the cubes of this world on other threads.
+	 * The service is started when it's needed for the first time.
+	 */
+	@Override
+	public PathService getPathService(){
+		if(this.pathService == null)
+			this.pathService = new PathService(this);
+		return this.pathService;
+	}
+
+	/**
+	 * Return the landmarks guiding long searches in this world. The landmarks are created
+	 * when they're needed for the first time, after which they're told about every terrain
+	 * change of this world.
+	 */
+	@Override
+	public Landmarks getLandmarks(){
+		if(this.landmarks == null)
+			this.landmarks = new Landmarks(this);
+		return this.landmarks;
+	}
+
+	/**
+	 * Return the labels of the connected walkable regions of this world. The labels are
+	 * created when they're needed for the first time, after which they're kept up to date
+	 * after every terrain change of this world.
+	 */
+	@Override
+	public ComponentLabels getComponentLabels(){
+		if(this.componentLabels == null)
+			this.componentLabels = new ComponentLabels(this);
+		return this.componentLabels;
+	}
+
+	/**
+	 * Return the scheduler spreading path searches over the ticks of this world.
+	 * The scheduler is created when it's needed for the first time.
+	 */
+	@Override
+	public PathScheduler getPathScheduler(){
+		if(this.pathScheduler == null)
+			this.pathScheduler = new PathScheduler(this);
+		return this.pathScheduler;
+	}
+
+	/**
+	 * Return the neighbouring direction with the given number.
+	 * @param direction The number of the direction.
+	 * @return The offset of the neighbour in the given direction, in cube coordinates.
+	 * @throws IndexOutOfBoundsException
+	 * 			| direction < 0 || direction >= NB_NEIGHBOURING_DIRECTIONS
+	 */
+	public static Vector getNeighbouringDirection(int direction) throws IndexOutOfBoundsException{
+		return NEIGHBOURING_DIRECTIONS.get(direction);
+	}
+
+	/**
+	 * Compute the directions in which a unit standing in the cube with the
+	 * given index can walk to a neighbouring cube.
+	 * @param index The index of the cube.
+	 * @see #getWalkableDirections(int)
+	 */
+	private int computeWalkableDirections(int index){
+		if(!standableCubes.get(index))
+			return 0;
+		int x = getCubeX(index), y = getCubeY(index), z = getCubeZ(index);
+		int mask = 0;
+		for(int i = 0; i < NB_NEIGHBOURING_DIRECTIONS; i++){
+			if(isStandableBox(x, y, z, NEIGHBOURING_DX[i], NEIGHBOURING_DY[i], NEIGHBOURING_DZ[i]))
+				mask |= 1 << i;
+		}
+		return mask;
+	}
+
+	/**
+	 * Check whether a unit can stand in every cube of the box spanned by
+	 * the cube with the given coordinates and the cube at the given offset.
+	 */
+	private boolean isStandableBox(int x, int y, int z, int dx, int dy, int dz){
+		for(int corner = 0; corner < 8; corner++){
+			int cx = x + ((corner & 1) != 0 ? dx : 0);
+			int cy = y + ((corner & 2) != 0 ? dy : 0);
+			int cz = z + ((corner & 4) != 0 ? dz : 0);
+			if(!isValidCube(cx, cy, cz) || !standableCubes.get(terrainStorage.getIndex(cx, cy, cz)))
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Recompute the walkable directions of all cubes which can be affected by
+	 * a change of the passability of the cube with the given coordinates. Such
+	 * a change affects the standability of the directly adjacent cubes, which
+	 * in turn affects the walkable directions of their neighbours.
+	 */
+	private void updateWalkableDirections(int x, int y, int z){
+		for(int cz = Math.max(z-2, 0); cz <= Math.min(z+2, getNbCubesZ()-1); cz++)
+			for(int cy = Math.max(y-2, 0); cy <= Math.min(y+2, getNbCubesY()-1); cy++)
+				for(int cx = Math.max(x-2, 0); cx <= Math.min(x+2, getNbCubesX()-1); cx++){
+					int index = terrainStorage.getIndex(cx, cy, cz);
+					setWalkableDirections(index, computeWalkableDirections(index));
+				}
+	}
+
+	/**
+	 * Recompute whether a unit can stand in the cube with the given index.
+	 * @param index The index of the cube.
+	 * @post | new.isCubeStandable(index) == (isCubePassable(index) && isAdjacentSolid(index))
+	 */
+	private void updateStandable(int index){
+		standableCubes.set(index, passableCubes.get(index) && isAdjacentSolid(index));
+	}
+
+	/**
+	 * Call the given visitor for the index of every valid cube at the given
+	 * offsets of the cube with the given index.
+	 */
+	private void forEachCube(int index, IntConsumer visitor, int[] indexOffsets, int[] dx, int[] dy, int[] dz){
+		int x = getCubeX(index), y = getCubeY(index), z = getCubeZ(index);
+		if(indexOffsets == null) {// The index offsets depend on the position of the cube in the layout
+			for (int i = 0; i < dx.length; i++) {
+				if (isValidCube(x + dx[i], y + dy[i], z + dz[i]))
+					visitor.accept(terrainStorage.getIndex(x + dx[i], y + dy[i], z + dz[i]));
+			}
+		}else if(isInteriorCube(x, y, z)) {
+			for (int offset : indexOffsets)
+				visitor.accept(index + offset);
+		}else {
+			for (int i = 0; i < indexOffsets.length; i++) {
+				if (isValidCube(x + dx[i], y + dy[i], z + dz[i]))
+					visitor.accept(index + indexOffsets[i]);
+			}
+		}
+	}
+
+	/**
+	 * Check whether any valid cube at the given offsets of the cube with the
+	 * given index satisfies the given condition.
+	 */
+	private boolean anyCube(int index, IntPredicate condition, int[] indexOffsets, int[] dx, int[] dy, int[] dz){
+		int x = getCubeX(index), y = getCubeY(index), z = getCubeZ(index);
+		if(indexOffsets == null) {// The index offsets depend on the position of the cube in the layout
+			for (int i = 0; i < dx.length; i++) {
+				if (isValidCube(x + dx[i], y + dy[i], z + dz[i]) && condition.test(terrainStorage.getIndex(x + dx[i], y + dy[i], z + dz[i])))
+					return true;
+			}
+			return false;
+		}
+		boolean interior = isInteriorCube(x, y, z);
+		for (int i = 0; i < indexOffsets.length; i++) {
+			if ((interior || isValidCube(x + dx[i], y + dy[i], z + dz[i])) && condition.test(index + indexOffsets[i]))
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Check whether all neighbouring cubes of the cube with the given coordinates
+	 * lie inside this world.
+	 */
+	private boolean isInteriorCube(int x, int y, int z){
+		return x > 0 && y > 0 && z > 0 && x < getNbCubesX()-1 && y < getNbCubesY()-1 && z < getNbCubesZ()-1;
+	}
+
 	/**
 	 * Retrieve a list of the directly adjacent cubes' positions of the cube
 	 * with the given cubeCoordinates.
@@ -766,9 +1751,7 @@ public class World implements IWorld {
 	 */
 	@Override
 	public List<Vector> getDirectlyAdjacentCubesPositions(Vector cubeCoordinates) throws NullPointerException{
-		List<Vector> adjacentCubes = new ArrayList<>(NB_DIRECTLY_ADJACENT_DIRECTIONS);
-		this.getDirectlyAdjacentCubesSatisfying(adjacentCubes, cubeCoordinates, cube -> true, WorldObject::getPosition);
-		return adjacentCubes;
+		return this.getCubesPositions(cubeCoordinates, DIRECTLY_ADJACENT_DX, DIRECTLY_ADJACENT_DY, DIRECTLY_ADJACENT_DZ);
 	}
 
 	/**
@@ -791,9 +1774,24 @@ public class World implements IWorld {
 	 * 			| cubeCoordinates == null
 	 */
 	public List<Vector> getNeighbouringCubesPositions(Vector cubeCoordinates) throws NullPointerException{
-		List<Vector> neighbouringCubes = new ArrayList<>(NB_NEIGHBOURING_DIRECTIONS);
-		this.getNeighbouringCubesSatisfying(neighbouringCubes, cubeCoordinates, cube -> true, WorldObject::getPosition);
-		return neighbouringCubes;
+		return this.getCubesPositions(cubeCoordinates, NEIGHBOURING_DX, NEIGHBOURING_DY, NEIGHBOURING_DZ);
+	}
+
+	/**
+	 * Retrieve a list of the positions of the valid cubes at the given offsets of
+	 * the cube with the given cubeCoordinates.
+	 * @throws NullPointerException
+	 * 			When the given cubeCoordinates are not effective
+	 * 			| cubeCoordinates == null
+	 */
+	private List<Vector> getCubesPositions(Vector cubeCoordinates, int[] dx, int[] dy, int[] dz) throws NullPointerException{
+		List<Vector> positions = new ArrayList<>(dx.length);
+		int x = cubeCoordinates.cubeX(), y = cubeCoordinates.cubeY(), z = cubeCoordinates.cubeZ();
+		for(int i=0;i<dx.length;i++){
+			if(isValidCube(x+dx[i], y+dy[i], z+dz[i]))
+				positions.add(new Vector(x+dx[i], y+dy[i], z+dz[i]));
+		}
+		return positions;
 	}
 
 	/**
@@ -814,6 +1812,8 @@ public class World implements IWorld {
 	public boolean isAdjacentSolid(Vector position) throws NullPointerException{
 		if(position.cubeZ() == 0)
 			return true;
+		if(this.isValidPosition(position))
+			return this.anyDirectlyAdjacentCube(this.getCubeIndex(position), isSolidCube);
 		Collection<Cube> solidAdjacentCubes = new ArrayList<>();
 		this.getDirectlyAdjacentCubesSatisfying(
 				solidAdjacentCubes, position.getCubeCoordinates(), cube -> !cube.isPassable(), cube -> cube
@@ -839,9 +1839,9 @@ public class World implements IWorld {
 	public boolean isLowerSolid(Vector position) throws NullPointerException{
 		if(position.cubeZ() == 0)
 			return true;
-		if(!this.getCube(position.getCubeCoordinates().add(new Vector(0,0,-1))).isPassable())
-			return true;
-		return false;
+		if(!isValidPosition(position))
+			throw new IllegalArgumentException("The given coordinates do not reference a valid position.");
+		return !passableCubes.get(terrainStorage.getIndex(position.cubeX(), position.cubeY(), position.cubeZ()-1));
 	}
 
 	/**
@@ -850,21 +1850,22 @@ public class World implements IWorld {
 	 * @param dt The amount of time to advance the game time with.
      */
 	public void advanceTime(double dt){
+		timingWheel.advanceTime(dt);
+		if(flowFieldRegistry != null)
+			flowFieldRegistry.startTick();
+		if(pathScheduler != null)
+			pathScheduler.startTick();
+
 		Iterator<Unit> unitsIterator = units.iterator();
 		unitsByCubePosition.clear();
 		while(unitsIterator.hasNext()){
 			Unit unit = unitsIterator.next();
 			if(!unit.isTerminated()){
 				unit.advanceTime(dt);
-				if(!unitsByCubePosition.containsKey(unit.getPosition().getCubeCoordinates()))
-					unitsByCubePosition.put(unit.getPosition().getCubeCoordinates(), new HashSet<>());
-				unitsByCubePosition.get(unit.getPosition().getCubeCoordinates()).add(unit);
+				unitsByCubePosition.computeIfAbsent(getCubeIndex(unit.getPosition()), index -> new HashSet<>()).add(unit);
 			}else
 				unitsIterator.remove();
 		}
-		for(Vector cubePosition : CubeMap.keySet())
-			this.getCube(cubePosition).advanceTime(dt);
-
 		Iterator<Material> materialsIterator = materials.iterator();
 		while(materialsIterator.hasNext()){
 			Material m = materialsIterator.next();
@@ -875,6 +1876,109 @@ public class World implements IWorld {
 		}
 	}
 
+	/**
+	 * Return the path finder searching paths between the cubes of this world.
+	 * The path finder is created when it's needed for the first time and reused
+	 * by all later searches.
+	 */
+	@Override
+	public AStarPathFinder getPathFinder(){
+		if(this.pathFinder == null)
+			this.pathFinder = new AStarPathFinder(this);
+		return this.pathFinder;
+	}
+
+	/**
+	 * Return the hierarchical path finder searching long paths between the cubes of this world.
+	 * The path finder is created when it's needed for the first time, after which it's kept
+	 * up to date with the terrain changes of this world.
+	 */
+	@Override
+	public HierarchicalPathFinder getHierarchicalPathFinder(){
+		if(this.hierarchicalPathFinder == null)
+			this.hierarchicalPathFinder = new HierarchicalPathFinder(this);
+		return this.hierarchicalPathFinder;
+	}
+
+	/**
+	 * Return the cache of recently searched paths between two cubes of this world. The cache
+	 * is created when it's needed for the first time, after which the paths near changed
+	 * terrain are invalidated.
+	 */
+	@Override
+	public PathCache getPathCache(){
+		if(this.pathCache == null)
+			this.pathCache = new PathCache(this);
+		return this.pathCache;
+	}
+
+	/**
+	 * Return the distance field towards the workshops of this world.
+	 */
+	@Override
+	public DistanceField getWorkshopDistanceField(){
+		if(this.workshopDistanceField == null){
+			this.workshopDistanceField = new DistanceField(this);
+			this.workshopDistanceField.addSources(this.workshops.stream().mapToInt(Cube::getIndex).toArray());
+		}
+		return this.workshopDistanceField;
+	}
+
+	/**
+	 * Return the distance field towards the cubes of this world which contain a log.
+	 */
+	@Override
+	public DistanceField getLogDistanceField(){
+		if(this.logDistanceField == null){
+			this.logDistanceField = new DistanceField(this);
+			this.logDistanceField.addSources(this.cubeMaterials.entrySet().stream()
+					.filter(entry -> entry.getValue().getNbLogs() > 0).mapToInt(Map.Entry::getKey).toArray());
+		}
+		return this.logDistanceField;
+	}
+
+	/**
+	 * Return the distance field towards the cubes of this world which contain a boulder.
+	 */
+	@Override
+	public DistanceField getBoulderDistanceField(){
+		if(this.boulderDistanceField == null){
+			this.boulderDistanceField = new DistanceField(this);
+			this.boulderDistanceField.addSources(this.cubeMaterials.entrySet().stream()
+					.filter(entry -> entry.getValue().getNbBoulders() > 0).mapToInt(Map.Entry::getKey).toArray());
+		}
+		return this.boulderDistanceField;
+	}
+
+	/**
+	 * Return the game-time of this world, i.e. the total amount of time
+	 * this world has been advanced with.
+	 */
+	@Override @Basic
+	public double getGameTime(){
+		return timingWheel.getTime();
+	}
+
+	/**
+	 * Schedule the given action to be executed after the given delay.
+	 * Pending events are executed in order of their due time at the start
+	 * of advanceTime, before the units of this world are advanced.
+	 * @param delay The delay in seconds after which the action will be executed.
+	 * @param action The action to execute.
+	 * @return The scheduled event, which can be used to cancel the action.
+	 * 			| result.getDueTime() == getGameTime() + delay
+	 * @throws IllegalArgumentException
+	 * 			When the given delay is negative.
+	 * 			| delay < 0
+	 * @throws NullPointerException
+	 * 			When the given action is not effective.
+	 * 			| action == null
+	 */
+	@Override
+	public TimingWheel.Event scheduleEvent(double delay, Runnable action) throws IllegalArgumentException, NullPointerException{
+		return timingWheel.schedule(delay, action);
+	}
+
 	/**
 	 * Get a set of all units in the given cube.
 	 * @param cube The cube of which the units should be returned
@@ -887,11 +1991,23 @@ public class World implements IWorld {
      */
 	@Override
 	public Set<Unit> getUnitsInCube(Cube cube) throws NullPointerException{
-		return unitsByCubePosition.getOrDefault(cube.getPosition(), new HashSet<>());
+		return this.getUnitsInCube(cube.getIndex());
 	}
 
 	/**
-	 * Listener which is called once a cube's terrain is changed.
+	 * Get a set of all units in the cube with the given index.
+	 * @param index The index of the cube of which the units should be returned
+	 * @return A set containing all units whose position lies inside
+	 * 			the cube with the given index.
+	 * 			| foreach(Unit u in result : getCubeIndex(u.getPosition()) == index)
+	 */
+	@Override
+	public Set<Unit> getUnitsInCube(int index){
+		return unitsByCubePosition.getOrDefault(index, new HashSet<>());
+	}
+
+	/**
+	 * Method which is called once a cube's terrain is changed.
 	 * This method notifies the terrainChangeListener and all
 	 * units of the terrain change. It further updates the
 	 * connectedToBorder instance and collapses the appropriate
@@ -899,28 +2015,74 @@ public class World implements IWorld {
 	 * @param oldTerrain The old Terrain of the cube
 	 * @param cube The cube whose terrain is changed
      */
-	private void onTerrainChange(Terrain oldTerrain, Cube cube){
-		int x = (int)cube.getPosition().X();
-		int y = (int)cube.getPosition().Y();
-		int z = (int)cube.getPosition().Z();
-		if(oldTerrain!=null) {// Notify terrainChangeListener and units of change
-			if(terrainChangeListener!=null)
-				terrainChangeListener.notifyTerrainChanged(x, y, z);
-
-			for(Unit unit : units)
-				unit.notifyTerrainChange(oldTerrain, cube);
+	void onTerrainChange(Terrain oldTerrain, Cube cube){
+		int x = terrainStorage.getX(cube.getIndex());
+		int y = terrainStorage.getY(cube.getIndex());
+		int z = terrainStorage.getZ(cube.getIndex());
+		Terrain newTerrain = cube.getTerrain();
+		// Update the passable, standable and walkable cubes before anyone is notified:
+		if(newTerrain.isPassable() != oldTerrain.isPassable()){
+			passableCubes.set(cube.getIndex(), newTerrain.isPassable());
+			updateStandable(cube.getIndex());
+			forEachDirectlyAdjacentCube(cube.getIndex(), this::updateStandable);
+			updateWalkableDirections(x, y, z);
+			terrainEpoch++;
+			if(hierarchicalPathFinder != null)
+				hierarchicalPathFinder.notifyTerrainChange(x, y, z);
+			if(pathCache != null)
+				pathCache.notifyTerrainChange(x, y, z);
+			if(landmarks != null)
+				landmarks.notifyTerrainChange(x, y, z);
+			if(componentLabels != null)
+				componentLabels.notifyTerrainChange(x, y, z);
+			if(flowFieldRegistry != null)
+				flowFieldRegistry.notifyTerrainChange(x, y, z);
+			for(DistanceField field : new DistanceField[]{workshopDistanceField, logDistanceField, boulderDistanceField})
+				if(field != null)
+					field.notifyTerrainChange(x, y, z);
 		}
-		if (cube.isPassable() && (oldTerrain==null || !oldTerrain.isPassable())){
-			List<int[]> changingCubes = connectedToBorder.changeSolidToPassable(x, y, z);
-			for (int[] coord : changingCubes){
-				Cube changingCube = this.getCube(new Vector(coord));
-				if(!changingCube.isCollapsing())
-					changingCube.collapse();
-			}
-			this.passableList.add(cube.getPosition());
+		if(oldTerrain == Terrain.WORKSHOP && newTerrain != Terrain.WORKSHOP){
+			this.workshops.remove(cube);
+			if(workshopDistanceField != null)
+				workshopDistanceField.removeSource(cube.getIndex());
+		}else if(oldTerrain != Terrain.WORKSHOP && newTerrain == Terrain.WORKSHOP){
+			this.workshops.add(cube);
+			if(workshopDistanceField != null)
+				workshopDistanceField.addSource(cube.getIndex());
+		}
+		// Notify terrainChangeListener and units of change
+		if(terrainChangeListener!=null)
+			terrainChangeListener.notifyTerrainChanged(x, y, z);
+		for(Unit unit : units)
+			unit.notifyTerrainChange(oldTerrain, cube);
+
+		if (newTerrain.isPassable() && !oldTerrain.isPassable()){
+			nbPassableCubes++;
+			collapseCubes(connectedToBorder.changeSolidToPassable(x, y, z));
 		}
-		else if (!cube.isPassable() && (oldTerrain==null || oldTerrain.isPassable()))
+		else if (!newTerrain.isPassable() && oldTerrain.isPassable()) {
+			nbPassableCubes--;
 			connectedToBorder.changePassableToSolid(x, y, z);
+		}
+	}
+
+	/**
+	 * Collapse the solid cubes with the given coordinates, which are not
+	 * collapsing yet.
+	 * @param coordinates A list of cube coordinates.
+	 * @effect | for each coord in coordinates:
+	 * 		   |	if(!getCube(coord).isPassable() && !getCube(coord).isCollapsing())
+	 * 		   |		then getCube(coord).collapse()
+	 */
+	private void collapseCubes(List<int[]> coordinates){
+		for (int[] coord : coordinates){
+			int index = terrainStorage.getIndex(coord[0], coord[1], coord[2]);
+			if(terrainStorage.isPassable(index))
+				continue;// Only solid cubes can collapse
+			Cube changingCube = this.getCube(index);
+			if(!changingCube.isCollapsing())
+				changingCube.collapse();
+		}
 	}
 
 	/**
@@ -937,7 +2099,7 @@ public class World implements IWorld {
 	 * @param z
 	 *            The z-coordinate of the cube to test
 	 * @return true if the cube is connected; false otherwise
-	 * @see ConnectedToBorder#isSolidConnectedToBorder(int, int, int)
+	 * @see IndexedConnectedToBorder#isSolidConnectedToBorder(int, int, int)
 	 */
 	public boolean isSolidConnectedToBorder(int x, int y, int z){
 		return this.connectedToBorder.isSolidConnectedToBorder(x, y, z);
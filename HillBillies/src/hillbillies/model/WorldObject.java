@@ -1,6 +1,7 @@
 package hillbillies.model;
 
 import be.kuleuven.cs.som.annotate.*;
+import hillbillies.utils.Position;
 import hillbillies.utils.Vector;
 
 import java.util.*;
@@ -71,14 +72,40 @@ public abstract class WorldObject implements IWorldObject {
      */
     protected abstract boolean validatePosition(Vector position);
 
+    /**
+     * Subclasses can override this method to check the validity of the given
+     * position without converting it to a Vector.
+     * @param position The position to check
+     * @pre The given position is effective and already checked
+     *      inside the current world.
+     *      | position != null && this.getWorld().isValidPosition(position.X(), position.Y(), position.Z())
+     * @return True if the given position is a valid position
+     *          for this worldObject.
+     *          | result == validatePosition(position.asVector())
+     */
+    protected boolean validatePosition(Position position){
+        return this.validatePosition(position.asVector());
+    }
+
     /**
      * Return the position of this WorldObject.
+     * @note Vectors are immutable, so the returned Vector is not a copy.
      */
     @Basic
     @Raw
     @Override
     public Vector getPosition() {
-        return this.position.clone();
+        return this.position.asVector();
+    }
+
+    /**
+     * Return the position of this WorldObject as a Position. Unlike getPosition,
+     * this accessor never allocates.
+     * @return | result.asVector().equals(getPosition())
+     */
+    @Raw
+    public Position position() {
+        return this.position;
     }
     /**
      * Check whether the given position is a valid position for
@@ -92,6 +119,19 @@ public abstract class WorldObject implements IWorldObject {
     public boolean isValidPosition(Vector position) {
         return position!= null && this.world.isValidPosition(position) && this.validatePosition(position);
     }
+
+    /**
+     * Check whether this WorldObject can have the given position as its position.
+     *
+     * @param position
+     * The position to check.
+     * @return
+     * | result == isValidPosition(position.asVector())
+     */
+    public boolean canHaveAsPosition(Position position) {
+        return position!= null && this.world.isValidPosition(position.X(), position.Y(), position.Z()) &&
+                this.validatePosition(position);
+    }
     /**
      * Set the position of this WorldObject to the given position.
      *
@@ -108,12 +148,28 @@ public abstract class WorldObject implements IWorldObject {
     public void setPosition(Vector position) throws IllegalArgumentException {
         if (! isValidPosition(position))
             throw new IllegalArgumentException("The given position is an invalid position for this WorldObject.");
+        this.position = new Position(position);
+    }
+    /**
+     * Set the position of this WorldObject to the given position.
+     *
+     * @param position
+     * The new position for this WorldObject.
+     * @effect | setPosition(position.asVector())
+     * @throws IllegalArgumentException * The given position is not a valid position for any
+     * WorldObject.
+     * | ! canHaveAsPosition(position)
+     */
+    @Raw
+    public void updatePosition(Position position) throws IllegalArgumentException {
+        if (! canHaveAsPosition(position))
+            throw new IllegalArgumentException("The given position is an invalid position for this WorldObject.");
         this.position = position;
     }
     /**
      * Variable registering the position of this WorldObject.
      */
-    private Vector position;
+    private Position position;
 
     /**
      * Return the world of this WorldObject.
@@ -289,6 +345,8 @@ public abstract class WorldObject implements IWorldObject {
     	assert(material != null) && (material.getOwner() == this) && (!this.hasAsOwnedMaterial(material));
         if(getMaxNbOwnedMaterials()!=-1 && getNbOwnedMaterials()>=getMaxNbOwnedMaterials())
             throw new IllegalStateException("This WorldObject has reached its maximum number of owned Materials");
+        if(ownedMaterials.isEmpty())
+            ownedMaterials = new LinkedList<>();
     	ownedMaterials.add(material);
     }
     /**
@@ -338,8 +396,10 @@ public abstract class WorldObject implements IWorldObject {
      * | for each I,J in 0..ownedMaterials.size()-1:
      * | ( (I == J) ||
      * | (ownedMaterials.get(I) != ownedMaterials.get(J))
+     * @note The list is only created when the first material is added, most
+     *          worldObjects never own a material.
      */
-    protected final List<Material> ownedMaterials = new LinkedList<>();
+    private List<Material> ownedMaterials = Collections.emptyList();
 
     /**
      * Return the ownedMaterials of this WorldObject.
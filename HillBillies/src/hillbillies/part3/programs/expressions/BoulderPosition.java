@@ -2,36 +2,25 @@ package hillbillies.part3.programs.expressions;
 
 import java.util.Set;
 
-import hillbillies.activities.TargetMove;
 import hillbillies.model.Boulder;
-import hillbillies.utils.Vector;
+import hillbillies.model.IWorld;
+import hillbillies.pathfinding.DistanceField;
 
 /**
  * Class representing the Boulder Vector Expression
  * @author Kenneth & Bram
  * @version 1.0
  */
-public class BoulderPosition extends Expression<Vector> {
+public class BoulderPosition extends NearestPosition {
 
-	/**
-	 * 
-	 */
-	public BoulderPosition() {
-		super(Vector.class);
+	@Override
+	protected DistanceField getDistanceField(IWorld world) {
+		return world.getBoulderDistanceField();
 	}
 
 	@Override
-	public Vector evaluate() throws NullPointerException {
-		Set<Boulder> boulders = this.getRunner().getExecutingWorld().getBoulders(true);
-		if (boulders.isEmpty()){
-			this.getRunner().stop();
-			return null;
-		}
-		TargetMove targetmove = new TargetMove(this.getRunner().getExecutingUnit(), boulders);
-		Vector nearestPos = targetmove.getNearestPos();
-		if(nearestPos == null)
-			this.getRunner().stop();
-		return nearestPos;
+	protected Set<Boulder> getObjects(IWorld world) {
+		return world.getBoulders(true);
 	}
 
 }
\ No newline at end of file
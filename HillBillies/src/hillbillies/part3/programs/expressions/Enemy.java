@@ -31,8 +31,7 @@ public class Enemy extends Expression<Unit> {
 			this.getRunner().stop();
 			return null;
 		}
-		TargetMove targetmove = new TargetMove(this.getRunner().getExecutingUnit(), units);
-		Unit NearestUnit = (Unit) targetmove.getNearestObject();
+		Unit NearestUnit = (Unit) TargetMove.findNearestObject(this.getRunner().getExecutingUnit(), units);
 		if(NearestUnit == null)
 			this.getRunner().stop();
 		return NearestUnit;
@@ -2,36 +2,25 @@ package hillbillies.part3.programs.expressions;
 
 import java.util.Set;
 
-import hillbillies.activities.TargetMove;
 import hillbillies.model.Log;
-import hillbillies.utils.Vector;
+import hillbillies.model.IWorld;
+import hillbillies.pathfinding.DistanceField;
 
 /**
  * Class representing the LogPosition Vector Expression
  * @author Kenneth & Bram
  * @version 1.0
  */
-public class LogPosition extends Expression<Vector> {
+public class LogPosition extends NearestPosition {
 
-	/**
-	 * 
-	 */
-	public LogPosition() {
-		super(Vector.class);
+	@Override
+	protected DistanceField getDistanceField(IWorld world) {
+		return world.getLogDistanceField();
 	}
 
 	@Override
-	public Vector evaluate() throws NullPointerException {
-		Set<Log> logs = this.getRunner().getExecutingWorld().getLogs(true);
-		if (logs.isEmpty()){
-			this.getRunner().stop();
-			return null;
-		}
-		TargetMove targetmove = new TargetMove(this.getRunner().getExecutingUnit(), logs);
-		Vector nearestPos = targetmove.getNearestPos();
-		if(nearestPos == null)
-			this.getRunner().stop();
-		return nearestPos;
+	protected Set<Log> getObjects(IWorld world) {
+		return world.getLogs(true);
 	}
 
 }
@@ -0,0 +1,61 @@
+package hillbillies.part3.programs.expressions;
+
+import java.util.Set;
+
+import hillbillies.activities.TargetMove;
+import hillbillies.model.IWorld;
+import hillbillies.model.IWorldObject;
+import hillbillies.model.Unit;
+import hillbillies.pathfinding.DistanceField;
+import hillbillies.utils.Vector;
+
+/**
+ * Class representing a Vector Expression evaluating to the position of the nearest object
+ * of some kind which the executing unit can reach. A unit which isn't falling finds that
+ * position by walking down a distance field of the world, without searching. The distance
+ * fields only register objects lying in a cube, so falling objects are only searched for
+ * when no object of the field can be reached, unlike a search over all objects, which
+ * could also find a nearer falling log or boulder.
+ * @author Kenneth & Bram
+ * @version 1.0
+ */
+public abstract class NearestPosition extends Expression<Vector> {
+
+	/**
+	 * 
+	 */
+	public NearestPosition() {
+		super(Vector.class);
+	}
+
+	@Override
+	public Vector evaluate() throws NullPointerException {
+		IWorld world = this.getRunner().getExecutingWorld();
+		Unit unit = this.getRunner().getExecutingUnit();
+		if(!unit.isFalling()){
+			Vector nearestPos = this.getDistanceField(world).getNearestSourcePosition(unit.getPosition());
+			if(nearestPos != null)
+				return nearestPos;
+		}
+		Set<? extends IWorldObject> objects = this.getObjects(world);// Only built when the field can't help
+		if (objects.isEmpty()){
+			this.getRunner().stop();
+			return null;
+		}
+		Vector nearestPos = TargetMove.findNearestPosition(unit, objects);
+		if(nearestPos == null)
+			this.getRunner().stop();
+		return nearestPos;
+	}
+
+	/**
+	 * Return the distance field of the given world towards the objects of this expression.
+	 */
+	protected abstract DistanceField getDistanceField(IWorld world);
+
+	/**
+	 * Return all objects of this expression in the given world.
+	 */
+	protected abstract Set<? extends IWorldObject> getObjects(IWorld world);
+
+}
@@ -40,7 +40,7 @@ public class NextToPosition extends UnaryExpression<Vector, Vector> {
 				cube -> cube
 		);
 		try {
-			Vector nextTo = new TargetMove(this.getRunner().getExecutingUnit(), positions).getNearestPos();
+			Vector nextTo = TargetMove.findNearestPosition(this.getRunner().getExecutingUnit(), positions);
 			if (nextTo == null) {
 				// No accessible positions available => stop activity
 				this.getRunner().stop();
@@ -0,0 +1,325 @@
+package hillbillies.pathfinding;
+
+import be.kuleuven.cs.som.annotate.Basic;
+import be.kuleuven.cs.som.annotate.Immutable;
+import hillbillies.model.IWorld;
+import hillbillies.model.World;
+import hillbillies.utils.Vector;
+
+import java.util.Arrays;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Class searching shortest paths between the cubes of a world with A*. Cubes are
+ * identified by their index in the world and every move to a neighbouring cube costs 1,
+ * so the length of a path is its number of moves.
+ *
+ * The heuristic is the 3D octile distance for a grid in which diagonal moves cost as much
+ * as straight moves, i.e. the Chebyshev distance to the bounding box of the targets. It never
+ * overestimates the remaining number of moves and is consistent, so cubes are never expanded
+ * twice and the found paths are as short as the paths found by a breadth-first search.
+ *
+ * The state of the search is kept in arrays indexed by cube index, which are allocated once
+ * and reused by every search. Instead of clearing them, every search uses a new epoch: a
+ * cube whose stamp is not equal to the current epoch has not been reached yet.
+ * @author Kenneth & Bram
+ * @version 1.0
+ */
+public class AStarPathFinder {
+
+    /**
+     * Constant reflecting the largest epoch, after which all stamps are cleared.
+     */
+    private static final int MAX_EPOCH = Integer.MAX_VALUE >>> 1;
+    /**
+     * Array registering for each neighbouring direction the opposite direction.
+     */
+    private static final byte[] OPPOSITE_DIRECTIONS = new byte[World.NB_NEIGHBOURING_DIRECTIONS];
+    static {
+        for(int d = 0; d < World.NB_NEIGHBOURING_DIRECTIONS; d++){
+            Vector direction = World.getNeighbouringDirection(d);
+            for(int e = 0; e < World.NB_NEIGHBOURING_DIRECTIONS; e++){
+                Vector opposite = World.getNeighbouringDirection(e);
+                if(opposite.cubeX() == -direction.cubeX() && opposite.cubeY() == -direction.cubeY() && opposite.cubeZ() == -direction.cubeZ())
+                    OPPOSITE_DIRECTIONS[d] = (byte)e;
+            }
+        }
+    }
+
+    /**
+     * Variable referencing the world in which paths are searched.
+     */
+    private final IWorld world;
+    /**
+     * Array registering for each cube the epoch in which it was reached, shifted
+     * left by one. The lowest bit is set once the cube is expanded.
+     */
+    private final int[] stamps;
+    /**
+     * Array registering for each reached cube the length of the shortest known path to it.
+     */
+    private final int[] distances;
+    /**
+     * Array registering for each reached cube the direction from which it was reached.
+     */
+    private final byte[] parentDirections;
+    /**
+     * Heap containing the reached cubes which are not expanded yet.
+     */
+    private final IndexedBinaryHeap open;
+    /**
+     * Variable registering the epoch of the current search.
+     */
+    private int epoch = 0;
+    /**
+     * Array registering the cubes reached by the last search, apart from its source.
+     */
+    private int[] reachedCubes = new int[64];
+    /**
+     * Variable registering the number of cubes reached by the last search.
+     */
+    private int nbReachedCubes = 0;
+    /**
+     * Variables registering the bounding box of the targets of the current search.
+     */
+    private int minX, minY, minZ, maxX, maxY, maxZ;
+    /**
+     * Variable referencing the landmarks used by the current search, or null if it only uses
+     * the distance to the bounding box of the targets.
+     */
+    private Landmarks landmarks = null;
+    /**
+     * Array containing the distances from the landmarks to the target of the current search.
+     */
+    private int[] targetLandmarkDistances;
+    /**
+     * Variable registering the number of cubes expanded by the last search.
+     */
+    private int nbExpandedCubes = 0;
+
+    /**
+     * Initialize a new path finder for the given world.
+     * @param world The world in which paths will be searched.
+     * @post | new.getWorld() == world
+     * @throws NullPointerException
+     *          | world == null
+     */
+    public AStarPathFinder(IWorld world) throws NullPointerException {
+        this.world = world;
+        int nbCubeIndices = world.getNbCubeIndices();
+        this.stamps = new int[nbCubeIndices];
+        this.distances = new int[nbCubeIndices];
+        this.parentDirections = new byte[nbCubeIndices];
+        this.open = new IndexedBinaryHeap(nbCubeIndices);
+    }
+
+    /**
+     * Return the world in which this path finder searches paths.
+     */
+    @Basic @Immutable
+    public IWorld getWorld(){
+        return this.world;
+    }
+
+    /**
+     * Search a shortest path from the given source cube to the nearest of the given target cubes.
+     * @param source The index of the cube to start from.
+     * @param targets The indices of the target cubes.
+     * @param walkableDirections Operator returning for the index of a cube the directions in which
+     *                           one can move from that cube, as in IWorld.getWalkableDirections.
+     * @return Null if none of the targets can be reached, otherwise the indices of the cubes
+     *          on a shortest path from the source to a target, excluding the source and ending
+     *          with the reached target. If the source is a target, the result is empty.
+     *          | if(result != null) then
+     *          |   (result.length == 0 || contains(targets, result[result.length-1])) &&
+     *          |   for each i in 0..result.length-1:
+     *          |       world.areNeighbouringCubes(i == 0 ? source : result[i-1], result[i])
+     * @throws IllegalArgumentException
+     *          When no targets are given.
+     *          | targets.length == 0
+     */
+    public int[] findPath(int source, int[] targets, IntUnaryOperator walkableDirections) throws IllegalArgumentException {
+        return this.findPath(source, targets, walkableDirections, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Search a shortest path from the given source cube to the nearest of the given target cubes,
+     * giving up after expanding the given number of cubes. Bounding the search keeps local repairs
+     * cheap when the targets turn out to be far away or unreachable.
+     * @param source The index of the cube to start from.
+     * @param targets The indices of the target cubes.
+     * @param walkableDirections Operator returning for the index of a cube the directions in which
+     *                           one can move from that cube, as in IWorld.getWalkableDirections.
+     * @param maxNbExpandedCubes The maximum number of cubes to expand.
+     * @return Null if none of the targets is reached before expanding maxNbExpandedCubes cubes,
+     *          otherwise the result of findPath(source, targets, walkableDirections).
+     * @throws IllegalArgumentException
+     *          When no targets are given.
+     *          | targets.length == 0
+     */
+    public int[] findPath(int source, int[] targets, IntUnaryOperator walkableDirections, int maxNbExpandedCubes) throws IllegalArgumentException {
+        if(targets.length == 0)
+            throw new IllegalArgumentException("At least one target must be given.");
+        this.startSearch(targets);
+        int[] sortedTargets = targets.clone();
+        Arrays.sort(sortedTargets);
+        this.reach(source, 0);
+        this.nbExpandedCubes = 0;
+        while(!this.open.isEmpty()){
+            int current = this.open.poll();
+            if(Arrays.binarySearch(sortedTargets, current) >= 0)
+                return this.reconstructPath(source, current);
+            if(this.nbExpandedCubes == maxNbExpandedCubes)
+                return null;
+            this.nbExpandedCubes++;
+            this.stamps[current] |= 1;
+            int distance = this.distances[current] + 1;
+            for(int directions = walkableDirections.applyAsInt(current); directions != 0; directions &= directions - 1){
+                int direction = Integer.numberOfTrailingZeros(directions);
+                int next = this.world.getNeighbouringCube(current, direction);
+                int stamp = this.stamps[next];
+                if(stamp == this.epoch << 1){
+                    if(distance >= this.distances[next])
+                        continue;
+                }else if(stamp == (this.epoch << 1 | 1))
+                    continue;// Already expanded, the heuristic is consistent
+                else
+                    this.addReachedCube(next);
+                this.parentDirections[next] = (byte)direction;
+                this.reach(next, distance);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Search a shortest path from the given source cube to the given target cube, walking in the
+     * directions given by IWorld.getWalkableDirections. The search is guided by the lower bounds
+     * of the given landmarks, which are refreshed first, so long searches expand fewer cubes.
+     * @param source The index of the cube to start from.
+     * @param target The index of the target cube.
+     * @param landmarks The landmarks of the world of this path finder.
+     * @return The result of findPath(source, new int[]{target}, getWorld()::getWalkableDirections).
+     * @throws IllegalArgumentException
+     *          When the landmarks belong to another world.
+     *          | landmarks.getWorld() != getWorld()
+     */
+    public int[] findPath(int source, int target, Landmarks landmarks) throws IllegalArgumentException {
+        if(landmarks.getWorld() != this.world)
+            throw new IllegalArgumentException("The given landmarks belong to another world.");
+        landmarks.refresh(source);
+        this.landmarks = landmarks;
+        this.targetLandmarkDistances = landmarks.getDistances(target);
+        try{
+            return this.findPath(source, new int[]{target}, this.world::getWalkableDirections);
+        }finally{
+            this.landmarks = null;
+        }
+    }
+
+    /**
+     * Return the number of cubes expanded by the last search.
+     */
+    @Basic
+    public int getNbExpandedCubes(){
+        return this.nbExpandedCubes;
+    }
+
+    /**
+     * Return the number of cubes reached by the last search, apart from its source.
+     */
+    @Basic
+    public int getNbReachedCubes(){
+        return this.nbReachedCubes;
+    }
+
+    /**
+     * Return the index of the reached cube with the given number.
+     * @param i The number of the reached cube, in the order in which the cubes were reached.
+     * @throws IndexOutOfBoundsException
+     *          | i < 0 || i >= getNbReachedCubes()
+     */
+    public int getReachedCube(int i) throws IndexOutOfBoundsException {
+        if(i < 0 || i >= this.nbReachedCubes)
+            throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + this.nbReachedCubes);
+        return this.reachedCubes[i];
+    }
+
+    /**
+     * Return the neighbouring direction opposite to the given direction.
+     * @param direction The number of the neighbouring direction.
+     */
+    static int getOppositeDirection(int direction){
+        return OPPOSITE_DIRECTIONS[direction];
+    }
+
+    /**
+     * Start a new search towards the given targets.
+     */
+    private void startSearch(int[] targets){
+        if(++this.epoch > MAX_EPOCH){
+            Arrays.fill(this.stamps, 0);
+            this.epoch = 1;
+        }
+        this.open.clear();
+        this.nbReachedCubes = 0;
+        this.minX = this.minY = this.minZ = Integer.MAX_VALUE;
+        this.maxX = this.maxY = this.maxZ = Integer.MIN_VALUE;
+        for(int target : targets){
+            int x = this.world.getCubeX(target), y = this.world.getCubeY(target), z = this.world.getCubeZ(target);
+            this.minX = Math.min(this.minX, x);
+            this.minY = Math.min(this.minY, y);
+            this.minZ = Math.min(this.minZ, z);
+            this.maxX = Math.max(this.maxX, x);
+            this.maxY = Math.max(this.maxY, y);
+            this.maxZ = Math.max(this.maxZ, z);
+        }
+    }
+
+    /**
+     * Register the given distance for the given cube and (re)insert it in the open heap.
+     * Cubes with the same estimated total length are ordered by decreasing distance,
+     * so the search goes deep before it goes wide.
+     */
+    private void reach(int cube, int distance){
+        this.stamps[cube] = this.epoch << 1;
+        this.distances[cube] = distance;
+        long estimate = distance + this.getHeuristic(cube);
+        this.open.offer(cube, estimate << 32 | (Integer.MAX_VALUE - distance));
+    }
+
+    /**
+     * Return the Chebyshev distance from the given cube to the bounding box of the targets, or
+     * the lower bound of the landmarks if that's larger. The maximum of both is still consistent.
+     */
+    private int getHeuristic(int cube){
+        int x = this.world.getCubeX(cube), y = this.world.getCubeY(cube), z = this.world.getCubeZ(cube);
+        int dx = Math.max(0, Math.max(this.minX - x, x - this.maxX));
+        int dy = Math.max(0, Math.max(this.minY - y, y - this.maxY));
+        int dz = Math.max(0, Math.max(this.minZ - z, z - this.maxZ));
+        int heuristic = Math.max(dx, Math.max(dy, dz));
+        if(this.landmarks != null)
+            heuristic = Math.max(heuristic, this.landmarks.getLowerBound(cube, this.targetLandmarkDistances));
+        return heuristic;
+    }
+
+    private void addReachedCube(int cube){
+        if(this.nbReachedCubes == this.reachedCubes.length)
+            this.reachedCubes = Arrays.copyOf(this.reachedCubes, 2*this.nbReachedCubes);
+        this.reachedCubes[this.nbReachedCubes++] = cube;
+    }
+
+    /**
+     * Follow the parent directions from the given target back to the given source.
+     */
+    private int[] reconstructPath(int source, int target){
+        int[] path = new int[this.distances[target]];
+        int cube = target;
+        for(int i = path.length - 1; i >= 0; i--){
+            path[i] = cube;
+            cube = this.world.getNeighbouringCube(cube, OPPOSITE_DIRECTIONS[this.parentDirections[cube]]);
+        }
+        assert cube == source;
+        return path;
+    }
+}
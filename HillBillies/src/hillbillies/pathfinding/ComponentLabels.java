@@ -0,0 +1,461 @@
+package hillbillies.pathfinding;
+
+import be.kuleuven.cs.som.annotate.Basic;
+import be.kuleuven.cs.som.annotate.Immutable;
+import hillbillies.model.IWorld;
+
+import java.util.*;
+
+import static hillbillies.utils.Utils.randInt;
+
+/**
+ * Class labelling the connected components of the walkable graph of a world: two cubes in
+ * which a unit can stand get the same component if and only if a unit can walk from one to
+ * the other. Checking whether a path exists between two cubes then takes constant time,
+ * instead of a search through the whole reachable region when no path exists.
+ *
+ * Every standable cube has a label, and the labels of one component are joined in a
+ * union-find structure. After a terrain change, new walkable moves simply join the labels of
+ * both sides. Removed moves can split a component, but mostly the remaining cubes around the
+ * change are still connected nearby, which is checked with a small local search. Only when that
+ * check fails, the component is marked dirty, and it's only labelled again when one of its cubes
+ * is queried. Every piece of a split component contains one of the cubes around the change, so
+ * the searches relabelling the component start from those cubes.
+ *
+ * Every component also keeps a list of its cubes, so a random cube of a component can be
+ * picked in constant time. When two components are joined, the cubes of the smallest one are
+ * added to the list of the other one. In the same way every component keeps a list of its
+ * labels. Once a component has no cubes left, e.g. after it's labelled again, none of its
+ * labels is used anymore, so they're all retired and handed out again as new labels.
+ * @author Kenneth & Bram
+ * @version 1.0
+ *
+ * @invar Two standable cubes are in the same component if and only if a unit can walk from one to the other.
+ * | for each a, b: areConnected(a, b) == (a == b || (getWorld().isCubeStandable(a) && getWorld().isCubeStandable(b)
+ * |    && getWorld().getPathFinder().findPath(a, new int[]{b}, getWorld()::getWalkableDirections) != null))
+ */
+public class ComponentLabels {
+
+    /**
+     * Constant reflecting the number of cube indices in one page of labels.
+     */
+    private static final int PAGE_SIZE = 1 << 12;
+    /**
+     * Constant reflecting the radius around a changed cube in which walkable directions can change.
+     */
+    private static final int CHANGE_RADIUS = 2;
+    /**
+     * Constant reflecting the radius around a changed cube in which the local search checks
+     * whether the cubes around the change are still connected.
+     */
+    private static final int LOCAL_RADIUS = 6;
+
+    /**
+     * Variable referencing the world of these labels.
+     */
+    private final IWorld world;
+    /**
+     * Array containing the pages of labels, the label 0 means the cube isn't standable.
+     */
+    private final int[][] pages;
+    /**
+     * Array containing the pages of the positions of the cubes in the cube lists of their components.
+     */
+    private final int[][] positionPages;
+    /**
+     * Array registering for every label its parent in the union-find structure.
+     * Labels which are their own parent are the roots of their component.
+     */
+    private int[] parents = new int[64];
+    /**
+     * Arrays registering for every root label the cubes of its component and the number of them.
+     */
+    private int[][] members = new int[64][];
+    private int[] nbMembers = new int[64];
+    /**
+     * Arrays registering for every root label the labels of its component and the number of them.
+     */
+    private int[][] componentLabels = new int[64][];
+    private int[] nbComponentLabels = new int[64];
+    /**
+     * Variable registering the number of labels which were handed out, including the unused label 0.
+     */
+    private int nbLabels = 1;
+    /**
+     * Array containing the retired labels, which are handed out again before new ones, and the number of them.
+     */
+    private int[] freeLabels = new int[0];
+    private int nbFreeLabels = 0;
+    /**
+     * Map registering for every dirty component the cubes from which it's labelled again.
+     */
+    private final Map<Integer, Set<Integer>> dirtyComponents = new HashMap<>();
+    /**
+     * Variable registering the number of components which were labelled again.
+     */
+    private int nbRelabellings = 0;
+
+    /**
+     * Initialize new labels for the components of the given world, which are labelled right away.
+     * @param world The world of these new labels.
+     * @post | new.getWorld() == world
+     * @throws NullPointerException
+     *          | world == null
+     */
+    public ComponentLabels(IWorld world) throws NullPointerException {
+        if(world == null)
+            throw new NullPointerException("The given world must be effective.");
+        this.world = world;
+        this.pages = new int[(world.getNbCubeIndices() + PAGE_SIZE - 1) / PAGE_SIZE][];
+        this.positionPages = new int[this.pages.length][];
+        for(int cube = 0; cube < world.getNbCubeIndices(); cube++)
+            if(this.getLabel(cube) == 0 && world.isCubeStandable(cube))
+                this.label(cube, this.newLabel(), 0);
+    }
+
+    /**
+     * Return the world of these labels.
+     */
+    @Basic @Immutable
+    public IWorld getWorld(){
+        return this.world;
+    }
+
+    /**
+     * Return the number of components which were labelled again after they were split.
+     */
+    @Basic
+    public int getNbRelabellings(){
+        return this.nbRelabellings;
+    }
+
+    /**
+     * Return the number of labels which are in use by a component.
+     */
+    public int getNbLabels(){
+        return this.nbLabels - 1 - this.nbFreeLabels;
+    }
+
+    /**
+     * Return the number of dirty components, which will be labelled again when they're queried.
+     */
+    public int getNbDirtyComponents(){
+        return this.dirtyComponents.size();
+    }
+
+    /**
+     * Return the component of the cube with the given index. The component of a cube can change
+     * after terrain changes, even if the cube stays connected to the same cubes.
+     * @param cube The index of the cube.
+     * @return -1 if a unit can't stand in the given cube, otherwise the component of the cube.
+     *          | if(!getWorld().isCubeStandable(cube)) then result == -1
+     *          | else for each other: getComponent(other) == result == areConnected(cube, other)
+     */
+    public int getComponent(int cube){
+        int label = this.getLabel(cube);
+        if(label == 0)
+            return -1;
+        int component = this.find(label);
+        if(this.dirtyComponents.containsKey(component)){
+            this.relabel(component);
+            component = this.find(this.getLabel(cube));
+        }
+        return component;
+    }
+
+    /**
+     * Return the number of cubes in the component of the cube with the given index.
+     * @param cube The index of the cube.
+     * @return | result == card({ other | areConnected(cube, other) && getWorld().isCubeStandable(other) })
+     */
+    public int getComponentSize(int cube){
+        int component = this.getComponent(cube);
+        return component == -1 ? 0 : this.nbMembers[component];
+    }
+
+    /**
+     * Return a random cube of the component of the cube with the given index. Every cube of
+     * the component is equally likely.
+     * @param cube The index of the cube.
+     * @return The given cube if a unit can't stand in it, otherwise a random cube connected to it.
+     *          | if(!getWorld().isCubeStandable(cube)) then result == cube
+     *          | else areConnected(cube, result) && getWorld().isCubeStandable(result)
+     */
+    public int getRandomCube(int cube){
+        int component = this.getComponent(cube);
+        if(component == -1)
+            return cube;
+        return this.members[component][randInt(0, this.nbMembers[component] - 1)];
+    }
+
+    /**
+     * Check whether a unit can walk from the cube with the given index to the other cube.
+     * @param cube The index of the cube to start from.
+     * @param other The index of the other cube.
+     * @return | result == (cube == other || (getComponent(cube) != -1 && getComponent(cube) == getComponent(other)))
+     */
+    public boolean areConnected(int cube, int other){
+        if(cube == other)
+            return true;
+        if(this.getComponent(cube) == -1 || this.getComponent(other) == -1)
+            return false;
+        return this.find(this.getLabel(cube)) == this.find(this.getLabel(other));// Both components are labelled again by now
+    }
+
+    /**
+     * Update the labels after the terrain of the cube with the given coordinates has changed.
+     * The walkable directions of the world must already be updated.
+     * @param x The x-coordinate of the changed cube.
+     * @param y The y-coordinate of the changed cube.
+     * @param z The z-coordinate of the changed cube.
+     */
+    public void notifyTerrainChange(int x, int y, int z){
+        List<Integer> box = this.getCubesAround(x, y, z, CHANGE_RADIUS);
+        Set<Integer> oldComponents = new HashSet<>();
+        for(int cube : box){
+            int label = this.getLabel(cube);
+            if(label != 0){
+                oldComponents.add(this.find(label));
+                if(!this.world.isCubeStandable(cube))
+                    this.assign(cube, 0);
+            }
+        }
+        for(int cube : box)
+            if(this.world.isCubeStandable(cube) && this.getLabel(cube) == 0)
+                this.assign(cube, this.newLabel());
+        for(int cube : box){// Join the components of both sides of every move, new moves included
+            int label = this.getLabel(cube);
+            for(int directions = this.world.getWalkableDirections(cube); directions != 0; directions &= directions - 1)
+                this.union(label, this.getLabel(this.world.getNeighbouringCube(cube, Integer.numberOfTrailingZeros(directions))), cube);
+        }
+        Set<Integer> components = new HashSet<>();
+        for(int component : oldComponents)
+            components.add(this.find(component));
+        for(int component : components){
+            if(this.nbMembers[component] == 0){// The last cubes of the component became unstandable
+                this.dirtyComponents.remove(component);
+                this.retire(component);
+                continue;
+            }
+            List<Integer> remaining = new ArrayList<>();
+            for(int cube : box)
+                if(this.getLabel(cube) != 0 && this.find(this.getLabel(cube)) == component)
+                    remaining.add(cube);
+            if(!this.isLocallyConnected(remaining, x, y, z))
+                this.dirtyComponents.computeIfAbsent(component, c -> new HashSet<>()).addAll(remaining);
+        }
+    }
+
+    /**
+     * Check whether the given cubes are connected by moves between cubes which are at most
+     * LOCAL_RADIUS away from the cube with the given coordinates.
+     */
+    private boolean isLocallyConnected(List<Integer> cubes, int x, int y, int z){
+        if(cubes.size() <= 1)
+            return true;
+        Set<Integer> remaining = new HashSet<>(cubes);
+        Set<Integer> visited = new HashSet<>();
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        visited.add(cubes.get(0));
+        queue.add(cubes.get(0));
+        remaining.remove(cubes.get(0));
+        while(!queue.isEmpty() && !remaining.isEmpty()){
+            int cube = queue.remove();
+            for(int directions = this.world.getWalkableDirections(cube); directions != 0; directions &= directions - 1){
+                int next = this.world.getNeighbouringCube(cube, Integer.numberOfTrailingZeros(directions));
+                if(Math.abs(this.world.getCubeX(next) - x) > LOCAL_RADIUS || Math.abs(this.world.getCubeY(next) - y) > LOCAL_RADIUS
+                        || Math.abs(this.world.getCubeZ(next) - z) > LOCAL_RADIUS || !visited.add(next))
+                    continue;
+                remaining.remove(next);
+                queue.add(next);
+            }
+        }
+        return remaining.isEmpty();
+    }
+
+    /**
+     * Label the given dirty component again, giving every piece of it a new label.
+     */
+    private void relabel(int component){
+        for(int seed : this.dirtyComponents.remove(component)){
+            int label = this.getLabel(seed);
+            if(label != 0 && this.find(label) == component)
+                this.label(seed, this.newLabel(), component);
+        }
+        if(this.nbMembers[component] == 0)// Every piece contained a seed, so every cube has a new label
+            this.retire(component);
+        this.nbRelabellings++;
+    }
+
+    /**
+     * Retire all labels of the given component, which has no cubes left.
+     */
+    private void retire(int component){
+        for(int i = 0; i < this.nbComponentLabels[component]; i++){
+            if(this.nbFreeLabels == this.freeLabels.length)
+                this.freeLabels = Arrays.copyOf(this.freeLabels, Math.max(16, 2*this.freeLabels.length));
+            this.freeLabels[this.nbFreeLabels++] = this.componentLabels[component][i];
+        }
+        this.members[component] = null;
+        this.componentLabels[component] = null;
+        this.nbComponentLabels[component] = 0;
+    }
+
+    /**
+     * Give the given label to the given cube and all cubes connected to it which are unlabelled,
+     * if the given component is 0, or which are in the given component otherwise.
+     */
+    private void label(int start, int label, int component){
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        this.assign(start, label);
+        queue.add(start);
+        while(!queue.isEmpty()){
+            int cube = queue.remove();
+            for(int directions = this.world.getWalkableDirections(cube); directions != 0; directions &= directions - 1){
+                int next = this.world.getNeighbouringCube(cube, Integer.numberOfTrailingZeros(directions));
+                int nextLabel = this.getLabel(next);
+                if(component == 0 ? nextLabel == 0 : nextLabel != 0 && this.find(nextLabel) == component){
+                    this.assign(next, label);
+                    queue.add(next);
+                }
+            }
+        }
+    }
+
+    /**
+     * Join the components of both given labels, at the given cube. When one of both components
+     * is dirty, the joined component is dirty too, and also labelled again from the given cube.
+     */
+    private void union(int label, int other, int cube){
+        int root = this.find(label), otherRoot = this.find(other);
+        if(root == otherRoot)
+            return;
+        if(this.nbMembers[root] < this.nbMembers[otherRoot]){// The smallest component joins the largest one
+            int swap = root;
+            root = otherRoot;
+            otherRoot = swap;
+        }
+        this.parents[otherRoot] = root;
+        for(int i = 0; i < this.nbMembers[otherRoot]; i++)
+            this.addMember(root, this.members[otherRoot][i]);
+        this.members[otherRoot] = null;
+        this.nbMembers[otherRoot] = 0;
+        for(int i = 0; i < this.nbComponentLabels[otherRoot]; i++)
+            this.addComponentLabel(root, this.componentLabels[otherRoot][i]);
+        this.componentLabels[otherRoot] = null;
+        this.nbComponentLabels[otherRoot] = 0;
+        Set<Integer> seeds = this.dirtyComponents.remove(root), otherSeeds = this.dirtyComponents.remove(otherRoot);
+        if(seeds != null || otherSeeds != null){
+            Set<Integer> joinedSeeds = seeds != null ? seeds : new HashSet<>();
+            if(otherSeeds != null)
+                joinedSeeds.addAll(otherSeeds);
+            joinedSeeds.add(cube);
+            this.dirtyComponents.put(root, joinedSeeds);
+        }
+    }
+
+    /**
+     * Return the root of the given label, halving the path to the root on the way.
+     */
+    private int find(int label){
+        while(this.parents[label] != label){
+            this.parents[label] = this.parents[this.parents[label]];
+            label = this.parents[label];
+        }
+        return label;
+    }
+
+    /**
+     * Return a new root label without cubes, reusing a retired label if there is one.
+     */
+    private int newLabel(){
+        int label;
+        if(this.nbFreeLabels > 0)
+            label = this.freeLabels[--this.nbFreeLabels];
+        else{
+            if(this.nbLabels == this.parents.length){
+                this.parents = Arrays.copyOf(this.parents, 2*this.parents.length);
+                this.members = Arrays.copyOf(this.members, this.parents.length);
+                this.nbMembers = Arrays.copyOf(this.nbMembers, this.parents.length);
+                this.componentLabels = Arrays.copyOf(this.componentLabels, this.parents.length);
+                this.nbComponentLabels = Arrays.copyOf(this.nbComponentLabels, this.parents.length);
+            }
+            label = this.nbLabels++;
+        }
+        this.parents[label] = label;
+        this.addComponentLabel(label, label);
+        return label;
+    }
+
+    /**
+     * Give the given label to the cube with the given index, moving it from the cube list of its
+     * old component to the one of the given label, which must be a root.
+     */
+    private void assign(int cube, int label){
+        int oldLabel = this.getLabel(cube);
+        if(oldLabel != 0){// Move the last cube of the list to the place of the removed one
+            int component = this.find(oldLabel), position = this.getPosition(cube);
+            int last = this.members[component][--this.nbMembers[component]];
+            this.members[component][position] = last;
+            this.setPosition(last, position);
+        }
+        this.setLabel(cube, label);
+        if(label != 0)
+            this.addMember(label, cube);
+    }
+
+    private void addMember(int component, int cube){
+        int[] cubes = this.members[component];
+        if(cubes == null)
+            cubes = this.members[component] = new int[4];
+        else if(this.nbMembers[component] == cubes.length)
+            cubes = this.members[component] = Arrays.copyOf(cubes, 2*cubes.length);
+        this.setPosition(cube, this.nbMembers[component]);
+        cubes[this.nbMembers[component]++] = cube;
+    }
+
+    private void addComponentLabel(int component, int label){
+        int[] labels = this.componentLabels[component];
+        if(labels == null)
+            labels = this.componentLabels[component] = new int[4];
+        else if(this.nbComponentLabels[component] == labels.length)
+            labels = this.componentLabels[component] = Arrays.copyOf(labels, 2*labels.length);
+        labels[this.nbComponentLabels[component]++] = label;
+    }
+
+    private List<Integer> getCubesAround(int x, int y, int z, int radius){
+        List<Integer> cubes = new ArrayList<>();
+        for(int cz = z - radius; cz <= z + radius; cz++)
+            for(int cy = y - radius; cy <= y + radius; cy++)
+                for(int cx = x - radius; cx <= x + radius; cx++)
+                    if(this.world.isValidCube(cx, cy, cz))
+                        cubes.add(this.world.getCubeIndex(cx, cy, cz));
+        return cubes;
+    }
+
+    private int getLabel(int cube){
+        int[] page = this.pages[cube / PAGE_SIZE];
+        return page == null ? 0 : page[cube % PAGE_SIZE];
+    }
+
+    private int getPosition(int cube){
+        return this.positionPages[cube / PAGE_SIZE][cube % PAGE_SIZE];
+    }
+
+    private void setPosition(int cube, int position){
+        int[] page = this.positionPages[cube / PAGE_SIZE];
+        if(page == null)
+            page = this.positionPages[cube / PAGE_SIZE] = new int[PAGE_SIZE];
+        page[cube % PAGE_SIZE] = position;
+    }
+
+    private void setLabel(int cube, int label){
+        int[] page = this.pages[cube / PAGE_SIZE];
+        if(page == null){
+            if(label == 0)
+                return;
+            page = this.pages[cube / PAGE_SIZE] = new int[PAGE_SIZE];
+        }
+        page[cube % PAGE_SIZE] = label;
+    }
+}
@@ -0,0 +1,312 @@
+package hillbillies.pathfinding;
+
+import be.kuleuven.cs.som.annotate.Basic;
+import be.kuleuven.cs.som.annotate.Immutable;
+import hillbillies.model.IWorld;
+
+import java.util.Arrays;
+
+/**
+ * Class searching shortest paths towards a fixed set of goal cubes with D* Lite, for a
+ * start cube which moves along the path. The search runs backwards from the goals, so
+ * after the terrain changes only the cubes whose distance to the goals is affected are
+ * searched again, instead of everything from scratch.
+ *
+ * For every reached cube, g is the distance to the nearest goal as found by the search
+ * and rhs is the one-step lookahead 1 + min { g(n) | n walkable neighbour }. A cube is
+ * consistent if both are equal; inconsistent cubes are kept in a heap ordered by their key.
+ * Because a unit can walk from one cube to a neighbouring cube if and only if it can walk
+ * back, the neighbours of a cube are both its predecessors and successors.
+ *
+ * The heuristic is the Chebyshev distance to the start, as in AStarPathFinder. When the
+ * start moves, the heuristic of every cube decreases by at most the distance moved, which
+ * is added to all new keys instead of recomputing the keys in the heap.
+ *
+ * The values of g and rhs are stored in pages of PAGE_SIZE cube indices, which are only
+ * allocated once the search reaches one of their cubes.
+ * @author Kenneth & Bram
+ * @version 1.0
+ */
+public class DStarLitePathFinder {
+
+    /**
+     * Constant reflecting the number of cube indices in one page of values.
+     */
+    private static final int PAGE_SIZE = 1 << 12;
+    /**
+     * Constant reflecting the distance of unreachable cubes.
+     */
+    private static final int INFINITY = Integer.MAX_VALUE;
+    /**
+     * Constant reflecting the radius around a changed cube in which walkable directions can change.
+     */
+    private static final int CHANGE_RADIUS = 2;
+
+    /**
+     * Variable referencing the world in which paths are searched.
+     */
+    private final IWorld world;
+    /**
+     * Array containing the sorted indices of the goal cubes.
+     */
+    private final int[] goals;
+    /**
+     * Array containing the pages of values. Each page stores g and rhs plus one of
+     * every cube next to each other, so the value 0 of a new page means infinity.
+     */
+    private final int[][] pages;
+    /**
+     * Heap containing the inconsistent cubes.
+     */
+    private final IndexedBinaryHeap open;
+    /**
+     * Variable registering the start of the last search, or -1 if no search happened yet.
+     */
+    private int start = -1;
+    /**
+     * Variable registering the total decrease of the heuristic since the search started.
+     */
+    private int keyModifier = 0;
+    /**
+     * Variable registering the number of cubes expanded by the last search.
+     */
+    private int nbExpandedCubes = 0;
+
+    /**
+     * Initialize a new path finder for the given world towards the given goals.
+     * @param world The world in which paths will be searched.
+     * @param goals The indices of the goal cubes.
+     * @post | new.getWorld() == world && new.getGoals() equals sorted(goals)
+     * @throws NullPointerException
+     *          | world == null || goals == null
+     * @throws IllegalArgumentException
+     *          When no goals are given.
+     *          | goals.length == 0
+     */
+    public DStarLitePathFinder(IWorld world, int... goals) throws NullPointerException, IllegalArgumentException {
+        if(goals.length == 0)
+            throw new IllegalArgumentException("At least one goal must be given.");
+        this.world = world;
+        this.goals = goals.clone();
+        Arrays.sort(this.goals);
+        this.pages = new int[(world.getNbCubeIndices() + PAGE_SIZE - 1) / PAGE_SIZE][];
+        this.open = new IndexedBinaryHeap(world.getNbCubeIndices());
+    }
+
+    /**
+     * Return the world in which this path finder searches paths.
+     */
+    @Basic @Immutable
+    public IWorld getWorld(){
+        return this.world;
+    }
+
+    /**
+     * Return the sorted indices of the goal cubes of this path finder.
+     */
+    @Basic @Immutable
+    public int[] getGoals(){
+        return this.goals.clone();
+    }
+
+    /**
+     * Check whether the cube with the given index is a goal of this path finder.
+     * @param cube The index of the cube.
+     */
+    public boolean isGoal(int cube){
+        return Arrays.binarySearch(this.goals, cube) >= 0;
+    }
+
+    /**
+     * Return the number of cubes expanded by the last search.
+     */
+    @Basic
+    public int getNbExpandedCubes(){
+        return this.nbExpandedCubes;
+    }
+
+    /**
+     * Search a shortest path from the given start cube to the nearest goal. Only the part of
+     * the search which is affected by the terrain changes and the moves of the start since
+     * the previous search is redone.
+     * @param start The index of the cube to start from.
+     * @return Null if none of the goals can be reached, otherwise the indices of the cubes
+     *          on a shortest path from the start to a goal, in the format of AStarPathFinder.findPath.
+     *          | if(result != null) then
+     *          |   (result.length == 0 || isGoal(result[result.length-1])) &&
+     *          |   for each i in 0..result.length-1:
+     *          |       world.areNeighbouringCubes(i == 0 ? start : result[i-1], result[i])
+     */
+    public int[] findPath(int start){
+        if(this.start < 0){
+            for(int goal : this.goals){
+                this.setRhs(goal, 0);
+                this.open.update(goal, this.getKey(goal, start));
+            }
+        }else
+            this.keyModifier += this.getHeuristic(this.start, start);
+        this.start = start;
+        this.computeShortestPath();
+        int distance = this.getG(start);
+        if(distance == INFINITY)
+            return null;
+        int[] path = new int[distance];
+        int cube = start;
+        for(int i = 0; i < distance; i++){
+            int next = -1;
+            for(int directions = this.world.getWalkableDirections(cube); directions != 0 && next < 0; directions &= directions - 1){
+                int neighbour = this.world.getNeighbouringCube(cube, Integer.numberOfTrailingZeros(directions));
+                if(this.getG(neighbour) == distance - i - 1)
+                    next = neighbour;
+            }
+            assert next >= 0;
+            path[i] = cube = next;
+        }
+        return path;
+    }
+
+    /**
+     * Update the search after the terrain of the cube with the given coordinates has changed.
+     * The walkable directions of the world must already be updated. The affected cubes are
+     * only searched again by the next call of findPath.
+     * @param x The x-coordinate of the changed cube.
+     * @param y The y-coordinate of the changed cube.
+     * @param z The z-coordinate of the changed cube.
+     */
+    public void notifyTerrainChange(int x, int y, int z){
+        if(this.start < 0)
+            return;
+        // Both cubes of every walkable move which appeared or disappeared lie inside this box:
+        for(int cz = z - CHANGE_RADIUS; cz <= z + CHANGE_RADIUS; cz++)
+            for(int cy = y - CHANGE_RADIUS; cy <= y + CHANGE_RADIUS; cy++)
+                for(int cx = x - CHANGE_RADIUS; cx <= x + CHANGE_RADIUS; cx++)
+                    if(world.isValidCube(cx, cy, cz)){
+                        int cube = this.world.getCubeIndex(cx, cy, cz);
+                        if(!this.isGoal(cube) && this.setRhs(cube, this.getLookahead(cube)))
+                            this.updateCube(cube);
+                    }
+    }
+
+    /**
+     * Expand the inconsistent cubes until the start is consistent and no cube with a lower
+     * key than the start is inconsistent.
+     */
+    private void computeShortestPath(){
+        this.nbExpandedCubes = 0;
+        while(!this.open.isEmpty()){
+            int cube = this.open.peek();
+            long key = this.open.getPriority(cube);
+            int g = this.getG(cube), rhs = this.getRhs(cube);
+            if(key >= this.getKey(this.start, this.start) && this.getRhs(this.start) == this.getG(this.start))
+                break;
+            long newKey = this.getKey(cube, this.start);
+            if(key < newKey){
+                this.open.update(cube, newKey);
+                continue;
+            }
+            this.nbExpandedCubes++;
+            if(g > rhs){// The cube got closer to a goal
+                this.setG(cube, rhs);
+                this.open.remove(cube);
+                for(int directions = this.world.getWalkableDirections(cube); directions != 0; directions &= directions - 1){
+                    int neighbour = this.world.getNeighbouringCube(cube, Integer.numberOfTrailingZeros(directions));
+                    if(!this.isGoal(neighbour) && rhs + 1 < this.getRhs(neighbour)){
+                        this.setRhs(neighbour, rhs + 1);
+                        this.updateCube(neighbour);
+                    }
+                }
+            }else{// The cube got further from the goals
+                this.setG(cube, INFINITY);
+                if(!this.isGoal(cube))
+                    this.setRhs(cube, this.getLookahead(cube));
+                this.updateCube(cube);
+                for(int directions = this.world.getWalkableDirections(cube); directions != 0; directions &= directions - 1){
+                    int neighbour = this.world.getNeighbouringCube(cube, Integer.numberOfTrailingZeros(directions));
+                    if(!this.isGoal(neighbour) && this.getRhs(neighbour) == g + 1 && this.setRhs(neighbour, this.getLookahead(neighbour)))
+                        this.updateCube(neighbour);
+                }
+            }
+        }
+    }
+
+    /**
+     * Add the given cube to the heap if it's inconsistent, or remove it from the heap otherwise.
+     */
+    private void updateCube(int cube){
+        if(this.getG(cube) != this.getRhs(cube))
+            this.open.update(cube, this.getKey(cube, this.start));
+        else
+            this.open.remove(cube);
+    }
+
+    /**
+     * Return 1 + min { g(n) | n walkable neighbour of the given cube }.
+     */
+    private int getLookahead(int cube){
+        int lookahead = INFINITY;
+        for(int directions = this.world.getWalkableDirections(cube); directions != 0; directions &= directions - 1){
+            int g = this.getG(this.world.getNeighbouringCube(cube, Integer.numberOfTrailingZeros(directions)));
+            if(g != INFINITY)
+                lookahead = Math.min(lookahead, g + 1);
+        }
+        return lookahead;
+    }
+
+    /**
+     * Return the key of the given cube for a search towards the given start. Keys are ordered
+     * by the estimated length of a path through the cube, and then by the distance to a goal.
+     */
+    private long getKey(int cube, int start){
+        int distance = Math.min(this.getG(cube), this.getRhs(cube));
+        if(distance == INFINITY)
+            return Long.MAX_VALUE;
+        return (long)(distance + this.getHeuristic(cube, start) + this.keyModifier) << 32 | distance;
+    }
+
+    /**
+     * Return the Chebyshev distance between the given cubes.
+     */
+    private int getHeuristic(int cube, int other){
+        int dx = Math.abs(this.world.getCubeX(cube) - this.world.getCubeX(other));
+        int dy = Math.abs(this.world.getCubeY(cube) - this.world.getCubeY(other));
+        int dz = Math.abs(this.world.getCubeZ(cube) - this.world.getCubeZ(other));
+        return Math.max(dx, Math.max(dy, dz));
+    }
+
+    private int getG(int cube){
+        return this.getValue(2*(cube % PAGE_SIZE), cube / PAGE_SIZE);
+    }
+
+    private int getRhs(int cube){
+        return this.getValue(2*(cube % PAGE_SIZE) + 1, cube / PAGE_SIZE);
+    }
+
+    private void setG(int cube, int g){
+        this.setValue(2*(cube % PAGE_SIZE), cube / PAGE_SIZE, g);
+    }
+
+    /**
+     * Set the rhs of the given cube and return whether it has changed.
+     */
+    private boolean setRhs(int cube, int rhs){
+        if(this.getRhs(cube) == rhs)
+            return false;
+        this.setValue(2*(cube % PAGE_SIZE) + 1, cube / PAGE_SIZE, rhs);
+        return true;
+    }
+
+    private int getValue(int offset, int page){
+        int[] values = this.pages[page];
+        return values == null || values[offset] == 0 ? INFINITY : values[offset] - 1;
+    }
+
+    private void setValue(int offset, int page, int value){
+        int[] values = this.pages[page];
+        if(values == null){
+            if(value == INFINITY)
+                return;
+            values = this.pages[page] = new int[2*PAGE_SIZE];
+        }
+        values[offset] = value == INFINITY ? 0 : value + 1;
+    }
+}
@@ -0,0 +1,427 @@
+package hillbillies.pathfinding;
+
+import be.kuleuven.cs.som.annotate.Basic;
+import be.kuleuven.cs.som.annotate.Immutable;
+import hillbillies.model.IWorld;
+import hillbillies.utils.BitField;
+import hillbillies.utils.Vector;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Class registering for every cube of a world the walking distance to the nearest of
+ * a set of source cubes, e.g. all workshops. Because a unit can walk from one cube to a
+ * neighbouring cube if and only if it can walk back, the field is computed with a
+ * breadth-first search starting from all sources at once. The nearest source of a cube
+ * is found by walking down the field: every cube with a finite, non-zero distance has a
+ * walkable neighbour whose distance is one lower.
+ *
+ * The field is updated incrementally. Adding a source or walkable moves only lowers the
+ * distances around them. Removing a source or walkable moves first invalidates the cubes
+ * which lost every neighbour their distance depended on, after which only those cubes are
+ * recomputed from their valid neighbours.
+ *
+ * The distances are stored in pages of PAGE_SIZE cube indices, pages without any reachable
+ * cube are not allocated. A field can be bounded by a maximal distance, in which case cubes
+ * farther away from every source are registered as unreachable. The searches of a bounded
+ * field never leave the region within its maximal distance of the sources.
+ * @author Kenneth & Bram
+ * @version 1.0
+ *
+ * @invar The distance of every source is 0.
+ * | for each cube: isSource(cube) ==> getDistance(cube) == 0
+ * @invar No cube is farther away than the maximal distance of the field.
+ * | for each cube: getDistance(cube) <= getMaxDistance()
+ * @invar The distance of every other reachable cube is one more than the lowest distance
+ *          of its walkable neighbours.
+ * | for each cube: !isSource(cube) && getDistance(cube) >= 0 ==>
+ * |    getDistance(cube) == 1 + min { getDistance(n) >= 0 | n walkable neighbour of cube }
+ * @invar Every cube whose lowest walkable neighbour lies at the maximal distance is unreachable.
+ * | for each cube: !isSource(cube) && min { getDistance(n) >= 0 | n walkable neighbour of cube } == getMaxDistance() ==>
+ * |    getDistance(cube) == -1
+ */
+public class DistanceField {
+
+    /**
+     * Constant reflecting the number of cube indices in one page of distances.
+     */
+    private static final int PAGE_SIZE = 1 << 12;
+    /**
+     * Constant reflecting the distance of unreachable cubes.
+     */
+    private static final int UNREACHABLE = Integer.MAX_VALUE;
+    /**
+     * Constant reflecting the radius around a changed cube in which walkable directions can change.
+     */
+    private static final int CHANGE_RADIUS = 2;
+
+    /**
+     * Variable referencing the world of this field.
+     */
+    private final IWorld world;
+    /**
+     * Variable registering the maximal distance of this field.
+     */
+    private final int maxDistance;
+    /**
+     * Bit field registering the sources of this field.
+     */
+    private final BitField sources;
+    /**
+     * Variable registering the number of sources of this field.
+     */
+    private int nbSources = 0;
+    /**
+     * Array containing the pages of distances. Each page stores the distance plus one,
+     * so the value 0 of a new page means unreachable.
+     */
+    private final int[][] pages;
+    /**
+     * Queues used by the updates, containing pairs of a cube and its distance.
+     */
+    private int[] seeds = new int[64], queue = new int[64];
+    private int nbSeeds = 0, queueHead = 0, queueTail = 0;
+
+    /**
+     * Initialize a new distance field for the given world without sources and without
+     * a maximal distance.
+     * @param world The world of this new field.
+     * @effect | this(world, Integer.MAX_VALUE - 1)
+     */
+    public DistanceField(IWorld world) throws NullPointerException {
+        this(world, UNREACHABLE - 1);
+    }
+
+    /**
+     * Initialize a new distance field for the given world without sources, registering
+     * the distances up to the given maximal distance.
+     * @param world The world of this new field.
+     * @param maxDistance The maximal distance of this new field.
+     * @post | new.getWorld() == world && new.getMaxDistance() == maxDistance && new.getNbSources() == 0
+     * @throws NullPointerException
+     *          | world == null
+     * @throws IllegalArgumentException
+     *          | maxDistance < 0 || maxDistance == Integer.MAX_VALUE
+     */
+    public DistanceField(IWorld world, int maxDistance) throws NullPointerException, IllegalArgumentException {
+        if(maxDistance < 0 || maxDistance == UNREACHABLE)
+            throw new IllegalArgumentException("The given maximal distance is invalid.");
+        this.world = world;
+        this.maxDistance = maxDistance;
+        this.sources = new BitField(world.getNbCubeIndices());
+        this.pages = new int[(world.getNbCubeIndices() + PAGE_SIZE - 1) / PAGE_SIZE][];
+    }
+
+    /**
+     * Return the world of this field.
+     */
+    @Basic @Immutable
+    public IWorld getWorld(){
+        return this.world;
+    }
+
+    /**
+     * Return the maximal distance of this field.
+     */
+    @Basic @Immutable
+    public int getMaxDistance(){
+        return this.maxDistance;
+    }
+
+    /**
+     * Return the number of sources of this field.
+     */
+    @Basic
+    public int getNbSources(){
+        return this.nbSources;
+    }
+
+    /**
+     * Check whether the cube with the given index is a source of this field.
+     * @param cube The index of the cube.
+     */
+    public boolean isSource(int cube){
+        return this.sources.get(cube);
+    }
+
+    /**
+     * Return the walking distance from the cube with the given index to the nearest source,
+     * or -1 if no source can be reached from that cube within the maximal distance.
+     * @param cube The index of the cube.
+     */
+    public int getDistance(int cube){
+        int distance = this.getStoredDistance(cube);
+        return distance == UNREACHABLE ? -1 : distance;
+    }
+
+    /**
+     * Return the index of the neighbouring cube to walk to from the cube with the given
+     * index to get closer to the nearest source, or -1 if the given cube is a source or
+     * can't reach a source.
+     * @param cube The index of the cube.
+     * @return | if(getDistance(cube) <= 0) then result == -1
+     *         | else getDistance(result) == getDistance(cube) - 1
+     */
+    public int getNextCube(int cube){
+        int distance = this.getStoredDistance(cube);
+        if(distance == 0 || distance == UNREACHABLE)
+            return -1;
+        for(int directions = world.getWalkableDirections(cube); directions != 0; directions &= directions - 1){
+            int next = world.getNeighbouringCube(cube, Integer.numberOfTrailingZeros(directions));
+            if(this.getStoredDistance(next) == distance - 1)
+                return next;
+        }
+        throw new IllegalStateException("The distance field is inconsistent.");
+    }
+
+    /**
+     * Return the index of the nearest source of the cube with the given index, found by
+     * walking down this field, or -1 if no source can be reached from that cube.
+     * @param cube The index of the cube.
+     * @return | if(getDistance(cube) == -1) then result == -1
+     *         | else isSource(result) && (result == cube || result == getNearestSource(getNextCube(cube)))
+     */
+    public int getNearestSource(int cube){
+        if(this.getStoredDistance(cube) == UNREACHABLE)
+            return -1;
+        while(!this.isSource(cube))
+            cube = this.getNextCube(cube);
+        return cube;
+    }
+
+    /**
+     * Return the cube coordinates of the nearest source of the cube containing the given
+     * position, or null if no source can be reached from that cube.
+     * @param position The position to start from.
+     * @return | let cube = getNearestSource(getWorld().getCubeIndex(position)) in
+     *         |    if(cube == -1) then result == null
+     *         |    else result.equals(new Vector(getWorld().getCubeX(cube), getWorld().getCubeY(cube), getWorld().getCubeZ(cube)))
+     * @throws IllegalArgumentException
+     *          When the given position is not a valid position in the world of this field.
+     *          | !getWorld().isValidPosition(position)
+     */
+    public Vector getNearestSourcePosition(Vector position) throws IllegalArgumentException {
+        int cube = this.getNearestSource(this.world.getCubeIndex(position));
+        if(cube == -1)
+            return null;
+        return new Vector(this.world.getCubeX(cube), this.world.getCubeY(cube), this.world.getCubeZ(cube));
+    }
+
+    /**
+     * Add the cube with the given index as a source of this field.
+     * @param cube The index of the cube.
+     * @post | new.isSource(cube) && new.getDistance(cube) == 0
+     */
+    public void addSource(int cube){
+        this.addSources(new int[]{cube});
+    }
+
+    /**
+     * Add the cubes with the given indices as sources of this field. The distances
+     * are lowered with a single search starting from all new sources.
+     * @param cubes The indices of the cubes.
+     * @post | for each cube in cubes: new.isSource(cube) && new.getDistance(cube) == 0
+     */
+    public void addSources(int[] cubes){
+        this.nbSeeds = 0;
+        for(int cube : cubes){
+            if(this.isSource(cube))
+                continue;
+            this.sources.set(cube);
+            this.nbSources++;
+            this.setStoredDistance(cube, 0);
+            this.addSeed(cube, 0);
+        }
+        this.propagate();
+    }
+
+    /**
+     * Remove the cube with the given index as a source of this field.
+     * @param cube The index of the cube.
+     * @post | !new.isSource(cube)
+     */
+    public void removeSource(int cube){
+        if(!this.isSource(cube))
+            return;
+        this.sources.clear(cube);
+        this.nbSources--;
+        this.resetQueue();
+        this.enqueue(cube, 0);
+        this.repair(new int[0], 0);
+    }
+
+    /**
+     * Update this field after the terrain of the cube with the given coordinates has changed.
+     * The walkable directions of the world must already be updated.
+     * @param x The x-coordinate of the changed cube.
+     * @param y The y-coordinate of the changed cube.
+     * @param z The z-coordinate of the changed cube.
+     */
+    public void notifyTerrainChange(int x, int y, int z){
+        this.notifyTerrainChanges(new int[]{world.getCubeIndex(x, y, z)});
+    }
+
+    /**
+     * Update this field after the terrain of the cubes with the given indices has changed,
+     * repairing the regions around all of them at once. The walkable directions of the world
+     * must already be updated.
+     * @param cubes The indices of the changed cubes.
+     */
+    public void notifyTerrainChanges(int[] cubes){
+        // Both cubes of every walkable move which appeared or disappeared lie inside these boxes:
+        Set<Integer> box = new LinkedHashSet<>();
+        for(int cube : cubes){
+            int x = world.getCubeX(cube), y = world.getCubeY(cube), z = world.getCubeZ(cube);
+            for(int cz = z - CHANGE_RADIUS; cz <= z + CHANGE_RADIUS; cz++)
+                for(int cy = y - CHANGE_RADIUS; cy <= y + CHANGE_RADIUS; cy++)
+                    for(int cx = x - CHANGE_RADIUS; cx <= x + CHANGE_RADIUS; cx++)
+                        if(world.isValidCube(cx, cy, cz))
+                            box.add(world.getCubeIndex(cx, cy, cz));
+        }
+        int[] boxCubes = new int[box.size()];
+        int nbBoxCubes = 0;
+        this.resetQueue();
+        for(int cube : box){
+            boxCubes[nbBoxCubes++] = cube;
+            this.enqueue(cube, 0);
+        }
+        this.repair(boxCubes, nbBoxCubes);
+    }
+
+    /**
+     * Invalidate the cubes in the queue which are no longer supported by a neighbour, and
+     * recursively the cubes depending on them. Afterwards, recompute the invalidated cubes
+     * and lower the distances around the given cubes, of which some walkable moves are new.
+     */
+    private void repair(int[] changedCubes, int nbChangedCubes){
+        int[] invalidated = new int[16];
+        int nbInvalidated = 0;
+        while(this.queueHead < this.queueTail){
+            int cube = this.queue[this.queueHead];
+            this.queueHead += 2;
+            int distance = this.getStoredDistance(cube);
+            if(distance == UNREACHABLE || this.isSupported(cube, distance))
+                continue;
+            this.setStoredDistance(cube, UNREACHABLE);
+            if(nbInvalidated == invalidated.length)
+                invalidated = Arrays.copyOf(invalidated, 2*nbInvalidated);
+            invalidated[nbInvalidated++] = cube;
+            for(int directions = world.getWalkableDirections(cube); directions != 0; directions &= directions - 1){
+                int next = world.getNeighbouringCube(cube, Integer.numberOfTrailingZeros(directions));
+                if(this.getStoredDistance(next) == distance + 1)
+                    this.enqueue(next, 0);
+            }
+        }
+        this.nbSeeds = 0;
+        for(int i = 0; i < nbInvalidated; i++){
+            int cube = invalidated[i];
+            int best = UNREACHABLE;
+            for(int directions = world.getWalkableDirections(cube); directions != 0; directions &= directions - 1){
+                int distance = this.getStoredDistance(world.getNeighbouringCube(cube, Integer.numberOfTrailingZeros(directions)));
+                if(distance != UNREACHABLE)
+                    best = Math.min(best, distance + 1);
+            }
+            if(best <= this.maxDistance){
+                this.setStoredDistance(cube, best);
+                this.addSeed(cube, best);
+            }
+        }
+        for(int i = 0; i < nbChangedCubes; i++){
+            int distance = this.getStoredDistance(changedCubes[i]);
+            if(distance != UNREACHABLE)
+                this.addSeed(changedCubes[i], distance);
+        }
+        this.propagate();
+    }
+
+    /**
+     * Check whether the given distance of the given cube is still supported, i.e. whether the
+     * cube is a source or has a walkable neighbour whose distance is one lower.
+     */
+    private boolean isSupported(int cube, int distance){
+        if(this.isSource(cube))
+            return true;
+        for(int directions = world.getWalkableDirections(cube); directions != 0; directions &= directions - 1){
+            if(this.getStoredDistance(world.getNeighbouringCube(cube, Integer.numberOfTrailingZeros(directions))) == distance - 1)
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Lower the distances around the seeds with a breadth-first search. The seeds are sorted on
+     * their distance and merged with the queue, so cubes are handled in order of their distance.
+     */
+    private void propagate(){
+        long[] sorted = new long[this.nbSeeds / 2];
+        for(int i = 0; i < sorted.length; i++)
+            sorted[i] = (long)this.seeds[2*i+1] << 32 | this.seeds[2*i];
+        Arrays.sort(sorted);
+        this.resetQueue();
+        int nextSeed = 0;
+        while(nextSeed < sorted.length || this.queueHead < this.queueTail){
+            int cube, distance;
+            if(this.queueHead == this.queueTail || (nextSeed < sorted.length && (int)(sorted[nextSeed] >>> 32) < this.queue[this.queueHead+1])){
+                cube = (int)sorted[nextSeed];
+                distance = (int)(sorted[nextSeed++] >>> 32);
+            }else{
+                cube = this.queue[this.queueHead];
+                distance = this.queue[this.queueHead+1];
+                this.queueHead += 2;
+            }
+            if(this.getStoredDistance(cube) != distance)
+                continue;// A shorter distance was found after this cube was queued
+            if(distance == this.maxDistance)
+                continue;// The neighbours lie beyond the bound of this field
+            for(int directions = world.getWalkableDirections(cube); directions != 0; directions &= directions - 1){
+                int next = world.getNeighbouringCube(cube, Integer.numberOfTrailingZeros(directions));
+                if(distance + 1 < this.getStoredDistance(next)){
+                    this.setStoredDistance(next, distance + 1);
+                    this.enqueue(next, distance + 1);
+                }
+            }
+        }
+    }
+
+    private void addSeed(int cube, int distance){
+        if(this.nbSeeds + 2 > this.seeds.length)
+            this.seeds = Arrays.copyOf(this.seeds, 2*this.seeds.length);
+        this.seeds[this.nbSeeds++] = cube;
+        this.seeds[this.nbSeeds++] = distance;
+    }
+
+    private void resetQueue(){
+        this.queueHead = this.queueTail = 0;
+    }
+
+    private void enqueue(int cube, int distance){
+        if(this.queueTail + 2 > this.queue.length){
+            if(this.queueHead > 0){// Reuse the consumed part of the queue first
+                System.arraycopy(this.queue, this.queueHead, this.queue, 0, this.queueTail - this.queueHead);
+                this.queueTail -= this.queueHead;
+                this.queueHead = 0;
+            }
+            if(this.queueTail + 2 > this.queue.length)
+                this.queue = Arrays.copyOf(this.queue, 2*this.queue.length);
+        }
+        this.queue[this.queueTail++] = cube;
+        this.queue[this.queueTail++] = distance;
+    }
+
+    private int getStoredDistance(int cube){
+        int[] page = this.pages[cube / PAGE_SIZE];
+        return page == null || page[cube % PAGE_SIZE] == 0 ? UNREACHABLE : page[cube % PAGE_SIZE] - 1;
+    }
+
+    private void setStoredDistance(int cube, int distance){
+        int[] page = this.pages[cube / PAGE_SIZE];
+        if(page == null){
+            if(distance == UNREACHABLE)
+                return;
+            page = this.pages[cube / PAGE_SIZE] = new int[PAGE_SIZE];
+        }
+        page[cube % PAGE_SIZE] = distance == UNREACHABLE ? 0 : distance + 1;
+    }
+}
@@ -0,0 +1,196 @@
+package hillbillies.pathfinding;
+
+import be.kuleuven.cs.som.annotate.Basic;
+import be.kuleuven.cs.som.annotate.Immutable;
+import hillbillies.model.IWorld;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Class sharing flow fields between units walking to the same target cube. A flow field is
+ * a distance field with the target as its only source: one reverse search from the target
+ * gives every unit its path by walking down the field, instead of a search per unit.
+ *
+ * A single unit is faster off with its own search, so a field is only created once a target
+ * is requested a second time during the same tick. Once created, the field is shared by every
+ * request for its target until the last requester releases it.
+ *
+ * The flow fields only reach MAX_DISTANCE cubes far, so creating one never searches more
+ * than a bounded region around its target, however large the component of the target is.
+ * Units farther away from the target get no path from the field and search their own.
+ * @author Kenneth & Bram
+ * @version 1.0
+ *
+ * @invar Every flow field of this registry is referenced by at least one requester.
+ * | for each target: hasFlowField(target) == (getNbReferences(target) > 0)
+ */
+public class FlowFieldRegistry {
+
+    /**
+     * Constant reflecting the number of requests for the same target during one tick
+     * from which on a flow field is created.
+     */
+    public static final int MIN_NB_REQUESTS = 2;
+    /**
+     * Constant reflecting the maximal walking distance from their target registered by
+     * the flow fields.
+     */
+    public static final int MAX_DISTANCE = 4*HierarchicalPathFinder.CLUSTER_SIZE;
+
+    /**
+     * Variable referencing the world of this registry.
+     */
+    private final IWorld world;
+    /**
+     * Map containing the flow fields of this registry, keyed by the index of their target.
+     */
+    private final Map<Integer, FlowField> flowFields = new HashMap<>();
+    /**
+     * Map registering the number of requests for every target during the current tick.
+     */
+    private final Map<Integer, Integer> nbRequests = new HashMap<>();
+
+    /**
+     * Initialize a new registry without flow fields for the given world.
+     * @param world The world of this new registry.
+     * @post | new.getWorld() == world && new.getNbFlowFields() == 0
+     * @throws NullPointerException
+     *          | world == null
+     */
+    public FlowFieldRegistry(IWorld world) throws NullPointerException {
+        if(world == null)
+            throw new NullPointerException("The given world must be effective.");
+        this.world = world;
+    }
+
+    /**
+     * Return the world of this registry.
+     */
+    @Basic @Immutable
+    public IWorld getWorld(){
+        return this.world;
+    }
+
+    /**
+     * Return the number of flow fields of this registry.
+     */
+    public int getNbFlowFields(){
+        return this.flowFields.size();
+    }
+
+    /**
+     * Check whether this registry has a flow field towards the cube with the given index.
+     * @param target The index of the target cube.
+     */
+    public boolean hasFlowField(int target){
+        return this.flowFields.containsKey(target);
+    }
+
+    /**
+     * Return the flow field towards the cube with the given index, or null if this registry
+     * has no such flow field. The flow field is not held for the caller, so it should only be
+     * used right away.
+     * @param target The index of the target cube.
+     */
+    public DistanceField getFlowField(int target){
+        FlowField flowField = this.flowFields.get(target);
+        return flowField == null ? null : flowField.field;
+    }
+
+    /**
+     * Return the number of requesters holding the flow field towards the cube with the given index.
+     * @param target The index of the target cube.
+     */
+    public int getNbReferences(int target){
+        FlowField flowField = this.flowFields.get(target);
+        return flowField == null ? 0 : flowField.nbReferences;
+    }
+
+    /**
+     * Request a path towards the cube with the given index. If a flow field towards that cube
+     * exists or it's requested often enough during this tick, the flow field is returned and
+     * held for the requester until it's released. Otherwise the requester should search its
+     * own path.
+     * @param target The index of the target cube.
+     * @return Null or the flow field towards the given target, of which the number of references
+     *          is increased by one.
+     *          | if(result != null) then
+     *          |   result.isSource(target) && result.getMaxDistance() == MAX_DISTANCE &&
+     *          |   new.getNbReferences(target) == getNbReferences(target) + 1
+     */
+    public DistanceField request(int target){
+        int nbRequests = this.nbRequests.merge(target, 1, Integer::sum);
+        FlowField flowField = this.flowFields.get(target);
+        if(flowField == null){
+            if(nbRequests < MIN_NB_REQUESTS)
+                return null;
+            flowField = new FlowField(new DistanceField(this.world, MAX_DISTANCE));
+            flowField.field.addSource(target);
+            this.flowFields.put(target, flowField);
+        }
+        flowField.nbReferences++;
+        return flowField.field;
+    }
+
+    /**
+     * Release the flow field towards the cube with the given index, held by a requester.
+     * The flow field is removed once it's no longer held by any requester.
+     * @param target The index of the target cube.
+     * @post | new.getNbReferences(target) == max(0, getNbReferences(target) - 1)
+     */
+    public void release(int target){
+        FlowField flowField = this.flowFields.get(target);
+        if(flowField != null && --flowField.nbReferences == 0)
+            this.flowFields.remove(target);
+    }
+
+    /**
+     * Start a new tick, forgetting the requests of the previous tick.
+     */
+    public void startTick(){
+        this.nbRequests.clear();
+    }
+
+    /**
+     * Update all flow fields after the terrain of the cube with the given coordinates has changed.
+     * @param x The x-coordinate of the changed cube.
+     * @param y The y-coordinate of the changed cube.
+     * @param z The z-coordinate of the changed cube.
+     * @effect | for each target: if hasFlowField(target) then flowField(target).notifyTerrainChange(x, y, z)
+     */
+    public void notifyTerrainChange(int x, int y, int z){
+        for(FlowField flowField : this.flowFields.values())
+            flowField.field.notifyTerrainChange(x, y, z);
+    }
+
+    /**
+     * Return the path from the given source cube to the nearest source of the given field.
+     * @param field The field to walk down.
+     * @param source The index of the cube to start from.
+     * @return Null if no source of the field can be reached within its maximal distance, otherwise
+     *          the indices of the cubes on a shortest path, in the format of AStarPathFinder.findPath.
+     */
+    public static int[] getPath(DistanceField field, int source){
+        int distance = field.getDistance(source);
+        if(distance < 0)
+            return null;
+        int[] path = new int[distance];
+        for(int i = 0, cube = source; i < distance; i++)
+            path[i] = cube = field.getNextCube(cube);
+        return path;
+    }
+
+    /**
+     * Class representing a flow field together with its number of references.
+     */
+    private static class FlowField {
+
+        private final DistanceField field;
+        private int nbReferences = 0;
+
+        private FlowField(DistanceField field){
+            this.field = field;
+        }
+    }
+}
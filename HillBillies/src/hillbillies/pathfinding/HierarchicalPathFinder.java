@@ -0,0 +1,647 @@
+package hillbillies.pathfinding;
+
+import be.kuleuven.cs.som.annotate.Basic;
+import be.kuleuven.cs.som.annotate.Immutable;
+import hillbillies.model.World;
+
+import java.util.*;
+
+/**
+ * Class searching paths between the cubes of a world with hierarchical path-finding (HPA*).
+ * The world is partitioned in clusters of CLUSTER_SIZE cubes along each axis. For every pair
+ * of neighbouring clusters, the moves from one cluster to the other are grouped in entrances,
+ * and the middle move of each entrance connects two entrance nodes. Inside each cluster, the
+ * distances between its entrance nodes are precomputed.
+ *
+ * Long queries are answered on this abstract graph, after which each abstract step is refined
+ * into cube moves with the AStarPathFinder of the world. The resulting paths are close to, but
+ * not always exactly, as short as the shortest paths. Queries between cubes which are less than
+ * getDistanceThreshold() apart are directly answered by the AStarPathFinder.
+ *
+ * The searches on the abstract graph and the fallback searches on the full graph are guided by
+ * the lower bounds of the landmarks of the world, besides the Chebyshev distance.
+ *
+ * When the terrain of a cube changes, only the clusters in which the walkable directions can
+ * have changed are marked dirty. Dirty clusters are rebuilt before the next query. Entrance
+ * nodes keep their number as long as their cube stays an entrance node, so a rebuild only
+ * touches the dirty clusters and their neighbours.
+ * @author Kenneth & Bram
+ * @version 1.0
+ */
+public class HierarchicalPathFinder {
+
+    /**
+     * Constant reflecting the number of cubes of a cluster along each axis.
+     */
+    public static final int CLUSTER_SIZE = 8;
+    /**
+     * Constant reflecting the default distance threshold.
+     */
+    public static final int DEFAULT_DISTANCE_THRESHOLD = 2*CLUSTER_SIZE;
+    /**
+     * Constant reflecting the radius around a changed cube in which walkable directions can change.
+     */
+    private static final int CHANGE_RADIUS = 2;
+
+    /**
+     * Variable referencing the world in which paths are searched.
+     */
+    private final World world;
+    /**
+     * Variables registering the number of clusters along each axis.
+     */
+    private final int nbClustersX, nbClustersY, nbClustersZ;
+    /**
+     * Array containing the clusters of the world, indexed by their cluster id.
+     */
+    private final Cluster[] clusters;
+    /**
+     * Map registering for every pair of neighbouring clusters the moves connecting the
+     * entrance nodes of both clusters. The key is the lowest cluster id times the number
+     * of clusters plus the highest cluster id, each value contains pairs of cube indices
+     * of which the first cube lies in the cluster with the lowest id.
+     */
+    private final Map<Long, int[]> entrances = new HashMap<>();
+    /**
+     * Set registering the ids of the dirty clusters.
+     */
+    private final Set<Integer> dirtyClusters = new TreeSet<>();
+    /**
+     * Variable registering the distance threshold of this path finder.
+     */
+    private int distanceThreshold = DEFAULT_DISTANCE_THRESHOLD;
+    /**
+     * Variable registering the number of entrance nodes.
+     */
+    private int nbNodes = 0;
+    /**
+     * Variable registering the number of node numbers handed out. Every node has a number below
+     * it, the numbers of removed nodes are free until they're handed out again. The source and
+     * target of a query get the numbers nbNodeNumbers and nbNodeNumbers+1.
+     */
+    private int nbNodeNumbers = 0;
+    /**
+     * Array containing the free node numbers in its first nbFreeNodeNumbers elements.
+     */
+    private int[] freeNodeNumbers = new int[0];
+    private int nbFreeNodeNumbers = 0;
+    /**
+     * Arrays registering for every node its cube index, the id of its cluster and its index
+     * in the nodes of that cluster.
+     */
+    private int[] nodeCubes = new int[0], nodeClusters = new int[0], nodeIndices = new int[0];
+    /**
+     * Arrays registering for every node the length of the shortest known abstract path to it
+     * and the node from which it was reached, during the current search.
+     */
+    private int[] nodeDistances = new int[2], nodeParents = new int[2];
+    /**
+     * Heap used by the searches on the abstract graph.
+     */
+    private IndexedBinaryHeap open = new IndexedBinaryHeap(2);
+    /**
+     * Array containing the distances from the landmarks of the world to the target of the current query.
+     */
+    private int[] targetLandmarkDistances;
+    /**
+     * Arrays used by the breadth-first searches inside a cluster, indexed by local cube offset.
+     */
+    private final int[] localStamps = new int[CLUSTER_SIZE*CLUSTER_SIZE*CLUSTER_SIZE],
+            localDistances = new int[CLUSTER_SIZE*CLUSTER_SIZE*CLUSTER_SIZE],
+            localQueue = new int[CLUSTER_SIZE*CLUSTER_SIZE*CLUSTER_SIZE];
+    /**
+     * Variable registering the stamp of the current breadth-first search inside a cluster.
+     */
+    private int localStamp = 0;
+
+    /**
+     * Initialize a new hierarchical path finder for the given world. All clusters are
+     * dirty, so the abstract graph is built when the first long query is answered.
+     * @param world The world in which paths will be searched.
+     * @post | new.getWorld() == world && new.getDistanceThreshold() == DEFAULT_DISTANCE_THRESHOLD
+     * @throws NullPointerException
+     *          | world == null
+     */
+    public HierarchicalPathFinder(World world) throws NullPointerException {
+        this.world = world;
+        this.nbClustersX = (world.getNbCubesX() + CLUSTER_SIZE - 1) / CLUSTER_SIZE;
+        this.nbClustersY = (world.getNbCubesY() + CLUSTER_SIZE - 1) / CLUSTER_SIZE;
+        this.nbClustersZ = (world.getNbCubesZ() + CLUSTER_SIZE - 1) / CLUSTER_SIZE;
+        this.clusters = new Cluster[nbClustersX * nbClustersY * nbClustersZ];
+        for(int id = 0; id < clusters.length; id++){
+            clusters[id] = new Cluster(id);
+            dirtyClusters.add(id);
+        }
+    }
+
+    /**
+     * Return the world in which this path finder searches paths.
+     */
+    @Basic @Immutable
+    public World getWorld(){
+        return this.world;
+    }
+
+    /**
+     * Return the distance threshold of this path finder. Queries between cubes whose
+     * Chebyshev distance is lower than this threshold don't use the abstract graph.
+     */
+    @Basic
+    public int getDistanceThreshold(){
+        return this.distanceThreshold;
+    }
+
+    /**
+     * Set the distance threshold of this path finder to the given threshold.
+     * @param distanceThreshold The new distance threshold.
+     * @post | new.getDistanceThreshold() == distanceThreshold
+     * @throws IllegalArgumentException
+     *          When the given threshold is negative.
+     *          | distanceThreshold < 0
+     */
+    public void setDistanceThreshold(int distanceThreshold) throws IllegalArgumentException {
+        if(distanceThreshold < 0)
+            throw new IllegalArgumentException("The distance threshold cannot be negative.");
+        this.distanceThreshold = distanceThreshold;
+    }
+
+    /**
+     * Return the number of clusters of this path finder.
+     */
+    @Immutable
+    public int getNbClusters(){
+        return this.clusters.length;
+    }
+
+    /**
+     * Return the number of dirty clusters, which will be rebuilt before the next long query.
+     */
+    public int getNbDirtyClusters(){
+        return this.dirtyClusters.size();
+    }
+
+    /**
+     * Return the number of entrance nodes in the abstract graph, rebuilding the dirty clusters first.
+     */
+    public int getNbEntranceNodes(){
+        this.rebuildDirtyClusters();
+        return this.nbNodes;
+    }
+
+    /**
+     * Mark the clusters in which the walkable directions can have changed after the terrain
+     * of the cube with the given coordinates has changed as dirty.
+     * @param x The x-coordinate of the changed cube.
+     * @param y The y-coordinate of the changed cube.
+     * @param z The z-coordinate of the changed cube.
+     */
+    public void notifyTerrainChange(int x, int y, int z){
+        int minCx = Math.max(0, x - CHANGE_RADIUS) / CLUSTER_SIZE, maxCx = Math.min(world.getNbCubesX() - 1, x + CHANGE_RADIUS) / CLUSTER_SIZE;
+        int minCy = Math.max(0, y - CHANGE_RADIUS) / CLUSTER_SIZE, maxCy = Math.min(world.getNbCubesY() - 1, y + CHANGE_RADIUS) / CLUSTER_SIZE;
+        int minCz = Math.max(0, z - CHANGE_RADIUS) / CLUSTER_SIZE, maxCz = Math.min(world.getNbCubesZ() - 1, z + CHANGE_RADIUS) / CLUSTER_SIZE;
+        for(int cz = minCz; cz <= maxCz; cz++)
+            for(int cy = minCy; cy <= maxCy; cy++)
+                for(int cx = minCx; cx <= maxCx; cx++)
+                    dirtyClusters.add(getClusterId(cx, cy, cz));
+    }
+
+    /**
+     * Search a path from the given source cube to the given target cube, walking in the
+     * directions given by IWorld.getWalkableDirections.
+     * @param source The index of the cube to start from.
+     * @param target The index of the target cube.
+     * @return Null if the target can't be reached, otherwise the indices of the cubes on a path
+     *          from the source to the target, excluding the source and ending with the target.
+     *          If the source is the target, the result is empty.
+     *          | if(result != null) then
+     *          |   (result.length == 0 || result[result.length-1] == target) &&
+     *          |   for each i in 0..result.length-1:
+     *          |       world.areNeighbouringCubes(i == 0 ? source : result[i-1], result[i])
+     */
+    public int[] findPath(int source, int target){
+        AStarPathFinder pathFinder = world.getPathFinder();
+        if(getChebyshevDistance(source, target) < distanceThreshold || getClusterId(source) == getClusterId(target))
+            return pathFinder.findPath(source, new int[]{target}, world::getWalkableDirections);
+        this.rebuildDirtyClusters();
+        Landmarks landmarks = world.getLandmarks();
+        landmarks.refresh(source);
+        this.targetLandmarkDistances = landmarks.getDistances(target);
+        int[] abstractPath = this.findAbstractPath(source, target);
+        if(abstractPath == null)// Entrances are only a subset of the moves between clusters, make sure
+            return pathFinder.findPath(source, target, landmarks);
+        int[] path = new int[64];
+        int length = 0;
+        for(int i = 1; i < abstractPath.length; i++){
+            int from = abstractPath[i-1], to = abstractPath[i];
+            int[] segment = pathFinder.findPath(from, new int[]{to}, world::getWalkableDirections);
+            if(segment == null)
+                return pathFinder.findPath(source, target, landmarks);
+            if(length + segment.length > path.length)
+                path = Arrays.copyOf(path, Math.max(2*path.length, length + segment.length));
+            System.arraycopy(segment, 0, path, length, segment.length);
+            length += segment.length;
+        }
+        return Arrays.copyOf(path, length);
+    }
+
+    /**
+     * Search a path from the given source to the given target on the abstract graph,
+     * extended with the source and target cubes.
+     * @return The cubes of the abstract path, starting with the source and ending with the
+     *          target, or null if the target isn't reachable on the abstract graph.
+     */
+    private int[] findAbstractPath(int source, int target){
+        Cluster sourceCluster = clusters[getClusterId(source)], targetCluster = clusters[getClusterId(target)];
+        int[] sourceDistances = this.getDistancesToNodes(sourceCluster, source);
+        int[] targetDistances = this.getDistancesToNodes(targetCluster, target);
+        int sourceNode = nbNodeNumbers, targetNode = nbNodeNumbers + 1;
+        Arrays.fill(nodeDistances, Integer.MAX_VALUE);
+        this.open.clear();
+        nodeDistances[sourceNode] = 0;
+        this.open.offer(sourceNode, getPriority(0, getHeuristic(source, target)));
+        while(!this.open.isEmpty()){
+            int current = this.open.poll();
+            if(current == targetNode)
+                return this.getAbstractPath(source, target);
+            int distance = nodeDistances[current];
+            if(current == sourceNode){
+                for(int j = 0; j < sourceCluster.nodes.length; j++)
+                    if(sourceDistances[j] >= 0)
+                        this.relax(current, sourceCluster.nodeNumbers[j], distance + sourceDistances[j], target);
+                continue;
+            }
+            Cluster cluster = clusters[nodeClusters[current]];
+            int i = nodeIndices[current];
+            for(int j = 0; j < cluster.nodes.length; j++)
+                if(j != i && cluster.distances[i][j] >= 0)
+                    this.relax(current, cluster.nodeNumbers[j], distance + cluster.distances[i][j], target);
+            for(int exit : cluster.exitNodes[i])
+                this.relax(current, exit, distance + 1, target);
+            if(cluster == targetCluster && targetDistances[i] >= 0)
+                this.relax(current, targetNode, distance + targetDistances[i], target);
+        }
+        return null;
+    }
+
+    /**
+     * Register the given distance for the given node if it's shorter than its known distance.
+     */
+    private void relax(int parent, int node, int distance, int target){
+        if(distance >= nodeDistances[node])
+            return;
+        nodeDistances[node] = distance;
+        nodeParents[node] = parent;
+        int cube = node == nbNodeNumbers + 1 ? target : nodeCubes[node];
+        this.open.offer(node, getPriority(distance, getHeuristic(cube, target)));
+    }
+
+    private int[] getAbstractPath(int source, int target){
+        ArrayDeque<Integer> path = new ArrayDeque<>();
+        path.addFirst(target);
+        for(int node = nodeParents[nbNodeNumbers + 1]; node != nbNodeNumbers; node = nodeParents[node])
+            path.addFirst(nodeCubes[node]);
+        path.addFirst(source);
+        int[] result = new int[path.size()];
+        int i = 0;
+        for(int cube : path)
+            result[i++] = cube;
+        return result;
+    }
+
+    private static long getPriority(int distance, int heuristic){
+        return (long)(distance + heuristic) << 32 | (Integer.MAX_VALUE - distance);
+    }
+
+    /**
+     * Rebuild the entrances of the dirty clusters, and the entrance nodes and distances of
+     * the dirty clusters and their neighbours. The other clusters are left untouched: their
+     * entrances didn't change, so the nodes they exit to keep their cube and number.
+     */
+    private void rebuildDirtyClusters(){
+        if(dirtyClusters.isEmpty())
+            return;
+        Set<Integer> affectedClusters = new TreeSet<>(dirtyClusters);
+        for(int id : dirtyClusters){
+            List<Integer> neighbours = getNeighbouringClusters(id);
+            for(int neighbour : neighbours)
+                entrances.remove(getEntranceKey(id, neighbour));
+            Map<Integer, List<int[]>> moves = this.getMovesToNeighbours(id);
+            for(Map.Entry<Integer, List<int[]>> entry : moves.entrySet())
+                entrances.put(getEntranceKey(id, entry.getKey()), this.selectEntrances(id, entry.getKey(), entry.getValue()));
+            affectedClusters.addAll(neighbours);
+        }
+        for(int id : affectedClusters){
+            Cluster cluster = clusters[id];
+            int[] oldNodes = cluster.nodes;
+            cluster.updateNodes();
+            if(dirtyClusters.contains(id) || !Arrays.equals(oldNodes, cluster.nodes))
+                cluster.updateDistances();
+        }
+        for(int id : affectedClusters)// Only after all nodes of the affected clusters got their number
+            clusters[id].updateExitNodes();
+        dirtyClusters.clear();
+        if(this.open.getCapacity() < nbNodeNumbers + 2){
+            this.open = new IndexedBinaryHeap(nodeCubes.length + 2);
+            this.nodeDistances = new int[nodeCubes.length + 2];
+            this.nodeParents = new int[nodeCubes.length + 2];
+        }
+    }
+
+    /**
+     * Return a free node number, or a new one if there are none.
+     */
+    private int takeNodeNumber(){
+        if(nbFreeNodeNumbers > 0)
+            return freeNodeNumbers[--nbFreeNodeNumbers];
+        if(nbNodeNumbers == nodeCubes.length){
+            int capacity = Math.max(16, 2*nodeCubes.length);
+            this.nodeCubes = Arrays.copyOf(nodeCubes, capacity);
+            this.nodeClusters = Arrays.copyOf(nodeClusters, capacity);
+            this.nodeIndices = Arrays.copyOf(nodeIndices, capacity);
+        }
+        return nbNodeNumbers++;
+    }
+
+    /**
+     * Register the given node number as free.
+     */
+    private void freeNodeNumber(int node){
+        if(nbFreeNodeNumbers == freeNodeNumbers.length)
+            this.freeNodeNumbers = Arrays.copyOf(freeNodeNumbers, Math.max(16, 2*freeNodeNumbers.length));
+        freeNodeNumbers[nbFreeNodeNumbers++] = node;
+    }
+
+    /**
+     * Return all moves from a cube in the cluster with the given id to a cube in another
+     * cluster, grouped by the id of the other cluster.
+     */
+    private Map<Integer, List<int[]>> getMovesToNeighbours(int id){
+        Map<Integer, List<int[]>> moves = new TreeMap<>();
+        Cluster cluster = clusters[id];
+        for(int z = cluster.minZ; z < cluster.maxZ; z++)
+            for(int y = cluster.minY; y < cluster.maxY; y++)
+                for(int x = cluster.minX; x < cluster.maxX; x++){
+                    if(x != cluster.minX && x != cluster.maxX - 1 && y != cluster.minY && y != cluster.maxY - 1 &&
+                            z != cluster.minZ && z != cluster.maxZ - 1)
+                        continue;// Only cubes on the border of a cluster can leave it
+                    int cube = world.getCubeIndex(x, y, z);
+                    for(int directions = world.getWalkableDirections(cube); directions != 0; directions &= directions - 1){
+                        int next = world.getNeighbouringCube(cube, Integer.numberOfTrailingZeros(directions));
+                        int nextId = getClusterId(next);
+                        if(nextId != id)
+                            moves.computeIfAbsent(nextId, k -> new ArrayList<>()).add(new int[]{cube, next});
+                    }
+                }
+        return moves;
+    }
+
+    /**
+     * Group the given moves between the given clusters in entrances and return the middle move
+     * of each entrance, oriented from the cluster with the lowest id. Two moves belong to the
+     * same entrance if both their start and end cubes are equal or neighbouring cubes. The
+     * selection doesn't depend on the cluster from which the moves were collected.
+     */
+    private int[] selectEntrances(int id, int otherId, List<int[]> moves){
+        if(id > otherId)
+            for(int[] move : moves){
+                int cube = move[0];
+                move[0] = move[1];
+                move[1] = cube;
+            }
+        moves.sort((m1, m2) -> m1[0] != m2[0] ? Integer.compare(m1[0], m2[0]) : Integer.compare(m1[1], m2[1]));
+        int[] entrance = new int[moves.size()];
+        Arrays.fill(entrance, -1);
+        int nbEntrances = 0;
+        List<Integer> selected = new ArrayList<>();
+        for(int start = 0; start < moves.size(); start++){
+            if(entrance[start] >= 0)
+                continue;
+            // Collect the entrance of this move with a flood fill:
+            List<Integer> members = new ArrayList<>();
+            entrance[start] = nbEntrances;
+            members.add(start);
+            for(int m = 0; m < members.size(); m++){
+                int[] move = moves.get(members.get(m));
+                for(int other = start + 1; other < moves.size(); other++){
+                    if(entrance[other] < 0 && isCloseMove(move, moves.get(other))){
+                        entrance[other] = nbEntrances;
+                        members.add(other);
+                    }
+                }
+            }
+            Collections.sort(members);
+            selected.add(members.get(members.size() / 2));
+            nbEntrances++;
+        }
+        int[] result = new int[2*selected.size()];
+        for(int i = 0; i < selected.size(); i++){
+            result[2*i] = moves.get(selected.get(i))[0];
+            result[2*i+1] = moves.get(selected.get(i))[1];
+        }
+        return result;
+    }
+
+    private boolean isCloseMove(int[] move, int[] other){
+        return getChebyshevDistance(move[0], other[0]) <= 1 && getChebyshevDistance(move[1], other[1]) <= 1;
+    }
+
+    /**
+     * Return the distances from the given cube to the nodes of the given cluster, walking
+     * inside the cluster. Unreachable nodes have distance -1.
+     */
+    private int[] getDistancesToNodes(Cluster cluster, int cube){
+        cluster.search(cube);
+        int[] result = new int[cluster.nodes.length];
+        for(int j = 0; j < result.length; j++)
+            result[j] = cluster.getSearchDistance(cluster.nodes[j]);
+        return result;
+    }
+
+    /**
+     * Return the larger of the Chebyshev distance and the lower bound of the landmarks between
+     * the given cube and the target of the current query.
+     */
+    private int getHeuristic(int cube, int target){
+        return Math.max(getChebyshevDistance(cube, target), world.getLandmarks().getLowerBound(cube, targetLandmarkDistances));
+    }
+
+    private int getChebyshevDistance(int cube, int other){
+        return Math.max(Math.abs(world.getCubeX(cube) - world.getCubeX(other)),
+                Math.max(Math.abs(world.getCubeY(cube) - world.getCubeY(other)), Math.abs(world.getCubeZ(cube) - world.getCubeZ(other))));
+    }
+
+    private int getClusterId(int cx, int cy, int cz){
+        return cx + nbClustersX*(cy + nbClustersY*cz);
+    }
+
+    private int getClusterId(int cube){
+        return getClusterId(world.getCubeX(cube) / CLUSTER_SIZE, world.getCubeY(cube) / CLUSTER_SIZE, world.getCubeZ(cube) / CLUSTER_SIZE);
+    }
+
+    private long getEntranceKey(int id, int otherId){
+        return (long)Math.min(id, otherId) * clusters.length + Math.max(id, otherId);
+    }
+
+    private List<Integer> getNeighbouringClusters(int id){
+        int cx = id % nbClustersX, cy = (id / nbClustersX) % nbClustersY, cz = id / (nbClustersX * nbClustersY);
+        List<Integer> neighbours = new ArrayList<>(26);
+        for(int dz = -1; dz <= 1; dz++)
+            for(int dy = -1; dy <= 1; dy++)
+                for(int dx = -1; dx <= 1; dx++){
+                    if((dx != 0 || dy != 0 || dz != 0) && cx + dx >= 0 && cx + dx < nbClustersX &&
+                            cy + dy >= 0 && cy + dy < nbClustersY && cz + dz >= 0 && cz + dz < nbClustersZ)
+                        neighbours.add(getClusterId(cx + dx, cy + dy, cz + dz));
+                }
+        return neighbours;
+    }
+
+    /**
+     * Class representing one cluster of the abstract graph.
+     */
+    private final class Cluster {
+
+        /**
+         * Variables registering the id and the bounds of this cluster. The maxima are exclusive.
+         */
+        private final int id, minX, minY, minZ, maxX, maxY, maxZ;
+        /**
+         * Array containing the cube indices of the entrance nodes of this cluster, sorted.
+         */
+        private int[] nodes = new int[0];
+        /**
+         * Array containing for every node the entrance nodes in other clusters reachable with one move.
+         */
+        private int[][] exits = new int[0][];
+        /**
+         * Array containing for every node the numbers of the nodes in its exits.
+         */
+        private int[][] exitNodes = new int[0][];
+        /**
+         * Array containing the number of every node of this cluster.
+         */
+        private int[] nodeNumbers = new int[0];
+        /**
+         * Matrix containing the distances between the nodes of this cluster, walking inside this cluster,
+         * or -1 if a node can't be reached from another node.
+         */
+        private int[][] distances = new int[0][];
+
+        private Cluster(int id){
+            this.id = id;
+            this.minX = (id % nbClustersX) * CLUSTER_SIZE;
+            this.minY = ((id / nbClustersX) % nbClustersY) * CLUSTER_SIZE;
+            this.minZ = (id / (nbClustersX * nbClustersY)) * CLUSTER_SIZE;
+            this.maxX = Math.min(minX + CLUSTER_SIZE, world.getNbCubesX());
+            this.maxY = Math.min(minY + CLUSTER_SIZE, world.getNbCubesY());
+            this.maxZ = Math.min(minZ + CLUSTER_SIZE, world.getNbCubesZ());
+        }
+
+        /**
+         * Collect the nodes and exits of this cluster from the entrances with its neighbours.
+         */
+        private void updateNodes(){
+            TreeMap<Integer, List<Integer>> nodeExits = new TreeMap<>();
+            for(int neighbour : getNeighbouringClusters(id)){
+                int[] moves = entrances.get(getEntranceKey(id, neighbour));
+                if(moves == null)
+                    continue;
+                int own = id < neighbour ? 0 : 1;
+                for(int i = 0; i < moves.length; i += 2)
+                    nodeExits.computeIfAbsent(moves[i + own], k -> new ArrayList<>()).add(moves[i + 1 - own]);
+            }
+            int[] oldNodes = this.nodes, oldNumbers = this.nodeNumbers;
+            this.nodes = new int[nodeExits.size()];
+            this.exits = new int[nodeExits.size()][];
+            int i = 0;
+            for(Map.Entry<Integer, List<Integer>> entry : nodeExits.entrySet()){
+                this.nodes[i] = entry.getKey();
+                this.exits[i] = entry.getValue().stream().mapToInt(Integer::intValue).toArray();
+                i++;
+            }
+            // Nodes which remain keep their number, so the exits of the other clusters stay valid:
+            for(int k = 0; k < oldNodes.length; k++)
+                if(Arrays.binarySearch(this.nodes, oldNodes[k]) < 0)
+                    freeNodeNumber(oldNumbers[k]);
+            this.nodeNumbers = new int[nodes.length];
+            for(int j = 0; j < nodes.length; j++){
+                int k = Arrays.binarySearch(oldNodes, nodes[j]);
+                int node = k >= 0 ? oldNumbers[k] : takeNodeNumber();
+                this.nodeNumbers[j] = node;
+                nodeCubes[node] = nodes[j];
+                nodeClusters[node] = id;
+                nodeIndices[node] = j;
+            }
+            nbNodes += nodes.length - oldNodes.length;
+        }
+
+        /**
+         * Resolve the exits of the nodes of this cluster to node numbers.
+         */
+        private void updateExitNodes(){
+            this.exitNodes = new int[nodes.length][];
+            for(int i = 0; i < nodes.length; i++){
+                this.exitNodes[i] = new int[exits[i].length];
+                for(int k = 0; k < exits[i].length; k++){
+                    Cluster other = clusters[getClusterId(exits[i][k])];
+                    this.exitNodes[i][k] = other.nodeNumbers[Arrays.binarySearch(other.nodes, exits[i][k])];
+                }
+            }
+        }
+
+        /**
+         * Compute the distances between the nodes of this cluster.
+         */
+        private void updateDistances(){
+            this.distances = new int[nodes.length][];
+            for(int i = 0; i < nodes.length; i++)
+                this.distances[i] = getDistancesToNodes(this, nodes[i]);
+        }
+
+        private int getLocalOffset(int cube){
+            return (world.getCubeX(cube) - minX) + CLUSTER_SIZE*((world.getCubeY(cube) - minY) + CLUSTER_SIZE*(world.getCubeZ(cube) - minZ));
+        }
+
+        private boolean contains(int cube){
+            int x = world.getCubeX(cube), y = world.getCubeY(cube), z = world.getCubeZ(cube);
+            return x >= minX && x < maxX && y >= minY && y < maxY && z >= minZ && z < maxZ;
+        }
+
+        /**
+         * Compute the distances from the given cube of this cluster to the other cubes of this
+         * cluster with a breadth-first search which doesn't leave this cluster.
+         */
+        private void search(int start){
+            if(++localStamp == Integer.MAX_VALUE){
+                Arrays.fill(localStamps, 0);
+                localStamp = 1;
+            }
+            int head = 0, tail = 0;
+            localQueue[tail++] = start;
+            localStamps[getLocalOffset(start)] = localStamp;
+            localDistances[getLocalOffset(start)] = 0;
+            while(head < tail){
+                int cube = localQueue[head++];
+                int distance = localDistances[getLocalOffset(cube)] + 1;
+                for(int directions = world.getWalkableDirections(cube); directions != 0; directions &= directions - 1){
+                    int next = world.getNeighbouringCube(cube, Integer.numberOfTrailingZeros(directions));
+                    if(!contains(next))
+                        continue;
+                    int offset = getLocalOffset(next);
+                    if(localStamps[offset] != localStamp){
+                        localStamps[offset] = localStamp;
+                        localDistances[offset] = distance;
+                        localQueue[tail++] = next;
+                    }
+                }
+            }
+        }
+
+        /**
+         * Return the distance of the given cube of this cluster computed by the last search, or -1.
+         */
+        private int getSearchDistance(int cube){
+            int offset = getLocalOffset(cube);
+            return localStamps[offset] == localStamp ? localDistances[offset] : -1;
+        }
+    }
+}
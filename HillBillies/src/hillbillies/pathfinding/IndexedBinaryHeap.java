@@ -0,0 +1,289 @@
+package hillbillies.pathfinding;
+
+import be.kuleuven.cs.som.annotate.Basic;
+import be.kuleuven.cs.som.annotate.Immutable;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * Class representing a binary min-heap of int items in the range [0;getCapacity()[,
+ * each with a long priority. The position of every item inside the heap is
+ * registered, so the priority of an item can be decreased in logarithmic time
+ * and checking whether an item is in the heap takes constant time.
+ *
+ * The positions are stored in pages of PAGE_SIZE items, which are only allocated
+ * once one of their items is added. A heap with a large capacity of which only a
+ * few items are used, e.g. by a search around a unit, remains small.
+ * @author Kenneth & Bram
+ * @version 1.0
+ *
+ * @invar Every item in the heap has a priority which is not smaller than the
+ *          priority of its parent.
+ * | for each i in 1..size()-1: priorities[i] >= priorities[(i-1)/2]
+ * @invar The registered positions match the contents of the heap.
+ * | for each i in 0..size()-1: getPosition(items[i]) == i
+ */
+public class IndexedBinaryHeap {
+
+    /**
+     * Constant reflecting the initial length of the items and priorities arrays.
+     */
+    private static final int INITIAL_LENGTH = 64;
+    /**
+     * Constant reflecting the number of items in one page of positions.
+     */
+    private static final int PAGE_SIZE = 1 << 12;
+
+    /**
+     * Array containing the items of this heap at the positions 0..size()-1.
+     */
+    private int[] items = new int[INITIAL_LENGTH];
+    /**
+     * Array containing the priority of the item at the same position in items.
+     */
+    private long[] priorities = new long[INITIAL_LENGTH];
+    /**
+     * Variable registering the number of possible items of this heap.
+     */
+    private final int capacity;
+    /**
+     * Array containing the pages registering for every item its position in the heap
+     * plus one, or 0 if it's not in the heap.
+     */
+    private final int[][] positions;
+    /**
+     * Variable registering the number of items in this heap.
+     */
+    private int size = 0;
+
+    /**
+     * Initialize a new empty heap for the items in the range [0;capacity[.
+     * @param capacity The number of possible items.
+     * @post | new.getCapacity() == capacity && new.isEmpty()
+     * @throws IllegalArgumentException
+     *          When the given capacity is negative.
+     *          | capacity < 0
+     */
+    public IndexedBinaryHeap(int capacity) throws IllegalArgumentException {
+        if(capacity < 0)
+            throw new IllegalArgumentException("The capacity of a heap cannot be negative.");
+        this.capacity = capacity;
+        this.positions = new int[(capacity + PAGE_SIZE - 1) / PAGE_SIZE][];
+    }
+
+    /**
+     * Return the number of possible items of this heap.
+     */
+    @Basic @Immutable
+    public int getCapacity(){
+        return this.capacity;
+    }
+
+    /**
+     * Return the number of items in this heap.
+     */
+    @Basic
+    public int size(){
+        return this.size;
+    }
+
+    /**
+     * Check whether this heap is empty.
+     * @return | result == (size() == 0)
+     */
+    public boolean isEmpty(){
+        return this.size == 0;
+    }
+
+    /**
+     * Check whether the given item is in this heap.
+     * @param item The item to check.
+     * @throws IndexOutOfBoundsException
+     *          | item < 0 || item >= getCapacity()
+     */
+    public boolean contains(int item) throws IndexOutOfBoundsException {
+        return this.getPosition(item) >= 0;
+    }
+
+    /**
+     * Return the priority of the given item.
+     * @param item The item.
+     * @throws NoSuchElementException
+     *          When the given item is not in this heap.
+     *          | !contains(item)
+     */
+    public long getPriority(int item) throws NoSuchElementException {
+        if(!this.contains(item))
+            throw new NoSuchElementException("The given item is not in this heap.");
+        return this.priorities[this.getPosition(item)];
+    }
+
+    /**
+     * Return the item with the lowest priority, without removing it.
+     * @throws NoSuchElementException
+     *          | isEmpty()
+     */
+    public int peek() throws NoSuchElementException {
+        if(this.isEmpty())
+            throw new NoSuchElementException("The heap is empty.");
+        return this.items[0];
+    }
+
+    /**
+     * Add the given item to this heap with the given priority, or decrease the priority
+     * of the given item if it is already in this heap with a higher priority.
+     * @param item The item.
+     * @param priority The priority of the item.
+     * @return True if the item was added or its priority was decreased.
+     * @post | new.contains(item) && new.getPriority(item) == min(priority, old priority)
+     * @throws IndexOutOfBoundsException
+     *          | item < 0 || item >= getCapacity()
+     */
+    public boolean offer(int item, long priority) throws IndexOutOfBoundsException {
+        int position = this.getPosition(item);
+        if(position < 0)
+            position = this.grow();
+        else if(this.priorities[position] <= priority)
+            return false;
+        this.siftUp(position, item, priority);
+        return true;
+    }
+
+    /**
+     * Add the given item to this heap with the given priority, or change the priority
+     * of the given item if it is already in this heap.
+     * @param item The item.
+     * @param priority The new priority of the item.
+     * @post | new.contains(item) && new.getPriority(item) == priority
+     * @throws IndexOutOfBoundsException
+     *          | item < 0 || item >= getCapacity()
+     */
+    public void update(int item, long priority) throws IndexOutOfBoundsException {
+        int position = this.getPosition(item);
+        if(position < 0)
+            this.siftUp(this.grow(), item, priority);
+        else if(priority < this.priorities[position])
+            this.siftUp(position, item, priority);
+        else
+            this.siftDown(position, item, priority);
+    }
+
+    /**
+     * Remove the given item from this heap.
+     * @param item The item to remove.
+     * @return True if the item was in this heap.
+     * @post | !new.contains(item)
+     * @throws IndexOutOfBoundsException
+     *          | item < 0 || item >= getCapacity()
+     */
+    public boolean remove(int item) throws IndexOutOfBoundsException {
+        int position = this.getPosition(item);
+        if(position < 0)
+            return false;
+        this.setPosition(item, -1);
+        if(--this.size > position){
+            int last = this.items[this.size];
+            long lastPriority = this.priorities[this.size];
+            if(lastPriority < this.priorities[position])
+                this.siftUp(position, last, lastPriority);
+            else
+                this.siftDown(position, last, lastPriority);
+        }
+        return true;
+    }
+
+    /**
+     * Remove the item with the lowest priority from this heap and return it.
+     * @return | result == peek()
+     * @post | !new.contains(result) && new.size() == size() - 1
+     * @throws NoSuchElementException
+     *          | isEmpty()
+     */
+    public int poll() throws NoSuchElementException {
+        int first = this.peek();
+        this.setPosition(first, -1);
+        if(--this.size > 0)
+            this.siftDown(0, this.items[this.size], this.priorities[this.size]);
+        return first;
+    }
+
+    /**
+     * Remove all items from this heap. Only the positions of the items in the
+     * heap are reset, so clearing a heap doesn't depend on its capacity.
+     * @post | new.isEmpty()
+     */
+    public void clear(){
+        for(int i = 0; i < this.size; i++)
+            this.setPosition(this.items[i], -1);
+        this.size = 0;
+    }
+
+    /**
+     * Move the given item up from the given free position until its parent has a lower priority.
+     */
+    private void siftUp(int position, int item, long priority){
+        while(position > 0){
+            int parent = (position - 1) >>> 1;
+            if(this.priorities[parent] <= priority)
+                break;
+            this.place(position, this.items[parent], this.priorities[parent]);
+            position = parent;
+        }
+        this.place(position, item, priority);
+    }
+
+    /**
+     * Move the given item down from the given free position until its children have a higher priority.
+     */
+    private void siftDown(int position, int item, long priority){
+        int half = this.size >>> 1;
+        while(position < half){
+            int child = 2*position + 1;
+            if(child + 1 < this.size && this.priorities[child + 1] < this.priorities[child])
+                child++;
+            if(priority <= this.priorities[child])
+                break;
+            this.place(position, this.items[child], this.priorities[child]);
+            position = child;
+        }
+        this.place(position, item, priority);
+    }
+
+    /**
+     * Make room for one more item at the end of the heap and return its position.
+     */
+    private int grow(){
+        if(this.size == this.items.length){
+            this.items = Arrays.copyOf(this.items, 2*this.size);
+            this.priorities = Arrays.copyOf(this.priorities, 2*this.size);
+        }
+        return this.size++;
+    }
+
+    private void place(int position, int item, long priority){
+        this.items[position] = item;
+        this.priorities[position] = priority;
+        this.setPosition(item, position);
+    }
+
+    /**
+     * Return the position of the given item in the heap, or -1 if it's not in the heap.
+     */
+    private int getPosition(int item){
+        if(item < 0 || item >= this.capacity)
+            throw new IndexOutOfBoundsException("Item: " + item + ", Capacity: " + this.capacity);
+        int[] page = this.positions[item / PAGE_SIZE];
+        return page == null ? -1 : page[item % PAGE_SIZE] - 1;
+    }
+
+    private void setPosition(int item, int position){
+        int[] page = this.positions[item / PAGE_SIZE];
+        if(page == null){
+            if(position < 0)
+                return;
+            page = this.positions[item / PAGE_SIZE] = new int[PAGE_SIZE];
+        }
+        page[item % PAGE_SIZE] = position + 1;
+    }
+}
@@ -0,0 +1,224 @@
+package hillbillies.pathfinding;
+
+import be.kuleuven.cs.som.annotate.Basic;
+import be.kuleuven.cs.som.annotate.Immutable;
+import hillbillies.model.IWorld;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Class registering the walking distances from a small set of landmark cubes to all cubes of
+ * a world, used as a heuristic for long searches (ALT: A*, landmarks and triangle inequality).
+ * For every landmark L and cubes n and t, the triangle inequality gives the lower bound
+ * d(n,t) >= |d(L,t) - d(L,n)|, which is often much tighter than the straight-line distance
+ * when walls or cliffs force detours. Like the straight-line distance, the bound is consistent.
+ *
+ * The landmarks are chosen by farthest-point sampling in the walkable region around the source
+ * of the first search: every next landmark is the cube which is the farthest away from all
+ * landmarks chosen before, so the landmarks end up at the borders of the region. The distances
+ * of every landmark are kept in a distance field.
+ *
+ * After terrain changes, the changed cubes are only registered. The distance fields repair the
+ * regions around them at once, when the landmarks are used again.
+ * @author Kenneth & Bram
+ * @version 1.0
+ */
+public class Landmarks {
+
+    /**
+     * Constant reflecting the default number of landmarks.
+     */
+    public static final int DEFAULT_NB_LANDMARKS = 8;
+
+    /**
+     * Variable referencing the world of these landmarks.
+     */
+    private final IWorld world;
+    /**
+     * Variable registering the maximum number of landmarks.
+     */
+    private final int maxNbLandmarks;
+    /**
+     * Array containing the indices of the landmark cubes, or null if they're not chosen yet.
+     */
+    private int[] landmarks = null;
+    /**
+     * Array containing the distance field of every landmark.
+     */
+    private DistanceField[] fields = null;
+    /**
+     * Set containing the indices of the cubes of which the terrain changed since the last refresh.
+     */
+    private final Set<Integer> changedCubes = new LinkedHashSet<>();
+
+    /**
+     * Initialize new landmarks for the given world with the default number of landmarks.
+     * @param world The world of these new landmarks.
+     * @effect | this(world, DEFAULT_NB_LANDMARKS)
+     */
+    public Landmarks(IWorld world) throws NullPointerException {
+        this(world, DEFAULT_NB_LANDMARKS);
+    }
+
+    /**
+     * Initialize new landmarks for the given world. The landmarks are only chosen when they're
+     * used for the first time.
+     * @param world The world of these new landmarks.
+     * @param maxNbLandmarks The maximum number of landmarks.
+     * @post | new.getWorld() == world && new.getMaxNbLandmarks() == maxNbLandmarks && !new.isChosen()
+     * @throws NullPointerException
+     *          | world == null
+     * @throws IllegalArgumentException
+     *          When the given maximum number of landmarks is not positive.
+     *          | maxNbLandmarks <= 0
+     */
+    public Landmarks(IWorld world, int maxNbLandmarks) throws NullPointerException, IllegalArgumentException {
+        if(world == null)
+            throw new NullPointerException("The given world must be effective.");
+        if(maxNbLandmarks <= 0)
+            throw new IllegalArgumentException("The maximum number of landmarks must be positive.");
+        this.world = world;
+        this.maxNbLandmarks = maxNbLandmarks;
+    }
+
+    /**
+     * Return the world of these landmarks.
+     */
+    @Basic @Immutable
+    public IWorld getWorld(){
+        return this.world;
+    }
+
+    /**
+     * Return the maximum number of landmarks.
+     */
+    @Basic @Immutable
+    public int getMaxNbLandmarks(){
+        return this.maxNbLandmarks;
+    }
+
+    /**
+     * Check whether the landmarks are chosen already.
+     */
+    public boolean isChosen(){
+        return this.landmarks != null;
+    }
+
+    /**
+     * Return the indices of the landmark cubes, or an empty array if they're not chosen yet.
+     */
+    public int[] getLandmarks(){
+        return this.landmarks == null ? new int[0] : this.landmarks.clone();
+    }
+
+    /**
+     * Return the number of changed cubes which are not yet taken into account by the distances.
+     */
+    public int getNbChangedCubes(){
+        return this.changedCubes.size();
+    }
+
+    /**
+     * Register that the terrain of the cube with the given coordinates has changed. The distances
+     * are only repaired when they're used again.
+     * @param x The x-coordinate of the changed cube.
+     * @param y The y-coordinate of the changed cube.
+     * @param z The z-coordinate of the changed cube.
+     */
+    public void notifyTerrainChange(int x, int y, int z){
+        if(this.isChosen())
+            this.changedCubes.add(this.world.getCubeIndex(x, y, z));
+    }
+
+    /**
+     * Prepare these landmarks for a search from the given source cube: choose the landmarks
+     * around the source if none are chosen yet, and repair the distances after the terrain
+     * changes since the last refresh.
+     * @param source The index of the cube from which a search starts.
+     * @post | new.isChosen() && new.getNbChangedCubes() == 0
+     */
+    public void refresh(int source){
+        if(!this.isChosen() || this.landmarks.length == 0)// No landmarks could be chosen around an enclosed source
+            this.choose(source);
+        else if(!this.changedCubes.isEmpty()){
+            int[] changedCubes = new int[this.changedCubes.size()];
+            int i = 0;
+            for(int cube : this.changedCubes)
+                changedCubes[i++] = cube;
+            for(DistanceField field : this.fields)
+                field.notifyTerrainChanges(changedCubes);
+            this.changedCubes.clear();
+        }
+    }
+
+    /**
+     * Return the distances from every landmark to the cube with the given index, or -1 for
+     * the landmarks from which the cube can't be reached.
+     * @param cube The index of the cube.
+     * @throws IllegalStateException
+     *          When the landmarks are not chosen yet.
+     *          | !isChosen()
+     */
+    public int[] getDistances(int cube) throws IllegalStateException {
+        if(!this.isChosen())
+            throw new IllegalStateException("The landmarks are not chosen yet.");
+        int[] distances = new int[this.fields.length];
+        for(int i = 0; i < distances.length; i++)
+            distances[i] = this.fields[i].getDistance(cube);
+        return distances;
+    }
+
+    /**
+     * Return a lower bound for the walking distance between the cube with the given index and
+     * the cube with the given distances to the landmarks.
+     * @param cube The index of the cube.
+     * @param targetDistances The distances from every landmark to the other cube, as returned by getDistances.
+     * @return | result == max { abs(targetDistances[i] - d) | d == getDistances(cube)[i] && d >= 0 && targetDistances[i] >= 0 }
+     *         |    or 0 if there is no such landmark
+     */
+    public int getLowerBound(int cube, int[] targetDistances){
+        int bound = 0;
+        for(int i = 0; i < this.fields.length; i++){
+            int distance = this.fields[i].getDistance(cube);
+            if(distance >= 0 && targetDistances[i] >= 0)
+                bound = Math.max(bound, Math.abs(targetDistances[i] - distance));
+        }
+        return bound;
+    }
+
+    /**
+     * Choose the landmarks by farthest-point sampling, starting with the cube the farthest away
+     * from the given source.
+     */
+    private void choose(int source){
+        int[] landmarks = new int[this.maxNbLandmarks];
+        DistanceField[] fields = new DistanceField[this.maxNbLandmarks];
+        int nbLandmarks = 0;
+        DistanceField sourceField = new DistanceField(this.world);
+        sourceField.addSource(source);
+        int nbCubeIndices = this.world.getNbCubeIndices();
+        int[] minDistances = new int[nbCubeIndices];// Distance to the nearest landmark, or the source at first
+        for(int cube = 0; cube < nbCubeIndices; cube++)
+            minDistances[cube] = sourceField.getDistance(cube);
+        while(nbLandmarks < this.maxNbLandmarks){
+            int farthest = -1;
+            for(int cube = 0; cube < nbCubeIndices; cube++)
+                if(minDistances[cube] > 0 && (farthest == -1 || minDistances[cube] > minDistances[farthest]))
+                    farthest = cube;
+            if(farthest == -1)
+                break;// Every reachable cube is a landmark
+            DistanceField field = new DistanceField(this.world);
+            field.addSource(farthest);
+            landmarks[nbLandmarks] = farthest;
+            fields[nbLandmarks++] = field;
+            for(int cube = 0; cube < nbCubeIndices; cube++)
+                if(minDistances[cube] >= 0)// The source is no landmark, so its distances are replaced
+                    minDistances[cube] = nbLandmarks == 1 ? field.getDistance(cube) : Math.min(minDistances[cube], field.getDistance(cube));
+        }
+        this.landmarks = Arrays.copyOf(landmarks, nbLandmarks);
+        this.fields = Arrays.copyOf(fields, nbLandmarks);
+        this.changedCubes.clear();
+    }
+}
@@ -0,0 +1,271 @@
+package hillbillies.pathfinding;
+
+import be.kuleuven.cs.som.annotate.Basic;
+import be.kuleuven.cs.som.annotate.Immutable;
+import hillbillies.model.World;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Class caching the most recently used paths between two cubes of a world. Units often walk
+ * the same routes over and over again, e.g. between a workshop and a pile of logs, so the
+ * same searches are repeated.
+ *
+ * The world is divided in chunks of CHUNK_SIZE x CHUNK_SIZE x CHUNK_SIZE cubes, each with an
+ * epoch which is increased whenever the walkable directions inside that chunk can change.
+ * Every cached path remembers the chunks it traverses together with their epochs, a path is
+ * only returned if none of those chunks has changed since it was cached. Like Path.dependsOn
+ * in TargetMove, only the paths passing near a changed cube are invalidated.
+ * @author Kenneth & Bram
+ * @version 1.0
+ *
+ * @invar The number of cached paths never exceeds the capacity of this cache.
+ * | size() <= getCapacity()
+ */
+public class PathCache {
+
+    /**
+     * Constant reflecting the length of the edges of a chunk.
+     */
+    public static final int CHUNK_SIZE = 8;
+    /**
+     * Constant reflecting the default number of paths kept in a cache.
+     */
+    public static final int DEFAULT_CAPACITY = 256;
+    /**
+     * Constant reflecting the radius around a changed cube in which walkable directions can change.
+     */
+    private static final int CHANGE_RADIUS = 2;
+
+    /**
+     * Variable referencing the world of this cache.
+     */
+    private final World world;
+    /**
+     * Variable registering the maximum number of paths in this cache.
+     */
+    private final int capacity;
+    /**
+     * Variables registering the number of chunks in each direction.
+     */
+    private final int nbChunksX, nbChunksY, nbChunksZ;
+    /**
+     * Array registering the epoch of every chunk.
+     */
+    private final int[] chunkEpochs;
+    /**
+     * Map containing the cached paths, keyed by their endpoints and ordered from least
+     * to most recently used.
+     */
+    private final LinkedHashMap<Long, Entry> entries;
+    /**
+     * Variables registering the number of hits, misses and invalidated paths.
+     */
+    private long nbHits = 0, nbMisses = 0, nbInvalidations = 0;
+
+    /**
+     * Initialize a new path cache for the given world with the default capacity.
+     * @param world The world of this new cache.
+     * @effect | this(world, DEFAULT_CAPACITY)
+     */
+    public PathCache(World world) throws NullPointerException {
+        this(world, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Initialize a new empty path cache for the given world.
+     * @param world The world of this new cache.
+     * @param capacity The maximum number of paths in this new cache.
+     * @post | new.getWorld() == world && new.getCapacity() == capacity && new.size() == 0
+     * @throws NullPointerException
+     *          | world == null
+     * @throws IllegalArgumentException
+     *          When the given capacity is not positive.
+     *          | capacity <= 0
+     */
+    public PathCache(World world, int capacity) throws NullPointerException, IllegalArgumentException {
+        if(capacity <= 0)
+            throw new IllegalArgumentException("The capacity of a path cache must be positive.");
+        this.world = world;
+        this.capacity = capacity;
+        this.nbChunksX = (world.getNbCubesX() + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        this.nbChunksY = (world.getNbCubesY() + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        this.nbChunksZ = (world.getNbCubesZ() + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        this.chunkEpochs = new int[this.nbChunksX * this.nbChunksY * this.nbChunksZ];
+        this.entries = new LinkedHashMap<Long, Entry>(16, 0.75f, true){
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest){
+                return this.size() > PathCache.this.capacity;
+            }
+        };
+    }
+
+    /**
+     * Return the world of this cache.
+     */
+    @Basic @Immutable
+    public World getWorld(){
+        return this.world;
+    }
+
+    /**
+     * Return the maximum number of paths in this cache.
+     */
+    @Basic @Immutable
+    public int getCapacity(){
+        return this.capacity;
+    }
+
+    /**
+     * Return the number of paths in this cache, including paths which are invalidated
+     * but not yet removed.
+     */
+    public int size(){
+        return this.entries.size();
+    }
+
+    /**
+     * Return the number of lookups which returned a cached path.
+     */
+    @Basic
+    public long getNbHits(){
+        return this.nbHits;
+    }
+
+    /**
+     * Return the number of lookups which didn't return a cached path.
+     */
+    @Basic
+    public long getNbMisses(){
+        return this.nbMisses;
+    }
+
+    /**
+     * Return the number of cached paths which were removed because the terrain
+     * around them has changed.
+     */
+    @Basic
+    public long getNbInvalidations(){
+        return this.nbInvalidations;
+    }
+
+    /**
+     * Return the cached path between the given cubes, in the format of AStarPathFinder.findPath,
+     * or null if no valid path between them is cached.
+     * @param source The index of the cube to start from.
+     * @param target The index of the cube to walk to.
+     */
+    public int[] get(int source, int target){
+        Long key = getKey(source, target);
+        Entry entry = this.entries.get(key);
+        if(entry != null && !this.isValid(entry)){
+            this.entries.remove(key);
+            this.nbInvalidations++;
+            entry = null;
+        }
+        if(entry == null){
+            this.nbMisses++;
+            return null;
+        }
+        this.nbHits++;
+        return entry.path.clone();
+    }
+
+    /**
+     * Cache the given path between the given cubes. If the cache is full, the least
+     * recently used path is removed.
+     * @param source The index of the cube to start from.
+     * @param target The index of the cube to walk to.
+     * @param path The indices of the cubes on the path, excluding the source and ending with the target.
+     * @post | new.get(source, target) equals path
+     * @throws NullPointerException
+     *          | path == null
+     */
+    public void put(int source, int target, int[] path) throws NullPointerException {
+        int[] chunks = new int[4];
+        int nbChunks = 0;
+        int previousChunk = -1;
+        for(int i = -1; i < path.length; i++){
+            int chunk = this.getChunk(i < 0 ? source : path[i]);
+            if(chunk == previousChunk)
+                continue;// Consecutive cubes are mostly in the same chunk
+            previousChunk = chunk;
+            boolean known = false;
+            for(int j = 0; j < nbChunks && !known; j++)
+                known = chunks[j] == chunk;
+            if(known)
+                continue;
+            if(nbChunks == chunks.length)
+                chunks = Arrays.copyOf(chunks, 2*nbChunks);
+            chunks[nbChunks++] = chunk;
+        }
+        int[] epochs = new int[nbChunks];
+        for(int j = 0; j < nbChunks; j++)
+            epochs[j] = this.chunkEpochs[chunks[j]];
+        this.entries.put(getKey(source, target), new Entry(path.clone(), Arrays.copyOf(chunks, nbChunks), epochs));
+    }
+
+    /**
+     * Remove all paths from this cache.
+     * @post | new.size() == 0
+     */
+    public void clear(){
+        this.entries.clear();
+    }
+
+    /**
+     * Invalidate the cached paths passing near the cube with the given coordinates, after its terrain has changed.
+     * @param x The x-coordinate of the changed cube.
+     * @param y The y-coordinate of the changed cube.
+     * @param z The z-coordinate of the changed cube.
+     */
+    public void notifyTerrainChange(int x, int y, int z){
+        int minX = Math.max(0, x - CHANGE_RADIUS) / CHUNK_SIZE, maxX = Math.min(this.nbChunksX*CHUNK_SIZE - 1, x + CHANGE_RADIUS) / CHUNK_SIZE;
+        int minY = Math.max(0, y - CHANGE_RADIUS) / CHUNK_SIZE, maxY = Math.min(this.nbChunksY*CHUNK_SIZE - 1, y + CHANGE_RADIUS) / CHUNK_SIZE;
+        int minZ = Math.max(0, z - CHANGE_RADIUS) / CHUNK_SIZE, maxZ = Math.min(this.nbChunksZ*CHUNK_SIZE - 1, z + CHANGE_RADIUS) / CHUNK_SIZE;
+        for(int cx = minX; cx <= maxX; cx++)
+            for(int cy = minY; cy <= maxY; cy++)
+                for(int cz = minZ; cz <= maxZ; cz++)
+                    this.chunkEpochs[(cx * this.nbChunksY + cy) * this.nbChunksZ + cz]++;
+    }
+
+    /**
+     * Check whether none of the chunks traversed by the given entry has changed since it was cached.
+     */
+    private boolean isValid(Entry entry){
+        for(int j = 0; j < entry.chunks.length; j++)
+            if(this.chunkEpochs[entry.chunks[j]] != entry.epochs[j])
+                return false;
+        return true;
+    }
+
+    /**
+     * Return the chunk containing the cube with the given index.
+     */
+    private int getChunk(int cube){
+        int cx = this.world.getCubeX(cube) / CHUNK_SIZE, cy = this.world.getCubeY(cube) / CHUNK_SIZE, cz = this.world.getCubeZ(cube) / CHUNK_SIZE;
+        return (cx * this.nbChunksY + cy) * this.nbChunksZ + cz;
+    }
+
+    private static Long getKey(int source, int target){
+        return (long)source << 32 | target;
+    }
+
+    /**
+     * Class representing a cached path together with the chunks it traverses.
+     */
+    private static class Entry {
+
+        private final int[] path;
+        private final int[] chunks;
+        private final int[] epochs;
+
+        private Entry(int[] path, int[] chunks, int[] epochs){
+            this.path = path;
+            this.chunks = chunks;
+            this.epochs = epochs;
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package hillbillies.pathfinding;
+
+import be.kuleuven.cs.som.annotate.Basic;
+import be.kuleuven.cs.som.annotate.Immutable;
+import hillbillies.model.IWorld;
+
+import java.util.ArrayDeque;
+
+/**
+ * Class spreading path searches over the ticks of a world, so a few expensive searches
+ * can't blow the time budget of a single tick. Every tick has a budget of expanded cubes,
+ * which is shared by all searches of this scheduler.
+ *
+ * A submitted search runs right away as long as the budget of the current tick lasts. The
+ * searches which don't finish are continued at the start of the next ticks, where the budget
+ * is shared fairly: every pending search gets an equal slice, and the searches which didn't
+ * get their slice go first in the next tick.
+ * @author Kenneth & Bram
+ * @version 1.0
+ *
+ * @invar The number of cubes expanded during the current tick never exceeds the budget.
+ * | getNbExpandedCubes() <= getBudget()
+ */
+public class PathScheduler {
+
+    /**
+     * Constant reflecting the default number of cubes which can be expanded per tick.
+     */
+    public static final int DEFAULT_BUDGET = 4096;
+    /**
+     * Constant reflecting the minimum number of cubes a pending search expands per tick,
+     * so the budget isn't split in slices too small to make progress.
+     */
+    public static final int MIN_SLICE = 64;
+
+    /**
+     * Variable referencing the world of this scheduler.
+     */
+    private final IWorld world;
+    /**
+     * Variable registering the number of cubes which can be expanded per tick.
+     */
+    private int budget;
+    /**
+     * Queue containing the pending searches, in the order in which they run.
+     */
+    private final ArrayDeque<PathSearch> pending = new ArrayDeque<>();
+    /**
+     * Variable registering the number of cubes expanded during the current tick.
+     */
+    private int nbExpandedCubes = 0;
+    /**
+     * Variables registering the number of finished searches and their total and maximum number of ticks.
+     */
+    private int nbFinishedSearches = 0;
+    private long totalNbTicks = 0;
+    private int maxNbTicks = 0;
+
+    /**
+     * Initialize a new scheduler for the given world with the default budget.
+     * @param world The world of this new scheduler.
+     * @effect | this(world, DEFAULT_BUDGET)
+     */
+    public PathScheduler(IWorld world) throws NullPointerException {
+        this(world, DEFAULT_BUDGET);
+    }
+
+    /**
+     * Initialize a new scheduler for the given world without pending searches.
+     * @param world The world of this new scheduler.
+     * @param budget The number of cubes which can be expanded per tick.
+     * @post | new.getWorld() == world && new.getNbPendingSearches() == 0
+     * @effect | setBudget(budget)
+     * @throws NullPointerException
+     *          | world == null
+     */
+    public PathScheduler(IWorld world, int budget) throws NullPointerException, IllegalArgumentException {
+        if(world == null)
+            throw new NullPointerException("The given world must be effective.");
+        this.world = world;
+        this.setBudget(budget);
+    }
+
+    /**
+     * Return the world of this scheduler.
+     */
+    @Basic @Immutable
+    public IWorld getWorld(){
+        return this.world;
+    }
+
+    /**
+     * Return the number of cubes which can be expanded per tick.
+     */
+    @Basic
+    public int getBudget(){
+        return this.budget;
+    }
+
+    /**
+     * Set the number of cubes which can be expanded per tick to the given budget.
+     * @param budget The new budget.
+     * @post | new.getBudget() == budget
+     * @throws IllegalArgumentException
+     *          When the given budget is smaller than the minimum slice.
+     *          | budget < MIN_SLICE
+     */
+    public void setBudget(int budget) throws IllegalArgumentException {
+        if(budget < MIN_SLICE)
+            throw new IllegalArgumentException("The budget must be at least " + MIN_SLICE + ".");
+        this.budget = budget;
+    }
+
+    /**
+     * Return the number of cubes expanded during the current tick.
+     */
+    @Basic
+    public int getNbExpandedCubes(){
+        return this.nbExpandedCubes;
+    }
+
+    /**
+     * Return the number of submitted searches which are not finished yet.
+     */
+    public int getNbPendingSearches(){
+        return this.pending.size();
+    }
+
+    /**
+     * Return the number of finished searches of this scheduler.
+     */
+    @Basic
+    public int getNbFinishedSearches(){
+        return this.nbFinishedSearches;
+    }
+
+    /**
+     * Return the maximum number of ticks a finished search of this scheduler was scheduled during.
+     */
+    @Basic
+    public int getMaxNbTicks(){
+        return this.maxNbTicks;
+    }
+
+    /**
+     * Return the average number of ticks the finished searches of this scheduler were scheduled during.
+     * @return | result == (getNbFinishedSearches() == 0 ? 0 : sum(search.getNbTicks()) / getNbFinishedSearches())
+     */
+    public double getAverageNbTicks(){
+        return this.nbFinishedSearches == 0 ? 0 : (double)this.totalNbTicks / this.nbFinishedSearches;
+    }
+
+    /**
+     * Submit the given search to this scheduler. The search runs right away with the budget
+     * which is left in the current tick, and continues in the next ticks if it's not finished.
+     * @param search The search to submit.
+     * @throws NullPointerException
+     *          | search == null
+     * @throws IllegalArgumentException
+     *          When the search doesn't belong to the world of this scheduler or is finished already.
+     *          | search.getWorld() != getWorld() || search.isFinished()
+     */
+    public void submit(PathSearch search) throws NullPointerException, IllegalArgumentException {
+        if(search.getWorld() != this.world || search.isFinished())
+            throw new IllegalArgumentException("The given search cannot be scheduled.");
+        search.startTick();
+        this.nbExpandedCubes += search.resume(this.budget - this.nbExpandedCubes);
+        if(search.isFinished())
+            this.register(search);
+        else
+            this.pending.add(search);
+    }
+
+    /**
+     * Stop the given search if it's pending. Its state is not changed.
+     * @param search The search to cancel.
+     */
+    public void cancel(PathSearch search){
+        this.pending.remove(search);
+    }
+
+    /**
+     * Start a new tick and continue the pending searches with the budget of that tick.
+     * Every pending search expands an equal share of the budget, but at least MIN_SLICE cubes.
+     * Budget left by searches which finish early goes to the searches which are still pending.
+     */
+    public void startTick(){
+        this.nbExpandedCubes = 0;
+        if(this.pending.isEmpty())
+            return;
+        int slice = Math.max(MIN_SLICE, this.budget / this.pending.size());
+        for(PathSearch search : this.pending)
+            search.startTick();
+        while(!this.pending.isEmpty() && this.nbExpandedCubes < this.budget){
+            PathSearch search = this.pending.poll();
+            this.nbExpandedCubes += search.resume(Math.min(slice, this.budget - this.nbExpandedCubes));
+            if(search.isFinished())
+                this.register(search);
+            else
+                this.pending.add(search);// Searches which didn't run yet go first
+        }
+    }
+
+    /**
+     * Register the metrics of the given finished search.
+     */
+    private void register(PathSearch search){
+        this.nbFinishedSearches++;
+        this.totalNbTicks += search.getNbTicks();
+        this.maxNbTicks = Math.max(this.maxNbTicks, search.getNbTicks());
+    }
+}
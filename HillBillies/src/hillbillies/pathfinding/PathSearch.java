@@ -0,0 +1,376 @@
+package hillbillies.pathfinding;
+
+import be.kuleuven.cs.som.annotate.Basic;
+import be.kuleuven.cs.som.annotate.Immutable;
+import hillbillies.model.IWorld;
+
+import java.util.Arrays;
+
+/**
+ * Class representing an A* search between the cubes of a world which can be paused and
+ * resumed, so a long search can be spread over several ticks. It finds the same paths as
+ * AStarPathFinder, on the walkable directions of the world at the time it runs. When the
+ * terrain of the world changes before the search is finished, the search starts over, but
+ * at most MAX_NB_RESTARTS times. After that, a search which keeps being overtaken by terrain
+ * changes just continues, so it still finishes, and the unit walking its path repairs the
+ * steps which got blocked.
+ *
+ * Every search keeps its own state, stored in pages of PAGE_SIZE cube indices which are
+ * only allocated once the search reaches one of their cubes.
+ *
+ * A search can also run on a TerrainSnapshot instead of the current terrain. Its terrain
+ * then never changes, so it never starts over, and it only reads the dimensions of its
+ * world, so it can run on another thread.
+ * @author Kenneth & Bram
+ * @version 1.0
+ */
+public class PathSearch {
+
+    /**
+     * Constant reflecting the number of cube indices in one page of values.
+     */
+    private static final int PAGE_SIZE = 1 << 12;
+    /**
+     * Constant reflecting the bit of a value which is set once its cube is expanded.
+     */
+    private static final int EXPANDED = 1 << 5;
+    /**
+     * Constant reflecting the bits of a value holding the direction from which its cube was reached.
+     */
+    private static final int DIRECTION_MASK = EXPANDED - 1;
+    /**
+     * Constant reflecting the maximum number of times a search starts over after terrain changes.
+     */
+    public static final int MAX_NB_RESTARTS = 3;
+
+    /**
+     * Variable referencing the world in which the path is searched.
+     */
+    private final IWorld world;
+    /**
+     * Variable referencing the snapshot on which the path is searched, or null if the path
+     * is searched on the current terrain of the world.
+     */
+    private final TerrainSnapshot snapshot;
+    /**
+     * Variable registering the index of the cube to start from.
+     */
+    private final int source;
+    /**
+     * Array containing the sorted indices of the target cubes.
+     */
+    private final int[] targets;
+    /**
+     * Variables registering the bounding box of the targets.
+     */
+    private final int minX, minY, minZ, maxX, maxY, maxZ;
+    /**
+     * Array containing the pages of values. The value of a reached cube is its distance
+     * plus one shifted left by 6, the expanded bit and the direction from which it was reached,
+     * so the value 0 of a new page means not reached.
+     */
+    private int[][] pages;
+    /**
+     * Heap containing the reached cubes which are not expanded yet.
+     */
+    private IndexedBinaryHeap open;
+    /**
+     * Variable registering the terrain epoch of the world when the search (re)started, or
+     * the epoch of the snapshot of the search.
+     */
+    private long epoch;
+    /**
+     * Flag indicating whether this search is finished.
+     */
+    private boolean finished = false;
+    /**
+     * Variable referencing the found path, or null if no path was found (yet).
+     */
+    private int[] path = null;
+    /**
+     * Variable registering the total number of cubes expanded by this search, including restarts.
+     */
+    private int nbExpandedCubes = 0;
+    /**
+     * Variable registering the number of ticks during which this search was scheduled.
+     */
+    private int nbTicks = 0;
+    /**
+     * Variable registering the number of times this search started over.
+     */
+    private int nbRestarts = 0;
+
+    /**
+     * Initialize a new search for a shortest path from the given source cube to the nearest
+     * of the given target cubes. No cubes are expanded yet.
+     * @param world The world in which the path is searched.
+     * @param source The index of the cube to start from.
+     * @param targets The indices of the target cubes.
+     * @post | new.getWorld() == world && new.getSource() == source && !new.isFinished()
+     * @throws NullPointerException
+     *          | world == null || targets == null
+     * @throws IllegalArgumentException
+     *          When no targets are given.
+     *          | targets.length == 0
+     */
+    public PathSearch(IWorld world, int source, int... targets) throws NullPointerException, IllegalArgumentException {
+        this(world, null, source, targets);
+    }
+
+    /**
+     * Initialize a new search for a shortest path from the given source cube to the nearest
+     * of the given target cubes on the given snapshot of the terrain of the given world.
+     * No cubes are expanded yet.
+     * @param world The world in which the path is searched.
+     * @param snapshot The snapshot of the terrain to search, or null to search the current
+     *          terrain of the given world.
+     * @param source The index of the cube to start from.
+     * @param targets The indices of the target cubes.
+     * @post | new.getWorld() == world && new.getSource() == source && !new.isFinished()
+     * @post | if(snapshot != null) then new.getEpoch() == snapshot.getEpoch()
+     * @throws NullPointerException
+     *          | world == null || targets == null
+     * @throws IllegalArgumentException
+     *          When no targets are given.
+     *          | targets.length == 0
+     */
+    public PathSearch(IWorld world, TerrainSnapshot snapshot, int source, int... targets) throws NullPointerException, IllegalArgumentException {
+        if(targets.length == 0)
+            throw new IllegalArgumentException("At least one target must be given.");
+        this.world = world;
+        this.snapshot = snapshot;
+        this.source = source;
+        this.targets = targets.clone();
+        Arrays.sort(this.targets);
+        int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE, minZ = Integer.MAX_VALUE;
+        int maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE, maxZ = Integer.MIN_VALUE;
+        for(int target : targets){
+            minX = Math.min(minX, world.getCubeX(target));
+            minY = Math.min(minY, world.getCubeY(target));
+            minZ = Math.min(minZ, world.getCubeZ(target));
+            maxX = Math.max(maxX, world.getCubeX(target));
+            maxY = Math.max(maxY, world.getCubeY(target));
+            maxZ = Math.max(maxZ, world.getCubeZ(target));
+        }
+        this.minX = minX; this.minY = minY; this.minZ = minZ;
+        this.maxX = maxX; this.maxY = maxY; this.maxZ = maxZ;
+        this.restart();
+    }
+
+    /**
+     * Return the world in which this search searches a path.
+     */
+    @Basic @Immutable
+    public IWorld getWorld(){
+        return this.world;
+    }
+
+    /**
+     * Return the index of the cube from which this search starts.
+     */
+    @Basic @Immutable
+    public int getSource(){
+        return this.source;
+    }
+
+    /**
+     * Return the sorted indices of the target cubes of this search.
+     */
+    @Basic @Immutable
+    public int[] getTargets(){
+        return this.targets.clone();
+    }
+
+    /**
+     * Check whether this search is finished.
+     */
+    @Basic
+    public boolean isFinished(){
+        return this.finished;
+    }
+
+    /**
+     * Return the path found by this search.
+     * @return Null if this search is not finished or none of the targets can be reached,
+     *          otherwise the indices of the cubes on a shortest path, in the format of
+     *          AStarPathFinder.findPath.
+     */
+    public int[] getPath(){
+        return this.path == null ? null : this.path.clone();
+    }
+
+    /**
+     * Return the total number of cubes expanded by this search.
+     */
+    @Basic
+    public int getNbExpandedCubes(){
+        return this.nbExpandedCubes;
+    }
+
+    /**
+     * Return the number of ticks during which this search was scheduled, including the
+     * tick in which it was submitted and the tick in which it finished.
+     */
+    @Basic
+    public int getNbTicks(){
+        return this.nbTicks;
+    }
+
+    /**
+     * Return the number of times this search started over after the terrain of its world changed.
+     */
+    @Basic
+    public int getNbRestarts(){
+        return this.nbRestarts;
+    }
+
+    /**
+     * Return the terrain epoch of the world when this search (re)started for the last time,
+     * or the epoch of the snapshot it searches.
+     */
+    @Basic
+    public long getEpoch(){
+        return this.epoch;
+    }
+
+    /**
+     * Check whether this search is finished and found its result on the current terrain of
+     * its world, so the terrain didn't change since the search (re)started for the last time.
+     * A search which continued after MAX_NB_RESTARTS restarts is never current, as it only
+     * continues once the terrain changed again.
+     * @return | result == (isFinished() && getEpoch() == getWorld().getTerrainEpoch())
+     */
+    public boolean isCurrent(){
+        return this.finished && this.epoch == this.world.getTerrainEpoch();
+    }
+
+    /**
+     * Register that this search is scheduled during a new tick.
+     */
+    void startTick(){
+        this.nbTicks++;
+    }
+
+    /**
+     * Continue this search, expanding at most the given number of cubes. If the terrain of
+     * the world changed since the search (re)started, it starts over first, unless it
+     * started over MAX_NB_RESTARTS times already or it searches a snapshot.
+     * @param maxNbExpandedCubes The maximum number of cubes to expand.
+     * @return The number of expanded cubes, which is at most maxNbExpandedCubes.
+     */
+    public int resume(int maxNbExpandedCubes){
+        if(this.finished)
+            return 0;
+        if(this.snapshot == null && this.epoch != this.world.getTerrainEpoch() && this.nbRestarts < MAX_NB_RESTARTS){
+            this.nbRestarts++;
+            this.restart();
+        }
+        int nbExpandedCubes = 0;
+        while(!this.open.isEmpty() && nbExpandedCubes < maxNbExpandedCubes){
+            int current = this.open.poll();
+            if(Arrays.binarySearch(this.targets, current) >= 0){
+                this.finish(this.reconstructPath(current));
+                break;
+            }
+            nbExpandedCubes++;
+            int value = this.getValue(current) | EXPANDED;
+            this.setValue(current, value);
+            int distance = (value >>> 6) + 1;// The distance of the next cubes plus one
+            for(int directions = this.getWalkableDirections(current); directions != 0; directions &= directions - 1){
+                int direction = Integer.numberOfTrailingZeros(directions);
+                int next = this.world.getNeighbouringCube(current, direction);
+                int nextValue = this.getValue(next);
+                if(nextValue != 0 && ((nextValue & EXPANDED) != 0 || distance >= nextValue >>> 6))
+                    continue;// Already expanded or reached by a path which is not longer
+                this.reach(next, distance, direction);
+            }
+        }
+        if(!this.finished && this.open.isEmpty())
+            this.finish(null);
+        this.nbExpandedCubes += nbExpandedCubes;
+        return nbExpandedCubes;
+    }
+
+    /**
+     * Start this search over on the current terrain of the world. The pages and heap of the
+     * previous run are cleared and reused.
+     */
+    private void restart(){
+        this.epoch = this.snapshot == null ? this.world.getTerrainEpoch() : this.snapshot.getEpoch();
+        if(this.pages == null){
+            this.pages = new int[(this.world.getNbCubeIndices() + PAGE_SIZE - 1) / PAGE_SIZE][];
+            this.open = new IndexedBinaryHeap(this.world.getNbCubeIndices());
+        }else{
+            for(int[] page : this.pages)
+                if(page != null)
+                    Arrays.fill(page, 0);
+            this.open.clear();
+        }
+        this.reach(this.source, 1, 0);
+    }
+
+    /**
+     * Finish this search with the given path and drop its state.
+     */
+    private void finish(int[] path){
+        this.finished = true;
+        this.path = path;
+        this.pages = null;
+        this.open = null;
+    }
+
+    /**
+     * Register the given distance plus one and direction for the given cube and (re)insert it
+     * in the open heap, ordered as in AStarPathFinder.
+     */
+    private void reach(int cube, int distancePlusOne, int direction){
+        this.setValue(cube, distancePlusOne << 6 | direction);
+        int distance = distancePlusOne - 1;
+        long estimate = distance + this.getHeuristic(cube);
+        this.open.offer(cube, estimate << 32 | (Integer.MAX_VALUE - distance));
+    }
+
+    /**
+     * Return the walkable directions of the given cube on the terrain searched by this search.
+     */
+    private int getWalkableDirections(int cube){
+        return this.snapshot == null ? this.world.getWalkableDirections(cube) : this.snapshot.getWalkableDirections(cube);
+    }
+
+    /**
+     * Return the Chebyshev distance from the given cube to the bounding box of the targets.
+     */
+    private int getHeuristic(int cube){
+        int x = this.world.getCubeX(cube), y = this.world.getCubeY(cube), z = this.world.getCubeZ(cube);
+        int dx = Math.max(0, Math.max(this.minX - x, x - this.maxX));
+        int dy = Math.max(0, Math.max(this.minY - y, y - this.maxY));
+        int dz = Math.max(0, Math.max(this.minZ - z, z - this.maxZ));
+        return Math.max(dx, Math.max(dy, dz));
+    }
+
+    /**
+     * Follow the directions from the given target back to the source.
+     */
+    private int[] reconstructPath(int target){
+        int[] path = new int[(this.getValue(target) >>> 6) - 1];
+        int cube = target;
+        for(int i = path.length - 1; i >= 0; i--){
+            path[i] = cube;
+            cube = this.world.getNeighbouringCube(cube, AStarPathFinder.getOppositeDirection(this.getValue(cube) & DIRECTION_MASK));
+        }
+        assert cube == this.source;
+        return path;
+    }
+
+    private int getValue(int cube){
+        int[] page = this.pages[cube / PAGE_SIZE];
+        return page == null ? 0 : page[cube % PAGE_SIZE];
+    }
+
+    private void setValue(int cube, int value){
+        int[] page = this.pages[cube / PAGE_SIZE];
+        if(page == null)
+            page = this.pages[cube / PAGE_SIZE] = new int[PAGE_SIZE];
+        page[cube % PAGE_SIZE] = value;
+    }
+}
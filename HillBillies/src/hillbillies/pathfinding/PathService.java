@@ -0,0 +1,170 @@
+package hillbillies.pathfinding;
+
+import be.kuleuven.cs.som.annotate.Basic;
+import be.kuleuven.cs.som.annotate.Immutable;
+import hillbillies.model.World;
+
+import java.util.concurrent.*;
+
+/**
+ * Class searching paths between the cubes of a world on a bounded pool of worker threads,
+ * so long searches don't stall the simulation. Every search runs against the terrain
+ * snapshot of the world at the time it was submitted, and its result remembers the terrain
+ * epoch of that snapshot. Results of which the epoch differs from the current terrain epoch
+ * of the world are stale and should be searched again.
+ *
+ * Every search is a PathSearch on the snapshot, with its own paged state, so the workers
+ * don't hold any state of the size of the world. When all workers are busy and the queue
+ * of waiting searches is full, the search runs on the submitting thread instead.
+ * TargetMove uses this service for the paths of wandering units. The paths of its other
+ * moves are spread over ticks by the PathScheduler instead.
+ * @author Kenneth & Bram
+ * @version 1.0
+ */
+public class PathService {
+
+    /**
+     * Constant reflecting the default number of worker threads of a service.
+     */
+    public static final int DEFAULT_NB_WORKERS = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() - 1));
+    /**
+     * Constant reflecting the default maximum number of waiting searches of a service.
+     */
+    public static final int DEFAULT_QUEUE_CAPACITY = 256;
+
+    /**
+     * Variable referencing the world of this service.
+     */
+    private final World world;
+    /**
+     * Variable referencing the executor running the searches.
+     */
+    private final ThreadPoolExecutor executor;
+
+    /**
+     * Initialize a new path service for the given world with the default number of workers
+     * and queue capacity.
+     * @param world The world of this new service.
+     * @effect | this(world, DEFAULT_NB_WORKERS, DEFAULT_QUEUE_CAPACITY)
+     */
+    public PathService(World world) throws NullPointerException {
+        this(world, DEFAULT_NB_WORKERS, DEFAULT_QUEUE_CAPACITY);
+    }
+
+    /**
+     * Initialize a new path service for the given world.
+     * @param world The world of this new service.
+     * @param nbWorkers The number of worker threads.
+     * @param queueCapacity The maximum number of searches waiting for a worker.
+     * @post | new.getWorld() == world && !new.isShutdown()
+     * @throws NullPointerException
+     *          | world == null
+     * @throws IllegalArgumentException
+     *          When the given number of workers or queue capacity is not positive.
+     *          | nbWorkers <= 0 || queueCapacity <= 0
+     */
+    public PathService(World world, int nbWorkers, int queueCapacity) throws NullPointerException, IllegalArgumentException {
+        if(world == null)
+            throw new NullPointerException("The given world must be effective.");
+        if(nbWorkers <= 0 || queueCapacity <= 0)
+            throw new IllegalArgumentException("The number of workers and the queue capacity must be positive.");
+        this.world = world;
+        this.executor = new ThreadPoolExecutor(nbWorkers, nbWorkers, 30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "PathService worker");
+                    thread.setDaemon(true);// Never keep the game alive
+                    return thread;
+                }, new ThreadPoolExecutor.CallerRunsPolicy());
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Return the world of this service.
+     */
+    @Basic @Immutable
+    public World getWorld(){
+        return this.world;
+    }
+
+    /**
+     * Check whether this service is shut down.
+     */
+    public boolean isShutdown(){
+        return this.executor.isShutdown();
+    }
+
+    /**
+     * Search a shortest path from the given source cube to the nearest of the given target
+     * cubes on the current terrain of the world of this service.
+     * @param source The index of the cube to start from.
+     * @param targets The indices of the target cubes.
+     * @return A future of which the result has the current terrain epoch, and of which the path
+     *          is the path as returned by AStarPathFinder.findPath on the current terrain.
+     * @throws IllegalArgumentException
+     *          When no targets are given.
+     *          | targets.length == 0
+     * @throws IllegalStateException
+     *          When this service is shut down.
+     *          | isShutdown()
+     */
+    public Future<PathResult> submit(int source, int[] targets) throws IllegalArgumentException, IllegalStateException {
+        if(targets.length == 0)
+            throw new IllegalArgumentException("At least one target must be given.");
+        if(this.isShutdown())
+            throw new IllegalStateException("The path service is shut down.");
+        TerrainSnapshot snapshot = this.world.getTerrainSnapshot();
+        int[] searchedTargets = targets.clone();
+        return this.executor.submit(() -> {
+            PathSearch search = new PathSearch(this.world, snapshot, source, searchedTargets);
+            while(!search.isFinished())
+                search.resume(Integer.MAX_VALUE);
+            return new PathResult(snapshot.getEpoch(), search.getPath());
+        });
+    }
+
+    /**
+     * Stop the worker threads of this service. Searches which are already submitted still run.
+     * @post | new.isShutdown()
+     */
+    public void shutdown(){
+        this.executor.shutdown();
+    }
+
+    /**
+     * Class representing the result of a search of a path service.
+     */
+    public class PathResult {
+
+        private final long epoch;
+        private final int[] path;
+
+        private PathResult(long epoch, int[] path){
+            this.epoch = epoch;
+            this.path = path;
+        }
+
+        /**
+         * Return the terrain epoch of the snapshot which was searched.
+         */
+        @Basic @Immutable
+        public long getEpoch(){
+            return this.epoch;
+        }
+
+        /**
+         * Return the found path, or null if no path was found.
+         */
+        @Basic @Immutable
+        public int[] getPath(){
+            return this.path == null ? null : this.path.clone();
+        }
+
+        /**
+         * Check whether the terrain has changed since this result was searched.
+         * @return | result == (getEpoch() != getWorld().getTerrainEpoch())
+         */
+        public boolean isStale(){
+            return this.epoch != PathService.this.world.getTerrainEpoch();
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package hillbillies.pathfinding;
+
+import be.kuleuven.cs.som.annotate.Basic;
+import be.kuleuven.cs.som.annotate.Immutable;
+import be.kuleuven.cs.som.annotate.Value;
+
+/**
+ * Class representing the walkable directions of all cubes of a world at a given terrain
+ * epoch. A snapshot never changes, so it can be searched by other threads while the world
+ * itself keeps changing. The pages of walkable directions are shared with the world, which
+ * copies a shared page before changing it.
+ * @author Kenneth & Bram
+ * @version 1.0
+ */
+@Value
+public class TerrainSnapshot {
+
+    /**
+     * Variable registering the terrain epoch of this snapshot.
+     */
+    private final long epoch;
+    /**
+     * Array containing the pages of walkable directions, pages which are null contain
+     * no walkable directions.
+     */
+    private final int[][] pages;
+    /**
+     * Variable registering the number of cube indices in one page.
+     */
+    private final int pageSize;
+
+    /**
+     * Initialize a new snapshot with the given pages of walkable directions.
+     * @param epoch The terrain epoch of the world when the snapshot was taken.
+     * @param pages The pages of walkable directions, which may never change afterwards.
+     * @param pageSize The number of cube indices in one page.
+     * @post | new.getEpoch() == epoch
+     * @throws NullPointerException
+     *          | pages == null
+     * @throws IllegalArgumentException
+     *          When the given page size is not positive.
+     *          | pageSize <= 0
+     */
+    public TerrainSnapshot(long epoch, int[][] pages, int pageSize) throws NullPointerException, IllegalArgumentException {
+        if(pageSize <= 0)
+            throw new IllegalArgumentException("The page size must be positive.");
+        this.epoch = epoch;
+        this.pages = pages.clone();
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * Return the terrain epoch of the world when this snapshot was taken.
+     */
+    @Basic @Immutable
+    public long getEpoch(){
+        return this.epoch;
+    }
+
+    /**
+     * Return the walkable directions of the cube with the given index, as in IWorld.getWalkableDirections,
+     * at the time this snapshot was taken.
+     * @param index The index of the cube.
+     */
+    public int getWalkableDirections(int index){
+        int[] page = this.pages[index / this.pageSize];
+        return page == null ? 0 : page[index % this.pageSize];
+    }
+}
@@ -0,0 +1,228 @@
+package hillbillies.utils;
+
+import be.kuleuven.cs.som.annotate.Basic;
+import be.kuleuven.cs.som.annotate.Immutable;
+
+import java.util.Arrays;
+
+/**
+ * Utility class representing a fixed size set of bits, stored in an array of longs.
+ * Contrary to java.util.BitSet, the size of a BitField never changes and the
+ * underlying words can be read directly, so other classes can combine several
+ * BitFields 64 bits at a time.
+ * @author Kenneth & Bram
+ * @version 1.0
+ *
+ * @invar The bits beyond the size of this BitField are never set.
+ * | for each i in size()..getNbWords()*64-1: !get(i)
+ */
+public final class BitField {
+
+    /**
+     * Constant reflecting the number of bits used to index the bits of one word.
+     */
+    private static final int WORD_BITS = 6;
+
+    /**
+     * Final variable registering the number of bits of this BitField.
+     */
+    private final int size;
+    /**
+     * Array containing the words of this BitField. Bit i is stored in bit i%64 of word i/64.
+     */
+    private final long[] words;
+
+    /**
+     * Initialize this new BitField with the given number of bits, all cleared.
+     * @param size The number of bits.
+     * @post | new.size() == size && new.cardinality() == 0
+     * @throws IllegalArgumentException
+     *          When the given size is negative.
+     *          | size < 0
+     */
+    public BitField(int size) throws IllegalArgumentException {
+        if(size < 0)
+            throw new IllegalArgumentException("The size of a BitField cannot be negative.");
+        this.size = size;
+        this.words = new long[(size + 63) >>> WORD_BITS];
+    }
+
+    /**
+     * Initialize this new BitField as a copy of the given BitField.
+     * @param other The BitField to copy.
+     * @post | new.size() == other.size() && for each i in 0..size()-1: new.get(i) == other.get(i)
+     */
+    public BitField(BitField other){
+        this.size = other.size;
+        this.words = other.words.clone();
+    }
+
+    /**
+     * Return the number of bits of this BitField.
+     */
+    @Basic @Immutable
+    public int size(){
+        return this.size;
+    }
+
+    /**
+     * Return the number of words of this BitField.
+     * @return | result == (size() + 63) / 64
+     */
+    @Immutable
+    public int getNbWords(){
+        return this.words.length;
+    }
+
+    /**
+     * Return the word with the given index, containing the bits 64*index..64*index+63.
+     * @param index The index of the word.
+     * @throws IndexOutOfBoundsException
+     *          | index < 0 || index >= getNbWords()
+     */
+    public long getWord(int index) throws IndexOutOfBoundsException {
+        return this.words[index];
+    }
+
+    /**
+     * Check whether the bit with the given index is set.
+     * @param index The index of the bit.
+     * @throws IndexOutOfBoundsException
+     *          | index < 0 || index >= size()
+     */
+    public boolean get(int index) throws IndexOutOfBoundsException {
+        checkIndex(index);
+        return (this.words[index >>> WORD_BITS] & (1L << index)) != 0;
+    }
+
+    /**
+     * Set the bit with the given index.
+     * @param index The index of the bit.
+     * @post | new.get(index)
+     * @throws IndexOutOfBoundsException
+     *          | index < 0 || index >= size()
+     */
+    public void set(int index) throws IndexOutOfBoundsException {
+        checkIndex(index);
+        this.words[index >>> WORD_BITS] |= 1L << index;
+    }
+
+    /**
+     * Clear the bit with the given index.
+     * @param index The index of the bit.
+     * @post | !new.get(index)
+     * @throws IndexOutOfBoundsException
+     *          | index < 0 || index >= size()
+     */
+    public void clear(int index) throws IndexOutOfBoundsException {
+        checkIndex(index);
+        this.words[index >>> WORD_BITS] &= ~(1L << index);
+    }
+
+    /**
+     * Set the bit with the given index to the given value.
+     * @param index The index of the bit.
+     * @param value The new value of the bit.
+     * @effect | if(value) then set(index) else clear(index)
+     */
+    public void set(int index, boolean value) throws IndexOutOfBoundsException {
+        if(value)
+            this.set(index);
+        else
+            this.clear(index);
+    }
+
+    /**
+     * Return the number of set bits.
+     */
+    public int cardinality(){
+        int count = 0;
+        for(long word : this.words)
+            count += Long.bitCount(word);
+        return count;
+    }
+
+    /**
+     * Return the index of the first set bit at or after the given index, or -1 if there is none.
+     * @param fromIndex The index to start searching from.
+     * @return | if(result == -1) then for each i in fromIndex..size()-1: !get(i)
+     *         | else result >= fromIndex && get(result) &&
+     *         |        for each i in fromIndex..result-1: !get(i)
+     * @throws IndexOutOfBoundsException
+     *          | fromIndex < 0
+     */
+    public int nextSetBit(int fromIndex) throws IndexOutOfBoundsException {
+        if(fromIndex < 0)
+            throw new IndexOutOfBoundsException("fromIndex < 0: " + fromIndex);
+        if(fromIndex >= this.size)
+            return -1;
+        int w = fromIndex >>> WORD_BITS;
+        long word = this.words[w] & (-1L << fromIndex);
+        while(word == 0){
+            if(++w == this.words.length)
+                return -1;
+            word = this.words[w];
+        }
+        return (w << WORD_BITS) + Long.numberOfTrailingZeros(word);
+    }
+
+    /**
+     * Clear all bits of this BitField which are not set in the given BitField.
+     * @param other The BitField to intersect with.
+     * @post | for each i in 0..size()-1: new.get(i) == get(i) && other.get(i)
+     * @throws IllegalArgumentException
+     *          | other.size() != size()
+     */
+    public void and(BitField other) throws IllegalArgumentException {
+        checkSize(other);
+        for(int w = 0; w < this.words.length; w++)
+            this.words[w] &= other.words[w];
+    }
+
+    /**
+     * Set all bits of this BitField which are set in the given BitField.
+     * @param other The BitField to unite with.
+     * @post | for each i in 0..size()-1: new.get(i) == get(i) || other.get(i)
+     * @throws IllegalArgumentException
+     *          | other.size() != size()
+     */
+    public void or(BitField other) throws IllegalArgumentException {
+        checkSize(other);
+        for(int w = 0; w < this.words.length; w++)
+            this.words[w] |= other.words[w];
+    }
+
+    /**
+     * Clear all bits of this BitField which are set in the given BitField.
+     * @param other The BitField to subtract.
+     * @post | for each i in 0..size()-1: new.get(i) == get(i) && !other.get(i)
+     * @throws IllegalArgumentException
+     *          | other.size() != size()
+     */
+    public void andNot(BitField other) throws IllegalArgumentException {
+        checkSize(other);
+        for(int w = 0; w < this.words.length; w++)
+            this.words[w] &= ~other.words[w];
+    }
+
+    @Override
+    public boolean equals(Object other){
+        return other instanceof BitField && ((BitField)other).size == this.size &&
+                Arrays.equals(((BitField)other).words, this.words);
+    }
+
+    @Override
+    public int hashCode(){
+        return 31*this.size + Arrays.hashCode(this.words);
+    }
+
+    private void checkIndex(int index){
+        if(index < 0 || index >= this.size)
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + this.size);
+    }
+
+    private void checkSize(BitField other){
+        if(other.size != this.size)
+            throw new IllegalArgumentException("The given BitField has a different size.");
+    }
+}
@@ -0,0 +1,390 @@
+package hillbillies.utils;
+
+import be.kuleuven.cs.som.annotate.Basic;
+import be.kuleuven.cs.som.annotate.Immutable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Utility class determining whether a solid cube is connected to a border of the world
+ * through other directly adjacent solid cubes, with the same contract as the provided
+ * hillbillies.util.ConnectedToBorder: initially the entire world is solid, and every change
+ * returns the cubes of which the connection to the border changed.
+ *
+ * Contrary to the provided implementation, cubes are identified by a flat index instead of
+ * boxed coordinate lists. The searches share reusable int queues, and remember the visited
+ * and known cubes in arrays of stamps, which are invalidated for the next search by
+ * incrementing an epoch instead of clearing them. The stamps are stored in pages of PAGE_SIZE
+ * cubes, which are only allocated once a search reaches them, so they don't cost 8 bytes for
+ * every cube of the world. The neighbours of a cube are visited in a fixed order, the cube
+ * beneath first, as the bottom layer of a world is its most common border to rest on.
+ * The passable and connected flags stay in two BitFields on the heap: at 2 bits per cube they
+ * take a quarter of the terrain bytes, and they change with every dig and cave-in of the
+ * world they belong to, so unlike its terrain they can't be shared through a mapped file.
+ * @author Kenneth & Bram
+ * @version 1.0
+ */
+public class IndexedConnectedToBorder {
+
+    /**
+     * Constant reflecting the largest epoch, after which all stamps are cleared.
+     */
+    private static final int MAX_EPOCH = Integer.MAX_VALUE >>> 1;
+    /**
+     * Constant reflecting the number of cubes in one page of stamps.
+     */
+    private static final int PAGE_SIZE = 1 << 12;
+    /**
+     * Constants reflecting the directly adjacent directions in the order in which they're
+     * pushed on the stack of a search, so the last one, the cube beneath, is visited first.
+     */
+    private static final int[] DX = {0, 1, -1, 0, 0, 0};
+    private static final int[] DY = {0, 0, 0, 1, -1, 0};
+    private static final int[] DZ = {1, 0, 0, 0, 0, -1};
+
+    /**
+     * Final variables registering the number of cubes in each direction.
+     */
+    private final int nbX, nbY, nbZ;
+    /**
+     * BitFields registering the passable cubes, and the cubes which are not connected to the border.
+     */
+    private final BitField passable;
+    private final BitField notConnected;
+    /**
+     * Pages registering for every cube the search which visited it last.
+     */
+    private final int[][] visited;
+    /**
+     * Pages registering for every cube whether it's known to be connected to the border during
+     * the current change, by its epoch, or known not to be connected, by the negated epoch.
+     */
+    private final int[][] known;
+    private int searchEpoch = 0, changeEpoch = 0;
+    /**
+     * Circular array containing the cubes which are still to be visited by the current search.
+     */
+    private int[] queue = new int[64];
+    private int queueHead = 0, queueSize = 0;
+    /**
+     * Array containing the cubes visited by the current search.
+     */
+    private int[] tested = new int[64];
+    private int nbTested = 0;
+
+    /**
+     * Initialize new connectivity for a world of the given dimensions of which all cubes are solid.
+     * @param nbX The number of cubes in the x-direction.
+     * @param nbY The number of cubes in the y-direction.
+     * @param nbZ The number of cubes in the z-direction.
+     * @post | for each x, y, z: new.isSolidConnectedToBorder(x, y, z)
+     */
+    public IndexedConnectedToBorder(int nbX, int nbY, int nbZ){
+        this.nbX = nbX;
+        this.nbY = nbY;
+        this.nbZ = nbZ;
+        this.passable = new BitField(nbX * nbY * nbZ);
+        this.notConnected = new BitField(nbX * nbY * nbZ);
+        this.visited = new int[(nbX * nbY * nbZ + PAGE_SIZE - 1) / PAGE_SIZE][];
+        this.known = new int[this.visited.length][];
+    }
+
+    /**
+     * Return the number of cubes in the x-direction.
+     */
+    @Basic @Immutable
+    public int getNbX(){
+        return this.nbX;
+    }
+
+    /**
+     * Return the number of cubes in the y-direction.
+     */
+    @Basic @Immutable
+    public int getNbY(){
+        return this.nbY;
+    }
+
+    /**
+     * Return the number of cubes in the z-direction.
+     */
+    @Basic @Immutable
+    public int getNbZ(){
+        return this.nbZ;
+    }
+
+    /**
+     * Check whether the cube with the given coordinates is a solid cube connected to a border
+     * of the world through other directly adjacent solid cubes.
+     * @param x The x-coordinate of the cube.
+     * @param y The y-coordinate of the cube.
+     * @param z The z-coordinate of the cube.
+     */
+    public boolean isSolidConnectedToBorder(int x, int y, int z){
+        int index = this.getIndex(x, y, z);
+        return !this.passable.get(index) && !this.notConnected.get(index);
+    }
+
+    /**
+     * Make the cubes in the given set passable and all other cubes solid, and determine the solid
+     * cubes which are connected to the border in a single flood from the solid border cubes. The
+     * result is the same as making the given cubes passable one by one, but it only takes time
+     * linear in the number of cubes.
+     * @param passable The set of passable cubes, of which each cube is identified by its index.
+     * @return The coordinates {x, y, z} of the solid cubes which are not connected to the border.
+     * @post | for each x, y, z: new.isSolidConnectedToBorder(x, y, z) ==
+     *       |      (!passable.get(getIndex(x, y, z)) && !result.contains({x, y, z}))
+     * @throws IllegalArgumentException
+     *          When the size of the given set doesn't equal the number of cubes.
+     *          | passable.size() != getNbX() * getNbY() * getNbZ()
+     * @throws NullPointerException
+     *          When the given set is not effective.
+     *          | passable == null
+     */
+    public List<int[]> initialize(BitField passable) throws IllegalArgumentException, NullPointerException {
+        if(passable.size() != this.passable.size())
+            throw new IllegalArgumentException("The given set of passable cubes must contain every cube.");
+        this.passable.and(passable);
+        this.passable.or(passable);
+        BitField reached = new BitField(this.passable.size());
+        this.queueHead = this.queueSize = 0;
+        for(int z = 0; z < this.nbZ; z++)
+            for(int y = 0; y < this.nbY; y++)
+                for(int x = 0; x < this.nbX; x++){
+                    int index = this.getIndex(x, y, z);
+                    if(this.isBorder(x, y, z) && !this.passable.get(index)){
+                        reached.set(index);
+                        this.addLast(index);
+                    }
+                }
+        while(this.queueSize > 0){
+            int cube = this.pollFirst();
+            int cx = this.getX(cube), cy = this.getY(cube), cz = this.getZ(cube);
+            for(int d = 0; d < DX.length; d++){
+                int neighbour = this.getNeighbour(cx, cy, cz, d);
+                if(neighbour != -1 && !this.passable.get(neighbour) && !reached.get(neighbour)){
+                    reached.set(neighbour);
+                    this.addLast(neighbour);
+                }
+            }
+        }
+        List<int[]> result = new ArrayList<>();
+        for(int index = 0; index < this.passable.size(); index++){
+            boolean connected = !this.passable.get(index) && reached.get(index);
+            this.notConnected.set(index, !connected);// Passable cubes are never connected
+            if(!connected && !this.passable.get(index))
+                result.add(new int[]{this.getX(index), this.getY(index), this.getZ(index)});
+        }
+        return result;
+    }
+
+    /**
+     * Make the cube with the given coordinates solid instead of passable.
+     * @param x The x-coordinate of the cube.
+     * @param y The y-coordinate of the cube.
+     * @param z The z-coordinate of the cube.
+     * @return The coordinates {x, y, z} of the cubes which became connected to the border by this
+     *          change. If there are any, the given cube is one of them.
+     */
+    public List<int[]> changePassableToSolid(int x, int y, int z){
+        int index = this.getIndex(x, y, z);
+        if(!this.passable.get(index))
+            return Collections.emptyList();
+        this.passable.clear(index);
+        boolean connected = this.isBorder(x, y, z);
+        for(int d = 0; d < DX.length && !connected; d++){
+            int neighbour = this.getNeighbour(x, y, z, d);
+            connected = neighbour != -1 && !this.passable.get(neighbour) && !this.notConnected.get(neighbour);
+        }
+        if(!connected)
+            return Collections.emptyList();
+        // Every solid cube which isn't connected yet and can be reached from the given cube becomes connected
+        List<int[]> result = new ArrayList<>();
+        this.notConnected.clear(index);
+        this.queueHead = this.queueSize = 0;
+        this.addLast(index);
+        while(this.queueSize > 0){
+            int cube = this.pollFirst();
+            int cx = this.getX(cube), cy = this.getY(cube), cz = this.getZ(cube);
+            result.add(new int[]{cx, cy, cz});
+            for(int d = 0; d < DX.length; d++){
+                int neighbour = this.getNeighbour(cx, cy, cz, d);
+                if(neighbour != -1 && !this.passable.get(neighbour) && this.notConnected.get(neighbour)){
+                    this.notConnected.clear(neighbour);
+                    this.addLast(neighbour);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Make the cube with the given coordinates passable instead of solid.
+     * @param x The x-coordinate of the cube.
+     * @param y The y-coordinate of the cube.
+     * @param z The z-coordinate of the cube.
+     * @return The coordinates {x, y, z} of the cubes of which the group of directly adjacent
+     *          solid cubes is no longer connected to the border by this change.
+     * @throws IllegalStateException
+     *          When the current thread is interrupted during a search.
+     */
+    public List<int[]> changeSolidToPassable(int x, int y, int z) throws IllegalStateException {
+        int index = this.getIndex(x, y, z);
+        if(this.passable.get(index))
+            return Collections.emptyList();
+        this.passable.set(index);
+        this.notConnected.set(index);
+        if(++this.changeEpoch > MAX_EPOCH){
+            Arrays.fill(this.known, null);
+            this.changeEpoch = 1;
+        }
+        List<int[]> changed = new ArrayList<>();
+        for(int d = 0; d < DX.length; d++){
+            int neighbour = this.getNeighbour(x, y, z, d);
+            if(neighbour == -1 || this.passable.get(neighbour) || Math.abs(getStamp(this.known, neighbour)) == this.changeEpoch)
+                continue;
+            boolean connected = this.existsPathToBorder(neighbour);
+            for(int i = 0; i < this.nbTested; i++){// All visited cubes are in the same group as the neighbour
+                int cube = this.tested[i];
+                setStamp(this.known, cube, connected ? this.changeEpoch : -this.changeEpoch);
+                if(!connected){
+                    this.notConnected.set(cube);
+                    changed.add(new int[]{this.getX(cube), this.getY(cube), this.getZ(cube)});
+                }
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Search a path through solid cubes from the given cube to the border, depth first. The visited
+     * cubes are registered in tested.
+     */
+    private boolean existsPathToBorder(int origin){
+        if(++this.searchEpoch > MAX_EPOCH){
+            Arrays.fill(this.visited, null);
+            this.searchEpoch = 1;
+        }
+        this.nbTested = 0;
+        this.queueHead = this.queueSize = 0;
+        this.visit(origin);
+        while(this.queueSize > 0){
+            if(Thread.currentThread().isInterrupted())// Searches can take a while, stop when the user gives up
+                throw new IllegalStateException("The search for a path to the border was interrupted.");
+            int cube = this.pollFirst();
+            int known = getStamp(this.known, cube);
+            if(known == this.changeEpoch)
+                return true;
+            if(known == -this.changeEpoch)
+                return false;
+            int cx = this.getX(cube), cy = this.getY(cube), cz = this.getZ(cube);
+            if(this.isBorder(cx, cy, cz))
+                return true;
+            for(int d = 0; d < DX.length; d++){
+                int neighbour = this.getNeighbour(cx, cy, cz, d);
+                if(neighbour != -1 && !this.passable.get(neighbour) && getStamp(this.visited, neighbour) != this.searchEpoch)
+                    this.visit(neighbour);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Mark the given cube as visited by the current search and push it on the stack.
+     */
+    private void visit(int cube){
+        setStamp(this.visited, cube, this.searchEpoch);
+        if(this.nbTested == this.tested.length)
+            this.tested = Arrays.copyOf(this.tested, 2*this.tested.length);
+        this.tested[this.nbTested++] = cube;
+        this.addFirst(cube);
+    }
+
+    /**
+     * Return the stamp of the given cube in the given pages, which is 0 if its page isn't allocated.
+     */
+    private static int getStamp(int[][] pages, int cube){
+        int[] page = pages[cube / PAGE_SIZE];
+        return page == null ? 0 : page[cube % PAGE_SIZE];
+    }
+
+    private static void setStamp(int[][] pages, int cube, int stamp){
+        int[] page = pages[cube / PAGE_SIZE];
+        if(page == null)
+            page = pages[cube / PAGE_SIZE] = new int[PAGE_SIZE];
+        page[cube % PAGE_SIZE] = stamp;
+    }
+
+    private void addFirst(int cube){
+        if(this.queueSize == this.queue.length)
+            this.growQueue();
+        this.queueHead = (this.queueHead - 1) & (this.queue.length - 1);
+        this.queue[this.queueHead] = cube;
+        this.queueSize++;
+    }
+
+    private void addLast(int cube){
+        if(this.queueSize == this.queue.length)
+            this.growQueue();
+        this.queue[(this.queueHead + this.queueSize++) & (this.queue.length - 1)] = cube;
+    }
+
+    private int pollFirst(){
+        int cube = this.queue[this.queueHead];
+        this.queueHead = (this.queueHead + 1) & (this.queue.length - 1);
+        this.queueSize--;
+        return cube;
+    }
+
+    /**
+     * Double the length of the queue, which stays a power of two, moving its cubes to the front.
+     */
+    private void growQueue(){
+        int[] queue = new int[2*this.queue.length];
+        for(int i = 0; i < this.queueSize; i++)
+            queue[i] = this.queue[(this.queueHead + i) & (this.queue.length - 1)];
+        this.queue = queue;
+        this.queueHead = 0;
+    }
+
+    /**
+     * Return the index of the cube next to the cube with the given coordinates in the given
+     * direction, or -1 if that cube is outside the world.
+     */
+    private int getNeighbour(int x, int y, int z, int direction){
+        int nx = x + DX[direction], ny = y + DY[direction], nz = z + DZ[direction];
+        if(nx < 0 || nx >= this.nbX || ny < 0 || ny >= this.nbY || nz < 0 || nz >= this.nbZ)
+            return -1;
+        return this.getIndex(nx, ny, nz);
+    }
+
+    private boolean isBorder(int x, int y, int z){
+        return x == 0 || x == this.nbX - 1 || y == 0 || y == this.nbY - 1 || z == 0 || z == this.nbZ - 1;
+    }
+
+    /**
+     * Return the index of the cube with the given coordinates, which identifies that cube in the
+     * set of passable cubes given to initialize.
+     * @param x The x-coordinate of the cube.
+     * @param y The y-coordinate of the cube.
+     * @param z The z-coordinate of the cube.
+     */
+    public int getIndex(int x, int y, int z){
+        return x + this.nbX * (y + this.nbY * z);
+    }
+
+    private int getX(int index){
+        return index % this.nbX;
+    }
+
+    private int getY(int index){
+        return (index / this.nbX) % this.nbY;
+    }
+
+    private int getZ(int index){
+        return index / (this.nbX * this.nbY);
+    }
+}
@@ -0,0 +1,164 @@
+package hillbillies.utils;
+
+import be.kuleuven.cs.som.annotate.Basic;
+
+import java.util.Arrays;
+
+/**
+ * Utility class representing a map from non-negative int keys to int values, stored with
+ * open addressing and linear probing in one array of keys and one array of values. Contrary
+ * to a HashMap of Integers, no objects are created for the entries, so small maps which
+ * change every tick, like the positions of the cubes of a path, don't create garbage.
+ * @author Kenneth & Bram
+ * @version 1.0
+ *
+ * @invar The number of entries is never negative.
+ * | size() >= 0
+ */
+public final class IntIntMap {
+
+    /**
+     * Constant reflecting the key of a free slot.
+     */
+    private static final int FREE = -1;
+
+    /**
+     * Arrays containing the keys and values of the slots of this map. The number of slots is
+     * a power of two, and at most half of them is used.
+     */
+    private int[] keys;
+    private int[] values;
+    /**
+     * Variable registering the number of entries of this map.
+     */
+    private int size = 0;
+    /**
+     * Variable registering the shift taking the bits of a hashed key which index the slots.
+     */
+    private int shift = 28;
+
+    /**
+     * Initialize this new map without entries.
+     * @post | new.size() == 0
+     */
+    public IntIntMap(){
+        this.keys = new int[16];
+        Arrays.fill(this.keys, FREE);
+        this.values = new int[16];
+    }
+
+    /**
+     * Return the number of entries of this map.
+     */
+    @Basic
+    public int size(){
+        return this.size;
+    }
+
+    /**
+     * Check whether this map has an entry for the given key.
+     */
+    public boolean containsKey(int key){
+        return key >= 0 && this.keys[this.findSlot(key)] == key;
+    }
+
+    /**
+     * Return the value of the given key, or the given default value if this map has no entry for it.
+     */
+    public int get(int key, int defaultValue){
+        if(key < 0)
+            return defaultValue;
+        int slot = this.findSlot(key);
+        return this.keys[slot] == key ? this.values[slot] : defaultValue;
+    }
+
+    /**
+     * Let the given key map to the given value.
+     * @post | new.get(key, value + 1) == value
+     * @throws IllegalArgumentException
+     *          When the given key is negative.
+     *          | key < 0
+     */
+    public void put(int key, int value) throws IllegalArgumentException {
+        if(key < 0)
+            throw new IllegalArgumentException("The keys of an IntIntMap cannot be negative.");
+        int slot = this.findSlot(key);
+        if(this.keys[slot] == FREE){
+            if(2*(this.size + 1) > this.keys.length){
+                this.resize(2*this.keys.length);
+                slot = this.findSlot(key);
+            }
+            this.keys[slot] = key;
+            this.size++;
+        }
+        this.values[slot] = value;
+    }
+
+    /**
+     * Remove the entry of the given key, if any.
+     * @post | !new.containsKey(key)
+     */
+    public void remove(int key){
+        if(key < 0)
+            return;
+        int slot = this.findSlot(key);
+        if(this.keys[slot] != key)
+            return;
+        this.size--;
+        int mask = this.keys.length - 1;
+        // Shift the entries after the slot back, so none of them is cut off from its home slot
+        for(int next = (slot + 1) & mask; this.keys[next] != FREE; next = (next + 1) & mask){
+            int home = this.getHomeSlot(this.keys[next]);
+            if(((next - home) & mask) >= ((next - slot) & mask)){
+                this.keys[slot] = this.keys[next];
+                this.values[slot] = this.values[next];
+                slot = next;
+            }
+        }
+        this.keys[slot] = FREE;
+    }
+
+    /**
+     * Remove all entries of this map.
+     * @post | new.size() == 0
+     */
+    public void clear(){
+        Arrays.fill(this.keys, FREE);
+        this.size = 0;
+    }
+
+    /**
+     * Return the slot of the given key, or the free slot where it would be stored.
+     */
+    private int findSlot(int key){
+        int mask = this.keys.length - 1;
+        int slot = this.getHomeSlot(key);
+        while(this.keys[slot] != key && this.keys[slot] != FREE)
+            slot = (slot + 1) & mask;
+        return slot;
+    }
+
+    /**
+     * Return the slot at which the search for the given key starts.
+     */
+    private int getHomeSlot(int key){
+        return (key * 0x9E3779B9) >>> this.shift;
+    }
+
+    /**
+     * Store the entries of this map in the given number of slots.
+     */
+    private void resize(int nbSlots){
+        int[] keys = this.keys, values = this.values;
+        this.keys = new int[nbSlots];
+        Arrays.fill(this.keys, FREE);
+        this.values = new int[nbSlots];
+        this.shift = Integer.numberOfLeadingZeros(nbSlots) + 1;
+        for(int i = 0; i < keys.length; i++)
+            if(keys[i] != FREE){
+                int slot = this.findSlot(keys[i]);
+                this.keys[slot] = keys[i];
+                this.values[slot] = values[i];
+            }
+    }
+}
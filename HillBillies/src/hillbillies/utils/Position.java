@@ -0,0 +1,208 @@
+package hillbillies.utils;
+
+import be.kuleuven.cs.som.annotate.Basic;
+import be.kuleuven.cs.som.annotate.Immutable;
+import be.kuleuven.cs.som.annotate.Value;
+
+/**
+ * Utility class representing an immutable 3-dimensional position. Unlike Vector,
+ * a Position stores its coordinates in three fields and caches the coordinates of
+ * the cube it lies in, so reading a coordinate never copies or allocates.
+ * @author Kenneth & Bram
+ * @version 1.0
+ *
+ * @invar The cube coordinates of each Position correspond to its coordinates.
+ * | cubeX() == floor(X()/CUBE_SIDE_LENGTH) && cubeY() == floor(Y()/CUBE_SIDE_LENGTH) &&
+ * | cubeZ() == floor(Z()/CUBE_SIDE_LENGTH)
+ */
+@Value
+public final class Position {
+    /**
+     * Constant reflecting the length of a cube side.
+     */
+    public static final double CUBE_SIDE_LENGTH = Vector.CUBE_SIDE_LENGTH;
+    /**
+     * Constant reflecting the precision used by isCloseTo.
+     */
+    public static final double EQUALS_PRECISION = Vector.EQUALS_PRECISION;
+
+    /**
+     * Variables registering the coordinates of this Position.
+     */
+    private final double x, y, z;
+    /**
+     * Variables registering the coordinates of the cube this Position lies in.
+     */
+    private final int cubeX, cubeY, cubeZ;
+    /**
+     * Variable referencing the Vector representation of this Position.
+     * It is only created when it's requested.
+     */
+    private Vector vector;
+
+    /**
+     * Initialize a new Position with given coordinates.
+     * @param x The x-coordinate of this new Position.
+     * @param y The y-coordinate of this new Position.
+     * @param z The z-coordinate of this new Position.
+     * @post | new.X() == x && new.Y() == y && new.Z() == z
+     */
+    public Position(double x, double y, double z){
+        this.x = x;
+        this.y = y;
+        this.z = z;
+        this.cubeX = (int)Math.floor(x/CUBE_SIDE_LENGTH);
+        this.cubeY = (int)Math.floor(y/CUBE_SIDE_LENGTH);
+        this.cubeZ = (int)Math.floor(z/CUBE_SIDE_LENGTH);
+    }
+
+    /**
+     * Initialize a new Position with the coordinates of the given Vector.
+     * @param vector The vector containing the coordinates of this new Position.
+     * @effect | this(vector.X(), vector.Y(), vector.Z())
+     * @throws NullPointerException
+     *          When the given vector is not effective.
+     *          | vector == null
+     * @throws IndexOutOfBoundsException
+     *          When the dimension of the given vector is less than 3.
+     *          | vector.dimension() < 3
+     */
+    public Position(Vector vector) throws NullPointerException, IndexOutOfBoundsException {
+        this(vector.X(), vector.Y(), vector.Z());
+        if(vector.dimension() == 3)
+            this.vector = vector;
+    }
+
+    /**
+     * Return the x-coordinate of this Position.
+     */
+    @Basic @Immutable
+    public double X(){
+        return this.x;
+    }
+
+    /**
+     * Return the y-coordinate of this Position.
+     */
+    @Basic @Immutable
+    public double Y(){
+        return this.y;
+    }
+
+    /**
+     * Return the z-coordinate of this Position.
+     */
+    @Basic @Immutable
+    public double Z(){
+        return this.z;
+    }
+
+    /**
+     * Return the x-coordinate of the cube this Position lies in.
+     */
+    @Basic @Immutable
+    public int cubeX(){
+        return this.cubeX;
+    }
+
+    /**
+     * Return the y-coordinate of the cube this Position lies in.
+     */
+    @Basic @Immutable
+    public int cubeY(){
+        return this.cubeY;
+    }
+
+    /**
+     * Return the z-coordinate of the cube this Position lies in.
+     */
+    @Basic @Immutable
+    public int cubeZ(){
+        return this.cubeZ;
+    }
+
+    /**
+     * Add the given offsets to the coordinates of this Position.
+     * @param dx The offset along the x-axis.
+     * @param dy The offset along the y-axis.
+     * @param dz The offset along the z-axis.
+     * @return | result.equals(new Position(X()+dx, Y()+dy, Z()+dz))
+     */
+    public Position add(double dx, double dy, double dz){
+        return new Position(x+dx, y+dy, z+dz);
+    }
+
+    /**
+     * Return the position of the center of the cube this Position lies in.
+     * @return | result.equals(new Position((cubeX()+0.5)*CUBE_SIDE_LENGTH,
+     *         |        (cubeY()+0.5)*CUBE_SIDE_LENGTH, (cubeZ()+0.5)*CUBE_SIDE_LENGTH))
+     */
+    public Position getCubeCenter(){
+        return new Position((cubeX+0.5)*CUBE_SIDE_LENGTH, (cubeY+0.5)*CUBE_SIDE_LENGTH, (cubeZ+0.5)*CUBE_SIDE_LENGTH);
+    }
+
+    /**
+     * Check whether this Position lies in the same cube as the given Position.
+     * @param other The position to check against.
+     * @return | result == cubeX()==other.cubeX() && cubeY()==other.cubeY() && cubeZ()==other.cubeZ()
+     */
+    public boolean isInSameCube(Position other){
+        return cubeX == other.cubeX && cubeY == other.cubeY && cubeZ == other.cubeZ;
+    }
+
+    /**
+     * Check whether this Position lies close to the given Position.
+     * @param other The position to check against.
+     * @return True when the absolute difference of each coordinate is at most EQUALS_PRECISION.
+     *          | result == abs(X()-other.X()) <= EQUALS_PRECISION &&
+     *          |   abs(Y()-other.Y()) <= EQUALS_PRECISION && abs(Z()-other.Z()) <= EQUALS_PRECISION
+     * @note This is the same notion of equality as Vector.equals.
+     */
+    public boolean isCloseTo(Position other){
+        return Math.abs(x-other.x) <= EQUALS_PRECISION &&
+                Math.abs(y-other.y) <= EQUALS_PRECISION &&
+                Math.abs(z-other.z) <= EQUALS_PRECISION;
+    }
+
+    /**
+     * Return the Vector representation of this Position.
+     * @return | result.equals(new Vector(X(), Y(), Z()))
+     * @note The returned Vector is cached, since Vectors are immutable.
+     */
+    public Vector asVector(){
+        if(this.vector == null)
+            this.vector = new Vector(x, y, z);
+        return this.vector;
+    }
+
+    /**
+     * Check whether this Position equals the given object.
+     * @param other The object to compare with.
+     * @return True if and only if the other object is a Position with exactly the same coordinates.
+     *          Positive and negative zero are considered equal.
+     *          | result == (other instanceof Position) && X()==other.X() && Y()==other.Y() && Z()==other.Z()
+     * @note Unlike Vector.equals, this equality is exact, so it is consistent with hashCode and
+     *          Positions can safely be used as keys. Use isCloseTo for an approximate comparison.
+     */
+    @Override
+    public boolean equals(Object other){
+        if(this == other) return true;
+        if(!(other instanceof Position)) return false;
+        Position p = (Position)other;
+        return x == p.x && y == p.y && z == p.z;
+    }
+
+    @Override
+    public int hashCode(){
+        int hashCode = 17;
+        hashCode = hashCode*31 + Double.hashCode(x + 0d);// + 0d maps -0d to 0d
+        hashCode = hashCode*31 + Double.hashCode(y + 0d);
+        hashCode = hashCode*31 + Double.hashCode(z + 0d);
+        return hashCode;
+    }
+
+    @Override
+    public String toString(){
+        return "[" + x + ", " + y + ", " + z + "]";
+    }
+}
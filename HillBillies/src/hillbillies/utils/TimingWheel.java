@@ -0,0 +1,280 @@
+package hillbillies.utils;
+
+import be.kuleuven.cs.som.annotate.Basic;
+import be.kuleuven.cs.som.annotate.Raw;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Utility class representing a hierarchical timing wheel. Actions can be scheduled
+ * to be executed after a certain amount of game-time. Advancing the time of the wheel
+ * only costs work for the slots which are passed and the events which are due, so
+ * objects waiting for a timer don't have to be advanced each tick.
+ *
+ * Time is kept internally as a whole number of microseconds, which makes sums of
+ * the usual time steps exact. Events are bucketed per millisecond: level 0 holds the
+ * next WHEEL_SIZE milliseconds, each higher level holds WHEEL_SIZE slots of the
+ * level beneath it. When the time of the wheel passes a slot of a higher level, its
+ * events are cascaded into the lower levels.
+ * @author Kenneth & Bram
+ * @version 1.0
+ *
+ * @invar The time of this wheel is never negative.
+ * | getTime() >= 0
+ * @invar The number of pending events is never negative.
+ * | getNbPendingEvents() >= 0
+ */
+public class TimingWheel {
+
+    /**
+     * Constant reflecting the number of microseconds in one second.
+     */
+    public static final long MICROS_PER_SECOND = 1000000L;
+    /**
+     * Constant reflecting the duration of one slot of the lowest level, in microseconds.
+     */
+    private static final long RESOLUTION = 1000L;
+    /**
+     * Constant reflecting the number of bits used to index the slots of one level.
+     */
+    private static final int WHEEL_BITS = 6;
+    /**
+     * Constant reflecting the number of slots in one level.
+     */
+    private static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+    /**
+     * Constant reflecting the number of levels in this wheel.
+     * Events further in the future than the top level are kept in its last slot until
+     * they come in range.
+     */
+    private static final int NB_LEVELS = 6;
+
+    /**
+     * Variable registering the current time of this wheel, in microseconds.
+     */
+    private long time = 0L;
+    /**
+     * Variable registering the slot of the lowest level which was processed last.
+     */
+    private long currentTick = 0L;
+    /**
+     * Variable registering the sequence number of the next scheduled event.
+     */
+    private long nextSequence = 0L;
+    /**
+     * Variable registering the number of events which are scheduled and not yet executed nor cancelled.
+     */
+    private int nbPendingEvents = 0;
+    /**
+     * List containing the slots of every level of this wheel, level after level.
+     */
+    private final List<List<Event>> slots = createSlots();
+    /**
+     * List containing the events whose slot is already passed.
+     */
+    private List<Event> dueEvents = new ArrayList<>();
+
+    /**
+     * Class representing an event scheduled in a TimingWheel.
+     */
+    public final class Event implements Comparable<Event> {
+        /**
+         * Final variables registering the time at which this event is due, in microseconds,
+         * and the sequence number of this event.
+         */
+        private final long dueTime, sequence;
+        /**
+         * Final variable referencing the action to execute when this event is due.
+         */
+        private final Runnable action;
+        /**
+         * Variable registering whether this event is still pending.
+         */
+        private boolean isPending = true;
+
+        private Event(long dueTime, Runnable action){
+            this.dueTime = dueTime;
+            this.sequence = nextSequence++;
+            this.action = action;
+        }
+
+        /**
+         * Return the game-time at which this event is due, in seconds.
+         */
+        @Basic
+        public double getDueTime(){
+            return (double)this.dueTime / MICROS_PER_SECOND;
+        }
+
+        /**
+         * Check whether this event is still pending, i.e. it's not executed nor cancelled yet.
+         */
+        @Basic
+        public boolean isPending(){
+            return this.isPending;
+        }
+
+        /**
+         * Cancel this event. Nothing happens when this event isn't pending anymore.
+         * @post | !new.isPending()
+         */
+        public void cancel(){
+            if(this.isPending){
+                this.isPending = false;
+                nbPendingEvents--;
+            }
+        }
+
+        /**
+         * Compare this event with the given event. Events are ordered by their due time,
+         * events due at the same time are ordered in the order they were scheduled.
+         */
+        @Override
+        public int compareTo(Event other){
+            int cmp = Long.compare(this.dueTime, other.dueTime);
+            return cmp != 0 ? cmp : Long.compare(this.sequence, other.sequence);
+        }
+    }
+
+    /**
+     * Return the current game-time of this wheel, in seconds.
+     */
+    @Basic
+    public double getTime(){
+        return (double)this.time / MICROS_PER_SECOND;
+    }
+
+    /**
+     * Return the number of pending events in this wheel.
+     */
+    @Basic
+    public int getNbPendingEvents(){
+        return this.nbPendingEvents;
+    }
+
+    /**
+     * Schedule the given action to be executed after the given delay.
+     * @param delay The delay in seconds after which the action will be executed.
+     * @param action The action to execute.
+     * @return A new pending event which is due after the given delay.
+     *          | result.isPending() && result.getDueTime() == getTime() + delay
+     * @throws IllegalArgumentException
+     *          When the given delay is negative or not a number.
+     *          | !(delay >= 0)
+     * @throws NullPointerException
+     *          When the given action is not effective.
+     *          | action == null
+     * @note Events which are due at the current time of this wheel are executed
+     *          during the next call to advanceTime.
+     */
+    public Event schedule(double delay, Runnable action) throws IllegalArgumentException, NullPointerException {
+        if(!(delay >= 0))
+            throw new IllegalArgumentException("The delay of an event cannot be negative.");
+        if(action == null)
+            throw new NullPointerException("The action of an event must be effective.");
+        Event event = new Event(this.time + Math.round(delay*MICROS_PER_SECOND), action);
+        this.nbPendingEvents++;
+        this.insert(event);
+        return event;
+    }
+
+    /**
+     * Advance the time of this wheel with the given amount of time and execute
+     * all pending events which are due, in order of their due time.
+     * @param dt The amount of time to advance with, in seconds.
+     * @post | new.getTime() == getTime() + dt
+     * @throws IllegalArgumentException
+     *          When the given amount of time is negative or not a number.
+     *          | !(dt >= 0)
+     * @note Events scheduled by the executed actions are executed at the earliest
+     *          during the next call to advanceTime.
+     */
+    public void advanceTime(double dt) throws IllegalArgumentException {
+        if(!(dt >= 0))
+            throw new IllegalArgumentException("The time cannot be advanced with a negative amount.");
+        this.time += Math.round(dt*MICROS_PER_SECOND);
+        long targetTick = this.time / RESOLUTION;
+        if(this.nbPendingEvents == 0){
+            this.currentTick = targetTick;
+            this.dueEvents.clear();
+            return;
+        }
+        while(this.currentTick < targetTick){
+            this.currentTick++;
+            this.cascade();
+        }
+
+        List<Event> fired = new ArrayList<>();
+        List<Event> remaining = new ArrayList<>();
+        for(Event event : this.dueEvents){
+            if(!event.isPending()) continue;
+            if(event.dueTime <= this.time)
+                fired.add(event);
+            else
+                remaining.add(event);
+        }
+        this.dueEvents = remaining;
+        fired.sort(null);
+        for(Event event : fired){
+            if(event.isPending()){// An earlier action can cancel this event
+                event.cancel();
+                event.action.run();
+            }
+        }
+    }
+
+    /**
+     * Move the events of the slots reached by the current tick one level down,
+     * or to the due events when their slot is reached on the lowest level.
+     */
+    private void cascade(){
+        for(int level = 0; level < NB_LEVELS; level++){
+            int shift = WHEEL_BITS*level;
+            if(level > 0 && (this.currentTick & ((1L << shift) - 1)) != 0)
+                break;// Slots of this level are only reached on the boundaries of the level beneath
+            int slot = (int)((this.currentTick >>> shift) & (WHEEL_SIZE - 1));
+            List<Event> events = this.slots.get(level*WHEEL_SIZE + slot);
+            if(!events.isEmpty()){
+                this.slots.set(level*WHEEL_SIZE + slot, new ArrayList<>());
+                for(Event event : events)
+                    if(event.isPending())
+                        this.insert(event);
+            }
+        }
+    }
+
+    /**
+     * Insert the given event in the slot corresponding to its due time.
+     * @param event The event to insert.
+     */
+    @Raw
+    private void insert(Event event){
+        long tick = event.dueTime / RESOLUTION;
+        if(tick <= this.currentTick){
+            this.dueEvents.add(event);
+            return;
+        }
+        int level = 0;
+        while(level < NB_LEVELS - 1 &&
+                (tick >>> (WHEEL_BITS*level)) - (this.currentTick >>> (WHEEL_BITS*level)) >= WHEEL_SIZE)
+            level++;
+        int slot;
+        long offset = (tick >>> (WHEEL_BITS*level)) - (this.currentTick >>> (WHEEL_BITS*level));
+        if(offset >= WHEEL_SIZE)// Too far in the future, keep it in the last slot of the top level
+            slot = (int)(((this.currentTick >>> (WHEEL_BITS*level)) + WHEEL_SIZE - 1) & (WHEEL_SIZE - 1));
+        else
+            slot = (int)((tick >>> (WHEEL_BITS*level)) & (WHEEL_SIZE - 1));
+        this.slots.get(level*WHEEL_SIZE + slot).add(event);
+    }
+
+    /**
+     * Return a list of NB_LEVELS*WHEEL_SIZE empty slots.
+     */
+    private static List<List<Event>> createSlots(){
+        List<List<Event>> slots = new ArrayList<>(NB_LEVELS*WHEEL_SIZE);
+        for(int i = 0; i < NB_LEVELS*WHEEL_SIZE; i++)
+            slots.add(new ArrayList<>());
+        return slots;
+    }
+}
@@ -257,11 +257,7 @@ public class Vector {
      *          | result.equals(this) == true
      */
     public Vector clone() {
-        try {
-            return (Vector)super.clone();
-        }catch(CloneNotSupportedException e){
-            return new Vector(this.vectorList);
-        }
+        return new Vector(this.vectorList);// Vector is not Cloneable, a shallow copy would share vectorList
     }
 
     /**
@@ -302,7 +298,7 @@ public class Vector {
     public int hashCode(){
         int hashCode = 17;
         for(double d : vectorList)
-            hashCode = hashCode*31 + Double.valueOf(d).hashCode();
+            hashCode = hashCode*31 + Double.hashCode(d + 0d);// + 0d maps -0d to 0d, which are equal Vector coordinates
         return hashCode;
     }
 
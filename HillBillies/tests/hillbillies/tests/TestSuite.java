@@ -1,8 +1,11 @@
 package hillbillies.tests;
 
+import hillbillies.tests.activities.*;
 import hillbillies.tests.facade.*;
 import hillbillies.tests.model.*;
+import hillbillies.tests.pathfinding.*;
 import hillbillies.tests.programs.*;
+import hillbillies.tests.utils.*;
 import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
 
@@ -21,7 +24,19 @@ import org.junit.runners.Suite;
         WorldTest.class,
         SchedulerTest.class,
         TaskFactoryTest.class,
-        MaterialTest.class
+        MaterialTest.class,
+        IndexedConnectedToBorderTest.class,
+        AStarPathFinderTest.class,
+        HierarchicalPathFinderTest.class,
+        DistanceFieldTest.class,
+        PathCacheTest.class,
+        DStarLitePathFinderTest.class,
+        PathServiceTest.class,
+        FlowFieldRegistryTest.class,
+        PathSchedulerTest.class,
+        LandmarksTest.class,
+        ComponentLabelsTest.class,
+        TargetMoveTest.class
 })
 public class TestSuite {
 }
@@ -0,0 +1,229 @@
+package hillbillies.tests.activities;
+
+import hillbillies.activities.TargetMove;
+import hillbillies.model.IWorld;
+import hillbillies.model.IWorldObject;
+import hillbillies.model.Terrain;
+import hillbillies.model.Unit;
+import hillbillies.model.World;
+import hillbillies.pathfinding.PathCache;
+import hillbillies.pathfinding.PathScheduler;
+import hillbillies.tests.util.TestWorldBuilder;
+import hillbillies.utils.Vector;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Kenneth & Bram
+ * @version 1.0
+ */
+public class TargetMoveTest {
+
+    private World world;
+    private Unit unit;
+    private TargetMove.Path path;
+
+    @Before
+    public void setUp() throws Exception {
+        int[][][] terrain = new int[100][20][3];
+        for(int x=0;x<100;x++)
+            for(int y=0;y<20;y++)
+                terrain[x][y][0] = Terrain.ROCK.getId();
+        for(int x=0;x<100;x++)// Corridor along y = 2, so paths along it are straight lines
+            terrain[x][1][1] = terrain[x][3][1] = Terrain.ROCK.getId();
+        world = new World(terrain, null);
+        unit = new Unit(world, "Unit", new Vector(2,2,1));
+        unit.moveToTarget(new Vector(17,2,1));
+        path = ((TargetMove)unit.getCurrentActivity()).getPath();
+    }
+
+    @Test
+    public void getNext() throws Exception {
+        assertEquals(3, path.getNbChunks());// x 3..7, 8..15 and 16..17
+        for(int x=3;x<8;x++)
+            assertEquals(new Vector(x,2,1), path.getNext());
+        assertEquals(2, path.getNbChunks());
+        assertFalse(path.contains(new Vector(7,2,1)));
+        assertTrue(path.contains(new Vector(8,2,1)));
+        for(int x=8;x<18;x++)
+            assertEquals(new Vector(x,2,1), path.getNext());
+        assertFalse(path.hasNext());
+        assertEquals(0, path.getNbChunks());
+        assertFalse(path.contains(new Vector(17,2,1)));
+    }
+
+    @Test
+    public void add() throws Exception {
+        path.add(new Vector(2,2,1));
+        assertTrue(path.contains(new Vector(2,2,1)));
+        assertEquals(new Vector(2,2,1), path.getNext());
+        assertEquals(new Vector(3,2,1), path.getNext());
+        path.add(new Vector(6,2,1));// Already on the path, so the cubes before it are skipped
+        assertFalse(path.contains(new Vector(5,2,1)));
+        assertEquals(new Vector(6,2,1), path.getNext());
+        assertEquals(new Vector(17,2,1), path.getTarget());
+    }
+
+    @Test
+    public void addGrow() throws Exception {
+        // Prepend a detour along the rows 3..5, far more cubes than the free room in front
+        List<Vector> detour = new ArrayList<>();
+        for(int y=3;y<6;y++)
+            for(int i=0;i<18;i++)
+                detour.add(new Vector(y % 2 == 1 ? 2 + i : 19 - i, y, 1));
+        for(Vector position : detour)
+            path.add(position);
+        List<Vector> expected = new ArrayList<>();
+        for(int i=detour.size()-1;i>=0;i--)
+            expected.add(detour.get(i));
+        for(int x=3;x<18;x++)
+            expected.add(new Vector(x,2,1));
+        for(Vector position : expected)
+            assertTrue(path.contains(position));
+        assertEquals(new Vector(17,2,1), path.getTarget());
+        for(Vector position : expected)
+            assertEquals(position, path.getNext());
+        assertFalse(path.hasNext());
+    }
+
+    @Test
+    public void removeFromPath() throws Exception {
+        path.removeFromPath(new Vector(10,2,1));
+        assertEquals(new Vector(10,2,1), path.getTarget());
+        assertEquals(world.getCubeIndex(10,2,1), path.getTargetCube());
+        assertFalse(path.contains(new Vector(11,2,1)));
+        assertEquals(2, path.getNbChunks());
+        for(int x=3;x<11;x++)
+            assertEquals(new Vector(x,2,1), path.getNext());
+        assertFalse(path.hasNext());
+    }
+
+    @Test
+    public void dependsOn() throws Exception {
+        assertTrue(path.dependsOn(new Vector(10,2,1)));
+        assertTrue(path.dependsOn(new Vector(10,3,1)));
+        assertTrue(path.dependsOn(new Vector(10,2,0)));// The floor under the path
+        assertTrue(path.dependsOn(new Vector(2,1,2)));// Next to the first cube
+        assertFalse(path.dependsOn(new Vector(10,4,1)));
+        assertFalse(path.dependsOn(new Vector(15,15,1)));
+        path.removeFromPath(new Vector(10,2,1));
+        assertTrue(path.dependsOn(new Vector(11,3,2)));
+        assertFalse(path.dependsOn(new Vector(12,2,1)));
+        path.getNext();
+        path.getNext();
+        assertFalse(path.dependsOn(new Vector(2,2,1)));
+    }
+
+    @Test
+    public void followLeader() throws Exception {
+        ScriptedLeader leader = new ScriptedLeader(new Vector(10,2,1));
+        Unit follower = new Unit(world, "Follower", new Vector(2,2,1));
+        TargetMove move = new TargetMove(follower, new HashSet<>(Collections.singleton(leader)));
+        follower.requestNewActivity(move);
+        PathScheduler scheduler = world.getPathScheduler();
+        int nbSearches = scheduler.getNbFinishedSearches();
+        stepTo(follower, move, leader, new Vector(9,2,1));// The leader steps back onto the path
+        assertEquals(new Vector(9,2,1), move.getPath().getTarget());
+        assertFalse(move.getPath().contains(new Vector(10,2,1)));
+        stepTo(follower, move, leader, new Vector(10,2,1));// The leader steps away from the end of the path
+        assertEquals(new Vector(10,2,1), move.getPath().getTarget());
+        assertTrue(move.getPath().contains(new Vector(9,2,1)));
+        stepTo(follower, move, leader, new Vector(13,2,1));// A short detour from the end of the path
+        assertEquals(new Vector(13,2,1), move.getPath().getTarget());
+        assertTrue(move.getPath().contains(new Vector(11,2,1)) && move.getPath().contains(new Vector(12,2,1)));
+        assertEquals(nbSearches, scheduler.getNbFinishedSearches());
+        stepTo(follower, move, leader, new Vector(95,2,1));// Too far for a detour, so the path is searched again
+        assertEquals(new Vector(95,2,1), move.getPath().getTarget());
+        assertEquals(nbSearches + 1, scheduler.getNbFinishedSearches());
+        assertFalse(move.isPlanning());
+        for(int i=0;i<2000 && follower.isMoving();i++)
+            follower.advanceTime(0.2);
+        assertFalse(follower.isMoving());
+        assertTrue(world.areNeighbouringCubes(world.getCubeIndex(follower.getPosition()), world.getCubeIndex(leader.getPosition())));
+    }
+
+    @Test
+    public void scheduledPathCachedIfCurrent() throws Exception {
+        World world = new TestWorldBuilder(120,120,3).withWall(60, 0, 116).build();// A long detour through the gap
+        PathCache cache = world.getPathCache();
+        Unit unit = scheduleAndFinish(world, new Vector(2,2,1), new Vector(115,2,1));
+        unit.advanceTime(0.2);
+        assertNotNull(cache.get(world.getCubeIndex(2,2,1), world.getCubeIndex(115,2,1)));
+        unit = scheduleAndFinish(world, new Vector(2,5,1), new Vector(115,5,1));
+        for(int y=116;y<120;y++)// Close the gap before the TargetMove takes over the path
+            for(int z=1;z<3;z++)
+                world.getCube(new Vector(60,y,z)).setTerrain(Terrain.ROCK);
+        unit.advanceTime(0.2);
+        assertNull(cache.get(world.getCubeIndex(2,5,1), world.getCubeIndex(115,5,1)));
+    }
+
+    /**
+     * Let a new unit at the given cube move to the given target, and continue its search on the
+     * path scheduler of the given world until it's finished, without advancing the unit.
+     */
+    private Unit scheduleAndFinish(World world, Vector cube, Vector target){
+        Unit unit = new Unit(world, "Unit", cube);
+        unit.moveToTarget(target);
+        TargetMove move = (TargetMove)unit.getCurrentActivity();
+        assertTrue(move.isPlanning());
+        PathScheduler scheduler = world.getPathScheduler();
+        while(scheduler.getNbPendingSearches() > 0)
+            scheduler.startTick();
+        assertTrue(move.isPlanning());
+        return unit;
+    }
+
+    /**
+     * Advance the given follower until the given TargetMove is about to take its next step,
+     * move the given leader to the given cube and let the TargetMove adapt its path.
+     */
+    private void stepTo(Unit follower, TargetMove move, ScriptedLeader leader, Vector cube){
+        do{
+            follower.advanceTime(0.2);
+        }while(follower.getCurrentActivity() != move);
+        leader.position = new Vector(cube.X() + 0.5, cube.Y() + 0.5, cube.Z() + 0.5);
+        follower.advanceTime(0.2);
+    }
+
+    /**
+     * Class representing an object which a unit follows, of which the position is set by the test.
+     */
+    private class ScriptedLeader implements IWorldObject {
+
+        private Vector position;
+
+        private ScriptedLeader(Vector cube){
+            this.position = new Vector(cube.X() + 0.5, cube.Y() + 0.5, cube.Z() + 0.5);
+        }
+
+        @Override
+        public void advanceTime(double dt){
+        }
+
+        @Override
+        public IWorld getWorld(){
+            return world;
+        }
+
+        @Override
+        public Vector getPosition(){
+            return this.position;
+        }
+
+        @Override
+        public void terminate(){
+        }
+
+        @Override
+        public boolean isTerminated(){
+            return false;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package hillbillies.tests.model;
+
+import hillbillies.model.Terrain;
+import hillbillies.model.World;
+import hillbillies.utils.Vector;
+
+/**
+ * Benchmark of the tick time of a world without units against its size. For solid N^3 worlds
+ * it times idle ticks, and ticks while a fixed number of cubes of the top layer collapse. The
+ * tick time should only grow with the number of collapsing cubes, not with the world size.
+ * The benchmark only uses the API of the original World, so it also runs on older versions.
+ * Run it as a main class.
+ * @author Kenneth & Bram
+ * @version 1.0
+ */
+public class CollapseTickBenchmark {
+
+    private static final int[] SIZES = {20, 40, 60, 80};
+    private static final int NB_TICKS = 100;
+    private static final double TICK = 0.01;
+    private static final int NB_COLLAPSING_CUBES = 300;
+
+    public static void main(String[] args){
+        for(int size : SIZES){
+            int[][][] terrain = new int[size][size][size];
+            for(int x=0;x<size;x++)
+                for(int y=0;y<size;y++)
+                    for(int z=0;z<size;z++)
+                        terrain[x][y][z] = Terrain.ROCK.getId();
+            World world = new World(terrain, null);
+            measure(world);// Warm up
+            double idleTime = measure(world);
+            for(int i=0;i<NB_COLLAPSING_CUBES;i++)
+                world.getCube(new Vector(i % size, (i / size) % size, size - 1)).collapse();
+            double collapseTime = measure(world);
+            System.out.printf("%d^3: idle %.3f ms/tick, %d collapsing cubes %.3f ms/tick%n",
+                    size, idleTime, NB_COLLAPSING_CUBES, collapseTime);
+        }
+    }
+
+    /**
+     * Advance the given world a number of ticks.
+     * @return The mean tick time in milliseconds.
+     */
+    private static double measure(World world){
+        long start = System.nanoTime();
+        for(int i=0;i<NB_TICKS;i++)
+            world.advanceTime(TICK);
+        return (System.nanoTime() - start)/1e6/NB_TICKS;
+    }
+}
@@ -0,0 +1,116 @@
+package hillbillies.tests.model;
+
+import hillbillies.model.CubeLayout;
+import hillbillies.model.World;
+import hillbillies.part2.internal.map.GameMap;
+import hillbillies.part2.internal.map.GameMapReader;
+
+import java.io.InputStreamReader;
+import java.util.Arrays;
+
+/**
+ * Benchmark comparing the cube layouts on the 50x50x50 and 80x80x80 maps. For every layout it
+ * times a breadth-first search over the passable cubes, a flood fill over the solid cubes and a
+ * top-down scan of every column, all through the index API of the world. The layouts to compare
+ * can be given as arguments, so each layout can be measured in its own JVM.
+ * Run it as a main class, with the provided resources on the classpath.
+ * @author Kenneth & Bram
+ * @version 1.0
+ */
+public class CubeLayoutBenchmark {
+
+    private static final String[] MAPS = {"50x50x50.wrld", "80x80x80.wrld"};
+    private static final int NB_RUNS = 5;
+    private static final int NB_SEARCHES = 4;
+    private static final int NB_SCANS = 10;
+
+    public static void main(String[] args) throws Exception {
+        CubeLayout[] layouts = args.length == 0 ? CubeLayout.values() :
+                Arrays.stream(args).map(CubeLayout::valueOf).toArray(CubeLayout[]::new);
+        for(String name : MAPS){
+            GameMap map = new GameMapReader().readFromReader(new InputStreamReader(
+                    CubeLayoutBenchmark.class.getClassLoader().getResourceAsStream("resources/" + name)));
+            int[][][] terrain = new int[map.getNbTilesX()][map.getNbTilesY()][map.getNbTilesZ()];
+            for(int x=0;x<terrain.length;x++)
+                for(int y=0;y<terrain[x].length;y++)
+                    for(int z=0;z<terrain[x][y].length;z++)
+                        terrain[x][y][z] = map.getTypeAt(x, y, z).getByteValue();
+            for(CubeLayout layout : layouts){
+                World world = new World(terrain, null, layout);
+                int[] visited = new int[getNbCubeIndices(world)], queue = new int[visited.length];
+                for(int run=0;run<NB_RUNS;run++){
+                    long start = System.nanoTime();
+                    long nbReached = 0;
+                    for(int i=0;i<NB_SEARCHES;i++)
+                        nbReached += search(world, visited, queue, 4*run + i + 1, true);
+                    long searchTime = System.nanoTime() - start;
+                    start = System.nanoTime();
+                    long nbFlooded = search(world, visited, queue, -run - 1, false);
+                    long floodTime = System.nanoTime() - start;
+                    start = System.nanoTime();
+                    long nbVisible = 0;
+                    for(int i=0;i<NB_SCANS;i++)
+                        nbVisible += scanColumns(world);
+                    long scanTime = System.nanoTime() - start;
+                    System.out.printf("%s %-7s run %d: BFS x%d %.1f ms (%d cubes), flood %.1f ms (%d cubes), column x%d %.1f ms (%d cubes)%n",
+                            name, layout, run, NB_SEARCHES, searchTime/1e6, nbReached, floodTime/1e6, nbFlooded,
+                            NB_SCANS, scanTime/1e6, nbVisible);
+                }
+            }
+        }
+    }
+
+    /**
+     * Visit every cube with the given passability which is connected to the cubes with that
+     * passability of the top layer, for passable cubes, or of the bottom layer, for solid cubes.
+     * The visited cubes are marked with the given stamp.
+     * @return The number of visited cubes.
+     */
+    private static int search(World world, int[] visited, int[] queue, int stamp, boolean passable){
+        int head = 0;
+        int[] tail = {0};
+        int layer = passable ? world.getNbCubesZ() - 1 : 0;
+        for(int y=0;y<world.getNbCubesY();y++)
+            for(int x=0;x<world.getNbCubesX();x++){
+                int cube = world.getCubeIndex(x, y, layer);
+                if(world.isCubePassable(cube) == passable){
+                    visited[cube] = stamp;
+                    queue[tail[0]++] = cube;
+                }
+            }
+        while(head < tail[0]){
+            world.forEachNeighbouringCube(queue[head++], next -> {
+                if(visited[next] != stamp && world.isCubePassable(next) == passable){
+                    visited[next] = stamp;
+                    queue[tail[0]++] = next;
+                }
+            });
+        }
+        return tail[0];
+    }
+
+    /**
+     * Scan every column of the world from the top down to its highest solid cube.
+     * @return The number of passable cubes above the highest solid cubes.
+     */
+    private static int scanColumns(World world){
+        int count = 0;
+        for(int x=0;x<world.getNbCubesX();x++)
+            for(int y=0;y<world.getNbCubesY();y++)
+                for(int z=world.getNbCubesZ()-1;z>=0 && world.isCubePassable(world.getCubeIndex(x, y, z));z--)
+                    count++;
+        return count;
+    }
+
+    /**
+     * Return the size of the range of cube indices of the given world, which depends on its layout.
+     */
+    private static int getNbCubeIndices(World world){
+        int max = 0;
+        for(int x=0;x<world.getNbCubesX();x++)
+            for(int y=0;y<world.getNbCubesY();y++)
+                for(int z=0;z<world.getNbCubesZ();z++)
+                    max = Math.max(max, world.getCubeIndex(x, y, z));
+        return max + 1;
+    }
+}
@@ -13,6 +13,7 @@ import org.junit.BeforeClass;
 import org.junit.Test;
 
 import hillbillies.model.Boulder;
+import hillbillies.model.Cube;
 import hillbillies.model.Log;
 import hillbillies.model.Material;
 import hillbillies.model.Unit;
@@ -259,4 +260,27 @@ public class MaterialTest {
 		assertTrue(testLog.isTerminated());
 	}
 
+	@Test
+	public void testCubeMaterialCounts() {
+		Cube cube = airWorld.getCube(nullPosition);
+		assertEquals(1, cube.getNbLogs());
+		assertEquals(1, cube.getNbBoulders());
+		assertEquals(1, airWorld.getNbLogsInCubes());
+		assertEquals(1, airWorld.getNbBouldersInCubes());
+		assertTrue(cube.containsLogs() && cube.containsBoulders());
+		assertEquals(testLog, cube.getOwnedMaterialAt(1));
+		assertEquals(testBoulder, cube.getOwnedMaterialAt(2));
+
+		testLog.setOwner(testUnit);
+		assertFalse(cube.containsLogs());
+		assertTrue(cube.containsBoulders());
+		assertEquals(0, airWorld.getNbLogsInCubes());
+		assertEquals(testBoulder, cube.getOwnedMaterialAt(1));
+
+		testBoulder.terminate();
+		assertEquals(0, cube.getNbOwnedMaterials());
+		assertEquals(0, airWorld.getNbBouldersInCubes());
+		assertFalse(cube.containsBoulders());
+	}
+
 }
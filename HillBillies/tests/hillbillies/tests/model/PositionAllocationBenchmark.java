@@ -0,0 +1,76 @@
+package hillbillies.tests.model;
+
+import hillbillies.model.Terrain;
+import hillbillies.model.Unit;
+import hillbillies.model.World;
+import hillbillies.utils.Vector;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Benchmark of the allocation and time per tick of units doing adjacent moves. NB_UNITS units
+ * walk on the floor of a 30x30x3 world, and every unit which stopped moving is sent to a random
+ * neighbouring cube. The bytes allocated by the ticking thread are read from the
+ * com.sun.management extension of the ThreadMXBean. Only methods which Unit and World had before
+ * Position was introduced are called, so the figures of the old code can be measured as well.
+ * Run it as a main class.
+ * @author Kenneth & Bram
+ * @version 1.0
+ */
+public class PositionAllocationBenchmark {
+
+    private static final int SIZE = 30;
+    private static final int NB_UNITS = 100;
+    private static final int NB_WARMUP_TICKS = 2000;
+    private static final int NB_TICKS = 2000;
+    private static final double TICK = 0.02;
+
+    public static void main(String[] args){
+        int[][][] terrain = new int[SIZE][SIZE][3];
+        for(int x=0;x<SIZE;x++)
+            for(int y=0;y<SIZE;y++)
+                terrain[x][y][0] = Terrain.ROCK.getId();
+        World world = new World(terrain, null);
+        Random random = new Random(1);
+        List<Unit> units = new ArrayList<>();
+        for(int i=0;i<NB_UNITS;i++)
+            units.add(new Unit(world, "Unit", new Vector(random.nextInt(SIZE), random.nextInt(SIZE), 1)));
+        com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        for(int i=0;i<NB_WARMUP_TICKS;i++)
+            tick(world, units, random);
+        for(int run=0;run<3;run++){
+            long allocated = bean.getThreadAllocatedBytes(threadId);
+            long start = System.nanoTime();
+            for(int i=0;i<NB_TICKS;i++)
+                tick(world, units, random);
+            long time = System.nanoTime() - start;
+            allocated = bean.getThreadAllocatedBytes(threadId) - allocated;
+            System.out.printf("run %d: %d KB allocated/tick, %.3f ms/tick%n",
+                    run, allocated/NB_TICKS >> 10, time/1e6/NB_TICKS);
+        }
+    }
+
+    /**
+     * Send every idle unit to a random neighbouring cube on the floor and advance the world.
+     */
+    private static void tick(World world, List<Unit> units, Random random){
+        for(Unit unit : units){
+            if(unit.isMoving())
+                continue;
+            int dx = random.nextInt(3) - 1, dy = random.nextInt(3) - 1;
+            double x = unit.getPosition().X() + dx, y = unit.getPosition().Y() + dy;
+            if((dx == 0 && dy == 0) || x < 0 || x >= SIZE || y < 0 || y >= SIZE)
+                continue;
+            try{
+                unit.moveToAdjacent(new Vector(dx, dy, 0));
+            }catch(IllegalStateException e){
+                // The unit can't move right now, it gets a new move on a later tick
+            }
+        }
+        world.advanceTime(TICK);
+    }
+}
@@ -0,0 +1,105 @@
+package hillbillies.tests.model;
+
+import hillbillies.model.*;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Benchmark comparing the heap TerrainStorage with the MappedTerrainStorage on a 512x512x128
+ * world with an 8-layer rock floor. For both storages it reports the time to build or open the
+ * storage, the heap in use once the storage is live, the collections during the construction
+ * of a world on top of it, and the pause of a full collection while that world is live.
+ * Run it as a main class, preferably with -Xmx2g.
+ * @author Kenneth & Bram
+ * @version 1.0
+ */
+public class TerrainStorageBenchmark {
+
+    private static final int NB_X = 512, NB_Y = 512, NB_Z = 128;
+    private static final int NB_FLOOR_LAYERS = 8;
+    private static final int NB_RUNS = 3;
+
+    public static void main(String[] args) throws Exception {
+        Path file = Files.createTempFile("terrain", ".map");
+        try{
+            MappedTerrainStorage source = MappedTerrainStorage.create(file, NB_X, NB_Y, NB_Z, CubeLayout.LINEAR);
+            fill(source);
+            source.force();
+            source = null;
+            for(int run=0;run<NB_RUNS;run++){
+                measure("heap  ", () -> fill(new TerrainStorage(NB_X, NB_Y, NB_Z)));
+                measure("mapped", () -> MappedTerrainStorage.open(file, FileChannel.MapMode.PRIVATE));
+            }
+        }finally{
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /**
+     * Interface for the creation of a storage.
+     */
+    private interface StorageFactory {
+        ITerrainStorage create() throws Exception;
+    }
+
+    private static void measure(String name, StorageFactory factory) throws Exception {
+        fullCollection();
+        long usedBefore = getUsedHeap();
+        long start = System.nanoTime();
+        ITerrainStorage storage = factory.create();
+        long createTime = System.nanoTime() - start;
+        fullCollection();
+        long storageHeap = getUsedHeap() - usedBefore;
+        long collections = getCollectionCount(), collectionTime = getCollectionTime();
+        start = System.nanoTime();
+        World world = new World(storage, null);
+        long worldTime = System.nanoTime() - start;
+        collections = getCollectionCount() - collections;
+        collectionTime = getCollectionTime() - collectionTime;
+        long pause = fullCollection();
+        System.out.printf("%s: create %.1f ms, storage heap %d MB, world %.0f ms with %d collections (%d ms), full collection %.1f ms%n",
+                name, createTime/1e6, storageHeap >> 20, worldTime/1e6, collections, collectionTime, pause/1e6);
+        if(world.getNbCubesX() != NB_X)// Keep the world live during the full collection
+            throw new AssertionError();
+    }
+
+    private static ITerrainStorage fill(ITerrainStorage storage){
+        for(int x=0;x<NB_X;x++)
+            for(int y=0;y<NB_Y;y++)
+                for(int z=0;z<NB_FLOOR_LAYERS;z++)
+                    storage.setTerrain(storage.getIndex(x, y, z), Terrain.ROCK);
+        return storage;
+    }
+
+    /**
+     * Run a full collection and return its duration in nanoseconds.
+     */
+    private static long fullCollection(){
+        long start = System.nanoTime();
+        System.gc();
+        return System.nanoTime() - start;
+    }
+
+    private static long getUsedHeap(){
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static long getCollectionCount(){
+        long count = 0;
+        for(GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans())
+            count += bean.getCollectionCount();
+        return count;
+    }
+
+    private static long getCollectionTime(){
+        long time = 0;
+        for(GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans())
+            time += bean.getCollectionTime();
+        return time;
+    }
+}
@@ -332,4 +332,117 @@ public class UtilsTest {
     public void testRandIntIllegal() throws IllegalArgumentException {
         randInt(6,5);
     }
+    @Test
+    public void testPositionCubeCoordinates() throws Exception {
+        Position p = new Position(5.2,4.9,3.1);
+        assertEquals(5, p.cubeX());
+        assertEquals(4, p.cubeY());
+        assertEquals(3, p.cubeZ());
+        Position n = new Position(neg);
+        assertEquals(-1, n.cubeX());
+        assertEquals(-2, n.cubeY());
+        assertEquals(-4, n.cubeZ());
+        assertTrue(p.getCubeCenter().equals(new Position(5.5,4.5,3.5)));
+        assertTrue(p.isInSameCube(p.getCubeCenter()));
+        assertFalse(p.isInSameCube(n));
+    }
+
+    @Test
+    public void testPositionEquals() throws Exception {
+        Position p = new Position(threeD);
+        assertTrue(p.equals(new Position(5,4,3.21)));
+        assertEquals(p.hashCode(), new Position(5,4,3.21).hashCode());
+        assertFalse(p.equals(p.add(0,0,EQUALS_PRECISION/2)));
+        assertTrue(p.isCloseTo(p.add(0,0,EQUALS_PRECISION/2)));
+        assertTrue(new Position(0,0,0).equals(new Position(-0d,-0d,-0d)));
+        assertEquals(new Position(0,0,0).hashCode(), new Position(-0d,-0d,-0d).hashCode());
+        assertEquals(origin.hashCode(), new Vector(-0d,-0d,-0d).hashCode());
+    }
+
+    @Test
+    public void testPositionAsVector() throws Exception {
+        Position p = new Position(5,4,3.21);
+        assertTrue(threeD.equals(p.asVector()));
+        assertSame(p.asVector(), p.asVector());
+        assertSame(threeD, new Position(threeD).asVector());
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testPositionIllegalDimension() throws IndexOutOfBoundsException {
+        new Position(twoD);
+    }
+    @Test
+    public void testTimingWheelOrder() throws Exception {
+        TimingWheel wheel = new TimingWheel();
+        StringBuilder fired = new StringBuilder();
+        wheel.schedule(0.3, () -> fired.append('c'));
+        wheel.schedule(0.1, () -> fired.append('a'));
+        wheel.schedule(0.1, () -> fired.append('b'));
+        wheel.schedule(100, () -> fired.append('d'));
+        assertEquals(4, wheel.getNbPendingEvents());
+        wheel.advanceTime(0.09);
+        assertEquals("", fired.toString());
+        wheel.advanceTime(0.2);
+        assertEquals("ab", fired.toString());
+        wheel.advanceTime(0.01);
+        assertEquals("abc", fired.toString());
+        for(int i=0;i<498;i++)
+            wheel.advanceTime(0.2);
+        assertEquals("abc", fired.toString());
+        wheel.advanceTime(0.2);
+        assertEquals("abcd", fired.toString());
+        assertEquals(0, wheel.getNbPendingEvents());
+        assertEquals(100.1, wheel.getTime(), EQUALS_PRECISION);
+    }
+
+    @Test
+    public void testTimingWheelCancel() throws Exception {
+        TimingWheel wheel = new TimingWheel();
+        StringBuilder fired = new StringBuilder();
+        TimingWheel.Event event = wheel.schedule(0.1, () -> fired.append('a'));
+        wheel.schedule(0.1, () -> {
+            fired.append('b');
+            wheel.schedule(0, () -> fired.append('c'));// Executed during the next advance
+        });
+        event.cancel();
+        assertFalse(event.isPending());
+        assertEquals(1, wheel.getNbPendingEvents());
+        wheel.advanceTime(0.1);
+        assertEquals("b", fired.toString());
+        wheel.advanceTime(0);
+        assertEquals("bc", fired.toString());
+    }
+
+    @Test
+    public void testBitField() throws Exception {
+        BitField bits = new BitField(130);
+        assertEquals(3, bits.getNbWords());
+        bits.set(0);
+        bits.set(64);
+        bits.set(129);
+        assertTrue(bits.get(64));
+        assertFalse(bits.get(63));
+        assertEquals(3, bits.cardinality());
+        assertEquals(64, bits.nextSetBit(1));
+        assertEquals(129, bits.nextSetBit(65));
+        assertEquals(-1, bits.nextSetBit(130));
+        BitField other = new BitField(bits);
+        other.clear(64);
+        bits.andNot(other);
+        assertEquals(64, bits.nextSetBit(0));
+        assertEquals(1L, bits.getWord(1));
+        bits.or(other);
+        assertEquals(3, bits.cardinality());
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testBitFieldIllegalIndex() throws IndexOutOfBoundsException {
+        new BitField(64).set(64);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTimingWheelIllegalDelay() throws IllegalArgumentException {
+        new TimingWheel().schedule(-1, () -> {});
+    }
+
 }
\ No newline at end of file
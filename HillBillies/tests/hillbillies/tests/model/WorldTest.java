@@ -5,6 +5,7 @@ import static org.junit.Assert.*;
 
 import hillbillies.model.*;
 import hillbillies.part2.listener.TerrainChangeListener;
+import hillbillies.utils.BitField;
 import hillbillies.utils.Vector;
 import org.junit.After;
 import org.junit.AfterClass;
@@ -327,6 +328,271 @@ public class WorldTest {
 		assertTrue(w.getWorkshops().contains(w.getCube(new Vector(2,2,0))));
 	}
 
+	@Test
+	public void getWorkshopsTerrainChange() throws Exception {
+		w.getCube(new Vector(2,2,0)).setTerrain(Terrain.AIR);
+		assertTrue(w.getWorkshops().isEmpty());
+		w.getCube(new Vector(4,4,0)).setTerrain(Terrain.WORKSHOP);
+		assertEquals(1,w.getWorkshops().size());
+		assertTrue(w.getWorkshops().contains(w.getCube(new Vector(4,4,0))));
+	}
+
+	@Test
+	public void getCubeFlyweight() throws Exception {
+		Cube c1 = w.getCube(new Vector(3,3,3));
+		Cube c2 = w.getCube(new Vector(3,3,3));
+		assertEquals(c1, c2);
+		assertEquals(c1.hashCode(), c2.hashCode());
+		assertNotEquals(c1, w.getCube(new Vector(3,3,2)));
+		c1.setTerrain(Terrain.ROCK);
+		assertEquals(Terrain.ROCK, c2.getTerrain());
+		assertFalse(w.isCubePassable(new Vector(3,3,3)));
+		// Cubes owning materials are materialized:
+		assertSame(w.getCube(new Vector(1,0,0)), w.getCube(new Vector(1,0,0)));
+		assertSame(w.getCube(new Vector(1,0,0)), b.getOwner());
+		assertTrue(w.getCube(new Vector(0,1,0)).containsLogs());
+	}
+
+	@Test
+	public void collapsingCubes() throws Exception {
+		int nbCollapsing = w.getNbCollapsingCubes();// Floating cubes of the terrain collapse
+		Cube cube = w.getCube(new Vector(4,4,0));
+		cube.setTerrain(Terrain.ROCK);
+		cube.collapse();
+		assertEquals(nbCollapsing+1, w.getNbCollapsingCubes());
+		assertTrue(w.getCube(new Vector(4,4,0)).isCollapsing());
+		w.getCube(new Vector(4,4,0)).collapse();
+		assertEquals(nbCollapsing+1, w.getNbCollapsingCubes());
+		for(int i=0;i<25;i++)
+			w.advanceTime(0.2);
+		assertEquals(0, w.getNbCollapsingCubes());
+		assertFalse(cube.isCollapsing());
+		assertEquals(Terrain.AIR, cube.getTerrain());
+	}
+
+	@Test
+	public void forEachNeighbouringCube() throws Exception {
+		for(int x=0;x<terrain.length;x++)
+			for(int y=0;y<terrain[x].length;y++)
+				for(int z=0;z<terrain[x][y].length;z++){
+					Vector position = new Vector(x,y,z);
+					Set<Vector> neighbours = new HashSet<>();
+					w.forEachNeighbouringCube(w.getCubeIndex(x,y,z),
+							index -> neighbours.add(new Vector(w.getCubeX(index), w.getCubeY(index), w.getCubeZ(index))));
+					assertEquals(new HashSet<>(w.getNeighbouringCubesPositions(position)), neighbours);
+					Set<Vector> adjacent = new HashSet<>();
+					w.forEachDirectlyAdjacentCube(w.getCubeIndex(x,y,z),
+							index -> adjacent.add(new Vector(w.getCubeX(index), w.getCubeY(index), w.getCubeZ(index))));
+					assertEquals(new HashSet<>(w.getDirectlyAdjacentCubesPositions(position)), adjacent);
+				}
+		assertEquals(26, w.getNeighbouringCubesPositions(new Vector(2,2,2)).size());
+		assertEquals(7, w.getNeighbouringCubesPositions(new Vector(0,0,0)).size());
+	}
+
+	@Test
+	public void cubeLayouts() throws Exception {
+		int[][][] terrainTypes = new int[11][6][9];// Dimensions which aren't a multiple of the brick size
+		for(int x=0;x<11;x++)
+			for(int y=0;y<6;y++)
+				terrainTypes[x][y][0] = (x+y)%3 == 0 ? Terrain.ROCK.getId() : Terrain.AIR.getId();
+		for(CubeLayout layout : CubeLayout.values()){
+			World world = new World(terrainTypes, null, layout);
+			assertEquals(layout, world.getCubeLayout());
+			Set<Integer> indices = new HashSet<>();
+			for(int x=0;x<11;x++)
+				for(int y=0;y<6;y++)
+					for(int z=0;z<9;z++){
+						int index = world.getCubeIndex(x,y,z);
+						assertTrue(indices.add(index));
+						assertEquals(x, world.getCubeX(index));
+						assertEquals(y, world.getCubeY(index));
+						assertEquals(z, world.getCubeZ(index));
+						assertEquals(Terrain.fromId(terrainTypes[x][y][z]), world.getCube(new Vector(x,y,z)).getTerrain());
+						Set<Vector> neighbours = new HashSet<>();
+						world.forEachNeighbouringCube(index,
+								neighbour -> neighbours.add(new Vector(world.getCubeX(neighbour), world.getCubeY(neighbour), world.getCubeZ(neighbour))));
+						assertEquals(new HashSet<>(world.getNeighbouringCubesPositions(new Vector(x,y,z))), neighbours);
+					}
+			assertTrue(world.isCubePassable(world.getSpawnPosition()));
+		}
+	}
+
+	@Test
+	public void chunkedTerrainStorage() throws Exception {
+		ChunkedTerrainStorage storage = new ChunkedTerrainStorage(40, 20, 18, Terrain.AIR);// 3x2x2 chunks, partially filled
+		assertEquals(CubeLayout.CHUNKED, storage.getLayout());
+		assertEquals(12, storage.getNbChunks());
+		assertEquals(0, storage.getNbPackedChunks());
+		assertEquals(40*20*18, storage.getNbCubes(Terrain.AIR));
+		int chunk = storage.getChunk(storage.getIndex(0,0,0));
+		assertTrue(storage.isUniformChunk(chunk) && storage.isAirChunk(chunk));
+		Random random = new Random(42);
+		Terrain[][][] expected = new Terrain[40][20][18];
+		for(Terrain[][] plane : expected)
+			for(Terrain[] row : plane)
+				Arrays.fill(row, Terrain.AIR);
+		for(int i=0;i<2000;i++){
+			int x = random.nextInt(40), y = random.nextInt(20), z = random.nextInt(18);
+			Terrain terrain = Terrain.values()[random.nextInt(4)];
+			storage.setTerrain(storage.getIndex(x,y,z), terrain);
+			expected[x][y][z] = terrain;
+		}
+		for(Terrain terrain : Terrain.values()){
+			List<Integer> indices = new ArrayList<>();
+			for(int x=0;x<40;x++)
+				for(int y=0;y<20;y++)
+					for(int z=0;z<18;z++)
+						if(expected[x][y][z] == terrain)
+							indices.add(storage.getIndex(x,y,z));
+			Collections.sort(indices);
+			List<Integer> visited = new ArrayList<>();
+			storage.forEachCube(terrain, visited::add);
+			assertEquals(indices, visited);
+			assertEquals(indices.size(), storage.getNbCubes(terrain));
+		}
+		// Filling a chunk makes it uniform again:
+		for(int x=0;x<16;x++)
+			for(int y=0;y<16;y++)
+				for(int z=0;z<16;z++)
+					storage.setTerrain(storage.getIndex(x,y,z), Terrain.ROCK);
+		assertTrue(storage.isUniformChunk(chunk) && storage.isSolidChunk(chunk));
+		assertFalse(storage.containsWorkshop(chunk));
+		storage.setTerrain(storage.getIndex(3,4,5), Terrain.WORKSHOP);
+		assertFalse(storage.isUniformChunk(chunk));
+		assertTrue(storage.containsWorkshop(chunk));
+		assertEquals(Terrain.WORKSHOP, storage.getTerrain(storage.getIndex(3,4,5)));
+		assertEquals(Terrain.ROCK, storage.getTerrain(storage.getIndex(3,4,6)));
+	}
+
+	@Test
+	public void chunkedWorld() throws Exception {
+		ChunkedTerrainStorage storage = new ChunkedTerrainStorage(20, 20, 20);
+		for(int x=0;x<20;x++)
+			for(int y=0;y<20;y++)
+				storage.setTerrain(storage.getIndex(x,y,0), Terrain.ROCK);
+		storage.setTerrain(storage.getIndex(5,5,1), Terrain.WORKSHOP);
+		World world = new World(storage, null);
+		assertEquals(CubeLayout.CHUNKED, world.getCubeLayout());
+		assertEquals(20, world.getNbCubesZ());
+		assertEquals(1, world.getWorkshops().size());
+		assertTrue(world.isCubeStandable(world.getCubeIndex(3,3,1)));
+		assertFalse(world.isCubeStandable(world.getCubeIndex(3,3,2)));
+		assertFalse(world.isCubeStandable(world.getCubeIndex(3,3,0)));
+		assertNotEquals(0, world.getWalkableDirections(world.getCubeIndex(3,3,1)));
+		assertEquals(0, world.getWalkableDirections(world.getCubeIndex(3,3,10)));
+		world.getCube(new Vector(3,3,5)).setTerrain(Terrain.ROCK);
+		assertTrue(world.isCubeStandable(world.getCubeIndex(3,3,6)));
+		assertEquals(0, world.getWalkableDirections(world.getCubeIndex(3,3,6)));
+		assertEquals(Terrain.ROCK, storage.getTerrain(storage.getIndex(3,3,5)));
+	}
+
+	@Test(expected = NullPointerException.class)
+	public void chunkedWorldNullStorage() throws Exception {
+		new World((ITerrainStorage)null, null);
+	}
+
+	@Test
+	public void mappedTerrainStorage() throws Exception {
+		java.nio.file.Path file = java.nio.file.Files.createTempFile("terrain", ".map");
+		try{
+			MappedTerrainStorage storage = MappedTerrainStorage.create(file, 5, 6, 7, CubeLayout.BRICKED);
+			assertFalse(storage.isReadOnly());
+			assertEquals(5*6*7, storage.getNbCubes(Terrain.AIR));
+			for(int x=0;x<5;x++)
+				for(int y=0;y<6;y++)
+					storage.setTerrain(storage.getIndex(x,y,0), Terrain.ROCK);
+			storage.setTerrain(storage.getIndex(2,3,1), Terrain.WORKSHOP);
+			storage.force();
+
+			MappedTerrainStorage reopened = MappedTerrainStorage.open(file, java.nio.channels.FileChannel.MapMode.READ_ONLY);
+			assertTrue(reopened.isReadOnly());
+			assertEquals(CubeLayout.BRICKED, reopened.getLayout());
+			assertEquals(7, reopened.getNbCubesZ());
+			assertEquals(30, reopened.getNbCubes(Terrain.ROCK));
+			assertEquals(1, reopened.getNbCubes(Terrain.WORKSHOP));
+			assertEquals(Terrain.WORKSHOP, reopened.getTerrain(reopened.getIndex(2,3,1)));
+			List<Integer> rock = new ArrayList<>();
+			reopened.forEachCube(Terrain.ROCK, rock::add);
+			assertEquals(30, rock.size());
+			try{
+				reopened.setTerrain(reopened.getIndex(0,0,0), Terrain.AIR);
+				fail();
+			}catch(IllegalStateException e){
+				// Read-only storages can't be changed
+			}
+
+			// Copy-on-write mappings share the file without changing it
+			MappedTerrainStorage first = MappedTerrainStorage.open(file, java.nio.channels.FileChannel.MapMode.PRIVATE);
+			MappedTerrainStorage second = MappedTerrainStorage.open(file, java.nio.channels.FileChannel.MapMode.PRIVATE);
+			assertTrue(first.isCopyOnWrite());
+			assertFalse(first.isReadOnly());
+			World world = new World(first, null);
+			World other = new World(second, null);
+			assertEquals(1, world.getWorkshops().size());
+			assertTrue(world.isCubeStandable(world.getCubeIndex(1,1,1)));
+			world.getCube(new Vector(1,1,0)).setTerrain(Terrain.AIR);
+			world.advanceTime(0.2);
+			first.force();
+			assertEquals(Terrain.AIR, first.getTerrain(first.getIndex(1,1,0)));
+			assertEquals(Terrain.ROCK, second.getTerrain(second.getIndex(1,1,0)));
+			assertTrue(other.isCubeStandable(other.getCubeIndex(1,1,1)));
+			assertEquals(Terrain.ROCK, reopened.getTerrain(reopened.getIndex(1,1,0)));
+
+			MappedTerrainStorage writable = MappedTerrainStorage.open(file, java.nio.channels.FileChannel.MapMode.READ_WRITE);
+			assertFalse(writable.isCopyOnWrite());
+			world = new World(writable, null);
+			world.getCube(new Vector(1,1,0)).setTerrain(Terrain.AIR);
+			world.advanceTime(0.2);
+			assertEquals(Terrain.AIR, writable.getTerrain(writable.getIndex(1,1,0)));
+			assertEquals(Terrain.AIR, reopened.getTerrain(reopened.getIndex(1,1,0)));
+		}finally{
+			java.nio.file.Files.deleteIfExists(file);
+		}
+	}
+
+	@Test
+	public void mappedTerrainStorageCorrupt() throws Exception {
+		java.nio.file.Path file = java.nio.file.Files.createTempFile("terrain", ".map");
+		try{
+			MappedTerrainStorage storage = MappedTerrainStorage.create(file, 4, 4, 4, CubeLayout.LINEAR);
+			storage.setTerrain(storage.getIndex(1,2,3), Terrain.ROCK);
+			storage.force();
+			byte[] bytes = java.nio.file.Files.readAllBytes(file);
+			int terrain = MappedTerrainStorage.HEADER_SIZE + storage.getIndex(1,2,3);
+			bytes[terrain] = 9;// Not the id of a terrain
+			java.nio.file.Files.write(file, bytes);
+			try{
+				MappedTerrainStorage.open(file, java.nio.channels.FileChannel.MapMode.READ_ONLY);
+				fail();
+			}catch(java.io.IOException e){
+				// The terrain bytes are checked
+			}
+			bytes[terrain] = (byte)Terrain.WOOD.getId();// Doesn't match the counts in the header
+			java.nio.file.Files.write(file, bytes);
+			try{
+				MappedTerrainStorage.open(file, java.nio.channels.FileChannel.MapMode.READ_ONLY);
+				fail();
+			}catch(java.io.IOException e){
+				// The counts are checked
+			}
+			bytes[terrain] = (byte)Terrain.ROCK.getId();
+			java.nio.file.Files.write(file, bytes);
+			assertEquals(Terrain.ROCK, MappedTerrainStorage.open(file, java.nio.channels.FileChannel.MapMode.READ_ONLY).getTerrain(terrain - MappedTerrainStorage.HEADER_SIZE));
+		}finally{
+			java.nio.file.Files.deleteIfExists(file);
+		}
+	}
+
+	@Test
+	public void areNeighbouringCubes() throws Exception {
+		assertTrue(w.areNeighbouringCubes(w.getCubeIndex(1,1,1), w.getCubeIndex(2,2,2)));
+		assertTrue(w.areNeighbouringCubes(w.getCubeIndex(4,0,0), w.getCubeIndex(3,0,0)));
+		assertFalse(w.areNeighbouringCubes(w.getCubeIndex(4,0,0), w.getCubeIndex(0,1,0)));
+		assertFalse(w.areNeighbouringCubes(w.getCubeIndex(1,1,1), w.getCubeIndex(1,1,1)));
+		assertTrue(w.anyDirectlyAdjacentCube(w.getCubeIndex(1,1,2), index -> !w.isCubePassable(index)));
+		assertFalse(w.anyDirectlyAdjacentCube(w.getCubeIndex(4,4,4), index -> !w.isCubePassable(index)));
+	}
+
 	@Test
 	public void isCubePassable() throws Exception {
 		for(int x=0;x<terrain.length;x++)
@@ -335,6 +601,56 @@ public class WorldTest {
 					assertEquals(Terrain.fromId(terrain[x][y][z]).isPassable(), w.isCubePassable(new Vector(x,y,z)));
 	}
 
+	@Test
+	public void isCubeStandable() throws Exception {
+		Cube cube = w.getCube(new Vector(4,4,2));
+		cube.setTerrain(Terrain.ROCK);
+		cube.setTerrain(Terrain.AIR);
+		w.getCube(new Vector(3,3,3)).setTerrain(Terrain.WOOD);
+		BitField standable = w.getStandableCubes();
+		for(int x=0;x<terrain.length;x++)
+			for(int y=0;y<terrain[x].length;y++)
+				for(int z=0;z<terrain[x][y].length;z++){
+					int index = w.getCubeIndex(x,y,z);
+					boolean expected = w.isCubePassable(index) && w.isAdjacentSolid(index);
+					assertEquals(expected, w.isCubeStandable(index));
+					assertEquals(expected, standable.get(index));
+					assertEquals(w.isCubePassable(index), w.getPassableCubes().get(index));
+				}
+		assertTrue(w.isCubeStandable(w.getCubeIndex(3,3,2)));
+		assertFalse(w.isCubeStandable(w.getCubeIndex(3,3,3)));
+	}
+
+	@Test
+	public void getWalkableDirections() throws Exception {
+		w.getCube(new Vector(3,3,0)).setTerrain(Terrain.ROCK);
+		w.getCube(new Vector(1,1,1)).setTerrain(Terrain.AIR);
+		for(int x=0;x<terrain.length;x++)
+			for(int y=0;y<terrain[x].length;y++)
+				for(int z=0;z<terrain[x][y].length;z++){
+					int expected = 0;
+					for(int i=0;i<World.NB_NEIGHBOURING_DIRECTIONS;i++){
+						Vector d = World.getNeighbouringDirection(i);
+						boolean walkable = true;
+						for(int cx : new int[]{x, x+(int)d.X()})
+							for(int cy : new int[]{y, y+(int)d.Y()})
+								for(int cz : new int[]{z, z+(int)d.Z()})
+									walkable &= w.isValidCube(cx,cy,cz) && w.isCubePassable(w.getCubeIndex(cx,cy,cz)) &&
+											w.isAdjacentSolid(w.getCubeIndex(cx,cy,cz));
+						if(walkable)
+							expected |= 1 << i;
+					}
+					assertEquals(expected, w.getWalkableDirections(w.getCubeIndex(x,y,z)));
+				}
+		// Units cannot cut the corner of the rock cube:
+		int direction = World.NB_NEIGHBOURING_DIRECTIONS;
+		for(int i=0;i<World.NB_NEIGHBOURING_DIRECTIONS;i++)
+			if(World.getNeighbouringDirection(i).equals(new Vector(1,1,0)))
+				direction = i;
+		assertEquals(0, w.getWalkableDirections(w.getCubeIndex(2,3,0)) >> direction & 1);
+		assertEquals(1, w.getWalkableDirections(w.getCubeIndex(0,3,0)) >> direction & 1);
+	}
+
 	@Test
 	public void getSpawnPosition() throws Exception {
 		Vector s = w.getSpawnPosition();
@@ -342,6 +658,24 @@ public class WorldTest {
 			assertTrue(u.isValidPosition(s));
 	}
 
+	@Test
+	public void getSpawnPositionFewPassableCubes() throws Exception {
+		int[][][] terrain = new int[40][40][1];
+		for(int[][] plane : terrain)
+			for(int[] column : plane)
+				Arrays.fill(column, Terrain.ROCK.getId());
+		Vector[] passable = {new Vector(5,5,0), new Vector(6,5,0), new Vector(30,30,0)};
+		for(Vector position : passable)
+			terrain[(int)position.X()][(int)position.Y()][0] = Terrain.AIR.getId();
+		World world = new World(terrain, null);
+		Map<Vector, Integer> counts = new HashMap<>();
+		for(int i=0;i<3000;i++)
+			counts.merge(world.getSpawnPosition(), 1, Integer::sum);
+		assertEquals(passable.length, counts.size());
+		for(Vector position : passable)// The cube right after another passable cube is as likely as the others
+			assertTrue(counts.get(position) > 800 && counts.get(position) < 1200);
+	}
+
 	@Test(expected = IllegalStateException.class)
 	public void getSpawnPositionIllegal() throws IllegalStateException{
 		int[][][] terrain = new int[1][1][1];
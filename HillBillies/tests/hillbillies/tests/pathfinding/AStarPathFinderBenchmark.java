@@ -0,0 +1,112 @@
+package hillbillies.tests.pathfinding;
+
+import hillbillies.model.World;
+import hillbillies.part2.internal.map.GameMap;
+import hillbillies.part2.internal.map.GameMapReader;
+import hillbillies.pathfinding.AStarPathFinder;
+
+import java.io.InputStreamReader;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Benchmark of long cross-map queries on the 80x80x80 map. Pairs of connected standable cubes
+ * at least MIN_DISTANCE apart are searched with the AStarPathFinder of the world and with a plain
+ * breadth-first search over the same walkable directions. Both report the total path length,
+ * which must be equal, the number of expanded cubes and the time per query.
+ * Run it as a main class, with the provided resources on the classpath.
+ * @author Kenneth & Bram
+ * @version 1.0
+ */
+public class AStarPathFinderBenchmark {
+
+    private static final String MAP = "80x80x80.wrld";
+    private static final int NB_QUERIES = 100;
+    private static final int MIN_DISTANCE = 50;
+    private static final int NB_RUNS = 5;
+
+    public static void main(String[] args) throws Exception {
+        GameMap map = new GameMapReader().readFromReader(new InputStreamReader(
+                AStarPathFinderBenchmark.class.getClassLoader().getResourceAsStream("resources/" + MAP)));
+        int[][][] terrain = new int[map.getNbTilesX()][map.getNbTilesY()][map.getNbTilesZ()];
+        for(int x=0;x<terrain.length;x++)
+            for(int y=0;y<terrain[x].length;y++)
+                for(int z=0;z<terrain[x][y].length;z++)
+                    terrain[x][y][z] = map.getTypeAt(x, y, z).getByteValue();
+        World world = new World(terrain, null);
+        int[] distances = new int[world.getNbCubeIndices()], queue = new int[world.getNbCubeIndices()];
+        int[][] queries = createQueries(world, new Random(3), distances, queue);
+        AStarPathFinder pathFinder = world.getPathFinder();
+        for(int run=0;run<NB_RUNS;run++){
+            long length = 0, nbExpandedCubes = 0;
+            long start = System.nanoTime();
+            for(int[] query : queries){
+                int[] path = pathFinder.findPath(query[0], new int[]{query[1]}, world::getWalkableDirections);
+                length += path == null ? 0 : path.length;
+                nbExpandedCubes += pathFinder.getNbExpandedCubes();
+            }
+            long aStarTime = System.nanoTime() - start;
+            long bfsLength = 0, nbBfsExpandedCubes = 0;
+            start = System.nanoTime();
+            for(int[] query : queries){
+                int[] result = breadthFirstSearch(world, query[0], query[1], distances, queue);
+                bfsLength += Math.max(result[0], 0);
+                nbBfsExpandedCubes += result[1];
+            }
+            long bfsTime = System.nanoTime() - start;
+            System.out.printf("run %d: A* %.2f ms/query, %d expanded, length %d | BFS %.2f ms/query, %d expanded, length %d%n",
+                    run, aStarTime/1e6/NB_QUERIES, nbExpandedCubes, length, bfsTime/1e6/NB_QUERIES, nbBfsExpandedCubes, bfsLength);
+        }
+    }
+
+    /**
+     * Return pairs of standable cubes which are at least MIN_DISTANCE apart and connected.
+     */
+    private static int[][] createQueries(World world, Random random, int[] distances, int[] queue){
+        int[][] queries = new int[NB_QUERIES][];
+        for(int i=0;i<NB_QUERIES;i++){
+            int source, target;
+            do{
+                source = randomStandableCube(world, random);
+                target = randomStandableCube(world, random);
+            }while(Math.max(Math.abs(world.getCubeX(source) - world.getCubeX(target)),
+                    Math.abs(world.getCubeY(source) - world.getCubeY(target))) < MIN_DISTANCE ||
+                    breadthFirstSearch(world, source, target, distances, queue)[0] < 0);
+            queries[i] = new int[]{source, target};
+        }
+        return queries;
+    }
+
+    private static int randomStandableCube(World world, Random random){
+        int cube;
+        do{
+            cube = world.getCubeIndex(random.nextInt(world.getNbCubesX()), random.nextInt(world.getNbCubesY()),
+                    random.nextInt(world.getNbCubesZ()));
+        }while(!world.isCubeStandable(cube));
+        return cube;
+    }
+
+    /**
+     * Search the distance from the given source to the given target breadth-first.
+     * @return The distance, or -1 if the target can't be reached, and the number of expanded cubes.
+     */
+    private static int[] breadthFirstSearch(World world, int source, int target, int[] distances, int[] queue){
+        Arrays.fill(distances, -1);
+        int head = 0, tail = 0;
+        distances[source] = 0;
+        queue[tail++] = source;
+        while(head < tail){
+            int cube = queue[head++];
+            if(cube == target)
+                return new int[]{distances[cube], head};
+            for(int directions = world.getWalkableDirections(cube); directions != 0; directions &= directions - 1){
+                int next = world.getNeighbouringCube(cube, Integer.numberOfTrailingZeros(directions));
+                if(distances[next] < 0){
+                    distances[next] = distances[cube] + 1;
+                    queue[tail++] = next;
+                }
+            }
+        }
+        return new int[]{-1, head};
+    }
+}
@@ -0,0 +1,133 @@
+package hillbillies.tests.pathfinding;
+
+import hillbillies.model.CubeLayout;
+import hillbillies.model.World;
+import hillbillies.pathfinding.AStarPathFinder;
+import hillbillies.pathfinding.IndexedBinaryHeap;
+import hillbillies.tests.util.TestWorldBuilder;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.*;
+
+import static hillbillies.tests.util.TestWorldBuilder.randomStandableCube;
+import static org.junit.Assert.*;
+
+/**
+ * @author Kenneth & Bram
+ * @version 1.0
+ */
+public class AStarPathFinderTest {
+
+    private static World world;
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+        world = new TestWorldBuilder(20,20,4).withRandomWood(7, 4).withWall(10, 0, 15)// Wall forcing a detour
+                .withCubeLayout(CubeLayout.MORTON).build();
+    }
+
+    @Test
+    public void indexedBinaryHeap() throws Exception {
+        IndexedBinaryHeap heap = new IndexedBinaryHeap(100);
+        Random random = new Random(3);
+        long[] priorities = new long[100];
+        for(int item=0;item<100;item++){
+            priorities[item] = random.nextInt(1000);
+            assertTrue(heap.offer(item, priorities[item]));
+        }
+        for(int item=0;item<100;item+=3){
+            assertFalse(heap.offer(item, priorities[item] + 1));
+            priorities[item] -= 500;
+            assertTrue(heap.offer(item, priorities[item]));
+        }
+        assertEquals(100, heap.size());
+        assertEquals(priorities[42], heap.getPriority(42));
+        long last = Long.MIN_VALUE;
+        while(!heap.isEmpty()){
+            int item = heap.poll();
+            assertFalse(heap.contains(item));
+            assertTrue(priorities[item] >= last);
+            last = priorities[item];
+        }
+        heap.offer(5, 1);
+        heap.clear();
+        assertFalse(heap.contains(5));
+        assertTrue(heap.isEmpty());
+    }
+
+    @Test
+    public void findPath() throws Exception {
+        AStarPathFinder pathFinder = world.getPathFinder();
+        Random random = new Random(11);
+        int nbReachable = 0;
+        for(int i=0;i<200;i++){
+            int source = randomStandableCube(world, random), target = randomStandableCube(world, random);
+            int[] path = pathFinder.findPath(source, new int[]{target}, world::getWalkableDirections);
+            int distance = breadthFirstDistance(source, target);
+            if(distance < 0){
+                assertNull(path);
+                continue;
+            }
+            nbReachable++;
+            assertNotNull(path);
+            assertEquals(distance, path.length);
+            int previous = source;
+            for(int cube : path){
+                assertTrue(world.areNeighbouringCubes(previous, cube));
+                assertTrue(world.isCubeStandable(cube));
+                previous = cube;
+            }
+            assertEquals(target, previous);
+        }
+        assertTrue(nbReachable > 100);
+        int cube = world.getCubeIndex(3,3,1);
+        assertEquals(0, pathFinder.findPath(cube, new int[]{cube}, world::getWalkableDirections).length);
+    }
+
+    @Test
+    public void findPathMultipleTargets() throws Exception {
+        AStarPathFinder pathFinder = world.getPathFinder();
+        int source = world.getCubeIndex(0,0,1);
+        int near = world.getCubeIndex(3,0,1), far = world.getCubeIndex(19,19,1);
+        int[] path = pathFinder.findPath(source, new int[]{far, near}, world::getWalkableDirections);
+        assertEquals(near, path[path.length-1]);
+        assertEquals(breadthFirstDistance(source, near), path.length);
+    }
+
+    @Test
+    public void findPathBounded() throws Exception {
+        AStarPathFinder pathFinder = world.getPathFinder();
+        Random random = new Random(13);
+        int source, target;
+        do{
+            source = randomStandableCube(world, random);
+            target = randomStandableCube(world, random);
+        }while(breadthFirstDistance(source, target) < 10);
+        int[] path = pathFinder.findPath(source, new int[]{target}, world::getWalkableDirections, Integer.MAX_VALUE);
+        assertEquals(breadthFirstDistance(source, target), path.length);
+        assertNull(pathFinder.findPath(source, new int[]{target}, world::getWalkableDirections, 5));
+        int[] start = pathFinder.findPath(source, new int[]{path[0]}, world::getWalkableDirections, 5);
+        assertArrayEquals(new int[]{path[0]}, start);
+    }
+
+    private static int breadthFirstDistance(int source, int target){
+        Map<Integer, Integer> distances = new HashMap<>();
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        distances.put(source, 0);
+        queue.add(source);
+        while(!queue.isEmpty()){
+            int cube = queue.remove();
+            if(cube == target)
+                return distances.get(cube);
+            for(int directions = world.getWalkableDirections(cube); directions != 0; directions &= directions - 1){
+                int next = world.getNeighbouringCube(cube, Integer.numberOfTrailingZeros(directions));
+                if(!distances.containsKey(next)){
+                    distances.put(next, distances.get(cube) + 1);
+                    queue.add(next);
+                }
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,163 @@
+package hillbillies.tests.pathfinding;
+
+import hillbillies.model.Terrain;
+import hillbillies.model.World;
+import hillbillies.pathfinding.ComponentLabels;
+import hillbillies.tests.util.TestWorldBuilder;
+import hillbillies.utils.Vector;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Kenneth & Bram
+ * @version 1.0
+ */
+public class ComponentLabelsTest {
+
+    private World world;
+    private ComponentLabels labels;
+
+    @Before
+    public void setUp() throws Exception {
+        world = new TestWorldBuilder(20,20,4).withWall(10, 0, 20).build();// Wall splitting the world in two halves
+        labels = world.getComponentLabels();
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void constructorNullWorld() throws Exception {
+        new ComponentLabels(null);
+    }
+
+    @Test
+    public void areConnected() throws Exception {
+        int left = world.getCubeIndex(2,2,1), otherLeft = world.getCubeIndex(8,17,1), right = world.getCubeIndex(15,5,1);
+        assertTrue(labels.areConnected(left, otherLeft));
+        assertFalse(labels.areConnected(left, right));
+        assertFalse(labels.areConnected(left, world.getCubeIndex(2,2,2)));// Not standable
+        assertTrue(labels.areConnected(world.getCubeIndex(2,2,2), world.getCubeIndex(2,2,2)));
+        assertEquals(-1, labels.getComponent(world.getCubeIndex(2,2,2)));
+        assertNotEquals(labels.getComponent(left), labels.getComponent(right));
+    }
+
+    @Test
+    public void notifyTerrainChangeJoin() throws Exception {
+        int left = world.getCubeIndex(2,2,1), right = world.getCubeIndex(15,5,1);
+        for(int z=1;z<4;z++)
+            world.getCube(new Vector(10,10,z)).setTerrain(Terrain.AIR);
+        assertTrue(labels.areConnected(left, right));
+        assertEquals(0, labels.getNbDirtyComponents());
+    }
+
+    @Test
+    public void notifyTerrainChangeSplit() throws Exception {
+        int left = world.getCubeIndex(2,2,1), right = world.getCubeIndex(15,5,1);
+        for(int z=1;z<4;z++)
+            world.getCube(new Vector(10,10,z)).setTerrain(Terrain.AIR);
+        assertTrue(labels.areConnected(left, right));
+        world.getCube(new Vector(10,10,1)).setTerrain(Terrain.ROCK);
+        world.getCube(new Vector(10,10,2)).setTerrain(Terrain.ROCK);
+        world.getCube(new Vector(10,10,3)).setTerrain(Terrain.ROCK);
+        assertEquals(1, labels.getNbDirtyComponents());
+        int nbRelabellings = labels.getNbRelabellings();
+        assertFalse(labels.areConnected(left, right));
+        assertEquals(0, labels.getNbDirtyComponents());
+        assertEquals(nbRelabellings + 1, labels.getNbRelabellings());
+    }
+
+    @Test
+    public void notifyTerrainChangeLocalDetour() throws Exception {
+        int left = world.getCubeIndex(2,2,1), otherLeft = world.getCubeIndex(2,17,1);
+        world.getCube(new Vector(5,5,1)).setTerrain(Terrain.ROCK);// Units walk around the new rock
+        assertEquals(0, labels.getNbDirtyComponents());
+        assertTrue(labels.areConnected(left, otherLeft));
+    }
+
+    @Test
+    public void randomTerrainChanges() throws Exception {
+        Random random = new Random(11);
+        for(int i=0;i<300;i++){
+            int x = random.nextInt(20), y = random.nextInt(20), z = 1 + random.nextInt(3);
+            world.getCube(new Vector(x,y,z)).setTerrain(random.nextInt(3) == 0 ? Terrain.AIR : Terrain.ROCK);
+            for(int j=0;j<10;j++){
+                int cube = randomCube(random), other = randomCube(random);
+                Set<Integer> connected = getConnectedCubes(cube);
+                assertEquals(connected.contains(other), labels.areConnected(cube, other));
+                assertEquals(world.isCubeStandable(cube) ? connected.size() : 0, labels.getComponentSize(cube));
+            }
+        }
+        assertTrue(labels.getNbRelabellings() > 0);
+    }
+
+    @Test
+    public void labelsRetired() throws Exception {
+        int left = world.getCubeIndex(2,2,1), right = world.getCubeIndex(15,5,1);
+        int nbLabels = -1;
+        for(int i=0;i<100;i++){// Dig through the wall and fill the hole again
+            for(int z=1;z<4;z++)
+                world.getCube(new Vector(10,10,z)).setTerrain(Terrain.AIR);
+            assertTrue(labels.areConnected(left, right));
+            for(int z=1;z<4;z++)
+                world.getCube(new Vector(10,10,z)).setTerrain(Terrain.ROCK);
+            assertFalse(labels.areConnected(left, right));
+            if(i == 0)
+                nbLabels = labels.getNbLabels();
+        }
+        assertEquals(nbLabels, labels.getNbLabels());
+    }
+
+    @Test
+    public void getRandomCube() throws Exception {
+        int left = world.getCubeIndex(2,2,1);
+        Set<Integer> connected = getConnectedCubes(left);
+        Set<Integer> picked = new HashSet<>();
+        for(int i=0;i<20*connected.size();i++){
+            int cube = labels.getRandomCube(left);
+            assertTrue(connected.contains(cube));
+            picked.add(cube);
+        }
+        assertTrue(picked.size() > connected.size() * 9 / 10);
+        assertEquals(world.getCubeIndex(2,2,2), labels.getRandomCube(world.getCubeIndex(2,2,2)));
+    }
+
+    @Test
+    public void getRandomCubeAfterTerrainChanges() throws Exception {
+        for(int z=1;z<4;z++)
+            world.getCube(new Vector(10,10,z)).setTerrain(Terrain.AIR);
+        world.getCube(new Vector(5,5,1)).setTerrain(Terrain.ROCK);
+        int left = world.getCubeIndex(2,2,1);
+        Set<Integer> connected = getConnectedCubes(left);
+        assertEquals(connected.size(), labels.getComponentSize(left));
+        for(int i=0;i<1000;i++)
+            assertTrue(connected.contains(labels.getRandomCube(left)));
+    }
+
+    /**
+     * Return the cubes a unit can walk to from the given cube, found by a plain breadth-first search.
+     */
+    private Set<Integer> getConnectedCubes(int cube){
+        Set<Integer> connected = new HashSet<>();
+        connected.add(cube);
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        queue.add(cube);
+        while(!queue.isEmpty()){
+            int next = queue.remove();
+            for(int directions = world.getWalkableDirections(next); directions != 0; directions &= directions - 1){
+                int neighbour = world.getNeighbouringCube(next, Integer.numberOfTrailingZeros(directions));
+                if(connected.add(neighbour))
+                    queue.add(neighbour);
+            }
+        }
+        return connected;
+    }
+
+    private int randomCube(Random random){
+        return world.getCubeIndex(random.nextInt(20), random.nextInt(20), 1 + random.nextInt(3));
+    }
+}
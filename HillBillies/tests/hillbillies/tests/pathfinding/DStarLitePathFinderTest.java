@@ -0,0 +1,91 @@
+package hillbillies.tests.pathfinding;
+
+import hillbillies.model.Terrain;
+import hillbillies.model.World;
+import hillbillies.pathfinding.DStarLitePathFinder;
+import hillbillies.tests.util.TestWorldBuilder;
+import hillbillies.utils.Vector;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Kenneth & Bram
+ * @version 1.0
+ */
+public class DStarLitePathFinderTest {
+
+    private World world;
+    private int goal;
+    private DStarLitePathFinder pathFinder;
+
+    @Before
+    public void setUp() throws Exception {
+        world = new TestWorldBuilder(30,30,4).withRandomWood(3, 5).withWall(15, 0, 25)// Wall forcing a detour
+                .withCube(27, 3, 1, Terrain.AIR).build();
+        goal = world.getCubeIndex(27,3,1);
+        pathFinder = new DStarLitePathFinder(world, goal);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructorNoGoals() throws Exception {
+        new DStarLitePathFinder(world);
+    }
+
+    @Test
+    public void findPath() throws Exception {
+        int start = world.getCubeIndex(2,3,1);
+        int[] path = pathFinder.findPath(start);
+        assertShortestPath(start, path);
+        assertEquals(0, pathFinder.findPath(goal).length);
+        assertTrue(pathFinder.isGoal(goal));
+        assertArrayEquals(new int[]{goal}, pathFinder.getGoals());
+    }
+
+    @Test
+    public void notifyTerrainChange() throws Exception {
+        Random random = new Random(17);
+        int start = world.getCubeIndex(2,3,1);
+        assertShortestPath(start, pathFinder.findPath(start));
+        int initialExpansions = pathFinder.getNbExpandedCubes();
+        int totalExpansions = 0;
+        for(int i=0;i<40;i++){
+            Vector position = new Vector(random.nextInt(30), random.nextInt(30), 1 + random.nextInt(2));
+            if(world.getCubeIndex(position) == goal)
+                continue;
+            world.getCube(position).setTerrain(random.nextBoolean() ? Terrain.AIR : Terrain.ROCK);
+            pathFinder.notifyTerrainChange(position.cubeX(), position.cubeY(), position.cubeZ());
+            if(!world.isCubeStandable(start) || world.getWalkableDirections(start) == 0)
+                continue;
+            int[] path = pathFinder.findPath(start);
+            assertShortestPath(start, path);
+            totalExpansions += pathFinder.getNbExpandedCubes();
+            if(path != null && path.length > 2)// Walk a bit along the path
+                start = path[1];
+        }
+        assertTrue(totalExpansions / 40 < initialExpansions);
+    }
+
+    private void assertShortestPath(int start, int[] path){
+        int[] shortest = world.getPathFinder().findPath(start, new int[]{goal}, world::getWalkableDirections);
+        if(shortest == null){
+            assertNull(path);
+            return;
+        }
+        assertNotNull(path);
+        assertEquals(shortest.length, path.length);
+        int previous = start;
+        for(int cube : path){
+            boolean walkable = false;
+            for(int directions = world.getWalkableDirections(previous); directions != 0; directions &= directions - 1)
+                walkable |= world.getNeighbouringCube(previous, Integer.numberOfTrailingZeros(directions)) == cube;
+            assertTrue(walkable);
+            previous = cube;
+        }
+        if(path.length > 0)
+            assertEquals(goal, path[path.length - 1]);
+    }
+}
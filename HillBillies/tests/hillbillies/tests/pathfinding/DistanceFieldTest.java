@@ -0,0 +1,142 @@
+package hillbillies.tests.pathfinding;
+
+import hillbillies.model.Cube;
+import hillbillies.model.Terrain;
+import hillbillies.model.World;
+import hillbillies.pathfinding.DistanceField;
+import hillbillies.tests.util.TestWorldBuilder;
+import hillbillies.utils.Vector;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Kenneth & Bram
+ * @version 1.0
+ */
+public class DistanceFieldTest {
+
+    private World world;
+    private DistanceField field;
+
+    @Before
+    public void setUp() throws Exception {
+        world = new TestWorldBuilder(20,20,4).withRandomWood(7, 5).withWall(10, 0, 15)// Wall forcing detours
+                .withCube(2, 2, 1, Terrain.WORKSHOP).withCube(17, 3, 1, Terrain.WORKSHOP).build();
+        field = world.getWorkshopDistanceField();
+    }
+
+    @Test
+    public void constructor() throws Exception {
+        assertEquals(2, field.getNbSources());
+        assertTrue(field.isSource(world.getCubeIndex(2,2,1)));
+        assertEquals(0, field.getDistance(world.getCubeIndex(17,3,1)));
+        assertEquals(-1, field.getDistance(world.getCubeIndex(5,5,3)));// Floating in the air
+        assertFieldConsistent();
+    }
+
+    @Test
+    public void getNearestSourcePosition() throws Exception {
+        assertEquals(new Vector(2,2,1), field.getNearestSourcePosition(new Vector(4.5,3.5,1.5)));
+        assertEquals(new Vector(17,3,1), field.getNearestSourcePosition(new Vector(18.5,0.5,1.5)));
+        assertNull(field.getNearestSourcePosition(new Vector(5.5,5.5,3.5)));
+        int cube = world.getCubeIndex(14,19,1);
+        int distance = field.getDistance(cube);
+        assertTrue(distance > 10);
+        for(int i=distance;i>0;i--){
+            cube = field.getNextCube(cube);
+            assertEquals(i-1, field.getDistance(cube));
+        }
+        assertTrue(field.isSource(cube));
+        assertEquals(-1, field.getNextCube(cube));
+    }
+
+    @Test
+    public void addRemoveSource() throws Exception {
+        world.getCube(new Vector(12,15,1)).setTerrain(Terrain.WORKSHOP);
+        assertEquals(3, field.getNbSources());
+        assertFieldConsistent();
+        world.getCube(new Vector(2,2,1)).setTerrain(Terrain.AIR);
+        assertEquals(2, field.getNbSources());
+        assertFieldConsistent();
+        world.getCube(new Vector(17,3,1)).setTerrain(Terrain.AIR);
+        world.getCube(new Vector(12,15,1)).setTerrain(Terrain.AIR);
+        assertEquals(0, field.getNbSources());
+        assertFieldConsistent();
+    }
+
+    @Test
+    public void notifyTerrainChange() throws Exception {
+        Random random = new Random(11);
+        for(int i=0;i<60;i++){
+            Vector position = new Vector(random.nextInt(20), random.nextInt(20), 1 + random.nextInt(3));
+            Terrain terrain = random.nextBoolean() ? Terrain.AIR : Terrain.ROCK;
+            world.getCube(position).setTerrain(terrain);
+            assertFieldConsistent();
+        }
+    }
+
+    @Test
+    public void maxDistance() throws Exception {
+        DistanceField bounded = new DistanceField(world, 6);
+        assertEquals(6, bounded.getMaxDistance());
+        int source = world.getCubeIndex(14,17,1);
+        bounded.addSource(source);
+        assertEquals(-1, bounded.getDistance(world.getCubeIndex(2,2,1)));
+        assertFieldConsistent(bounded, new int[]{source}, 6);
+        Random random = new Random(13);
+        for(int i=0;i<60;i++){
+            int x = random.nextInt(20), y = random.nextInt(20), z = 1 + random.nextInt(3);
+            world.getCube(new Vector(x,y,z)).setTerrain(random.nextBoolean() ? Terrain.AIR : Terrain.ROCK);
+            bounded.notifyTerrainChange(x, y, z);
+            assertFieldConsistent(bounded, new int[]{source}, 6);
+        }
+        bounded.removeSource(source);
+        assertFieldConsistent(bounded, new int[0], 6);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void maxDistanceNegative() throws Exception {
+        new DistanceField(world, -1);
+    }
+
+    /**
+     * Compare every distance of the field with a breadth-first search from all workshops.
+     */
+    private void assertFieldConsistent(){
+        assertFieldConsistent(field, world.getWorkshops().stream().mapToInt(Cube::getIndex).toArray(), Integer.MAX_VALUE);
+    }
+
+    /**
+     * Compare every distance of the given field with a breadth-first search from the given sources,
+     * up to the given maximal distance.
+     */
+    private void assertFieldConsistent(DistanceField field, int[] sources, int maxDistance){
+        int[] distances = new int[world.getNbCubeIndices()];
+        Arrays.fill(distances, -1);
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for(int source : sources){
+            distances[source] = 0;
+            queue.add(source);
+        }
+        while(!queue.isEmpty()){
+            int cube = queue.poll();
+            if(distances[cube] == maxDistance)
+                continue;
+            for(int directions = world.getWalkableDirections(cube); directions != 0; directions &= directions - 1){
+                int next = world.getNeighbouringCube(cube, Integer.numberOfTrailingZeros(directions));
+                if(distances[next] == -1){
+                    distances[next] = distances[cube] + 1;
+                    queue.add(next);
+                }
+            }
+        }
+        for(int cube=0;cube<world.getNbCubeIndices();cube++)
+            assertEquals(distances[cube], field.getDistance(cube));
+    }
+}
@@ -0,0 +1,139 @@
+package hillbillies.tests.pathfinding;
+
+import hillbillies.model.Terrain;
+import hillbillies.model.Unit;
+import hillbillies.model.World;
+import hillbillies.pathfinding.DistanceField;
+import hillbillies.pathfinding.FlowFieldRegistry;
+import hillbillies.tests.util.TestWorldBuilder;
+import hillbillies.utils.Vector;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Kenneth & Bram
+ * @version 1.0
+ */
+public class FlowFieldRegistryTest {
+
+    private World world;
+    private FlowFieldRegistry registry;
+    private int target;
+
+    @Before
+    public void setUp() throws Exception {
+        world = new TestWorldBuilder(20,20,3).withWall(10, 0, 15).build();// Wall forcing a detour
+        registry = world.getFlowFieldRegistry();
+        target = world.getCubeIndex(15,2,1);
+    }
+
+    @Test
+    public void request() throws Exception {
+        assertNull(registry.request(target));
+        assertFalse(registry.hasFlowField(target));
+        DistanceField field = registry.request(target);
+        assertNotNull(field);
+        assertTrue(field.isSource(target));
+        assertEquals(1, registry.getNbReferences(target));
+        assertSame(field, registry.request(target));
+        assertEquals(2, registry.getNbReferences(target));
+        assertSame(field, registry.getFlowField(target));
+        assertEquals(1, registry.getNbFlowFields());
+    }
+
+    @Test
+    public void requestNextTick() throws Exception {
+        assertNull(registry.request(target));
+        registry.startTick();
+        assertNull(registry.request(target));
+        assertEquals(0, registry.getNbFlowFields());
+    }
+
+    @Test
+    public void release() throws Exception {
+        registry.request(target);
+        registry.request(target);
+        registry.request(target);
+        registry.release(target);
+        assertTrue(registry.hasFlowField(target));
+        registry.release(target);
+        assertFalse(registry.hasFlowField(target));
+        assertNull(registry.getFlowField(target));
+        assertEquals(0, registry.getNbReferences(target));
+    }
+
+    @Test
+    public void getPath() throws Exception {
+        registry.request(target);
+        DistanceField field = registry.request(target);
+        int source = world.getCubeIndex(2,2,1);
+        int[] path = FlowFieldRegistry.getPath(field, source);
+        int[] shortest = world.getPathFinder().findPath(source, new int[]{target}, world::getWalkableDirections);
+        assertEquals(shortest.length, path.length);
+        assertEquals(target, path[path.length - 1]);
+        assertEquals(0, FlowFieldRegistry.getPath(field, target).length);
+        // The world keeps the flow field up to date:
+        world.getCube(new Vector(10,17,1)).setTerrain(Terrain.ROCK);
+        world.getCube(new Vector(10,16,1)).setTerrain(Terrain.ROCK);
+        world.getCube(new Vector(10,15,1)).setTerrain(Terrain.ROCK);
+        world.getCube(new Vector(10,18,1)).setTerrain(Terrain.ROCK);
+        world.getCube(new Vector(10,19,1)).setTerrain(Terrain.ROCK);
+        assertNull(FlowFieldRegistry.getPath(field, source));
+    }
+
+    @Test
+    public void requestBounded() throws Exception {
+        World corridor = new TestWorldBuilder(60,3,3).build();
+        FlowFieldRegistry registry = corridor.getFlowFieldRegistry();
+        int target = corridor.getCubeIndex(2,1,1);
+        registry.request(target);
+        DistanceField field = registry.request(target);
+        assertEquals(FlowFieldRegistry.MAX_DISTANCE, field.getMaxDistance());
+        assertEquals(FlowFieldRegistry.MAX_DISTANCE, field.getDistance(corridor.getCubeIndex(2 + FlowFieldRegistry.MAX_DISTANCE,1,1)));
+        assertEquals(-1, field.getDistance(corridor.getCubeIndex(3 + FlowFieldRegistry.MAX_DISTANCE,1,1)));
+        assertNull(FlowFieldRegistry.getPath(field, corridor.getCubeIndex(55,1,1)));
+    }
+
+    @Test
+    public void unitsBeyondFlowFieldRepairOwnPath() throws Exception {
+        World corridor = new TestWorldBuilder(60,3,3).build();
+        Unit[] units = new Unit[3];
+        for(int i=0;i<units.length;i++){
+            units[i] = new Unit(corridor, "Unit", new Vector(55,i,1));
+            units[i].moveToTarget(new Vector(2,1,1));
+        }
+        corridor.advanceTime(0.2);
+        assertTrue(corridor.getFlowFieldRegistry().hasFlowField(corridor.getCubeIndex(2,1,1)));
+        // Block the paths far beyond the reach of the flow field, which can't repair them:
+        corridor.getCube(new Vector(45,0,1)).setTerrain(Terrain.ROCK);
+        corridor.getCube(new Vector(45,1,1)).setTerrain(Terrain.ROCK);
+        for(int i=0;i<1000 && Arrays.stream(units).anyMatch(Unit::isMoving);i++)
+            corridor.advanceTime(0.2);
+        for(Unit unit : units)
+            assertEquals(new Vector(2,1,1), unit.getPosition().getCubeCoordinates());
+    }
+
+    @Test
+    public void terminatedUnitsReleaseFlowFields() throws Exception {
+        Unit[] units = new Unit[4];
+        for(int i=0;i<units.length;i++){
+            units[i] = new Unit(world, "Unit", new Vector(2+i,2,1));
+            units[i].moveToTarget(new Vector(15,2,1));
+        }
+        world.advanceTime(0.2);
+        int nbReferences = registry.getNbReferences(target);
+        assertTrue(nbReferences >= 2);// The first unit to ask for the flow field doesn't get it
+        units[units.length - 1].terminate();
+        assertEquals(nbReferences - 1, registry.getNbReferences(target));
+        for(int i=0;i<200 && (registry.getNbFlowFields() > 0 || units[0].isMoving());i++)
+            world.advanceTime(0.2);// The first unit walks along the path found by its own search
+        assertEquals(0, registry.getNbFlowFields());
+        assertEquals(0, registry.getNbReferences(target));
+        for(int i=0;i<units.length - 1;i++)
+            assertEquals(target, world.getCubeIndex(units[i].getPosition()));
+    }
+}
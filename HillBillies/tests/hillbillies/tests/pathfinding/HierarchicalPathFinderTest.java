@@ -0,0 +1,120 @@
+package hillbillies.tests.pathfinding;
+
+import hillbillies.model.Terrain;
+import hillbillies.model.World;
+import hillbillies.pathfinding.HierarchicalPathFinder;
+import hillbillies.tests.util.TestWorldBuilder;
+import hillbillies.utils.Vector;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static hillbillies.tests.util.TestWorldBuilder.randomStandableCube;
+import static org.junit.Assert.*;
+
+/**
+ * @author Kenneth & Bram
+ * @version 1.0
+ */
+public class HierarchicalPathFinderTest {
+
+    private World world;
+    private HierarchicalPathFinder pathFinder;
+
+    @Before
+    public void setUp() throws Exception {
+        world = new TestWorldBuilder(40,40,4).withRandomWood(5, 5)
+                .withWall(13, 0, 30).withWall(27, 10, 40).build();// Walls forcing detours
+        pathFinder = world.getHierarchicalPathFinder();
+        pathFinder.setDistanceThreshold(4);
+    }
+
+    @Test
+    public void findPath() throws Exception {
+        Random random = new Random(13);
+        int nbReachable = 0;
+        for(int i=0;i<100;i++){
+            int source = randomStandableCube(world, random), target = randomStandableCube(world, random);
+            int[] shortest = world.getPathFinder().findPath(source, new int[]{target}, world::getWalkableDirections);
+            int[] path = pathFinder.findPath(source, target);
+            if(shortest == null){
+                assertNull(path);
+                continue;
+            }
+            nbReachable++;
+            assertValidPath(source, target, path);
+            assertTrue(path.length >= shortest.length);
+            assertTrue(path.length <= 2*shortest.length);
+        }
+        assertTrue(nbReachable > 50);
+        assertEquals(0, pathFinder.getNbDirtyClusters());
+        assertTrue(pathFinder.getNbEntranceNodes() > 0);
+    }
+
+    @Test
+    public void notifyTerrainChange() throws Exception {
+        int source = world.getCubeIndex(2,35,1), target = world.getCubeIndex(37,2,1);
+        assertValidPath(source, target, pathFinder.findPath(source, target));
+        assertEquals(0, pathFinder.getNbDirtyClusters());
+        // Close the gap in the second wall:
+        for(int y=0;y<10;y++)
+            for(int z=1;z<4;z++)
+                world.getCube(new Vector(27,y,z)).setTerrain(Terrain.ROCK);
+        assertTrue(pathFinder.getNbDirtyClusters() > 0);
+        assertTrue(pathFinder.getNbDirtyClusters() < pathFinder.getNbClusters());
+        assertNull(pathFinder.findPath(source, target));
+        assertEquals(0, pathFinder.getNbDirtyClusters());
+        // Dig a new gap:
+        for(int z=1;z<4;z++)
+            world.getCube(new Vector(27,20,z)).setTerrain(Terrain.AIR);
+        int[] path = pathFinder.findPath(source, target);
+        assertValidPath(source, target, path);
+        boolean throughGap = false;
+        for(int cube : path)
+            throughGap |= world.getCubeX(cube) == 27 && world.getCubeY(cube) == 20;
+        assertTrue(throughGap);
+    }
+
+    @Test
+    public void notifyTerrainChangeRepeated() throws Exception {
+        int source = world.getCubeIndex(2,35,1), target = world.getCubeIndex(37,2,1);
+        int nbEntranceNodes = pathFinder.getNbEntranceNodes();
+        Random random = new Random(17);
+        for(int i=0;i<5;i++){
+            // Close the gap in the second wall and dig it out again, the freed node numbers are reused:
+            for(int y=0;y<10;y++)
+                for(int z=1;z<4;z++)
+                    world.getCube(new Vector(27,y,z)).setTerrain(Terrain.ROCK);
+            assertNull(pathFinder.findPath(source, target));
+            for(int y=0;y<10;y++)
+                for(int z=1;z<4;z++)
+                    world.getCube(new Vector(27,y,z)).setTerrain(Terrain.AIR);
+            assertValidPath(source, target, pathFinder.findPath(source, target));
+            assertEquals(nbEntranceNodes, pathFinder.getNbEntranceNodes());
+        }
+        for(int i=0;i<50;i++){
+            int from = randomStandableCube(world, random), to = randomStandableCube(world, random);
+            int[] shortest = world.getPathFinder().findPath(from, new int[]{to}, world::getWalkableDirections);
+            int[] path = pathFinder.findPath(from, to);
+            if(shortest == null)
+                assertNull(path);
+            else
+                assertValidPath(from, to, path);
+        }
+    }
+
+    private void assertValidPath(int source, int target, int[] path){
+        assertNotNull(path);
+        int previous = source;
+        for(int cube : path){
+            assertTrue(world.areNeighbouringCubes(previous, cube));
+            boolean walkable = false;
+            for(int directions = world.getWalkableDirections(previous); directions != 0; directions &= directions - 1)
+                walkable |= world.getNeighbouringCube(previous, Integer.numberOfTrailingZeros(directions)) == cube;
+            assertTrue(walkable);
+            previous = cube;
+        }
+        assertEquals(target, previous);
+    }
+}
@@ -0,0 +1,69 @@
+package hillbillies.tests.pathfinding;
+
+import hillbillies.model.World;
+import hillbillies.pathfinding.AStarPathFinder;
+import hillbillies.pathfinding.Landmarks;
+import hillbillies.tests.util.TestWorldBuilder;
+
+import java.util.Random;
+
+/**
+ * Benchmark comparing the cubes expanded by A* with the plain Chebyshev heuristic and with the
+ * lower bounds of the landmarks, over random queries on 120x120x3 worlds. One world is open
+ * terrain with random wood, the other adds walls forcing a zigzag. The total path lengths of
+ * both heuristics must be equal. The time to choose the landmarks is reported separately.
+ * Run it as a main class.
+ * @author Kenneth & Bram
+ * @version 1.0
+ */
+public class LandmarksBenchmark {
+
+    private static final int SIZE = 120;
+    private static final int NB_QUERIES = 500;
+    private static final int NB_RUNS = 3;
+
+    public static void main(String[] args){
+        TestWorldBuilder open = new TestWorldBuilder(SIZE, SIZE, 3).withRandomWood(1, 6);
+        TestWorldBuilder zigzag = new TestWorldBuilder(SIZE, SIZE, 3).withRandomWood(1, 6);
+        for(int x=10;x<SIZE;x+=20){// Walls with a gap at alternating ends
+            if((x / 20) % 2 == 0)
+                zigzag.withWall(x, 0, SIZE - 4);
+            else
+                zigzag.withWall(x, 4, SIZE);
+        }
+        measure("open terrain", open.build());
+        measure("zigzag walls", zigzag.build());
+    }
+
+    private static void measure(String name, World world){
+        Random random = new Random(1);
+        int[][] queries = new int[NB_QUERIES][];
+        for(int i=0;i<NB_QUERIES;i++)
+            queries[i] = new int[]{TestWorldBuilder.randomStandableCube(world, random), TestWorldBuilder.randomStandableCube(world, random)};
+        AStarPathFinder pathFinder = world.getPathFinder();
+        Landmarks landmarks = new Landmarks(world);
+        long start = System.nanoTime();
+        landmarks.refresh(queries[0][0]);
+        long refreshTime = System.nanoTime() - start;
+        for(int run=0;run<NB_RUNS;run++){
+            long plainExpanded = 0, plainLength = 0;
+            start = System.nanoTime();
+            for(int[] query : queries){
+                int[] path = pathFinder.findPath(query[0], new int[]{query[1]}, world::getWalkableDirections);
+                plainExpanded += pathFinder.getNbExpandedCubes();
+                plainLength += path == null ? 0 : path.length;
+            }
+            long plainTime = System.nanoTime() - start;
+            long expanded = 0, length = 0;
+            start = System.nanoTime();
+            for(int[] query : queries){
+                int[] path = pathFinder.findPath(query[0], query[1], landmarks);
+                expanded += pathFinder.getNbExpandedCubes();
+                length += path == null ? 0 : path.length;
+            }
+            long time = System.nanoTime() - start;
+            System.out.printf("%s run %d: plain %d expanded (%.1f ms), landmarks %d expanded (%.1f ms), lengths %d/%d, landmarks chosen in %.1f ms%n",
+                    name, run, plainExpanded, plainTime/1e6, expanded, time/1e6, plainLength, length, refreshTime/1e6);
+        }
+    }
+}
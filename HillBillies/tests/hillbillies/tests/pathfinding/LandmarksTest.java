@@ -0,0 +1,110 @@
+package hillbillies.tests.pathfinding;
+
+import hillbillies.model.Terrain;
+import hillbillies.model.World;
+import hillbillies.pathfinding.AStarPathFinder;
+import hillbillies.pathfinding.DistanceField;
+import hillbillies.pathfinding.Landmarks;
+import hillbillies.tests.util.TestWorldBuilder;
+import hillbillies.utils.Vector;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static hillbillies.tests.util.TestWorldBuilder.randomStandableCube;
+import static org.junit.Assert.*;
+
+/**
+ * @author Kenneth & Bram
+ * @version 1.0
+ */
+public class LandmarksTest {
+
+    private World world;
+    private Landmarks landmarks;
+
+    @Before
+    public void setUp() throws Exception {
+        TestWorldBuilder builder = new TestWorldBuilder(30,30,3);
+        for(int x=5;x<30;x+=10)// Walls forcing a zigzag
+            builder.withWall(x, 0, 26);
+        for(int x=10;x<30;x+=10)
+            builder.withWall(x, 4, 30);
+        world = builder.build();
+        landmarks = new Landmarks(world, 4);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructorIllegalNbLandmarks() throws Exception {
+        new Landmarks(world, 0);
+    }
+
+    @Test
+    public void refresh() throws Exception {
+        assertFalse(landmarks.isChosen());
+        landmarks.refresh(world.getCubeIndex(0,0,1));
+        assertTrue(landmarks.isChosen());
+        int[] chosen = landmarks.getLandmarks();
+        assertEquals(4, chosen.length);
+        Set<Integer> distinct = new HashSet<>();
+        for(int landmark : chosen){
+            assertTrue(world.isCubeStandable(landmark));
+            assertTrue(distinct.add(landmark));
+        }
+    }
+
+    @Test
+    public void getLowerBound() throws Exception {
+        Random random = new Random(3);
+        landmarks.refresh(world.getCubeIndex(0,0,1));
+        for(int i=0;i<200;i++){
+            int source = randomStandableCube(world, random), target = randomStandableCube(world, random);
+            int[] path = world.getPathFinder().findPath(source, new int[]{target}, world::getWalkableDirections);
+            int bound = landmarks.getLowerBound(source, landmarks.getDistances(target));
+            assertTrue(bound <= path.length);
+        }
+    }
+
+    @Test
+    public void findPath() throws Exception {
+        AStarPathFinder pathFinder = world.getPathFinder();
+        Random random = new Random(7);
+        long nbPlainExpandedCubes = 0, nbExpandedCubes = 0;
+        for(int i=0;i<100;i++){
+            int source = randomStandableCube(world, random), target = randomStandableCube(world, random);
+            int[] shortest = pathFinder.findPath(source, new int[]{target}, world::getWalkableDirections);
+            nbPlainExpandedCubes += pathFinder.getNbExpandedCubes();
+            int[] path = pathFinder.findPath(source, target, landmarks);
+            nbExpandedCubes += pathFinder.getNbExpandedCubes();
+            assertEquals(shortest.length, path.length);
+        }
+        assertTrue(nbExpandedCubes < nbPlainExpandedCubes);
+    }
+
+    @Test
+    public void notifyTerrainChange() throws Exception {
+        Landmarks landmarks = world.getLandmarks();// The world tells its own landmarks about terrain changes
+        landmarks.refresh(world.getCubeIndex(0,0,1));
+        for(int y=26;y<30;y++){// Close the first wall and open a gap in the second one
+            world.getCube(new Vector(5,y,1)).setTerrain(Terrain.ROCK);
+            world.getCube(new Vector(5,y,2)).setTerrain(Terrain.ROCK);
+            world.getCube(new Vector(10,y-24,1)).setTerrain(Terrain.AIR);
+        }
+        assertTrue(landmarks.getNbChangedCubes() > 0);
+        landmarks.refresh(world.getCubeIndex(0,0,1));
+        assertEquals(0, landmarks.getNbChangedCubes());
+        int[] chosen = landmarks.getLandmarks();
+        for(int i=0;i<chosen.length;i++){
+            DistanceField field = new DistanceField(world);
+            field.addSource(chosen[i]);
+            for(int x=0;x<30;x++)
+                for(int y=0;y<30;y++){
+                    int cube = world.getCubeIndex(x,y,1);
+                    assertEquals(field.getDistance(cube), landmarks.getDistances(cube)[i]);
+                }
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package hillbillies.tests.pathfinding;
+
+import hillbillies.model.Terrain;
+import hillbillies.model.World;
+import hillbillies.pathfinding.PathCache;
+import hillbillies.tests.util.TestWorldBuilder;
+import hillbillies.utils.Vector;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Kenneth & Bram
+ * @version 1.0
+ */
+public class PathCacheTest {
+
+    private World world;
+    private PathCache cache;
+    private int source, target, otherSource, otherTarget;
+    private int[] path, otherPath;
+
+    @Before
+    public void setUp() throws Exception {
+        world = new TestWorldBuilder(40,40,3).build();
+        cache = world.getPathCache();
+        source = world.getCubeIndex(1,1,1);
+        target = world.getCubeIndex(6,1,1);
+        otherSource = world.getCubeIndex(30,30,1);
+        otherTarget = world.getCubeIndex(35,35,1);
+        path = world.getPathFinder().findPath(source, new int[]{target}, world::getWalkableDirections);
+        otherPath = world.getPathFinder().findPath(otherSource, new int[]{otherTarget}, world::getWalkableDirections);
+    }
+
+    @Test
+    public void constructor() throws Exception {
+        assertEquals(world, cache.getWorld());
+        assertEquals(PathCache.DEFAULT_CAPACITY, cache.getCapacity());
+        assertEquals(0, cache.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructorIllegalCapacity() throws Exception {
+        new PathCache(world, 0);
+    }
+
+    @Test
+    public void getPut() throws Exception {
+        assertNull(cache.get(source, target));
+        cache.put(source, target, path);
+        assertArrayEquals(path, cache.get(source, target));
+        assertNull(cache.get(target, source));
+        assertEquals(1, cache.getNbHits());
+        assertEquals(2, cache.getNbMisses());
+    }
+
+    @Test
+    public void leastRecentlyUsed() throws Exception {
+        PathCache small = new PathCache(world, 2);
+        small.put(source, target, path);
+        small.put(otherSource, otherTarget, otherPath);
+        small.get(source, target);
+        small.put(target, source, new int[]{source});
+        assertEquals(2, small.size());
+        assertNotNull(small.get(source, target));
+        assertNull(small.get(otherSource, otherTarget));
+    }
+
+    @Test
+    public void notifyTerrainChange() throws Exception {
+        cache.put(source, target, path);
+        cache.put(otherSource, otherTarget, otherPath);
+        world.getCube(new Vector(3,2,1)).setTerrain(Terrain.ROCK);
+        assertNull(cache.get(source, target));
+        assertEquals(1, cache.getNbInvalidations());
+        assertArrayEquals(otherPath, cache.get(otherSource, otherTarget));
+        assertEquals(1, cache.size());
+    }
+}
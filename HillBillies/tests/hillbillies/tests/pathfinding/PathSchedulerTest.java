@@ -0,0 +1,151 @@
+package hillbillies.tests.pathfinding;
+
+import hillbillies.model.Terrain;
+import hillbillies.model.World;
+import hillbillies.pathfinding.PathScheduler;
+import hillbillies.pathfinding.PathSearch;
+import hillbillies.tests.util.TestWorldBuilder;
+import hillbillies.utils.Vector;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static hillbillies.tests.util.TestWorldBuilder.randomStandableCube;
+import static org.junit.Assert.*;
+
+/**
+ * @author Kenneth & Bram
+ * @version 1.0
+ */
+public class PathSchedulerTest {
+
+    private World world;
+    private PathScheduler scheduler;
+
+    @Before
+    public void setUp() throws Exception {
+        world = new TestWorldBuilder(30,30,3).withRandomWood(5, 5, 10).withWall(15, 0, 25).build();// Wall forcing a detour
+        scheduler = new PathScheduler(world, 256);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructorIllegalBudget() throws Exception {
+        new PathScheduler(world, PathScheduler.MIN_SLICE - 1);
+    }
+
+    @Test
+    public void resume() throws Exception {
+        Random random = new Random(9);
+        for(int i=0;i<100;i++){
+            int source = randomStandableCube(world, random), target = randomStandableCube(world, random);
+            int[] shortest = world.getPathFinder().findPath(source, new int[]{target}, world::getWalkableDirections);
+            PathSearch search = new PathSearch(world, source, target);
+            while(!search.isFinished())
+                assertTrue(search.resume(7) <= 7);
+            if(shortest == null)
+                assertNull(search.getPath());
+            else{
+                assertEquals(shortest.length, search.getPath().length);
+                if(shortest.length > 0)
+                    assertEquals(target, search.getPath()[shortest.length - 1]);
+            }
+        }
+    }
+
+    @Test
+    public void resumeAfterTerrainChange() throws Exception {
+        int source = world.getCubeIndex(2,2,1), target = world.getCubeIndex(27,2,1);
+        PathSearch search = new PathSearch(world, source, target);
+        search.resume(20);
+        for(int y=25;y<30;y++)// Close the gap in the wall
+            world.getCube(new Vector(15,y,1)).setTerrain(Terrain.ROCK);
+        while(!search.isFinished())
+            search.resume(100);
+        assertNull(search.getPath());
+        assertEquals(1, search.getNbRestarts());
+        assertTrue(search.isCurrent());
+        world.getCube(new Vector(20,20,1)).setTerrain(Terrain.ROCK);
+        assertFalse(search.isCurrent());
+        assertNotEquals(world.getTerrainEpoch(), search.getEpoch());
+    }
+
+    @Test
+    public void resumeOnSnapshot() throws Exception {
+        int source = world.getCubeIndex(2,2,1), target = world.getCubeIndex(27,2,1);
+        PathSearch search = new PathSearch(world, world.getTerrainSnapshot(), source, target);
+        long epoch = world.getTerrainEpoch();
+        search.resume(20);
+        for(int y=25;y<30;y++)// Close the gap in the wall, which the snapshot doesn't see
+            world.getCube(new Vector(15,y,1)).setTerrain(Terrain.ROCK);
+        while(!search.isFinished())
+            search.resume(100);
+        assertNotNull(search.getPath());
+        assertEquals(0, search.getNbRestarts());
+        assertEquals(epoch, search.getEpoch());
+        assertFalse(search.isCurrent());
+    }
+
+    @Test
+    public void resumeRestartsCapped() throws Exception {
+        int source = world.getCubeIndex(2,2,1), target = world.getCubeIndex(27,2,1);
+        PathSearch search = new PathSearch(world, source, target);
+        Random random = new Random(3);
+        for(int i=0;!search.isFinished();i++){
+            search.resume(20);
+            world.getCube(new Vector(random.nextInt(30),random.nextInt(10),2)).setTerrain(i % 2 == 0 ? Terrain.ROCK : Terrain.AIR);
+        }
+        assertEquals(PathSearch.MAX_NB_RESTARTS, search.getNbRestarts());
+        assertNotNull(search.getPath());
+        assertFalse(search.isCurrent());// It continued on terrain which changed
+        assertTrue(search.getNbExpandedCubes() <= (PathSearch.MAX_NB_RESTARTS + 1) * world.getNbCubeIndices());
+    }
+
+    @Test
+    public void submit() throws Exception {
+        int source = world.getCubeIndex(2,2,1), target = world.getCubeIndex(27,2,1);
+        PathSearch search = new PathSearch(world, source, target);
+        scheduler.submit(search);
+        assertFalse(search.isFinished());
+        assertEquals(256, scheduler.getNbExpandedCubes());
+        assertEquals(1, scheduler.getNbPendingSearches());
+        int nbTicks = 1;
+        while(!search.isFinished()){
+            scheduler.startTick();
+            assertTrue(scheduler.getNbExpandedCubes() <= scheduler.getBudget());
+            nbTicks++;
+        }
+        assertNotNull(search.getPath());
+        assertEquals(nbTicks, search.getNbTicks());
+        assertEquals(1, scheduler.getNbFinishedSearches());
+        assertEquals(nbTicks, scheduler.getMaxNbTicks());
+        assertEquals(0, scheduler.getNbPendingSearches());
+    }
+
+    @Test
+    public void startTickFair() throws Exception {
+        scheduler.submit(new PathSearch(world, world.getCubeIndex(2,2,1), world.getCubeIndex(27,2,1)));// Uses the whole budget
+        PathSearch[] searches = new PathSearch[3];
+        for(int i=0;i<searches.length;i++){
+            searches[i] = new PathSearch(world, world.getCubeIndex(2,4+i,1), world.getCubeIndex(27,4+i,1));
+            scheduler.submit(searches[i]);
+        }
+        assertEquals(4, scheduler.getNbPendingSearches());
+        scheduler.startTick();
+        assertEquals(256, scheduler.getNbExpandedCubes());
+        for(PathSearch search : searches){
+            assertEquals(256 / 4, search.getNbExpandedCubes());
+            assertEquals(2, search.getNbTicks());
+        }
+    }
+
+    @Test
+    public void cancel() throws Exception {
+        PathSearch search = new PathSearch(world, world.getCubeIndex(2,2,1), world.getCubeIndex(27,2,1));
+        scheduler.submit(search);
+        scheduler.cancel(search);
+        assertEquals(0, scheduler.getNbPendingSearches());
+        scheduler.startTick();
+        assertEquals(0, scheduler.getNbExpandedCubes());
+    }
+}
@@ -0,0 +1,86 @@
+package hillbillies.tests.pathfinding;
+
+import hillbillies.model.Terrain;
+import hillbillies.model.World;
+import hillbillies.pathfinding.PathService;
+import hillbillies.pathfinding.TerrainSnapshot;
+import hillbillies.tests.util.TestWorldBuilder;
+import hillbillies.utils.Vector;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Kenneth & Bram
+ * @version 1.0
+ */
+public class PathServiceTest {
+
+    private World world;
+    private PathService service;
+
+    @Before
+    public void setUp() throws Exception {
+        world = new TestWorldBuilder(20,20,3).withWall(10, 0, 20).build();// Wall splitting the world in two
+        service = new PathService(world, 2, 4);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        service.shutdown();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructorIllegalNbWorkers() throws Exception {
+        new PathService(world, 0, 4);
+    }
+
+    @Test
+    public void submit() throws Exception {
+        int source = world.getCubeIndex(1,1,1), target = world.getCubeIndex(8,15,1);
+        Future<PathService.PathResult> future = service.submit(source, new int[]{target});
+        PathService.PathResult result = future.get();
+        assertFalse(result.isStale());
+        assertEquals(world.getTerrainEpoch(), result.getEpoch());
+        int[] shortest = world.getPathFinder().findPath(source, new int[]{target}, world::getWalkableDirections);
+        assertEquals(shortest.length, result.getPath().length);
+        assertEquals(target, result.getPath()[shortest.length - 1]);
+    }
+
+    @Test
+    public void submitUnreachable() throws Exception {
+        int source = world.getCubeIndex(1,1,1), target = world.getCubeIndex(15,1,1);
+        assertNull(service.submit(source, new int[]{target}).get().getPath());
+    }
+
+    @Test
+    public void staleResult() throws Exception {
+        int source = world.getCubeIndex(1,1,1), target = world.getCubeIndex(8,15,1);
+        PathService.PathResult result = service.submit(source, new int[]{target}).get();
+        world.getCube(new Vector(5,5,1)).setTerrain(Terrain.ROCK);
+        assertTrue(result.isStale());
+    }
+
+    @Test
+    public void terrainSnapshot() throws Exception {
+        int cube = world.getCubeIndex(5,5,1);
+        TerrainSnapshot snapshot = world.getTerrainSnapshot();
+        assertSame(snapshot, world.getTerrainSnapshot());
+        int directions = world.getWalkableDirections(cube);
+        world.getCube(new Vector(6,5,1)).setTerrain(Terrain.ROCK);
+        assertNotEquals(directions, world.getWalkableDirections(cube));
+        assertEquals(directions, snapshot.getWalkableDirections(cube));
+        assertEquals(world.getWalkableDirections(cube), world.getTerrainSnapshot().getWalkableDirections(cube));
+        assertTrue(world.getTerrainSnapshot().getEpoch() > snapshot.getEpoch());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void submitShutdown() throws Exception {
+        service.shutdown();
+        service.submit(0, new int[]{1});
+    }
+}
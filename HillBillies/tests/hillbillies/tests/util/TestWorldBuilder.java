@@ -0,0 +1,95 @@
+package hillbillies.tests.util;
+
+import hillbillies.model.CubeLayout;
+import hillbillies.model.Terrain;
+import hillbillies.model.World;
+
+import java.util.Random;
+
+/**
+ * Builder for the small worlds of the pathfinding tests: a rock floor, optionally with random
+ * wood on top of it and walls which split the world or force a detour.
+ * @author Kenneth & Bram
+ * @version 1.0
+ */
+public class TestWorldBuilder {
+
+    private final int[][][] terrain;
+    private CubeLayout cubeLayout = CubeLayout.LINEAR;
+
+    /**
+     * Initialize a new builder of a world with the given dimensions and a rock floor at z = 0.
+     */
+    public TestWorldBuilder(int nbX, int nbY, int nbZ){
+        this.terrain = new int[nbX][nbY][nbZ];
+        for(int x=0;x<nbX;x++)
+            for(int y=0;y<nbY;y++)
+                this.terrain[x][y][0] = Terrain.ROCK.getId();
+    }
+
+    /**
+     * Put wood on the floor, at each cube with a chance of one in the given number.
+     */
+    public TestWorldBuilder withRandomWood(long seed, int oneIn){
+        return this.withRandomWood(seed, oneIn, 0);
+    }
+
+    /**
+     * Put wood on the floor of the rows from the given y on, at each cube with a chance of one
+     * in the given number.
+     */
+    public TestWorldBuilder withRandomWood(long seed, int oneIn, int fromY){
+        Random random = new Random(seed);
+        for(int x=0;x<this.terrain.length;x++)
+            for(int y=fromY;y<this.terrain[x].length;y++)
+                if(random.nextInt(oneIn) == 0)
+                    this.terrain[x][y][1] = Terrain.WOOD.getId();
+        return this;
+    }
+
+    /**
+     * Put a rock wall on the floor at the given x, from the given y up to but not including the
+     * given end, reaching up to the top of the world.
+     */
+    public TestWorldBuilder withWall(int x, int fromY, int toY){
+        for(int y=fromY;y<toY;y++)
+            for(int z=1;z<this.terrain[x][y].length;z++)
+                this.terrain[x][y][z] = Terrain.ROCK.getId();
+        return this;
+    }
+
+    /**
+     * Set the terrain of the given cube.
+     */
+    public TestWorldBuilder withCube(int x, int y, int z, Terrain terrain){
+        this.terrain[x][y][z] = terrain.getId();
+        return this;
+    }
+
+    /**
+     * Store the cubes of the built world in the given layout.
+     */
+    public TestWorldBuilder withCubeLayout(CubeLayout cubeLayout){
+        this.cubeLayout = cubeLayout;
+        return this;
+    }
+
+    /**
+     * Return a new world with the terrain of this builder.
+     */
+    public World build(){
+        return new World(this.terrain, null, this.cubeLayout);
+    }
+
+    /**
+     * Return a random standable cube of the given world.
+     */
+    public static int randomStandableCube(World world, Random random){
+        int cube;
+        do{
+            cube = world.getCubeIndex(random.nextInt(world.getNbCubesX()), random.nextInt(world.getNbCubesY()),
+                    random.nextInt(world.getNbCubesZ()));
+        }while(!world.isCubeStandable(cube));
+        return cube;
+    }
+}
@@ -0,0 +1,100 @@
+package hillbillies.tests.utils;
+
+import hillbillies.part2.internal.map.CubeType;
+import hillbillies.part2.internal.map.GameMap;
+import hillbillies.part2.internal.map.GameMapReader;
+import hillbillies.util.ConnectedToBorder;
+import hillbillies.utils.BitField;
+import hillbillies.utils.IndexedConnectedToBorder;
+
+import java.io.InputStreamReader;
+import java.util.*;
+
+/**
+ * Benchmark comparing IndexedConnectedToBorder with the provided ConnectedToBorder on the
+ * dig_test and 50x50x50 maps. Each run digs out the passable cubes of the map, like a world
+ * being constructed, and then digs 3000 random solid cubes, letting the disconnected cubes
+ * collapse. The construction is also timed with a single call to initialize.
+ * Run it as a main class, with the provided resources on the classpath.
+ * @author Kenneth & Bram
+ * @version 1.0
+ */
+public class IndexedConnectedToBorderBenchmark {
+
+    private static final String[] MAPS = {"dig_test.wrld", "50x50x50.wrld"};
+    private static final int NB_RUNS = 4;
+    private static final int NB_DIGS = 3000;
+
+    /**
+     * Interface for the change from solid to passable of both implementations.
+     */
+    private interface Digger {
+        List<int[]> changeSolidToPassable(int x, int y, int z);
+    }
+
+    public static void main(String[] args) throws Exception {
+        for(String name : MAPS){
+            GameMap map = new GameMapReader().readFromReader(new InputStreamReader(
+                    IndexedConnectedToBorderBenchmark.class.getClassLoader().getResourceAsStream("resources/" + name)));
+            int nbX = map.getNbTilesX(), nbY = map.getNbTilesY(), nbZ = map.getNbTilesZ();
+            for(int run=0;run<NB_RUNS;run++){
+                ConnectedToBorder provided = new ConnectedToBorder(nbX, nbY, nbZ);
+                long providedTime = digAll(map, provided::changeSolidToPassable, run);
+                IndexedConnectedToBorder indexed = new IndexedConnectedToBorder(nbX, nbY, nbZ);
+                long indexedTime = digAll(map, indexed::changeSolidToPassable, run);
+                long initializeTime = initialize(map);
+                System.out.printf("%s run %d: provided %.1f ms, indexed %.1f ms, bulk initialize %.2f ms%n",
+                        name, run, providedTime/1e6, indexedTime/1e6, initializeTime/1e6);
+            }
+        }
+    }
+
+    /**
+     * Dig out the passable cubes of the given map and then a number of random solid cubes.
+     * @return The elapsed time in nanoseconds.
+     */
+    private static long digAll(GameMap map, Digger digger, long seed){
+        long start = System.nanoTime();
+        List<int[]> solids = new ArrayList<>();
+        for(int z=0;z<map.getNbTilesZ();z++)
+            for(int y=0;y<map.getNbTilesY();y++)
+                for(int x=0;x<map.getNbTilesX();x++){
+                    CubeType type = map.getTypeAt(x, y, z);
+                    if(type == CubeType.EMPTY || type == CubeType.WORKSHOP)
+                        dig(digger, x, y, z);
+                    else
+                        solids.add(new int[]{x, y, z});
+                }
+        Collections.shuffle(solids, new Random(seed));
+        for(int i=0;i<Math.min(solids.size(), NB_DIGS);i++)
+            dig(digger, solids.get(i)[0], solids.get(i)[1], solids.get(i)[2]);
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * Make the given cube passable and let the cubes which are no longer connected to the border collapse.
+     */
+    private static void dig(Digger digger, int x, int y, int z){
+        for(int[] cube : digger.changeSolidToPassable(x, y, z))
+            dig(digger, cube[0], cube[1], cube[2]);
+    }
+
+    /**
+     * Initialize the connectivity of the given map in one flood.
+     * @return The elapsed time in nanoseconds.
+     */
+    private static long initialize(GameMap map){
+        long start = System.nanoTime();
+        IndexedConnectedToBorder indexed = new IndexedConnectedToBorder(map.getNbTilesX(), map.getNbTilesY(), map.getNbTilesZ());
+        BitField passable = new BitField(map.getNbTilesX()*map.getNbTilesY()*map.getNbTilesZ());
+        for(int z=0;z<map.getNbTilesZ();z++)
+            for(int y=0;y<map.getNbTilesY();y++)
+                for(int x=0;x<map.getNbTilesX();x++){
+                    CubeType type = map.getTypeAt(x, y, z);
+                    if(type == CubeType.EMPTY || type == CubeType.WORKSHOP)
+                        passable.set(indexed.getIndex(x, y, z));
+                }
+        indexed.initialize(passable);
+        return System.nanoTime() - start;
+    }
+}
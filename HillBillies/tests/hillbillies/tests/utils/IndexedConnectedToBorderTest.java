@@ -0,0 +1,150 @@
+package hillbillies.tests.utils;
+
+import hillbillies.part2.internal.map.CubeType;
+import hillbillies.part2.internal.map.GameMap;
+import hillbillies.part2.internal.map.GameMapReader;
+import hillbillies.util.ConnectedToBorder;
+import hillbillies.utils.BitField;
+import hillbillies.utils.IndexedConnectedToBorder;
+import org.junit.Test;
+
+import java.io.InputStreamReader;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * Differential test of IndexedConnectedToBorder against the provided ConnectedToBorder.
+ * @author Kenneth & Bram
+ * @version 1.0
+ */
+public class IndexedConnectedToBorderTest {
+
+    private ConnectedToBorder expected;
+    private IndexedConnectedToBorder actual;
+
+    @Test
+    public void constructor() throws Exception {
+        actual = new IndexedConnectedToBorder(4, 5, 6);
+        assertEquals(4, actual.getNbX());
+        assertEquals(5, actual.getNbY());
+        assertEquals(6, actual.getNbZ());
+        for(int x=0;x<4;x++)
+            for(int y=0;y<5;y++)
+                for(int z=0;z<6;z++)
+                    assertTrue(actual.isSolidConnectedToBorder(x, y, z));
+    }
+
+    @Test
+    public void randomChanges() throws Exception {
+        int nb = 10;
+        expected = new ConnectedToBorder(nb, nb, nb);
+        actual = new IndexedConnectedToBorder(nb, nb, nb);
+        Random random = new Random(3);
+        int nbConnected = 0, nbDisconnected = 0;
+        for(int i=0;i<3000;i++){
+            int x = random.nextInt(nb), y = random.nextInt(nb), z = random.nextInt(nb);
+            List<int[]> changed;
+            if(random.nextInt(3) == 0){
+                changed = expected.changePassableToSolid(x, y, z);
+                assertSameCubes(changed, actual.changePassableToSolid(x, y, z));
+                nbConnected += changed.size();
+            }else{
+                changed = expected.changeSolidToPassable(x, y, z);
+                assertSameCubes(changed, actual.changeSolidToPassable(x, y, z));
+                nbDisconnected += changed.size();
+            }
+            assertSameState(nb, nb, nb);
+        }
+        assertTrue(nbConnected > 0 && nbDisconnected > 0);
+    }
+
+    @Test
+    public void digTest() throws Exception {
+        GameMap map = new GameMapReader().readFromReader(new InputStreamReader(
+                getClass().getClassLoader().getResourceAsStream("resources/dig_test.wrld")));
+        int nbX = map.getNbTilesX(), nbY = map.getNbTilesY(), nbZ = map.getNbTilesZ();
+        expected = new ConnectedToBorder(nbX, nbY, nbZ);
+        actual = new IndexedConnectedToBorder(nbX, nbY, nbZ);
+        List<int[]> solids = new ArrayList<>();
+        for(int z=0;z<nbZ;z++)
+            for(int y=0;y<nbY;y++)
+                for(int x=0;x<nbX;x++){
+                    CubeType type = map.getTypeAt(x, y, z);
+                    if(type == CubeType.EMPTY || type == CubeType.WORKSHOP)
+                        dig(x, y, z);
+                    else
+                        solids.add(new int[]{x, y, z});
+                }
+        assertSameState(nbX, nbY, nbZ);
+        Collections.shuffle(solids, new Random(5));
+        for(int[] solid : solids){
+            dig(solid[0], solid[1], solid[2]);
+            assertSameState(nbX, nbY, nbZ);
+        }
+    }
+
+    @Test
+    public void initialize() throws Exception {
+        int nb = 12;
+        Random random = new Random(7);
+        for(int i=0;i<20;i++){
+            expected = new ConnectedToBorder(nb, nb, nb);
+            actual = new IndexedConnectedToBorder(nb, nb, nb);
+            actual.changeSolidToPassable(1, 1, 1);// Any earlier state is overwritten
+            BitField passable = new BitField(nb*nb*nb);
+            Set<List<Integer>> disconnected = new HashSet<>();
+            for(int x=0;x<nb;x++)
+                for(int y=0;y<nb;y++)
+                    for(int z=0;z<nb;z++)
+                        if(random.nextInt(10) < 3 + i % 4){
+                            passable.set(actual.getIndex(x, y, z));
+                            disconnected.addAll(toSet(expected.changeSolidToPassable(x, y, z)));
+                        }
+            for(int x=0;x<nb;x++)
+                for(int y=0;y<nb;y++)
+                    for(int z=0;z<nb;z++)
+                        if(passable.get(actual.getIndex(x, y, z)))
+                            disconnected.remove(Arrays.asList(x, y, z));
+            List<int[]> result = actual.initialize(passable);
+            assertEquals(disconnected, toSet(result));
+            assertEquals(disconnected.size(), result.size());
+            assertSameState(nb, nb, nb);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void initializeInvalidSize() throws Exception {
+        new IndexedConnectedToBorder(4, 5, 6).initialize(new BitField(4*5*6 + 1));
+    }
+
+    /**
+     * Make the given cube passable in both implementations, and let the cubes which are no
+     * longer connected to the border collapse, like a world does.
+     */
+    private void dig(int x, int y, int z){
+        List<int[]> disconnected = expected.changeSolidToPassable(x, y, z);
+        assertSameCubes(disconnected, actual.changeSolidToPassable(x, y, z));
+        for(int[] cube : disconnected)
+            dig(cube[0], cube[1], cube[2]);
+    }
+
+    private void assertSameCubes(List<int[]> expectedCubes, List<int[]> actualCubes){
+        assertEquals(toSet(expectedCubes), toSet(actualCubes));
+        assertEquals(expectedCubes.size(), actualCubes.size());
+    }
+
+    private void assertSameState(int nbX, int nbY, int nbZ){
+        for(int x=0;x<nbX;x++)
+            for(int y=0;y<nbY;y++)
+                for(int z=0;z<nbZ;z++)
+                    assertEquals(expected.isSolidConnectedToBorder(x, y, z), actual.isSolidConnectedToBorder(x, y, z));
+    }
+
+    private static Set<List<Integer>> toSet(List<int[]> cubes){
+        Set<List<Integer>> set = new HashSet<>();
+        for(int[] cube : cubes)
+            set.add(Arrays.asList(cube[0], cube[1], cube[2]));
+        return set;
+    }
+}